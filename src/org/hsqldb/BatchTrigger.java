@@ -0,0 +1,79 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+/**
+ * A Trigger that can receive several rows in one invocation. <p>
+ *
+ * When a trigger is created with a QUEUE size greater than zero, the rows
+ * queued for the trigger are fired by a thread of a shared executor. If the
+ * trigger class implements this interface, all the rows queued since the
+ * previous invocation are passed together to fireBatch() instead of calling
+ * fire() once for each row. The rows are in the order they were queued.<p>
+ *
+ * Triggers with a zero QUEUE size are fired inside the triggering statement
+ * and always use the fire() method.<p>
+ *
+ * The executor is shared by the queued triggers of all the databases in the
+ * JVM and has as many threads as processors, unless the hsqldb.trigger_threads
+ * system property is set. A fireBatch() or fire() call that blocks, for
+ * example on a lock held by another session, keeps one thread busy. If all
+ * the threads are blocked, other queued triggers are not fired until one
+ * returns. Triggers that can block should use a zero QUEUE size, or the
+ * property should be set to 0, which uses a thread for each trigger that has
+ * rows to fire.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public interface BatchTrigger extends Trigger {
+
+    /**
+     * The method invoked upon each batch of queued triggered actions.
+     *
+     * <p> type, trigName and tabName are the same as for the fire() method.
+     * oldRows and newRows have the same length. Each pair of elements at the
+     * same index contains the oldRow and newRow that would be passed to a
+     * single fire() call.
+     *
+     * @param type the type as one of the int values defined in Trigger
+     * @param trigName the name of the trigger
+     * @param tabName the name of the table upon which the triggered action is
+     *   occuring
+     * @param oldRows the old rows
+     * @param newRows the new rows
+     * @throws HsqlException
+     */
+    void fireBatch(int type, String trigName, String tabName,
+                   Object[][] oldRows, Object[][] newRows) throws HsqlException;
+}
@@ -45,7 +45,11 @@ import java.util.TimeZone;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.jdbc.JDBCConnection;
+import org.hsqldb.lib.BlockDeflaterOutputStream;
+import org.hsqldb.lib.BlockInflaterInputStream;
 import org.hsqldb.lib.DataOutputStream;
+import org.hsqldb.lib.HsqlByteArrayOutputStream;
+import org.hsqldb.lib.LongKeyHashMap;
 import org.hsqldb.map.ValuePool;
 import org.hsqldb.navigator.RowSetNavigatorClient;
 import org.hsqldb.persist.HsqlProperties;
@@ -89,9 +93,12 @@ public class ClientConnection implements SessionInterface {
     public static final int    NETWORK_COMPATIBILITY_VERSION_INT = -2010000;
 
     //
-    static final int             BUFFER_SIZE = 0x1000;
-    final byte[]                 mainBuffer  = new byte[BUFFER_SIZE];
+    static final int             BUFFER_SIZE        = 0x1000;
+    static final int             MAX_ASYNC_REQUESTS = 64;
+    static final int             MAX_ASYNC_BYTES    = 0x2000;
+    final byte[]                 mainBuffer         = new byte[BUFFER_SIZE];
     private boolean              isClosed;
+    private boolean              isCompressed;
     private Socket               socket;
     protected DataOutputStream   dataOutput;
     protected DataInputStream    dataInput;
@@ -101,6 +108,12 @@ public class ClientConnection implements SessionInterface {
     private long                 sessionID;
     private long                 lobIDSequence = -1;
 
+    // requests sent by executeAsync and the responses read so far
+    private long           asyncRequestCount;
+    private long           asyncResponseCount;
+    private LongKeyHashMap asyncResults = new LongKeyHashMap();
+    private long           asyncRequestBytes;
+
     //
     private boolean  isReadOnlyDefault = false;
     private boolean  isAutoCommit      = true;
@@ -225,7 +238,12 @@ public class ClientConnection implements SessionInterface {
         try {
             r.setSessionId(sessionID);
             r.setDatabaseId(databaseID);
-            write(r);
+            writeRequest(r);
+
+            // responses arrive in the order of the requests
+            while (asyncResponseCount < asyncRequestCount) {
+                readAsyncResult();
+            }
 
             return read();
         } catch (Throwable e) {
@@ -233,6 +251,137 @@ public class ClientConnection implements SessionInterface {
         }
     }
 
+    /**
+     * The request is written to the socket and the response is left to be
+     * read later, so that several requests, including a following
+     * synchronous one such as a commit, share a single round trip. The
+     * server processes the requests of a connection in order.<p>
+     *
+     * The number of outstanding requests is limited so that the responses
+     * queued by the server do not fill the socket buffers while this side
+     * is still writing.
+     */
+    public synchronized long executeAsync(Result r) {
+
+        if (isClosed || !isPipelined()) {
+            Result result = execute(r);
+
+            asyncRequestCount++;
+            asyncResponseCount++;
+
+            asyncResults.put(asyncResponseCount, result);
+
+            return asyncRequestCount;
+        }
+
+        try {
+            if (asyncRequestCount - asyncResponseCount >= MAX_ASYNC_REQUESTS) {
+                readAsyncResult();
+            }
+
+            r.setSessionId(sessionID);
+            r.setDatabaseId(databaseID);
+            writeRequest(r);
+
+            asyncRequestCount++;
+
+            return asyncRequestCount;
+        } catch (Throwable e) {
+            throw Error.error(ErrorCode.X_08006, e.toString());
+        }
+    }
+
+    public synchronized Result getAsyncResult(long requestId) {
+
+        try {
+            while (asyncResponseCount < requestId) {
+                readAsyncResult();
+            }
+        } catch (Throwable e) {
+            throw Error.error(ErrorCode.X_08006, e.toString());
+        }
+
+        return (Result) asyncResults.remove(requestId);
+    }
+
+    /**
+     * While responses are outstanding, the server may be blocked writing a
+     * large response, such as a prefetched block of rows, until this side
+     * reads it. The requests written meanwhile must fit in the socket
+     * buffers. They are therefore serialised first, and the outstanding
+     * responses are read before writing a request that would take the bytes
+     * written since the last response over MAX_ASYNC_BYTES. Batches and
+     * requests with LOB data, which can be large streams, are written only
+     * when no response is outstanding.
+     */
+    private void writeRequest(Result r) throws IOException, HsqlException {
+
+        if (asyncResponseCount == asyncRequestCount) {
+            asyncRequestBytes = 0;
+
+            write(r);
+
+            return;
+        }
+
+        switch (r.getType()) {
+
+            case ResultConstants.BATCHEXECUTE :
+            case ResultConstants.BATCHEXECDIRECT :
+            case ResultConstants.LARGE_OBJECT_OP :
+                readAsyncResults();
+                write(r);
+
+                return;
+
+            default :
+                if (r.getLobCount() > 0) {
+                    readAsyncResults();
+                    write(r);
+
+                    return;
+                }
+        }
+
+        HsqlByteArrayOutputStream buffer = new HsqlByteArrayOutputStream();
+
+        r.write(this, new DataOutputStream(buffer), rowOut);
+
+        if (asyncRequestBytes + buffer.size() > MAX_ASYNC_BYTES) {
+            readAsyncResults();
+        } else {
+            asyncRequestBytes += buffer.size();
+        }
+
+        dataOutput.write(buffer.getBuffer(), 0, buffer.size());
+        dataOutput.flush();
+    }
+
+    private void readAsyncResults() throws IOException, HsqlException {
+
+        while (asyncResponseCount < asyncRequestCount) {
+            readAsyncResult();
+        }
+
+        asyncRequestBytes = 0;
+    }
+
+    private void readAsyncResult() throws IOException, HsqlException {
+
+        Result result = read();
+
+        asyncResponseCount++;
+
+        asyncResults.put(asyncResponseCount, result);
+    }
+
+    /**
+     * Requests can be sent ahead of responses on a persistent connection.
+     */
+    protected boolean isPipelined() {
+        return true;
+    }
+
     public synchronized RowSetNavigatorClient getRows(long navigatorId,
             int offset, int size) {
 
@@ -339,6 +488,42 @@ public class ClientConnection implements SessionInterface {
         }
     }
 
+    /**
+     * Asks the server to compress the stream in both directions from the
+     * next request. A server that does not support compression returns an
+     * update count of zero and the stream is left uncompressed.
+     */
+    public synchronized void startCompression() {
+
+        if (isCompressed || !isPipelined()) {
+            return;
+        }
+
+        resultOut.setResultType(ResultConstants.SETSESSIONATTR);
+
+        Object[] data = resultOut.getSingleRowData();
+
+        data[SessionInterface.INFO_ID] =
+            ValuePool.getInt(SessionInterface.INFO_NETWORK_COMPRESSION);
+        data[SessionInterface.INFO_BOOLEAN] = Boolean.TRUE;
+
+        Result resultIn = execute(resultOut);
+
+        if (resultIn.isError()) {
+            throw Error.error(resultIn);
+        }
+
+        if (resultIn.getUpdateCount() != 1) {
+            return;
+        }
+
+        dataOutput = new DataOutputStream(
+            new BlockDeflaterOutputStream(dataOutput));
+        dataInput = new DataInputStream(
+            new BlockInflaterInputStream(dataInput));
+        isCompressed = true;
+    }
+
     public synchronized boolean isReadOnlyDefault() {
 
         Object info = getAttribute(SessionInterface.INFO_CONNECTION_READONLY);
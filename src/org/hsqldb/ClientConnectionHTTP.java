@@ -119,6 +119,13 @@ public class ClientConnectionHTTP extends ClientConnection {
         return result;
     }
 
+    /**
+     * Each request is a separate HTTP exchange.
+     */
+    protected boolean isPipelined() {
+        return false;
+    }
+
     protected void write(Result r) throws IOException, HsqlException {
 
         HsqlByteArrayOutputStream memStream  = new HsqlByteArrayOutputStream();
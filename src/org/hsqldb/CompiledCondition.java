@@ -0,0 +1,877 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.types.Type;
+import org.hsqldb.types.Types;
+
+/**
+ * Evaluates a search condition over INTEGER, BIGINT and DOUBLE values as
+ * Java primitives.<p>
+ *
+ * The tree of a condition such as <code>a + b &gt; ?</code> is compiled into
+ * a tree of nodes that return <code>int</code>, <code>long</code> or
+ * <code>double</code> values for the arithmetic and a three valued
+ * <code>int</code> for the logical operations. Column values and parameters
+ * are read from the current row without conversion and intermediate results
+ * are never boxed, so the evaluation of a filter does not create any objects
+ * for each row.<p>
+ *
+ * A null operand is signalled by the isPrimitiveNull flag of the
+ * SessionContext. The flag is clear when a numeric node is evaluated and is
+ * set on return if the result is null. Operands are evaluated in the same
+ * order as in Expression.getValue(), so the same exceptions are thrown.<p>
+ *
+ * Subexpressions of other types or operations are evaluated with their
+ * getValue() method and used as leaves of the tree. Compiled nodes have no
+ * mutable state and can be used by several sessions at the same time.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+final class CompiledCondition {
+
+    static final int TRUE    = 1;
+    static final int FALSE   = 0;
+    static final int UNKNOWN = -1;
+
+    //
+    static final int KIND_INT    = 0;
+    static final int KIND_LONG   = 1;
+    static final int KIND_DOUBLE = 2;
+
+    //
+    static final int COMPARE_LONG        = 0;
+    static final int COMPARE_LONG_DOUBLE = 1;
+    static final int COMPARE_INT_DOUBLE  = 2;
+    static final int COMPARE_DOUBLE      = 3;
+
+    //
+    private final LogicalNode root;
+
+    private CompiledCondition(LogicalNode root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns a compiled form of the condition, or null if the condition
+     * contains no numeric comparison that can be evaluated with primitives.
+     */
+    static CompiledCondition compile(Expression e) {
+
+        boolean[]   hasComparison = new boolean[1];
+        LogicalNode node          = compileLogical(e, hasComparison);
+
+        if (!hasComparison[0]) {
+            return null;
+        }
+
+        return new CompiledCondition(node);
+    }
+
+    boolean testCondition(Session session) {
+
+        session.sessionContext.isPrimitiveNull = false;
+
+        return root.test(session) == TRUE;
+    }
+
+    Object getValue(Session session) {
+
+        session.sessionContext.isPrimitiveNull = false;
+
+        switch (root.test(session)) {
+
+            case TRUE :
+                return Boolean.TRUE;
+
+            case FALSE :
+                return Boolean.FALSE;
+
+            default :
+                return null;
+        }
+    }
+
+    private static LogicalNode compileLogical(Expression e,
+            boolean[] hasComparison) {
+
+        if (!(e instanceof ExpressionLogical)) {
+            return new BooleanLeaf(e);
+        }
+
+        switch (e.opType) {
+
+            case OpTypes.AND :
+            case OpTypes.OR : {
+                LogicalNode left = compileLogical(e.nodes[Expression.LEFT],
+                                                  hasComparison);
+                LogicalNode right = compileLogical(e.nodes[Expression.RIGHT],
+                                                   hasComparison);
+
+                return e.opType == OpTypes.AND ? (LogicalNode) new AndNode(left,
+                        right)
+                                               : new OrNode(left, right);
+            }
+            case OpTypes.NOT :
+                return new NotNode(compileLogical(e.nodes[Expression.LEFT],
+                                                  hasComparison));
+
+            case OpTypes.IS_NULL :
+            case OpTypes.IS_NOT_NULL : {
+                NumericNode operand = compileNumeric(e.nodes[Expression.LEFT]);
+
+                if (operand == null) {
+                    break;
+                }
+
+                return new NullTestNode(operand,
+                                        e.opType == OpTypes.IS_NULL);
+            }
+            case OpTypes.EQUAL :
+            case OpTypes.GREATER :
+            case OpTypes.GREATER_EQUAL :
+            case OpTypes.GREATER_EQUAL_PRE :
+            case OpTypes.SMALLER_EQUAL :
+            case OpTypes.SMALLER :
+            case OpTypes.NOT_EQUAL : {
+                if (e.exprSubType == OpTypes.ANY_QUANTIFIED
+                        || e.exprSubType == OpTypes.ALL_QUANTIFIED) {
+                    break;
+                }
+
+                NumericNode left  = compileNumeric(e.nodes[Expression.LEFT]);
+                NumericNode right = compileNumeric(e.nodes[Expression.RIGHT]);
+
+                if (left == null || right == null) {
+                    break;
+                }
+
+                int mode = getCompareMode(left.kind, right.kind);
+
+                if (mode < 0) {
+                    break;
+                }
+
+                hasComparison[0] = true;
+
+                return new CompareNode(e.opType, mode, left, right);
+            }
+        }
+
+        return new BooleanLeaf(e);
+    }
+
+    static NumericNode compileNumeric(Expression e) {
+
+        int kind = getKind(e.dataType);
+
+        if (kind < 0) {
+            return null;
+        }
+
+        switch (e.opType) {
+
+            case OpTypes.VALUE :
+            case OpTypes.COLUMN :
+            case OpTypes.SIMPLE_COLUMN :
+            case OpTypes.DYNAMIC_PARAM :
+            case OpTypes.VARIABLE :
+            case OpTypes.PARAMETER :
+                return new NumericLeaf(e, kind);
+
+            case OpTypes.NEGATE :
+            case OpTypes.ADD :
+            case OpTypes.SUBTRACT :
+            case OpTypes.MULTIPLY :
+            case OpTypes.DIVIDE : {
+                if (!(e instanceof ExpressionArithmetic)) {
+                    return null;
+                }
+
+                NumericNode left = compileNumeric(e.nodes[Expression.LEFT]);
+                NumericNode right;
+
+                if (left == null) {
+                    return null;
+                }
+
+                if (e.opType == OpTypes.NEGATE) {
+                    right = null;
+                } else {
+                    right = compileNumeric(e.nodes[Expression.RIGHT]);
+
+                    if (right == null) {
+                        return null;
+                    }
+                }
+
+                int typeCode = e.dataType.typeCode;
+
+                switch (kind) {
+
+                    case KIND_INT :
+                        return new IntArithmetic(e.opType, typeCode, left,
+                                                 right);
+
+                    case KIND_LONG :
+                        return new LongArithmetic(e.opType, left, right);
+
+                    default :
+                        return new DoubleArithmetic(e.opType, left, right);
+                }
+            }
+            default :
+                return null;
+        }
+    }
+
+    private static int getKind(Type type) {
+
+        if (type == null) {
+            return -1;
+        }
+
+        switch (type.typeCode) {
+
+            case Types.TINYINT :
+            case Types.SQL_SMALLINT :
+            case Types.SQL_INTEGER :
+                return KIND_INT;
+
+            case Types.SQL_BIGINT :
+                return KIND_LONG;
+
+            case Types.SQL_REAL :
+            case Types.SQL_FLOAT :
+            case Types.SQL_DOUBLE :
+                return KIND_DOUBLE;
+
+            default :
+                return -1;
+        }
+    }
+
+    /**
+     * Follows NumberType.compare() for the type of the left operand. BIGINT
+     * is compared with DOUBLE as a BigDecimal, which is not supported here.
+     */
+    private static int getCompareMode(int leftKind, int rightKind) {
+
+        switch (leftKind) {
+
+            case KIND_INT :
+                return rightKind == KIND_DOUBLE ? COMPARE_INT_DOUBLE
+                                                : COMPARE_LONG;
+
+            case KIND_LONG :
+                return rightKind == KIND_LONG ? COMPARE_LONG
+                                              : rightKind == KIND_INT
+                                                ? COMPARE_LONG_DOUBLE
+                                                : -1;
+
+            default :
+                return COMPARE_DOUBLE;
+        }
+    }
+
+    abstract static class LogicalNode {
+
+        abstract int test(Session session);
+    }
+
+    abstract static class NumericNode {
+
+        final int kind;
+
+        NumericNode(int kind) {
+            this.kind = kind;
+        }
+
+        /**
+         * The value as returned by Number.intValue() for the boxed result
+         */
+        abstract int intValue(Session session);
+
+        /**
+         * The value as returned by Number.longValue() for the boxed result
+         */
+        abstract long longValue(Session session);
+
+        /**
+         * The value as returned by Number.doubleValue() for the boxed result
+         */
+        abstract double doubleValue(Session session);
+    }
+
+    static final class BooleanLeaf extends LogicalNode {
+
+        final Expression expression;
+
+        BooleanLeaf(Expression expression) {
+            this.expression = expression;
+        }
+
+        int test(Session session) {
+
+            Object value = expression.getValue(session);
+
+            if (value == null) {
+                return UNKNOWN;
+            }
+
+            return ((Boolean) value).booleanValue() ? TRUE
+                                                    : FALSE;
+        }
+    }
+
+    static final class NotNode extends LogicalNode {
+
+        final LogicalNode operand;
+
+        NotNode(LogicalNode operand) {
+            this.operand = operand;
+        }
+
+        int test(Session session) {
+
+            int result = operand.test(session);
+
+            return result == UNKNOWN ? UNKNOWN
+                                     : TRUE - result;
+        }
+    }
+
+    static final class AndNode extends LogicalNode {
+
+        final LogicalNode left;
+        final LogicalNode right;
+
+        AndNode(LogicalNode left, LogicalNode right) {
+            this.left  = left;
+            this.right = right;
+        }
+
+        int test(Session session) {
+
+            int r1 = left.test(session);
+
+            if (r1 == FALSE) {
+                return FALSE;
+            }
+
+            int r2 = right.test(session);
+
+            if (r2 == FALSE) {
+                return FALSE;
+            }
+
+            return r1 == UNKNOWN || r2 == UNKNOWN ? UNKNOWN
+                                                  : TRUE;
+        }
+    }
+
+    static final class OrNode extends LogicalNode {
+
+        final LogicalNode left;
+        final LogicalNode right;
+
+        OrNode(LogicalNode left, LogicalNode right) {
+            this.left  = left;
+            this.right = right;
+        }
+
+        int test(Session session) {
+
+            int r1 = left.test(session);
+
+            if (r1 == TRUE) {
+                return TRUE;
+            }
+
+            int r2 = right.test(session);
+
+            if (r2 == TRUE) {
+                return TRUE;
+            }
+
+            return r1 == UNKNOWN || r2 == UNKNOWN ? UNKNOWN
+                                                  : FALSE;
+        }
+    }
+
+    static final class NullTestNode extends LogicalNode {
+
+        final NumericNode operand;
+        final boolean     isNull;
+
+        NullTestNode(NumericNode operand, boolean isNull) {
+            this.operand = operand;
+            this.isNull  = isNull;
+        }
+
+        int test(Session session) {
+
+            SessionContext context = session.sessionContext;
+
+            if (operand.kind == KIND_DOUBLE) {
+                operand.doubleValue(session);
+            } else {
+                operand.longValue(session);
+            }
+
+            boolean result = context.isPrimitiveNull;
+
+            context.isPrimitiveNull = false;
+
+            return result == isNull ? TRUE
+                                    : FALSE;
+        }
+    }
+
+    static final class CompareNode extends LogicalNode {
+
+        final int         opType;
+        final int         mode;
+        final NumericNode left;
+        final NumericNode right;
+
+        CompareNode(int opType, int mode, NumericNode left,
+                    NumericNode right) {
+
+            this.opType = opType;
+            this.mode   = mode;
+            this.left   = left;
+            this.right  = right;
+        }
+
+        int test(Session session) {
+
+            SessionContext context = session.sessionContext;
+            int            result;
+
+            if (mode == COMPARE_LONG) {
+                long    a     = left.longValue(session);
+                boolean aNull = context.isPrimitiveNull;
+
+                context.isPrimitiveNull = false;
+
+                long b = right.longValue(session);
+
+                if (aNull || context.isPrimitiveNull) {
+                    context.isPrimitiveNull = false;
+
+                    return UNKNOWN;
+                }
+
+                result = a > b ? 1
+                               : b > a ? -1
+                                       : 0;
+            } else {
+                double  a     = left.doubleValue(session);
+                boolean aNull = context.isPrimitiveNull;
+
+                context.isPrimitiveNull = false;
+
+                double b = right.doubleValue(session);
+
+                if (aNull || context.isPrimitiveNull) {
+                    context.isPrimitiveNull = false;
+
+                    return UNKNOWN;
+                }
+
+                switch (mode) {
+
+                    case COMPARE_INT_DOUBLE :
+                        result = a > b ? 1
+                                       : b > a ? -1
+                                               : 0;
+                        break;
+
+                    case COMPARE_LONG_DOUBLE :
+                        result = Double.compare(a, b);
+                        break;
+
+                    default :
+                        if (Double.isNaN(a)) {
+                            result = Double.isNaN(b) ? 0
+                                                     : -1;
+                        } else if (Double.isNaN(b)) {
+                            result = 1;
+                        } else {
+                            result = Double.compare(a, b);
+                        }
+                }
+            }
+
+            switch (opType) {
+
+                case OpTypes.EQUAL :
+                    return result == 0 ? TRUE
+                                       : FALSE;
+
+                case OpTypes.NOT_EQUAL :
+                    return result != 0 ? TRUE
+                                       : FALSE;
+
+                case OpTypes.GREATER :
+                    return result > 0 ? TRUE
+                                      : FALSE;
+
+                case OpTypes.GREATER_EQUAL :
+                case OpTypes.GREATER_EQUAL_PRE :
+                    return result >= 0 ? TRUE
+                                       : FALSE;
+
+                case OpTypes.SMALLER_EQUAL :
+                    return result <= 0 ? TRUE
+                                       : FALSE;
+
+                case OpTypes.SMALLER :
+                    return result < 0 ? TRUE
+                                      : FALSE;
+
+                default :
+                    throw Error.runtimeError(ErrorCode.U_S0500,
+                                             "CompiledCondition");
+            }
+        }
+    }
+
+    static final class NumericLeaf extends NumericNode {
+
+        final Expression expression;
+
+        NumericLeaf(Expression expression, int kind) {
+
+            super(kind);
+
+            this.expression = expression;
+        }
+
+        int intValue(Session session) {
+
+            Object value = expression.getValue(session);
+
+            if (value == null) {
+                session.sessionContext.isPrimitiveNull = true;
+
+                return 0;
+            }
+
+            return ((Number) value).intValue();
+        }
+
+        long longValue(Session session) {
+
+            Object value = expression.getValue(session);
+
+            if (value == null) {
+                session.sessionContext.isPrimitiveNull = true;
+
+                return 0;
+            }
+
+            return ((Number) value).longValue();
+        }
+
+        double doubleValue(Session session) {
+
+            Object value = expression.getValue(session);
+
+            if (value == null) {
+                session.sessionContext.isPrimitiveNull = true;
+
+                return 0;
+            }
+
+            return ((Number) value).doubleValue();
+        }
+    }
+
+    /**
+     * TINYINT, SMALLINT and INTEGER arithmetic, as in NumberType
+     */
+    static final class IntArithmetic extends NumericNode {
+
+        final int         opType;
+        final int         typeCode;
+        final NumericNode left;
+        final NumericNode right;
+
+        IntArithmetic(int opType, int typeCode, NumericNode left,
+                      NumericNode right) {
+
+            super(KIND_INT);
+
+            this.opType   = opType;
+            this.typeCode = typeCode;
+            this.left     = left;
+            this.right    = right;
+        }
+
+        int intValue(Session session) {
+
+            SessionContext context = session.sessionContext;
+            int            a       = left.intValue(session);
+
+            if (opType == OpTypes.NEGATE) {
+                if (context.isPrimitiveNull) {
+                    return 0;
+                }
+
+                int min = typeCode == Types.TINYINT ? Byte.MIN_VALUE
+                                                    : typeCode
+                                                      == Types.SQL_SMALLINT
+                                                      ? Short.MIN_VALUE
+                                                      : Integer.MIN_VALUE;
+
+                if (a == min) {
+                    throw Error.error(ErrorCode.X_22003);
+                }
+
+                return -a;
+            }
+
+            if (context.isPrimitiveNull) {
+                context.isPrimitiveNull = false;
+
+                right.intValue(session);
+
+                context.isPrimitiveNull = true;
+
+                return 0;
+            }
+
+            int b = right.intValue(session);
+
+            if (context.isPrimitiveNull) {
+                return 0;
+            }
+
+            switch (opType) {
+
+                case OpTypes.ADD :
+                    return a + b;
+
+                case OpTypes.SUBTRACT :
+                    return a - b;
+
+                case OpTypes.MULTIPLY :
+                    return a * b;
+
+                case OpTypes.DIVIDE :
+                    if (b == 0) {
+                        throw Error.error(ErrorCode.X_22012);
+                    }
+
+                    return a / b;
+
+                default :
+                    throw Error.runtimeError(ErrorCode.U_S0500,
+                                             "CompiledCondition");
+            }
+        }
+
+        long longValue(Session session) {
+            return intValue(session);
+        }
+
+        double doubleValue(Session session) {
+            return intValue(session);
+        }
+    }
+
+    /**
+     * BIGINT arithmetic, as in NumberType
+     */
+    static final class LongArithmetic extends NumericNode {
+
+        final int         opType;
+        final NumericNode left;
+        final NumericNode right;
+
+        LongArithmetic(int opType, NumericNode left, NumericNode right) {
+
+            super(KIND_LONG);
+
+            this.opType = opType;
+            this.left   = left;
+            this.right  = right;
+        }
+
+        long longValue(Session session) {
+
+            SessionContext context = session.sessionContext;
+            long           a       = left.longValue(session);
+
+            if (opType == OpTypes.NEGATE) {
+                if (context.isPrimitiveNull) {
+                    return 0;
+                }
+
+                if (a == Long.MIN_VALUE) {
+                    throw Error.error(ErrorCode.X_22003);
+                }
+
+                return -a;
+            }
+
+            if (context.isPrimitiveNull) {
+                context.isPrimitiveNull = false;
+
+                right.longValue(session);
+
+                context.isPrimitiveNull = true;
+
+                return 0;
+            }
+
+            long b = right.longValue(session);
+
+            if (context.isPrimitiveNull) {
+                return 0;
+            }
+
+            switch (opType) {
+
+                case OpTypes.ADD :
+                    return a + b;
+
+                case OpTypes.SUBTRACT :
+                    return a - b;
+
+                case OpTypes.MULTIPLY :
+                    return a * b;
+
+                case OpTypes.DIVIDE :
+                    if (b == 0) {
+                        throw Error.error(ErrorCode.X_22012);
+                    }
+
+                    return a / b;
+
+                default :
+                    throw Error.runtimeError(ErrorCode.U_S0500,
+                                             "CompiledCondition");
+            }
+        }
+
+        int intValue(Session session) {
+            return (int) longValue(session);
+        }
+
+        double doubleValue(Session session) {
+            return longValue(session);
+        }
+    }
+
+    /**
+     * REAL, FLOAT and DOUBLE arithmetic, as in NumberType
+     */
+    static final class DoubleArithmetic extends NumericNode {
+
+        final int         opType;
+        final NumericNode left;
+        final NumericNode right;
+
+        DoubleArithmetic(int opType, NumericNode left, NumericNode right) {
+
+            super(KIND_DOUBLE);
+
+            this.opType = opType;
+            this.left   = left;
+            this.right  = right;
+        }
+
+        double doubleValue(Session session) {
+
+            SessionContext context = session.sessionContext;
+            double         a       = left.doubleValue(session);
+
+            if (opType == OpTypes.NEGATE) {
+                return -a;
+            }
+
+            if (context.isPrimitiveNull) {
+                context.isPrimitiveNull = false;
+
+                right.doubleValue(session);
+
+                context.isPrimitiveNull = true;
+
+                return 0;
+            }
+
+            double b = right.doubleValue(session);
+
+            if (context.isPrimitiveNull) {
+                return 0;
+            }
+
+            switch (opType) {
+
+                case OpTypes.ADD :
+                    return a + b;
+
+                case OpTypes.SUBTRACT :
+                    return a - b;
+
+                case OpTypes.MULTIPLY :
+                    return a * b;
+
+                case OpTypes.DIVIDE :
+                    if (b == 0 && session.database.sqlDoubleNaN) {
+                        throw Error.error(ErrorCode.X_22012);
+                    }
+
+                    return a / b;
+
+                default :
+                    throw Error.runtimeError(ErrorCode.U_S0500,
+                                             "CompiledCondition");
+            }
+        }
+
+        int intValue(Session session) {
+            return (int) doubleValue(session);
+        }
+
+        long longValue(Session session) {
+            return (long) doubleValue(session);
+        }
+    }
+}
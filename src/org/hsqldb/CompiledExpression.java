@@ -0,0 +1,117 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import org.hsqldb.map.ValuePool;
+
+/**
+ * Evaluates an INTEGER, BIGINT or DOUBLE arithmetic expression, such as a
+ * column of a select list, with the primitive nodes of CompiledCondition.
+ * Only the final result is converted to an object.<p>
+ *
+ * No classes are generated. The expression is evaluated by the same tree of
+ * typed nodes that is used for conditions, which avoids the boxing of the
+ * intermediate values. The hsqldb.compile_expressions property turns this
+ * evaluator on or off.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+final class CompiledExpression {
+
+    private final CompiledCondition.NumericNode root;
+
+    private CompiledExpression(CompiledCondition.NumericNode root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns a compiled form of the expression, or null if the expression
+     * is not a numeric operation that can be evaluated with primitives.
+     */
+    static CompiledExpression compile(Expression e) {
+
+        CompiledCondition.NumericNode node =
+            CompiledCondition.compileNumeric(e);
+
+        if (node == null || node instanceof CompiledCondition.NumericLeaf) {
+            return null;
+        }
+
+        return new CompiledExpression(node);
+    }
+
+    Object getValue(Session session) {
+
+        SessionContext context = session.sessionContext;
+
+        context.isPrimitiveNull = false;
+
+        switch (root.kind) {
+
+            case CompiledCondition.KIND_INT : {
+                int value = root.intValue(session);
+
+                if (context.isPrimitiveNull) {
+                    context.isPrimitiveNull = false;
+
+                    return null;
+                }
+
+                return ValuePool.getInt(value);
+            }
+            case CompiledCondition.KIND_LONG : {
+                long value = root.longValue(session);
+
+                if (context.isPrimitiveNull) {
+                    context.isPrimitiveNull = false;
+
+                    return null;
+                }
+
+                return ValuePool.getLong(value);
+            }
+            default : {
+                double value = root.doubleValue(session);
+
+                if (context.isPrimitiveNull) {
+                    context.isPrimitiveNull = false;
+
+                    return null;
+                }
+
+                return ValuePool.getDouble(Double.doubleToLongBits(value));
+            }
+        }
+    }
+}
@@ -608,6 +608,7 @@ public class Database {
             setState(DATABASE_CLOSING);
         }
 
+        logger.waitForCheckpoint();
         sessionManager.closeAllSessions();
 
         if (filesReadOnly) {
@@ -843,12 +844,12 @@ public class Database {
                                                     0);
                 sysSession.commit(false);
                 sysSession.close();
-
-                waiting = false;
             } catch (Throwable e) {
 
                 // ignore exceptions
                 // may be InterruptedException or IOException
+            } finally {
+                waiting = false;
             }
         }
 
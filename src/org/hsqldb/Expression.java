@@ -1616,6 +1616,14 @@ public class Expression implements Cloneable {
         return Boolean.TRUE.equals(getValue(session));
     }
 
+    /**
+     * Same as getValue(Session) but may use a compiled form of the
+     * expression. Called only after the statement has been resolved.
+     */
+    public Object getCompiledValue(Session session) {
+        return getValue(session);
+    }
+
     static int countNulls(Object[] a) {
 
         int nulls = 0;
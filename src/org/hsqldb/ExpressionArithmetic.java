@@ -49,6 +49,9 @@ import org.hsqldb.types.Types;
  */
 public class ExpressionArithmetic extends Expression {
 
+    private CompiledExpression compiledExpression;
+    private boolean            isCompiled;
+
     ExpressionArithmetic(int type, Expression left, Expression right) {
 
         super(type);
@@ -606,6 +609,39 @@ public class ExpressionArithmetic extends Expression {
         }
     }
 
+    public Expression duplicate() {
+
+        ExpressionArithmetic e = (ExpressionArithmetic) super.duplicate();
+
+        e.compiledExpression = null;
+        e.isCompiled         = false;
+
+        return e;
+    }
+
+    /**
+     * Numeric operations are evaluated with primitive values. The compiled
+     * form is created on first use, after the statement has been resolved.
+     */
+    public Object getCompiledValue(Session session) {
+
+        if (!isCompiled) {
+            if (session.database.logger.isCompileExpressions()) {
+                compiledExpression = CompiledExpression.compile(this);
+            }
+
+            isCompiled = true;
+        }
+
+        CompiledExpression expression = compiledExpression;
+
+        if (expression == null) {
+            return getValue(session);
+        }
+
+        return expression.getValue(session);
+    }
+
     public Object getValue(Session session) {
 
         switch (opType) {
@@ -59,6 +59,10 @@ public class ExpressionLogical extends Expression {
     //
     RangeVariable[] rangeArray = RangeVariable.emptyArray;
 
+    //
+    private CompiledCondition compiledCondition;
+    private boolean           isCompiled;
+
     /**
      * For LIKE
      */
@@ -1350,6 +1354,55 @@ public class ExpressionLogical extends Expression {
         }
     }
 
+    public Expression duplicate() {
+
+        ExpressionLogical e = (ExpressionLogical) super.duplicate();
+
+        e.compiledCondition = null;
+        e.isCompiled        = false;
+
+        return e;
+    }
+
+    /**
+     * Numeric comparisons are evaluated with primitive values. The compiled
+     * form is created on first use, after the statement has been resolved.
+     */
+    public boolean testCondition(Session session) {
+
+        CompiledCondition condition = getCompiledCondition(session);
+
+        if (condition == null) {
+            return Boolean.TRUE.equals(getValue(session));
+        }
+
+        return condition.testCondition(session);
+    }
+
+    public Object getCompiledValue(Session session) {
+
+        CompiledCondition condition = getCompiledCondition(session);
+
+        if (condition == null) {
+            return getValue(session);
+        }
+
+        return condition.getValue(session);
+    }
+
+    private CompiledCondition getCompiledCondition(Session session) {
+
+        if (!isCompiled) {
+            if (session.database.logger.isCompileExpressions()) {
+                compiledCondition = CompiledCondition.compile(this);
+            }
+
+            isCompiled = true;
+        }
+
+        return compiledCondition;
+    }
+
     /**
      * For MATCH SIMPLE and FULL expressions, nulls in left are handled
      * prior to calling this method
@@ -1567,6 +1567,15 @@ public class ParserCommand extends ParserDDL {
 
                 break;
             }
+            case Tokens.GROUP : {
+                read();
+                readThis(Tokens.COMMIT);
+
+                type = StatementTypes.SET_DATABASE_FILES_GROUP_COMMIT;
+                flag = processTrueOrFalseObject();
+
+                break;
+            }
             case Tokens.SCRIPT : {
                 read();
                 readThis(Tokens.FORMAT);
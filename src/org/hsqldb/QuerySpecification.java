@@ -1546,7 +1546,7 @@ public class QuerySpecification extends QueryExpression {
                 if (isAggregated && aggregateCheck[i]) {
                     continue;
                 } else {
-                    data[i] = exprColumns[i].getValue(session);
+                    data[i] = exprColumns[i].getCompiledValue(session);
                 }
             }
 
@@ -1635,7 +1635,7 @@ public class QuerySpecification extends QueryExpression {
 
                 for (int i = 0; i < indexStartAggregates; i++) {
                     if (!aggregateCheck[i]) {
-                        data[i] = exprColumns[i].getValue(session);
+                        data[i] = exprColumns[i].getCompiledValue(session);
                     }
                 }
 
@@ -42,6 +42,8 @@ import org.hsqldb.lib.HashMappedList;
 import org.hsqldb.lib.HashSet;
 import org.hsqldb.lib.HsqlArrayList;
 import org.hsqldb.lib.HsqlList;
+import org.hsqldb.lib.Iterator;
+import org.hsqldb.lib.MultiValueHashMap;
 import org.hsqldb.lib.OrderedHashSet;
 import org.hsqldb.lib.OrderedIntHashSet;
 import org.hsqldb.lib.OrderedLongHashSet;
@@ -1153,6 +1155,11 @@ public class RangeVariable implements Cloneable {
         //
         Object[] currentJoinData = null;
 
+        //
+        MultiValueHashMap hashTable;
+        boolean           isHashTableBuilt;
+        int               hashLookupCount;
+
         RangeIteratorMain() {
             super();
         }
@@ -1243,6 +1250,11 @@ public class RangeVariable implements Cloneable {
             rangeVar.rangeTable.materialiseCorrelated(session);
 
             if (conditions[condIndex].indexCond == null) {
+                if (conditions[condIndex].hashColumns != null
+                        && getHashRows()) {
+                    return;
+                }
+
                 if (conditions[condIndex].reversed) {
                     it = conditions[condIndex].rangeIndex.lastRow(session,
                             store, rangeVar.indexDistinctCount);
@@ -1433,6 +1445,286 @@ public class RangeVariable implements Cloneable {
                 lookup.add(currentRow.getPos());
             }
         }
+
+        /**
+         * Sets the iterator to the rows with the same hash key as the current
+         * rows of the preceding ranges. The hash table is built on the second
+         * lookup and kept until the iterator is discarded.
+         *
+         * @return false if a full scan is used instead
+         */
+        private boolean getHashRows() {
+
+            RangeVariableConditions cond = conditions[condIndex];
+
+            // a single lookup is faster with a full scan
+            if (!isHashTableBuilt) {
+                if (hashLookupCount++ == 0) {
+                    return false;
+                }
+
+                isHashTableBuilt = true;
+                hashTable        = buildHashTable(cond);
+            }
+
+            if (hashTable == null) {
+                return false;
+            }
+
+            Object key = getHashKey(cond, null);
+
+            if (key == null) {
+                it = cond.rangeIndex.emptyIterator();
+            } else {
+                it = new HashRowIterator(hashTable.get(key));
+            }
+
+            return true;
+        }
+
+        /**
+         * Returns null if the row count exceeds the limit for results held in
+         * memory, or for CACHED tables the row count of the cache.
+         */
+        private MultiValueHashMap buildHashTable(RangeVariableConditions cond) {
+
+            if (rangeVar.indexDistinctCount != 0) {
+                return null;
+            }
+
+            // contents may change for each row of the preceding ranges
+            if (rangeVar.rangeTable instanceof TableDerived
+                    && ((TableDerived) rangeVar.rangeTable).isCorrelated()) {
+                return null;
+            }
+
+            long limit = session.resultMaxMemoryRows;
+
+            if (!store.isMemory()) {
+                long cacheRows = session.database.logger.getCacheRowsDefault();
+
+                if (limit == 0 || cacheRows < limit) {
+                    limit = cacheRows;
+                }
+            }
+
+            if (limit == 0) {
+                limit = Integer.MAX_VALUE;
+            }
+
+            long rowCount = store.elementCount();
+
+            if (rowCount > limit) {
+                return null;
+            }
+
+            MultiValueHashMap map =
+                new MultiValueHashMap((int) Math.max(rowCount, 8));
+            RowIterator rowIt = cond.rangeIndex.firstRow(session, store, 0);
+
+            try {
+                for (int count = 0; ; ) {
+                    Row row = rowIt.getNextRow();
+
+                    if (row == null) {
+                        break;
+                    }
+
+                    if (++count > limit) {
+                        return null;
+                    }
+
+                    Object key = getHashKey(cond, row.getData());
+
+                    if (key != null) {
+                        map.put(key, row);
+                    }
+                }
+            } finally {
+                rowIt.release();
+            }
+
+            return map;
+        }
+
+        /**
+         * Returns the hash key for a row of this range, or for the current
+         * rows of the preceding ranges when data is null. Returns null if any
+         * value is null, as such rows cannot satisfy the equality conditions.
+         */
+        private Object getHashKey(RangeVariableConditions cond,
+                                  Object[] data) {
+
+            int      count  = cond.hashColumns.length;
+            Object[] values = count == 1 ? null
+                                         : new Object[count];
+
+            for (int i = 0; i < count; i++) {
+                Object value = data == null
+                               ? cond.hashExpressions[i].getValue(session)
+                               : data[cond.hashColumns[i]];
+
+                value = getHashJoinValue(cond.hashTypes[i], value);
+
+                if (value == null) {
+                    return null;
+                }
+
+                if (count == 1) {
+                    return value;
+                }
+
+                values[i] = value;
+            }
+
+            return new HashKey(values);
+        }
+    }
+
+    /**
+     * Returns true if the values of the two types can be compared for
+     * equality via their hash keys.
+     */
+    static boolean isHashJoinType(Type left, Type right) {
+
+        if (left.isIntegralType() && right.isIntegralType()) {
+            return true;
+        }
+
+        if (left.isCharacterType() && right.isCharacterType()) {
+            if (left.isLobType() || right.isLobType()) {
+                return false;
+            }
+
+            return left.getCollation() == right.getCollation()
+                   && left.getCollation().isDefaultCollation();
+        }
+
+        if (left.isDecimalType() && right.isDecimalType()) {
+            return left.scale == right.scale && !left.isIntegralType()
+                   && !right.isIntegralType();
+        }
+
+        if (left.isBooleanType() && right.isBooleanType()) {
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Integral values of different types are converted to Long. Trailing
+     * spaces are ignored in character comparison and are removed.
+     */
+    static Object getHashJoinValue(Type type, Object value) {
+
+        if (value == null) {
+            return null;
+        }
+
+        if (type.isIntegralType()) {
+            if (value instanceof Long) {
+                return value;
+            }
+
+            return ValuePool.getLong(((Number) value).longValue());
+        }
+
+        if (type.isCharacterType()) {
+            String s   = (String) value;
+            int    end = s.length();
+
+            while (end > 0 && s.charAt(end - 1) == ' ') {
+                end--;
+            }
+
+            return end == s.length() ? s
+                                     : s.substring(0, end);
+        }
+
+        return value;
+    }
+
+    static class HashKey {
+
+        final Object[] values;
+        final int      hashCode;
+
+        HashKey(Object[] values) {
+
+            int hash = 0;
+
+            for (int i = 0; i < values.length; i++) {
+                hash = 31 * hash + values[i].hashCode();
+            }
+
+            this.values   = values;
+            this.hashCode = hash;
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public boolean equals(Object other) {
+
+            if (!(other instanceof HashKey)) {
+                return false;
+            }
+
+            Object[] otherValues = ((HashKey) other).values;
+
+            for (int i = 0; i < values.length; i++) {
+                if (!values[i].equals(otherValues[i])) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    static class HashRowIterator implements RowIterator {
+
+        final Iterator it;
+        Row            currentRow;
+
+        HashRowIterator(Iterator it) {
+            this.it = it;
+        }
+
+        public Row getNextRow() {
+
+            currentRow = it.hasNext() ? (Row) it.next()
+                                      : null;
+
+            return currentRow;
+        }
+
+        public Object[] getNext() {
+
+            Row row = getNextRow();
+
+            return row == null ? null
+                               : row.getData();
+        }
+
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        public void removeCurrent() {}
+
+        public boolean setRowColumns(boolean[] columns) {
+            return false;
+        }
+
+        public void release() {}
+
+        public long getRowId() {
+            return currentRow == null ? 0
+                                      : currentRow.getPos();
+        }
     }
 
     public static class RangeIteratorRight extends RangeIteratorMain {
@@ -1631,6 +1923,11 @@ public class RangeVariable implements Cloneable {
         boolean             reversed;
         boolean             hasIndex;
 
+        // equality conditions used for hash lookup when there is no index
+        int[]               hashColumns;
+        Type[]              hashTypes;
+        Expression[]        hashExpressions;
+
         RangeVariableConditions(RangeVariable rangeVar, boolean isJoin) {
             this.rangeVar = rangeVar;
             this.isJoin   = isJoin;
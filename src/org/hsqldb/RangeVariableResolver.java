@@ -47,6 +47,7 @@ import org.hsqldb.lib.MultiValueHashMap;
 import org.hsqldb.lib.OrderedHashSet;
 import org.hsqldb.lib.OrderedIntHashSet;
 import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.types.Type;
 
 /**
  * Determines how JOIN and WHERE expressions are used in query
@@ -1172,6 +1173,11 @@ public class RangeVariableResolver {
             }
         }
 
+        if (!hasIndex && conditions.isJoin && rangeVarIndex > 0
+                && inExpressions[rangeVarIndex] == null) {
+            setHashConditions(conditions, exprList);
+        }
+
         for (int i = 0, size = exprList.size(); i < size; i++) {
             Expression e = (Expression) exprList.get(i);
 
@@ -1202,6 +1208,56 @@ public class RangeVariableResolver {
         }
     }
 
+    /**
+     * When no index can be used for a joined table, the equality conditions
+     * between its columns and the columns of the preceding tables are used
+     * to look up the rows in a hash table that is built when the table is
+     * first accessed. The conditions are still tested for each row.
+     */
+    private void setHashConditions(RangeVariableConditions conditions,
+                                   HsqlList exprList) {
+
+        HsqlArrayList list = new HsqlArrayList();
+
+        for (int j = 0, size = exprList.size(); j < size; j++) {
+            Expression e = (Expression) exprList.get(j);
+
+            if (e == null || e.getType() != OpTypes.EQUAL
+                    || e.exprSubType != 0 || !e.isColumnEqual) {
+                continue;
+            }
+
+            if (e.getLeftNode().getRangeVariable() != conditions.rangeVar
+                    || e.getRightNode().hasReference(conditions.rangeVar)) {
+                continue;
+            }
+
+            if (!RangeVariable.isHashJoinType(
+                    e.getLeftNode().getDataType(),
+                    e.getRightNode().getDataType())) {
+                continue;
+            }
+
+            list.add(e);
+        }
+
+        if (list.isEmpty()) {
+            return;
+        }
+
+        conditions.hashColumns     = new int[list.size()];
+        conditions.hashTypes       = new Type[list.size()];
+        conditions.hashExpressions = new Expression[list.size()];
+
+        for (int i = 0; i < list.size(); i++) {
+            Expression e = (Expression) list.get(i);
+
+            conditions.hashColumns[i]     = e.getLeftNode().getColumnIndex();
+            conditions.hashTypes[i]       = e.getLeftNode().getDataType();
+            conditions.hashExpressions[i] = e.getRightNode();
+        }
+    }
+
     private boolean setOrConditions(RangeVariableConditions conditions,
                                     ExpressionLogical orExpression,
                                     int rangeVarIndex) {
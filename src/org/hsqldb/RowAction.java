@@ -409,6 +409,39 @@ public class RowAction extends RowActionBase {
         return actionType;
     }
 
+    /**
+     * returns type of commit performed by the session, either before or
+     * after commit() is called. ACTION_NONE if none.
+     */
+    synchronized int getCommitType(Session session) {
+
+        RowActionBase action     = this;
+        int           actionType = ACTION_NONE;
+
+        do {
+            if (action.session == session
+                    && (action.commitTimestamp == 0
+                        || action.commitTimestamp
+                           == session.actionTimestamp)) {
+                if (action.type == ACTION_INSERT) {
+                    actionType = action.type;
+                } else if (action.type == ACTION_DELETE) {
+                    if (actionType == ACTION_INSERT) {
+
+                        // ACTION_INSERT + ACTION_DELETE
+                        actionType = ACTION_INSERT_DELETE;
+                    } else {
+                        actionType = action.type;
+                    }
+                }
+            }
+
+            action = action.next;
+        } while (action != null);
+
+        return actionType;
+    }
+
     /**
      * returns false if another committed session has altered the same row
      */
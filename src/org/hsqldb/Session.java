@@ -50,6 +50,7 @@ import org.hsqldb.lib.HashMap;
 import org.hsqldb.lib.HsqlArrayList;
 import org.hsqldb.lib.HsqlDeque;
 import org.hsqldb.lib.Iterator;
+import org.hsqldb.lib.LongKeyHashMap;
 import org.hsqldb.lib.OrderedHashSet;
 import org.hsqldb.lib.SimpleLog;
 import org.hsqldb.lib.java.JavaSystem;
@@ -152,6 +153,10 @@ public class Session implements SessionInterface {
     //
     public SessionData sessionData;
 
+    // responses to executeAsync requests
+    private long           asyncRequestCount;
+    private LongKeyHashMap asyncResults;
+
     //
     public StatementManager statementManager;
 
@@ -577,7 +582,29 @@ public class Session implements SessionInterface {
             return;
         }
 
-        if (!database.txManager.commitTransaction(this)) {
+        boolean committed;
+
+        try {
+            committed = database.txManager.commitTransaction(this);
+        } catch (HsqlException e) {
+
+            // the log could not be synced and the transaction manager has
+            // rolled back the changes; a checkpoint replaces the log, which
+            // fails all commits until then
+            endTransaction(false, chain);
+
+            if (database != null && !sessionUser.isSystem()) {
+                database.logger.setCheckpointRequired();
+
+                if (database.logger.needsCheckpointReset()) {
+                    database.checkpointRunner.start();
+                }
+            }
+
+            throw e;
+        }
+
+        if (!committed) {
 
 //            tempActionHistory.add("commit aborts " + actionTimestamp);
             rollback(chain);
@@ -1407,6 +1434,12 @@ public class Session implements SessionInterface {
                 } else {
                     commit(false);
                 }
+            } catch (HsqlException e) {
+                sessionContext.currentStatement = null;
+
+                // a conflict is already reported as X_40001 while a failed
+                // log sync is reported as is, as the commit is complete
+                return Result.newErrorResult(e);
             } catch (Exception e) {
                 sessionContext.currentStatement = null;
 
@@ -1446,6 +1479,11 @@ public class Session implements SessionInterface {
 
         RowSetNavigator nav = cmd.initialiseNavigator();
 
+        if (cs instanceof StatementInsert && sessionContext.depth == 0
+                && ((StatementInsert) cs).isBatchInsert()) {
+            return executeCompiledBatchInsert(cs, nav, cmd.queryTimeout);
+        }
+
         updateCounts = new int[nav.getSize()];
 
         Result generatedResult = null;
@@ -1501,6 +1539,38 @@ public class Session implements SessionInterface {
                 error);
     }
 
+    /**
+     * Executes all the parameter rows of a batch for a simple INSERT in one
+     * statement execution. Locks are acquired and released once and, in
+     * autocommit mode, the inserted rows are committed together.
+     */
+    private Result executeCompiledBatchInsert(Statement cs,
+            RowSetNavigator nav, int timeout) {
+
+        Result in;
+        int[]  updateCounts;
+
+        sessionContext.batchArguments = nav;
+
+        try {
+            in = executeCompiledStatement(cs, ValuePool.emptyObjectArray,
+                                          timeout);
+        } finally {
+            sessionContext.batchArguments = null;
+        }
+
+        if (in.mode == ResultConstants.ERROR) {
+            return Result.newBatchedExecuteResponse(new int[0], null, in);
+        }
+
+        updateCounts = new int[in.getUpdateCount()];
+
+        ArrayUtil.fillArray(updateCounts, 1);
+
+        return Result.newBatchedExecuteResponse(updateCounts, null,
+                in.getChainedResult());
+    }
+
     private Result executeDirectBatchStatement(Result cmd) {
 
         int[] updateCounts;
@@ -1560,6 +1630,34 @@ public class Session implements SessionInterface {
         return Result.newBatchedExecuteResponse(updateCounts, null, error);
     }
 
+    /**
+     * In-process sessions have no round trip to save. The command is
+     * executed at once and its result is kept until it is retrieved.
+     */
+    public synchronized long executeAsync(Result cmd) {
+
+        Result result = execute(cmd);
+
+        if (asyncResults == null) {
+            asyncResults = new LongKeyHashMap();
+        }
+
+        asyncRequestCount++;
+
+        asyncResults.put(asyncRequestCount, result);
+
+        return asyncRequestCount;
+    }
+
+    public synchronized Result getAsyncResult(long requestId) {
+
+        if (asyncResults == null) {
+            return null;
+        }
+
+        return (Result) asyncResults.remove(requestId);
+    }
+
     /**
      * Retrieves the result of inserting, updating or deleting a row
      * from an updatable result.
@@ -42,6 +42,7 @@ import org.hsqldb.lib.HsqlArrayList;
 import org.hsqldb.lib.LongDeque;
 import org.hsqldb.map.ValuePool;
 import org.hsqldb.navigator.RangeIterator;
+import org.hsqldb.navigator.RowSetNavigator;
 import org.hsqldb.navigator.RowSetNavigatorDataChange;
 import org.hsqldb.navigator.RowSetNavigatorDataChangeMemory;
 
@@ -74,6 +75,7 @@ public class SessionContext {
     Object[]              routineVariables     = ValuePool.emptyObjectArray;
     Object[]              dynamicArguments     = ValuePool.emptyObjectArray;
     Object[][]            triggerArguments     = null;
+    RowSetNavigator       batchArguments       = null;
     public int            depth;
 
     //
@@ -84,6 +86,9 @@ public class SessionContext {
     // range variable data
     RangeIterator[] rangeIterators;
 
+    // null result of CompiledCondition numeric evaluation
+    boolean isPrimitiveNull;
+
     // session tables
     HashMappedList sessionTables;
     HashMappedList popSessionTables;
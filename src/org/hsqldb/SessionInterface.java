@@ -66,6 +66,7 @@ public interface SessionInterface {
     int INFO_AUTOCOMMIT          = 1;    // used
     int INFO_CONNECTION_READONLY = 2;    // used
     int INFO_CATALOG             = 3;    // used
+    int INFO_NETWORK_COMPRESSION = 4;    // used
 
     //
     int TX_READ_UNCOMMITTED = 1;
@@ -78,6 +79,19 @@ public interface SessionInterface {
 
     Result execute(Result r);
 
+    /**
+     * Sends the request without waiting for its response and returns an id
+     * for the response. Responses are retrieved with getAsyncResult(long).
+     */
+    long executeAsync(Result r);
+
+    /**
+     * Returns the response to a request sent with executeAsync(Result),
+     * waiting for it if necessary. Returns null if the response has
+     * already been retrieved.
+     */
+    Result getAsyncResult(long requestId);
+
     RowSetNavigatorClient getRows(long navigatorId, int offset, int size);
 
     void closeNavigator(long id);
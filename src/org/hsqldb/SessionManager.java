@@ -210,7 +210,7 @@ public class SessionManager {
     /**
      *  Removes the session from management and disconnects.
      */
-    synchronized void removeSession(Session session) {
+    public synchronized void removeSession(Session session) {
         sessionMap.remove(session.getId());
     }
 
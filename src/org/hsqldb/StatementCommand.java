@@ -117,6 +117,7 @@ public class StatementCommand extends Statement {
 
             case StatementTypes.SET_DATABASE_UNIQUE_NAME :
             case StatementTypes.SET_DATABASE_FILES_WRITE_DELAY :
+            case StatementTypes.SET_DATABASE_FILES_GROUP_COMMIT :
             case StatementTypes.SET_DATABASE_FILES_TEMP_PATH :
             case StatementTypes.SET_DATABASE_FILES_EVENT_LOG :
                 isTransactionStatement = false;
@@ -569,6 +570,19 @@ public class StatementCommand extends Statement {
                     return Result.newErrorResult(e, sql);
                 }
             }
+            case StatementTypes.SET_DATABASE_FILES_GROUP_COMMIT : {
+                try {
+                    boolean mode = ((Boolean) parameters[0]).booleanValue();
+
+                    session.checkAdmin();
+                    session.checkDDLWrite();
+                    session.database.logger.setGroupCommit(mode);
+
+                    return Result.updateZeroResult;
+                } catch (HsqlException e) {
+                    return Result.newErrorResult(e, sql);
+                }
+            }
             case StatementTypes.SET_DATABASE_AUTHENTICATION : {
                 try {
                     Routine routine = (Routine) parameters[0];
@@ -882,32 +896,40 @@ public class StatementCommand extends Statement {
                         throw Error.error(ErrorCode.ACCESS_IS_DENIED);
                     }
 
-                    if (table.getSpaceID()
-                            != DataSpaceManager.tableIdDefault) {
-                        return Result.updateZeroResult;
-                    }
-
                     // memory database
                     if (cache == null) {
                         return Result.updateZeroResult;
                     }
 
-                    DataSpaceManager dataSpace = cache.spaceManager;
-                    int tableSpaceID = dataSpace.getNewTableSpaceID();
-
-                    table.setSpaceID(tableSpaceID);
-
                     // if cache exists, a memory table can get a space id
                     // it can then be converted to cached
                     if (!table.isCached()) {
+                        if (table.getSpaceID()
+                                == DataSpaceManager.tableIdDefault) {
+                            table.setSpaceID(
+                                cache.spaceManager.getNewTableSpaceID());
+                        }
+
                         return Result.updateZeroResult;
                     }
 
+                    // rows are moved to a new space, which compacts the
+                    // table if it already has its own space
+                    DataSpaceManager dataSpace = cache.spaceManager;
+                    int tableSpaceID = dataSpace.getNewTableSpaceID();
                     TableSpaceManager tableSpace =
                         dataSpace.getTableSpace(tableSpaceID);
                     PersistentStore store = table.getRowStore(session);
 
-                    store.setSpaceManager(tableSpace);
+                    try {
+                        store.moveDataToSpace(tableSpace);
+                    } catch (HsqlException e) {
+                        dataSpace.freeTableSpace(tableSpaceID);
+
+                        throw e;
+                    }
+
+                    table.setSpaceID(tableSpaceID);
 
                     return Result.updateZeroResult;
                 } catch (HsqlException e) {
@@ -32,6 +32,7 @@
 package org.hsqldb;
 
 import org.hsqldb.ParserDQL.CompileContext;
+import org.hsqldb.error.ErrorCode;
 import org.hsqldb.navigator.RowSetNavigator;
 import org.hsqldb.navigator.RowSetNavigatorClient;
 import org.hsqldb.persist.PersistentStore;
@@ -121,6 +122,19 @@ public class StatementInsert extends StatementDML {
         }
 
         if (isSimpleInsert) {
+            RowSetNavigator batchNavigator =
+                session.sessionContext.batchArguments;
+
+            if (batchNavigator != null) {
+                session.sessionContext.batchArguments = null;
+
+                try {
+                    return getBatchResult(session, store, batchNavigator);
+                } finally {
+                    session.sessionContext.batchArguments = batchNavigator;
+                }
+            }
+
             Type[] colTypes = baseTable.getColumnTypes();
             Object[] data = getInsertData(session, colTypes,
                                           insertExpression.nodes[0].nodes);
@@ -156,6 +170,72 @@ public class StatementInsert extends StatementDML {
         return resultOut;
     }
 
+    /**
+     * Returns true if a JDBC batch of parameter values for this statement
+     * can be executed as a single action with getBatchResult().
+     */
+    boolean isBatchInsert() {
+        return isSimpleInsert && generatedIndexes == null && !isExplain
+               && subqueries.length == 0;
+    }
+
+    /**
+     * Executes a simple INSERT for each row of parameter values in a batch,
+     * all within the current action. Each row has its own action timestamp
+     * so that a row that fails is rolled back on its own and ends the batch,
+     * while the rows inserted before it are kept. The update count of the
+     * result is the number of rows inserted and the error, if any, is
+     * chained to it. Data change conflicts roll back the whole action and
+     * are thrown so that the batch can be redone.
+     */
+    Result getBatchResult(Session session, PersistentStore store,
+                          RowSetNavigator argsNavigator) {
+
+        Type[]       colTypes = baseTable.getColumnTypes();
+        Expression[] rowArgs  = insertExpression.nodes[0].nodes;
+        Result       error    = null;
+        int          count    = 0;
+
+        argsNavigator.beforeFirst();
+
+        while (argsNavigator.hasNext()) {
+            Object[] args        = (Object[]) argsNavigator.getNext();
+            int      actionIndex = session.rowActionList.size();
+
+            session.actionTimestamp =
+                session.database.txManager.getNextGlobalChangeTimestamp();
+
+            session.sessionContext.setDynamicArguments(args);
+
+            try {
+                Object[] data = getInsertData(session, colTypes, rowArgs);
+
+                insertSingleRow(session, store, data);
+            } catch (HsqlException e) {
+                if (e.getErrorCode() == -ErrorCode.X_40501
+                        || session.redoAction || session.abortTransaction) {
+                    throw e;
+                }
+
+                session.rollbackAction(actionIndex, session.actionTimestamp);
+
+                error = Result.newErrorResult(e, null);
+
+                error.getException().setStatementType(group, type);
+
+                break;
+            }
+
+            count++;
+        }
+
+        Result resultOut = new Result(ResultConstants.UPDATECOUNT, count);
+
+        resultOut.addChainedResult(error);
+
+        return resultOut;
+    }
+
     RowSetNavigator getInsertSelectNavigator(Session session) {
 
         Type[] colTypes  = baseTable.getColumnTypes();
@@ -191,6 +191,7 @@ public interface StatementTypes {
     int SET_DATABASE_FILES_READ_ONLY_FILES     = 1024;
     int SET_DATABASE_FILES_SCALE               = 1025;
     int SET_DATABASE_FILES_SCRIPT_FORMAT       = 1026;
+    int SET_DATABASE_FILES_GROUP_COMMIT        = 1027;
     int SET_DATABASE_FILES_SPACE               = 1031;
     int SET_DATABASE_FILES_TEMP_PATH           = 1032;
     int SET_DATABASE_FILES_WRITE_DELAY         = 1033;
@@ -33,11 +33,14 @@ package org.hsqldb;
 
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.ArraySort;
 import org.hsqldb.lib.StringConverter;
 import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.persist.RowStoreAVLDiskData;
 import org.hsqldb.persist.TextCache;
 import org.hsqldb.persist.TextFileReader;
 import org.hsqldb.rowio.RowInputInterface;
+import org.hsqldb.rowio.RowInputText;
 
 /**
  * Subclass of Table to handle TEXT data source. <p>
@@ -50,6 +53,9 @@ import org.hsqldb.rowio.RowInputInterface;
  */
 public class TextTable extends Table {
 
+    static final int readChunkSize = 1 << 14;
+
+    //
     String  dataSource  = "";
     boolean isReversed  = false;
     boolean isConnected = false;
@@ -98,8 +104,9 @@ public class TextTable extends Table {
 
         this.store = store;
 
-        TextCache      cache  = null;
-        TextFileReader reader = null;
+        TextCache      cache     = null;
+        TextFileReader reader    = null;
+        int            errorLine = -1;
 
         try {
             cache = (TextCache) database.logger.openTextFilePersistence(this,
@@ -118,30 +125,133 @@ public class TextTable extends Table {
                 cache.setHeaderInitialise(reader.getHeaderLine());
             }
 
-            while (true) {
-                RowInputInterface rowIn = reader.readObject(nextpos);
+            int threads = Runtime.getRuntime().availableProcessors();
 
-                if (rowIn == null) {
-                    break;
-                }
+            if (threads == 1) {
+                while (true) {
+                    RowInputInterface rowIn = reader.readObject(nextpos);
+
+                    if (rowIn == null) {
+                        break;
+                    }
+
+                    row = (Row) store.get(rowIn);
 
-                row = (Row) store.get(rowIn);
+                    if (row == null) {
+                        break;
+                    }
 
-                if (row == null) {
-                    break;
+                    Object[] data = row.getData();
+
+                    nextpos = row.getPos() + row.getStorageSize();
+
+                    systemUpdateIdentityValue(data);
+                    enforceRowConstraints(session, data);
+                    store.indexRow(session, row);
+                }
+            } else {
+
+                // lines are read in chunks, the row data of each chunk is
+                // read in parallel and the rows are then indexed in file
+                // order
+                final RowInputInterface[] inputs =
+                    new RowInputInterface[threads];
+                final String[]    lines     = new String[readChunkSize];
+                final long[]      positions = new long[readChunkSize];
+                final int[]       sizes     = new int[readChunkSize];
+                final Row[]       rows      = new Row[readChunkSize];
+                final Throwable[] errors    = new Throwable[readChunkSize];
+                final RowStoreAVLDiskData diskStore =
+                    (RowStoreAVLDiskData) store;
+                int[]      lineNumbers = new int[readChunkSize];
+                Runnable[] tasks       = new Runnable[threads];
+
+                for (int i = 0; i < threads; i++) {
+                    inputs[i] = cache.getNewRowInput();
                 }
 
-                Object[] data = row.getData();
+                while (true) {
+                    int count = 0;
+
+                    for (; count < readChunkSize; count++) {
+                        RowInputInterface rowIn = reader.readObject(nextpos);
+
+                        if (rowIn == null) {
+                            break;
+                        }
+
+                        lines[count]       = reader.getRowString();
+                        positions[count]   = rowIn.getPos();
+                        sizes[count]       = rowIn.getSize();
+                        lineNumbers[count] = reader.getLineNumber();
+                        nextpos            = rowIn.getPos() + rowIn.getSize();
+                    }
+
+                    if (count == 0) {
+                        break;
+                    }
+
+                    final int chunkCount = count;
+
+                    for (int i = 0; i < threads; i++) {
+                        final int task = i;
+
+                        tasks[i] = new Runnable() {
 
-                nextpos = (int) row.getPos() + row.getStorageSize();
+                            public void run() {
 
-                systemUpdateIdentityValue(data);
-                enforceRowConstraints(session, data);
-                store.indexRow(session, row);
+                                RowInputText in = (RowInputText) inputs[task];
+
+                                for (int j = task; j < chunkCount;
+                                        j += inputs.length) {
+                                    try {
+                                        in.setSource(lines[j], positions[j],
+                                                     sizes[j]);
+
+                                        rows[j] = diskStore.readRow(in);
+                                    } catch (Throwable t) {
+                                        errors[j] = t;
+                                    }
+                                }
+                            }
+                        };
+                    }
+
+                    ArraySort.runParallel(tasks, threads);
+
+                    for (int i = 0; i < count; i++) {
+                        errorLine = lineNumbers[i];
+
+                        if (errors[i] != null) {
+                            throw errors[i];
+                        }
+
+                        row = rows[i];
+
+                        cache.addInit(row);
+
+                        Object[] data = row.getData();
+
+                        systemUpdateIdentityValue(data);
+                        enforceRowConstraints(session, data);
+                        store.indexRow(session, row);
+
+                        lines[i] = null;
+                        rows[i]  = null;
+                    }
+
+                    errorLine = -1;
+
+                    if (count < readChunkSize) {
+                        break;
+                    }
+                }
             }
         } catch (Throwable t) {
-            int linenumber = reader == null ? 0
-                                            : reader.getLineNumber();
+            int linenumber = errorLine >= 0 ? errorLine
+                                            : reader == null ? 0
+                                                             : reader
+                                                             .getLineNumber();
 
             clearAllData(session);
 
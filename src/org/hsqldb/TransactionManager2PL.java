@@ -35,6 +35,7 @@ import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.persist.CachedObject;
 import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.scriptio.ScriptWriterBase;
 
 /**
  * Manages rows involved in transactions
@@ -92,36 +93,97 @@ implements TransactionManager {
             return false;
         }
 
+        ScriptWriterBase.CommitSync commitSync;
+
         writeLock.lock();
 
         try {
-            int limit = session.rowActionList.size();
 
-            // new actionTimestamp used for commitTimestamp
-            session.actionTimestamp         = getNextGlobalChangeTimestamp();
-            session.transactionEndTimestamp = session.actionTimestamp;
+            // LOB usage counts are adjusted by committing the actions and
+            // are logged before the commit record. These commits are synced
+            // before the lock is released, so that other sessions cannot
+            // read them earlier. If the sync fails they stay committed and
+            // are saved by the checkpoint that the session then starts.
+            if (hasLobChanges(session)) {
+                commitActions(session, true);
+
+                return true;
+            }
 
-            endTransaction(session);
+            commitSync = writeCommitLog(session);
 
-            for (int i = 0; i < limit; i++) {
-                RowAction action = (RowAction) session.rowActionList.get(i);
+            if (commitSync == null) {
+                commitActions(session, false);
 
-                action.commit(session);
+                return true;
             }
+        } finally {
+            writeLock.unlock();
+        }
 
-            adjustLobUsage(session);
-            persistCommit(session);
-            endTransactionTPL(session);
+        // the table locks are held and the changes cannot be read by other
+        // sessions until the commit record is synced
+        try {
+            database.logger.waitForCommitSync(commitSync);
+        } catch (HsqlException e) {
 
+            // the changes are discarded; the log still holds them and fails
+            // all commits until the checkpoint that the session then starts
+            // writes the state without them
+            rollback(session);
+
+            throw e;
+        }
+
+        writeLock.lock();
+
+        try {
+            commitActions(session, false);
         } finally {
             writeLock.unlock();
         }
 
-        session.tempSet.clear();
-
         return true;
     }
 
+    /**
+     * Commits the actions and ends the transaction. If writeLog is true, also
+     * writes the log and waits for the commit to be synced before the locks
+     * are released.
+     */
+    private void commitActions(Session session, boolean writeLog) {
+
+        int                         limit      = session.rowActionList.size();
+        ScriptWriterBase.CommitSync commitSync = null;
+
+        // new actionTimestamp used for commitTimestamp
+        session.actionTimestamp         = getNextGlobalChangeTimestamp();
+        session.transactionEndTimestamp = session.actionTimestamp;
+
+        endTransaction(session);
+
+        for (int i = 0; i < limit; i++) {
+            RowAction action = (RowAction) session.rowActionList.get(i);
+
+            action.commit(session);
+        }
+
+        adjustLobUsage(session);
+
+        if (writeLog) {
+            commitSync = writeCommitLog(session);
+        }
+
+        persistCommit(session);
+
+        try {
+            database.logger.waitForCommitSync(commitSync);
+        } finally {
+            endTransactionTPL(session);
+            session.tempSet.clear();
+        }
+    }
+
     public void rollback(Session session) {
 
         session.abortTransaction        = false;
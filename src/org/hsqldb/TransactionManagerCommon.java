@@ -45,6 +45,7 @@ import org.hsqldb.lib.LongDeque;
 import org.hsqldb.lib.LongKeyHashMap;
 import org.hsqldb.lib.MultiValueHashMap;
 import org.hsqldb.lib.OrderedHashSet;
+import org.hsqldb.scriptio.ScriptWriterBase;
 
 /**
  * Shared code for TransactionManager classes
@@ -146,6 +147,29 @@ class TransactionManagerCommon {
         }
     }
 
+    /**
+     * Returns true if the commit adjusts LOB usage counts. These commits are
+     * written to the log after the counts are adjusted.
+     */
+    boolean hasLobChanges(Session session) {
+
+        int limit = session.rowActionList.size();
+
+        for (int i = 0; i < limit; i++) {
+            RowAction action = (RowAction) session.rowActionList.get(i);
+
+            if (action.type == RowActionBase.ACTION_NONE) {
+                continue;
+            }
+
+            if (action.table.hasLobColumn) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     void adjustLobUsage(Session session) {
 
         int  limit               = session.rowActionList.size();
@@ -195,11 +219,96 @@ class TransactionManagerCommon {
         }
     }
 
-    void persistCommit(Session session) {
+    /**
+     * Writes the row changes and the commit record of the session to the
+     * log. Used before the actions are committed, or after when the commit
+     * adjusts LOB usage counts. Returns the commit to wait for with
+     * Logger.waitForCommitSync(), or null if there is no need to wait.
+     */
+    ScriptWriterBase.CommitSync writeCommitLog(Session session) {
 
         int     limit       = session.rowActionList.size();
         boolean writeCommit = false;
 
+        try {
+            for (int i = 0; i < limit; i++) {
+                RowAction action = (RowAction) session.rowActionList.get(i);
+
+                if (action.type == RowActionBase.ACTION_NONE) {
+                    continue;
+                }
+
+                if (action.table.tableType == TableBase.TEMP_TABLE) {
+                    continue;
+                }
+
+                writeCommit = true;
+
+                switch (action.table.tableType) {
+
+                    case TableBase.MEMORY_TABLE :
+                    case TableBase.CACHED_TABLE :
+                    case TableBase.SYSTEM_TABLE :
+                        break;
+
+                    default :
+                        continue;
+                }
+
+                int type = action.getCommitType(session);
+                Row row  = action.memoryRow;
+
+                if (row == null) {
+                    row = (Row) action.store.get(action.getPos(), false);
+                }
+
+                switch (type) {
+
+                    case RowActionBase.ACTION_INSERT :
+                        database.logger.writeInsertStatement(session, row,
+                                                             (Table) action.table);
+                        break;
+
+                    case RowActionBase.ACTION_DELETE :
+                        database.logger.writeDeleteStatement(session,
+                                                             (Table) action.table,
+                                                             row.getData());
+                        break;
+
+                    default :
+                }
+            }
+
+            if (writeCommit) {
+                return database.logger.writeCommitStatement(session);
+            }
+        } catch (HsqlException e) {
+            database.logger.logWarningEvent("data commit failed", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Marks the actions of the session as prepared, so that other sessions
+     * cannot commit changes to the same rows while the commit record is
+     * synced. The changes become visible when the actions are committed.
+     */
+    void prepareCommitRows(Session session) {
+
+        int limit = session.rowActionList.size();
+
+        for (int i = 0; i < limit; i++) {
+            RowAction action = (RowAction) session.rowActionList.get(i);
+
+            action.prepareCommit(session);
+        }
+    }
+
+    void persistCommit(Session session) {
+
+        int limit = session.rowActionList.size();
+
         for (int i = 0; i < limit; i++) {
             RowAction action = (RowAction) session.rowActionList.get(i);
 
@@ -214,10 +323,6 @@ class TransactionManagerCommon {
                 row = (Row) action.store.get(action.getPos(), false);
             }
 
-            if (action.table.tableType != TableBase.TEMP_TABLE) {
-                writeCommit = true;
-            }
-
             try {
                 action.store.commitRow(session, row, type, txModel);
 
@@ -231,14 +336,6 @@ class TransactionManagerCommon {
                 database.logger.logWarningEvent("data commit failed", e);
             }
         }
-
-        try {
-            if (limit > 0 && writeCommit) {
-                database.logger.writeCommitStatement(session);
-            }
-        } catch (HsqlException e) {
-            database.logger.logWarningEvent("data commit failed", e);
-        }
     }
 
     void finaliseRows(Session session, Object[] list, int start, int limit) {
@@ -39,6 +39,7 @@ import org.hsqldb.lib.LongDeque;
 import org.hsqldb.lib.LongKeyHashMap;
 import org.hsqldb.persist.CachedObject;
 import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.scriptio.ScriptWriterBase;
 
 /**
  * Manages rows involved in transactions
@@ -152,6 +153,8 @@ implements TransactionManager {
             return false;
         }
 
+        ScriptWriterBase.CommitSync commitSync;
+
         writeLock.lock();
 
         try {
@@ -167,18 +170,6 @@ implements TransactionManager {
                 }
             }
 
-            // new actionTimestamp used for commitTimestamp
-            session.actionTimestamp         = getNextGlobalChangeTimestamp();
-            session.transactionEndTimestamp = session.actionTimestamp;
-
-            endTransaction(session);
-
-            for (int i = 0; i < limit; i++) {
-                RowAction action = (RowAction) session.rowActionList.get(i);
-
-                action.commit(session);
-            }
-
             for (int i = 0; i < session.tempSet.size(); i++) {
                 Session current =
                     ((RowActionBase) session.tempSet.get(i)).session;
@@ -186,48 +177,121 @@ implements TransactionManager {
                 current.abortTransaction = true;
             }
 
-            adjustLobUsage(session);
-            persistCommit(session);
+            // LOB usage counts are adjusted by committing the actions and
+            // are logged before the commit record. These commits are synced
+            // before the lock is released, so that other sessions cannot
+            // read them earlier. If the sync fails they stay committed and
+            // are saved by the checkpoint that the session then starts.
+            if (hasLobChanges(session)) {
+                commitActions(session, true);
+
+                return true;
+            }
 
-            int newLimit = session.rowActionList.size();
+            commitSync = writeCommitLog(session);
 
-            if (newLimit > limit) {
-                Object[] list = session.rowActionList.getArray();
+            if (commitSync == null) {
+                commitActions(session, false);
 
-                mergeTransaction(list, limit, newLimit,
-                                 session.actionTimestamp);
-                finaliseRows(session, list, limit, newLimit);
-                session.rowActionList.setSize(limit);
+                return true;
             }
 
-            // session.actionTimestamp is the committed tx timestamp
-            if (session == lobSession
-                    || getFirstLiveTransactionTimestamp()
-                       > session.actionTimestamp) {
-                Object[] list = session.rowActionList.getArray();
+            // changes stay invisible until the commit record is synced
+            prepareCommitRows(session);
+        } finally {
+            writeLock.unlock();
+            session.tempSet.clear();
+        }
+
+        try {
+            database.logger.waitForCommitSync(commitSync);
+        } catch (HsqlException e) {
 
-                mergeTransaction(list, 0, limit, session.actionTimestamp);
-                finaliseRows(session, list, 0, limit);
-            } else {
-                if (session.rowActionList.size() > 0) {
-                    Object[] list = session.rowActionList.toArray();
+            // the changes are discarded; the log still holds them and fails
+            // all commits until the checkpoint that the session then starts
+            // writes the state without them
+            rollback(session);
 
-                    addToCommittedQueue(session, list);
-                }
+            throw e;
+        }
+
+        writeLock.lock();
+
+        try {
+            commitActions(session, false);
+        } finally {
+            writeLock.unlock();
+        }
+
+        return true;
+    }
+
+    /**
+     * Commits the actions and ends the transaction. If writeLog is true, also
+     * writes the log and waits for the commit to be synced before the locks
+     * are released.
+     */
+    private void commitActions(Session session, boolean writeLog) {
+
+        int                         limit      = session.rowActionList.size();
+        ScriptWriterBase.CommitSync commitSync = null;
+
+        // new actionTimestamp used for commitTimestamp
+        session.actionTimestamp         = getNextGlobalChangeTimestamp();
+        session.transactionEndTimestamp = session.actionTimestamp;
+
+        endTransaction(session);
+
+        for (int i = 0; i < limit; i++) {
+            RowAction action = (RowAction) session.rowActionList.get(i);
+
+            action.commit(session);
+        }
+
+        adjustLobUsage(session);
+
+        if (writeLog) {
+            commitSync = writeCommitLog(session);
+        }
+
+        persistCommit(session);
+
+        int newLimit = session.rowActionList.size();
+
+        if (newLimit > limit) {
+            Object[] list = session.rowActionList.getArray();
+
+            mergeTransaction(list, limit, newLimit, session.actionTimestamp);
+            finaliseRows(session, list, limit, newLimit);
+            session.rowActionList.setSize(limit);
+        }
+
+        // session.actionTimestamp is the committed tx timestamp
+        if (session == lobSession
+                || getFirstLiveTransactionTimestamp()
+                   > session.actionTimestamp) {
+            Object[] list = session.rowActionList.getArray();
+
+            mergeTransaction(list, 0, limit, session.actionTimestamp);
+            finaliseRows(session, list, 0, limit);
+        } else {
+            if (session.rowActionList.size() > 0) {
+                Object[] list = session.rowActionList.toArray();
+
+                addToCommittedQueue(session, list);
             }
+        }
 
+        try {
+            database.logger.waitForCommitSync(commitSync);
+        } finally {
             endTransactionTPL(session);
 
             //
             session.isTransaction = false;
 
             countDownLatches(session);
-        } finally {
-            writeLock.unlock();
-            session.tempSet.clear();
         }
-
-        return true;
     }
 
     public void rollback(Session session) {
@@ -31,12 +31,20 @@
 
 package org.hsqldb;
 
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.HsqlDeque;
 import org.hsqldb.lib.OrderedHashSet;
 import org.hsqldb.lib.StringConverter;
+import org.hsqldb.persist.HsqlDatabaseProperties;
 import org.hsqldb.rights.Grantee;
 
 // peterhudson@users 20020130 - patch 478657 by peterhudson - triggers support
@@ -98,14 +106,18 @@ public class TriggerDef implements Runnable, SchemaObject {
     Trigger          trigger;
     String           triggerClassName;
     int              triggerType;
-    Thread           thread;
+    ClassLoader      contextClassLoader;
 
     //protected boolean busy;               // firing trigger in progress
     protected HsqlDeque        pendingQueue;                   // row triggers pending
     protected int              rowsQueued;                     // rows in pendingQueue
+    protected boolean          dispatchPending;                // run() is submitted
     protected boolean          valid     = true;               // parsing valid
     protected volatile boolean keepGoing = true;
 
+    //
+    private static ThreadPoolExecutor executor;
+
     TriggerDef() {}
 
     /**
@@ -115,7 +127,8 @@ public class TriggerDef implements Runnable, SchemaObject {
      *  Changes in 1.7.2 allow the queue size to be specified as 0. A zero
      *  queue size causes the Trigger.fire() code to run in the main thread of
      *  execution (fully inside the enclosing transaction). Otherwise, the code
-     *  is run in the Trigger's own thread.
+     *  is run in a thread of the shared trigger executor. See getExecutor()
+     *  for the number of threads.
      *  (fredt@users)
      *
      * @param  name The trigger object's HsqlName
@@ -524,88 +537,201 @@ public class TriggerDef implements Runnable, SchemaObject {
     /**
      *  run method declaration <P>
      *
-     *  the trigger JSP is run in its own thread here. Its job is simply to
-     *  wait until it is told by the main thread that it should fire the
-     *  trigger.
+     *  Runs in a thread of the shared trigger executor. All the rows queued
+     *  when the method is entered are fired as one batch, then the method is
+     *  submitted again if more rows have been queued meanwhile. At most one
+     *  invocation is pending or running for each trigger, so the rows are
+     *  fired in the order they were queued.
      */
     public void run() {
 
-        while (keepGoing) {
-            TriggerData triggerData = popPair();
+        TriggerData[] batch;
 
-            if (triggerData != null) {
-                if (triggerData.username != null) {
-                    trigger.fire(this.triggerType, name.name,
-                                 table.getName().name, triggerData.oldRow,
-                                 triggerData.newRow);
-                }
+        synchronized (this) {
+            if (!keepGoing || rowsQueued == 0) {
+                dispatchPending = false;
+
+                return;
             }
+
+            batch = new TriggerData[pendingQueue.size()];
+
+            pendingQueue.toArray(batch);
+            pendingQueue.clear();
+
+            rowsQueued = 0;
+
+            notifyAll();    // notify push's wait
         }
 
+        Thread currentThread = Thread.currentThread();
+
         try {
-            thread.setContextClassLoader(null);
-        } catch (Throwable t) {}
+            currentThread.setContextClassLoader(contextClassLoader);
+            fireBatch(batch);
+        } catch (Throwable t) {
+            table.database.logger.logWarningEvent("trigger failed: "
+                                                  + name.name, t);
+        } finally {
+            try {
+                currentThread.setContextClassLoader(null);
+            } catch (Throwable t) {}
+        }
+
+        synchronized (this) {
+            if (keepGoing && rowsQueued > 0) {
+                getExecutor().execute(this);
+            } else {
+                dispatchPending = false;
+            }
+        }
     }
 
     /**
-     * start the thread if this is threaded
+     * Fires the trigger for the queued rows, with a single call if the
+     * trigger is a BatchTrigger. In both cases, rows queued without a user
+     * name are not fired.
      */
-    public synchronized void start() {
+    private void fireBatch(TriggerData[] batch) {
 
-        if (maxRowsQueued != 0) {
-            thread = new Thread(this);
+        if (trigger instanceof BatchTrigger) {
+            int count = 0;
 
-            thread.start();
+            for (int i = 0; i < batch.length; i++) {
+                if (batch[i].username != null) {
+                    batch[count++] = batch[i];
+                }
+            }
+
+            if (count == 0) {
+                return;
+            }
+
+            Object[][] oldRows = new Object[count][];
+            Object[][] newRows = new Object[count][];
+
+            for (int i = 0; i < count; i++) {
+                oldRows[i] = batch[i].oldRow;
+                newRows[i] = batch[i].newRow;
+            }
+
+            ((BatchTrigger) trigger).fireBatch(this.triggerType, name.name,
+                                               table.getName().name, oldRows,
+                                               newRows);
+
+            return;
+        }
+
+        for (int i = 0; i < batch.length && keepGoing; i++) {
+            TriggerData triggerData = batch[i];
+
+            if (triggerData.username != null) {
+                trigger.fire(this.triggerType, name.name,
+                             table.getName().name, triggerData.oldRow,
+                             triggerData.newRow);
+            }
         }
     }
 
     /**
-     * signal the thread to stop
+     * Returns the executor shared by the queued triggers of all databases in
+     * the JVM. Idle threads are released.<p>
+     *
+     * The number of threads is set with the hsqldb.trigger_threads system
+     * property and defaults to the number of processors. While a trigger
+     * blocks in fire(), for example on a lock held by another session, it
+     * uses one of the threads. When all the threads are blocked, no other
+     * queued trigger is fired, and the sessions that push rows to a full
+     * queue wait. With a value of 0, a thread is used for each trigger that
+     * has rows to fire, so that a blocked trigger does not delay others.
      */
-    public synchronized void terminate() {
+    static synchronized ThreadPoolExecutor getExecutor() {
 
-        keepGoing = false;
+        if (executor == null) {
+            int threadCount = getThreadCount();
+            ThreadFactory factory = new ThreadFactory() {
+
+                AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
 
-        notify();
+                    Thread t = new Thread(r, "HSQLDB Trigger Worker @"
+                                          + count.incrementAndGet());
+
+                    t.setDaemon(true);
+
+                    return t;
+                }
+            };
+
+            if (threadCount == 0) {
+                executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L,
+                                                  TimeUnit.SECONDS,
+                                                  new SynchronousQueue(),
+                                                  factory);
+            } else {
+                executor = new ThreadPoolExecutor(threadCount, threadCount,
+                                                  60L, TimeUnit.SECONDS,
+                                                  new LinkedBlockingQueue(),
+                                                  factory);
+
+                executor.allowCoreThreadTimeOut(true);
+            }
+        }
+
+        return executor;
+    }
+
+    private static int getThreadCount() {
+
+        int defaultCount = Runtime.getRuntime().availableProcessors();
+
+        try {
+            int count = Integer.getInteger(
+                HsqlDatabaseProperties.system_trigger_threads,
+                defaultCount).intValue();
+
+            return count < 0 ? defaultCount
+                             : count;
+        } catch (SecurityException e) {
+            return defaultCount;
+        }
     }
 
     /**
-     *  pop2 method declaration <P>
-     *
-     *  The consumer (trigger) thread waits for an event to be queued <P>
-     *
-     *  <B>Note: </B> This push/pop pairing assumes a single producer thread
-     *  and a single consumer thread _only_.
-     *
-     * @return  Description of the Return Value
+     * record the class loader for the executor if this is threaded
      */
-    synchronized TriggerData popPair() {
-
-        if (rowsQueued == 0) {
-            try {
-                wait();    // this releases the lock monitor
-            } catch (InterruptedException e) {
+    public synchronized void start() {
 
-                /* ignore and resume */
-            }
+        if (maxRowsQueued != 0) {
+            contextClassLoader =
+                Thread.currentThread().getContextClassLoader();
         }
+    }
 
-        rowsQueued--;
+    /**
+     * signal the executor to stop firing this trigger
+     */
+    public synchronized void terminate() {
 
-        notify();    // notify push's wait
+        keepGoing = false;
 
-        if (pendingQueue.size() == 0) {
-            return null;
-        } else {
-            return (TriggerData) pendingQueue.removeFirst();
+        if (pendingQueue != null) {
+            pendingQueue.clear();
         }
+
+        rowsQueued = 0;
+
+        notifyAll();
     }
 
     /**
      *  The main thread tells the trigger thread to fire by this call.
      *  If this Trigger is not threaded then the fire method is caled
      *  immediately and executed by the main thread. Otherwise, the row
-     *  data objects are added to the queue to be used by the Trigger thread.
+     *  data objects are added to the queue to be used by the shared trigger
+     *  executor, which is signalled if it is not already due to run this
+     *  trigger.
      *
      * @param  row1
      * @param  row2
@@ -625,15 +751,21 @@ public class TriggerDef implements Runnable, SchemaObject {
             return;
         }
 
+        if (!keepGoing) {
+            return;
+        }
+
         if (rowsQueued >= maxRowsQueued) {
             if (nowait) {
                 pendingQueue.removeLast();    // overwrite last
             } else {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
+                while (rowsQueued >= maxRowsQueued && keepGoing) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
 
-                    /* ignore and resume */
+                        /* ignore and resume */
+                    }
                 }
 
                 rowsQueued++;
@@ -643,7 +775,12 @@ public class TriggerDef implements Runnable, SchemaObject {
         }
 
         pendingQueue.add(new TriggerData(session, row1, row2));
-        notify();    // notify pop's wait
+
+        if (!dispatchPending) {
+            dispatchPending = true;
+
+            getExecutor().execute(this);
+        }
     }
 
     public boolean isBusy() {
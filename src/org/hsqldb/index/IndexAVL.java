@@ -70,6 +70,7 @@
 
 package org.hsqldb.index;
 
+import java.util.Comparator;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -850,16 +851,23 @@ public class IndexAVL implements Index {
     }
 
     boolean hasNulls(Session session, Object[] rowData) {
+        return hasNulls(session, rowData, colIndex);
+    }
+
+    /**
+     * The cols array holds the position of each index column in rowData.
+     */
+    private boolean hasNulls(Session session, Object[] rowData, int[] cols) {
 
-        if (colIndex.length == 1) {
-            return rowData[colIndex[0]] == null;
+        if (cols.length == 1) {
+            return rowData[cols[0]] == null;
         }
 
         boolean normal = session == null ? true
                                          : session.database.sqlUniqueNulls;
 
-        for (int j = 0; j < colIndex.length; j++) {
-            if (rowData[colIndex[j]] == null) {
+        for (int j = 0; j < cols.length; j++) {
+            if (rowData[cols[j]] == null) {
                 if (normal) {
                     return true;
                 }
@@ -951,6 +959,191 @@ public class IndexAVL implements Index {
         }
     }
 
+    /**
+     * Returns a comparator that orders rows as they are ordered in this
+     * index, with the row position used for otherwise equal rows.
+     */
+    /**
+     * Returns a comparator for the rows passed to buildFromSortedRows().
+     * RowAVL elements hold all the column values. Other elements are
+     * detached rows that hold only the values of keyColumns, in that order.
+     */
+    public Comparator getRowComparator(final Session session,
+                                       int[] keyColumns) {
+
+        final int[] keyCols = getKeyColumnMap(keyColumns);
+
+        return new Comparator() {
+
+            public int compare(Object a, Object b) {
+                return compareRowForBuild(session, (Row) a, (Row) b,
+                                          keyCols, true);
+            }
+        };
+    }
+
+    private int[] getKeyColumnMap(int[] keyColumns) {
+
+        int[] keyCols = new int[colIndex.length];
+
+        for (int j = 0; j < colIndex.length; j++) {
+            keyCols[j] = ArrayUtil.find(keyColumns, colIndex[j]);
+        }
+
+        return keyCols;
+    }
+
+    private int compareRowForBuild(Session session, Row newRow,
+                                   Row existingRow, int[] keyCols,
+                                   boolean useRowId) {
+
+        Object[] a     = newRow.getData();
+        Object[] b     = existingRow.getData();
+        int[]    aCols = newRow instanceof RowAVL ? colIndex
+                                                  : keyCols;
+        int[]    bCols = existingRow instanceof RowAVL ? colIndex
+                                                       : keyCols;
+
+        for (int j = 0; j < colIndex.length; j++) {
+            Object aValue = a[aCols[j]];
+            Object bValue = b[bCols[j]];
+            int    i      = colTypes[j].compare(session, aValue, bValue);
+
+            if (i != 0) {
+                if (isSimpleOrder) {
+                    return i;
+                }
+
+                boolean nulls = aValue == null || bValue == null;
+
+                if (colDesc[j] && !nulls) {
+                    i = -i;
+                }
+
+                if (nullsLast[j] && nulls) {
+                    i = -i;
+                }
+
+                return i;
+            }
+        }
+
+        if (useRowId) {
+            long diff = newRow.getPos() - existingRow.getPos();
+
+            return diff == 0L ? 0
+                              : diff > 0L ? 1
+                                          : -1;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Builds the index from rows already sorted with the comparator
+     * returned by getRowComparator(). The nodes are linked bottom-up into a
+     * balanced tree, which avoids the search and rebalancing of one insert
+     * per row. Elements that are not RowAVL objects stand for the disk row
+     * at the same position and hold only the values of keyColumns.
+     */
+    public void buildFromSortedRows(Session session, PersistentStore store,
+                                    Object[] rows, int count,
+                                    int[] keyColumns) {
+
+        if (isUnique) {
+            int[] keyCols = getKeyColumnMap(keyColumns);
+
+            for (int i = 1; i < count; i++) {
+                Row   row  = (Row) rows[i];
+                int[] cols = row instanceof RowAVL ? colIndex
+                                                   : keyCols;
+
+                if (compareRowForBuild(session, row, (Row) rows[i - 1],
+                                       keyCols, false) == 0 && !hasNulls(
+                                           session, row.getData(), cols)) {
+                    Constraint c = null;
+
+                    if (isConstraint) {
+                        c = ((Table) table).getUniqueConstraintForIndex(this);
+                    }
+
+                    if (c == null) {
+                        throw Error.error(ErrorCode.X_23505,
+                                          name.statementName);
+                    }
+
+                    if (!(row instanceof RowAVL)) {
+                        row = (Row) store.get(row.getPos(), false);
+                    }
+
+                    throw c.getException(row.getData());
+                }
+            }
+        }
+
+        writeLock.lock();
+        store.writeLock();
+
+        try {
+            NodeAVL root = linkSortedRows(store, rows, 0, count);
+
+            if (root != null) {
+                root = root.setParent(store, null);
+            }
+
+            store.setAccessor(this, root);
+        } finally {
+            store.writeUnlock();
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Links the rows in the range [start, limit) into a balanced subtree and
+     * returns its root node.
+     */
+    private NodeAVL linkSortedRows(PersistentStore store, Object[] rows,
+                                   int start, int limit) {
+
+        if (start == limit) {
+            return null;
+        }
+
+        int     mid   = (start + limit) >>> 1;
+        NodeAVL left  = linkSortedRows(store, rows, start, mid);
+        NodeAVL right = linkSortedRows(store, rows, mid + 1, limit);
+        Object  row   = rows[mid];
+
+        if (!(row instanceof RowAVL)) {
+            row = store.get(((Row) row).getPos(), false);
+        }
+
+        NodeAVL node = ((RowAVL) row).getNode(position);
+
+        node = node.setLeft(store, left);
+        node = node.setRight(store, right);
+        node = node.setBalance(store,
+                               getTreeHeight(limit - mid - 1)
+                               - getTreeHeight(mid - start));
+
+        if (left != null) {
+            left.setParent(store, node);
+        }
+
+        if (right != null) {
+            right.setParent(store, node);
+        }
+
+        return node;
+    }
+
+    /**
+     * Height of a tree of the given size linked by linkSortedRows().
+     */
+    private static int getTreeHeight(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+
     public void delete(Session session, PersistentStore store, Row row) {
 
         if (!row.isInMemory()) {
@@ -224,12 +224,15 @@ public class NodeAVLDisk extends NodeAVL {
             return null;
         }
 
-        if (node.nLeft == null || !node.nLeft.isInMemory()) {
-            node.nLeft         = findNode(store, node.iLeft);
-            node.nLeft.nParent = node;
+        NodeAVL child = node.nLeft;
+
+        if (child == null || !child.isInMemory()) {
+            child         = findNode(store, node.iLeft);
+            child.nParent = node;
+            node.nLeft    = child;
         }
 
-        return node.nLeft;
+        return child;
     }
 
     NodeAVL getRight(PersistentStore store) {
@@ -246,12 +249,15 @@ public class NodeAVLDisk extends NodeAVL {
             return null;
         }
 
-        if (node.nRight == null || !node.nRight.isInMemory()) {
-            node.nRight         = findNode(store, node.iRight);
-            node.nRight.nParent = node;
+        NodeAVL child = node.nRight;
+
+        if (child == null || !child.isInMemory()) {
+            child         = findNode(store, node.iRight);
+            child.nParent = node;
+            node.nRight   = child;
         }
 
-        return node.nRight;
+        return child;
     }
 
     NodeAVL getParent(PersistentStore store) {
@@ -268,11 +274,14 @@ public class NodeAVLDisk extends NodeAVL {
             return null;
         }
 
-        if (node.nParent == null || !node.nParent.isInMemory()) {
-            node.nParent = findNode(store, iParent);
+        NodeAVL parent = node.nParent;
+
+        if (parent == null || !parent.isInMemory()) {
+            parent       = findNode(store, iParent);
+            node.nParent = parent;
         }
 
-        return node.nParent;
+        return parent;
     }
 
     public int getBalance(PersistentStore store) {
@@ -315,11 +324,14 @@ public class NodeAVLDisk extends NodeAVL {
             return true;
         }
 
-        if (node.nParent == null || !node.nParent.isInMemory()) {
-            node.nParent = findNode(store, iParent);
+        NodeAVL parent = node.nParent;
+
+        if (parent == null || !parent.isInMemory()) {
+            parent       = findNode(store, iParent);
+            node.nParent = parent;
         }
 
-        return row.getPos() == ((NodeAVLDisk) node.nParent).iLeft;
+        return row.getPos() == ((NodeAVLDisk) parent).iLeft;
     }
 
     public NodeAVL child(PersistentStore store, boolean isleft) {
@@ -3597,6 +3597,11 @@ public class JDBCConnection implements Connection {
                 sessionProxy = new ClientConnection(host, port, path,
                         database, isTLS, isTLSWrapper, user, password, zoneSeconds);
                 isNetConn = true;
+
+                if (props.isPropertyTrue(
+                        HsqlDatabaseProperties.url_compress_network, false)) {
+                    ((ClientConnection) sessionProxy).startCompression();
+                }
             } else if (connType == DatabaseURL.S_HTTP
                        || connType == DatabaseURL.S_HTTPS) {
                 sessionProxy = new ClientConnectionHTTP(host, port, path,
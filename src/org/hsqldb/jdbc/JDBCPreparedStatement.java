@@ -2025,6 +2025,7 @@ public class JDBCPreparedStatement extends JDBCStatementBase implements Prepared
             return;
         }
         closeResultData();
+        closeAsyncRequests();
 
         HsqlException he = null;
 
@@ -3835,6 +3836,74 @@ public class JDBCPreparedStatement extends JDBCStatementBase implements Prepared
     }
 
 //#endif JAVA6
+    //------------------------- HSQLDB extensions -----------------------------
+
+    /**
+     * HSQLDB-Specific: Executes this statement with the current parameter
+     * values, without waiting for the response. The statement must not
+     * return a result set.<p>
+     *
+     * With a network connection, many executions can be sent this way
+     * and their responses are read together, so they cost a single round
+     * trip. A following synchronous call on the same connection, such as
+     * <code>Connection.commit()</code>, is sent before the outstanding
+     * responses are read and shares the same round trip. The executions are
+     * performed by the server in order. Errors are reported by
+     * {@link #getAsyncUpdateCounts() getAsyncUpdateCounts}. With an
+     * in-process connection the statement is executed immediately.
+     *
+     * @exception SQLException if a database access error occurs, this
+     * method is called on a closed <code>PreparedStatement</code> or the SQL
+     * statement returns a <code>ResultSet</code> object
+     * @see #getAsyncUpdateCounts()
+     * @since HSQLDB 2.3.0
+     */
+    public synchronized void executeUpdateAsync() throws SQLException {
+
+        if (statementRetType != StatementTypes.RETURN_COUNT) {
+            checkStatementType(StatementTypes.RETURN_COUNT);
+        }
+
+        if (isClosed || connection.isClosed) {
+            checkClosed();
+        }
+        closeResultData();
+        checkParametersSet();
+
+        if (isBatch || isResult) {
+            throw JDBCUtil.sqlExceptionSQL(ErrorCode.X_07505);
+        }
+        resultOut.setPreparedExecuteProperties(parameterValues, maxRows,
+                                               fetchSize, rsProperties,
+                                               queryTimeout);
+
+        try {
+            performPreExecute();
+        } catch (HsqlException e) {
+            resultOut.clearLobResults();
+
+            throw JDBCUtil.sqlException(e);
+        }
+        fetchResultAsync();
+    }
+
+    /**
+     * HSQLDB-Specific: Waits for the responses to all executions started with
+     * {@link #executeUpdateAsync() executeUpdateAsync} since the last call
+     * and returns their update counts in order.
+     *
+     * @return an array of update counts, one per execution
+     * @exception SQLException if a database access error occurs or this
+     * method is called on a closed <code>PreparedStatement</code>
+     * @throws BatchUpdateException if any of the executions failed. The
+     * update count of a failed execution is
+     * <code>Statement.EXECUTE_FAILED</code>
+     * @since HSQLDB 2.3.0
+     */
+    public synchronized int[] getAsyncUpdateCounts() throws SQLException {
+        return super.getAsyncUpdateCounts();
+    }
+
     //-------------------- Internal Implementation -----------------------------
 
     /**
@@ -400,6 +400,10 @@ public class JDBCResultSet implements ResultSet {
         }
 
         if (ResultProperties.isHeld(rsProperties)) {
+            if (navigator instanceof RowSetNavigatorClient) {
+                ((RowSetNavigatorClient) navigator).cancelPrefetch();
+            }
+
             session.closeNavigator(navigator.getId());
         } else {
             navigator.release();
@@ -7208,7 +7212,15 @@ public class JDBCResultSet implements ResultSet {
                                     ErrorCode.M_RS_AFTER_LAST);
         }
 
-        Object[] data = lnavigator.getCurrent();
+        Object[] data;
+
+        try {
+            data = lnavigator.getCurrent();
+        } catch (HsqlException e) {
+
+            // the next block of a network result could not be fetched
+            throw JDBCUtil.sqlException(e);
+        }
 
         if (data == null) {
             throw JDBCUtil.sqlException(ErrorCode.X_24501);
@@ -237,6 +237,7 @@ public class JDBCStatement extends JDBCStatementBase implements Statement {
             return;
         }
         closeResultData();
+        closeAsyncRequests();
 
         batchResultOut = null;
         connection     = null;
@@ -1762,6 +1763,63 @@ public class JDBCStatement extends JDBCStatementBase implements Statement {
     }
 
 //#endif JAVA6
+    //------------------------- HSQLDB extensions -----------------------------
+
+    /**
+     * HSQLDB-Specific: Sends the given SQL statement, which must not return
+     * a result set, without waiting for the response.<p>
+     *
+     * With a network connection, several statements can be sent this way
+     * and their responses are read together, so they cost a single round
+     * trip. A following synchronous call on the same connection, such as
+     * <code>Connection.commit()</code>, is sent before the outstanding
+     * responses are read and shares the same round trip. The statements are
+     * executed by the server in order. Errors are reported by
+     * {@link #getAsyncUpdateCounts() getAsyncUpdateCounts}, so a commit
+     * sent after a failed statement still commits the work of the statements
+     * that did not fail. With an in-process connection the statement is
+     * executed immediately.
+     *
+     * @param sql an SQL Data Manipulation Language (DML) statement, or an
+     * SQL statement that returns nothing
+     * @exception SQLException if a database access error occurs or this
+     * method is called on a closed <code>Statement</code>
+     * @see #getAsyncUpdateCounts()
+     * @since HSQLDB 2.3.0
+     */
+    public synchronized void executeUpdateAsync(String sql)
+    throws SQLException {
+
+        checkClosed();
+        closeResultData();
+
+        if (isEscapeProcessing) {
+            sql = connection.nativeSQL(sql);
+        }
+        resultOut.setPrepareOrExecuteProperties(sql, maxRows, fetchSize,
+                StatementTypes.RETURN_COUNT, queryTimeout, rsProperties,
+                JDBCStatementBase.NO_GENERATED_KEYS, null, null);
+        fetchResultAsync();
+    }
+
+    /**
+     * HSQLDB-Specific: Waits for the responses to all statements sent with
+     * {@link #executeUpdateAsync(String) executeUpdateAsync} since the last
+     * call and returns their update counts in the order the statements were
+     * sent.
+     *
+     * @return an array of update counts, one per statement
+     * @exception SQLException if a database access error occurs or this
+     * method is called on a closed <code>Statement</code>
+     * @throws BatchUpdateException if any of the statements failed. The
+     * update count of a failed statement is
+     * <code>Statement.EXECUTE_FAILED</code>
+     * @since HSQLDB 2.3.0
+     */
+    public synchronized int[] getAsyncUpdateCounts() throws SQLException {
+        return super.getAsyncUpdateCounts();
+    }
+
     // -------------------- Internal Implementation ----------------------------
 
     /**
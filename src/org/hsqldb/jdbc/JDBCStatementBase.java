@@ -31,12 +31,16 @@
 
 package org.hsqldb.jdbc;
 
+import java.sql.BatchUpdateException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 
+import org.hsqldb.HsqlException;
 import org.hsqldb.StatementTypes;
 import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.LongDeque;
+import org.hsqldb.map.ValuePool;
 import org.hsqldb.result.Result;
 import org.hsqldb.result.ResultConstants;
 
@@ -133,6 +137,9 @@ class JDBCStatementBase {
     /** connection generation */
     int connectionIncarnation;
 
+    /** Ids of requests sent without waiting for the response */
+    protected LongDeque asyncRequests;
+
     /** Implementation in subclasses */
     public synchronized void close() throws SQLException {}
 
@@ -200,6 +207,92 @@ class JDBCStatementBase {
         }
     }
 
+    /**
+     * Sends resultOut without waiting for the response.
+     */
+    void fetchResultAsync() throws SQLException {
+
+        try {
+            long requestId = connection.sessionProxy.executeAsync(resultOut);
+
+            if (asyncRequests == null) {
+                asyncRequests = new LongDeque();
+            }
+
+            asyncRequests.add(requestId);
+        } catch (HsqlException e) {
+            throw JDBCUtil.sqlException(e);
+        } finally {
+            resultOut.clearLobResults();
+        }
+    }
+
+    /**
+     * Waits for the responses to the requests sent by fetchResultAsync()
+     * and returns their update counts in the order of the requests.
+     */
+    int[] getAsyncUpdateCounts() throws SQLException {
+
+        checkClosed();
+
+        if (asyncRequests == null || asyncRequests.isEmpty()) {
+            return ValuePool.emptyIntArray;
+        }
+
+        int[]  updateCounts = new int[asyncRequests.size()];
+        Result error        = null;
+
+        try {
+            for (int i = 0; i < updateCounts.length; i++) {
+                long requestId = asyncRequests.removeFirst();
+                Result result =
+                    connection.sessionProxy.getAsyncResult(requestId);
+
+                if (result.isError()) {
+                    updateCounts[i] = EXECUTE_FAILED;
+
+                    if (error == null) {
+                        error = result;
+                    }
+                } else {
+                    updateCounts[i] = result.getUpdateCount();
+                }
+            }
+        } catch (HsqlException e) {
+            asyncRequests.clear();
+
+            throw JDBCUtil.sqlException(e);
+        }
+
+        if (error != null) {
+            throw new BatchUpdateException(error.getMainString(),
+                                           error.getSubString(),
+                                           error.getErrorCode(),
+                                           updateCounts);
+        }
+
+        return updateCounts;
+    }
+
+    /**
+     * Discards the responses to any requests sent by fetchResultAsync()
+     */
+    void closeAsyncRequests() {
+
+        if (asyncRequests == null || connection.isClosed) {
+            return;
+        }
+
+        try {
+            while (!asyncRequests.isEmpty()) {
+                connection.sessionProxy.getAsyncResult(
+                    asyncRequests.removeFirst());
+            }
+        } catch (HsqlException e) {}
+
+        asyncRequests = null;
+    }
+
     int getUpdateCount() throws SQLException {
 
         checkClosed();
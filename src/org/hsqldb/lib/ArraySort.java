@@ -31,7 +31,9 @@
 
 package org.hsqldb.lib;
 
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * FastQSorts the [l,r] partition (inclusive) of the specfied array of
@@ -46,6 +48,9 @@ import java.util.Comparator;
  */
 public class ArraySort {
 
+    /** smallest range sorted by a separate thread */
+    static final int parallelSortMinSize = 1 << 14;
+
     /**
      * Returns the index of the lowest element == the given search target,
      * or -1
@@ -183,6 +188,214 @@ public class ArraySort {
         }
     }
 
+    /**
+     * Sorts the first limit elements of each array with the corresponding
+     * comparator, using up to the given number of threads. The arrays are
+     * sorted concurrently. When there are fewer arrays than threads, each
+     * array is divided into ranges that are sorted concurrently and then
+     * merged in rounds.
+     */
+    public static void sortParallel(final Object[][] arrays, final int limit,
+                                    final Comparator[] comparators,
+                                    int threads) {
+
+        int parts = threads / arrays.length;
+
+        if (parts > limit / parallelSortMinSize) {
+            parts = limit / parallelSortMinSize;
+        }
+
+        if (parts < 1) {
+            parts = 1;
+        }
+
+        int[] bounds = new int[parts + 1];
+
+        for (int i = 0; i <= parts; i++) {
+            bounds[i] = (int) ((long) limit * i / parts);
+        }
+
+        Runnable[] tasks = new Runnable[arrays.length * parts];
+
+        for (int i = 0; i < arrays.length; i++) {
+            for (int j = 0; j < parts; j++) {
+                final Object[]   array      = arrays[i];
+                final Comparator comparator = comparators[i];
+                final int        start      = bounds[j];
+                final int        end        = bounds[j + 1];
+
+                tasks[i * parts + j] = new Runnable() {
+
+                    public void run() {
+                        Arrays.sort(array, start, end, comparator);
+                    }
+                };
+            }
+        }
+
+        runParallel(tasks, threads);
+
+        if (parts == 1) {
+            return;
+        }
+
+        Object[][] sources = arrays;
+        Object[][] targets = new Object[arrays.length][];
+
+        for (int i = 0; i < arrays.length; i++) {
+            targets[i] = new Object[limit];
+        }
+
+        while (parts > 1) {
+            int   newParts  = (parts + 1) / 2;
+            int[] newBounds = new int[newParts + 1];
+
+            tasks = new Runnable[arrays.length * newParts];
+
+            for (int j = 0; j < newParts; j++) {
+                newBounds[j] = bounds[j * 2];
+            }
+
+            newBounds[newParts] = limit;
+
+            for (int i = 0; i < arrays.length; i++) {
+                for (int j = 0; j < newParts; j++) {
+                    final Object[]   source     = sources[i];
+                    final Object[]   target     = targets[i];
+                    final Comparator comparator = comparators[i];
+                    final int        start      = bounds[j * 2];
+                    final int        middle     = j * 2 + 1 < parts
+                                                  ? bounds[j * 2 + 1]
+                                                  : limit;
+                    final int        end        = newBounds[j + 1];
+
+                    tasks[i * newParts + j] = new Runnable() {
+
+                        public void run() {
+                            merge(source, start, middle, end, target,
+                                  comparator);
+                        }
+                    };
+                }
+            }
+
+            runParallel(tasks, threads);
+
+            Object[][] temp = sources;
+
+            sources = targets;
+            targets = temp;
+            bounds  = newBounds;
+            parts   = newParts;
+        }
+
+        if (sources != arrays) {
+            for (int i = 0; i < arrays.length; i++) {
+                System.arraycopy(sources[i], 0, arrays[i], 0, limit);
+            }
+        }
+    }
+
+    /**
+     * Merges the two sorted ranges [start, middle) and [middle, end) of the
+     * source array into the same positions of the target array.
+     */
+    static void merge(Object[] source, int start, int middle, int end,
+                      Object[] target, Comparator comparator) {
+
+        int i = start;
+        int j = middle;
+        int k = start;
+
+        while (i < middle && j < end) {
+            if (comparator.compare(source[j], source[i]) < 0) {
+                target[k++] = source[j++];
+            } else {
+                target[k++] = source[i++];
+            }
+        }
+
+        System.arraycopy(source, i, target, k, middle - i);
+
+        k += middle - i;
+
+        System.arraycopy(source, j, target, k, end - j);
+    }
+
+    /**
+     * Runs the tasks on up to the given number of threads, including the
+     * calling thread, and returns when all have completed. The first
+     * exception thrown by a task is rethrown.
+     */
+    public static void runParallel(final Runnable[] tasks, int threads) {
+
+        final AtomicInteger next  = new AtomicInteger();
+        final Throwable[]   error = new Throwable[1];
+        Runnable            runner;
+
+        runner = new Runnable() {
+
+            public void run() {
+
+                for (int i; (i = next.getAndIncrement()) < tasks.length; ) {
+                    try {
+                        tasks[i].run();
+                    } catch (Throwable t) {
+                        synchronized (error) {
+                            if (error[0] == null) {
+                                error[0] = t;
+                            }
+                        }
+
+                        next.set(tasks.length);
+                    }
+                }
+            }
+        };
+
+        if (threads > tasks.length) {
+            threads = tasks.length;
+        }
+
+        Thread[] workers = new Thread[threads > 1 ? threads - 1
+                                                  : 0];
+
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(runner, "HSQLDB Sort Worker");
+
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        runner.run();
+
+        boolean interrupted = false;
+
+        for (int i = 0; i < workers.length; i++) {
+            while (true) {
+                try {
+                    workers[i].join();
+
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (error[0] instanceof RuntimeException) {
+            throw (RuntimeException) error[0];
+        }
+
+        if (error[0] instanceof Error) {
+            throw (Error) error[0];
+        }
+    }
+
     private static void swap(Object[] array, int i1, int i2) {
 
         Object val = array[i1];
@@ -0,0 +1,162 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.lib;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Buffers the bytes written and sends them to the wrapped stream as
+ * frames of up to blockSize bytes, on flush() or when the buffer is full.<p>
+ *
+ * Each frame starts with an int. The high bit of the int is set when the
+ * frame is compressed and the rest is the length of the frame data that
+ * follows. Blocks smaller than minCompressSize and blocks that do not get
+ * smaller when compressed are sent as they are.<p>
+ *
+ * The frames are read with BlockInflaterInputStream.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class BlockDeflaterOutputStream extends OutputStream {
+
+    public static final int blockSize       = 0x10000;
+    public static final int minCompressSize = 256;
+    static final int        compressedFlag  = 0x80000000;
+    static final int        headerSize      = 4;
+
+    //
+    private final OutputStream out;
+    private final Deflater     deflater;
+    private final byte[]       buffer;
+    private final byte[]       deflateBuffer;
+    private int                count;
+
+    public BlockDeflaterOutputStream(OutputStream out) {
+
+        this.out      = out;
+        deflater      = new Deflater(Deflater.BEST_SPEED);
+        buffer        = new byte[headerSize + blockSize];
+        deflateBuffer = new byte[headerSize + blockSize];
+    }
+
+    public void write(int b) throws IOException {
+
+        if (count == blockSize) {
+            writeBlock();
+        }
+
+        buffer[headerSize + count] = (byte) b;
+
+        count++;
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        while (len > 0) {
+            if (count == blockSize) {
+                writeBlock();
+            }
+
+            int length = blockSize - count;
+
+            if (length > len) {
+                length = len;
+            }
+
+            System.arraycopy(b, off, buffer, headerSize + count, length);
+
+            count += length;
+            off   += length;
+            len   -= length;
+        }
+    }
+
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    public void close() throws IOException {
+
+        try {
+            flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+
+        if (count == 0) {
+            return;
+        }
+
+        if (count >= minCompressSize) {
+            deflater.setInput(buffer, headerSize, count);
+            deflater.finish();
+
+            // output is limited to count bytes, so incompressible data
+            // does not finish
+            int length = deflater.deflate(deflateBuffer, headerSize, count);
+            boolean finished = deflater.finished();
+
+            deflater.reset();
+
+            if (finished && length < count) {
+                setHeader(deflateBuffer, length | compressedFlag);
+                out.write(deflateBuffer, 0, headerSize + length);
+
+                count = 0;
+
+                return;
+            }
+        }
+
+        setHeader(buffer, count);
+        out.write(buffer, 0, headerSize + count);
+
+        count = 0;
+    }
+
+    private static void setHeader(byte[] b, int v) {
+
+        b[0] = (byte) (v >>> 24);
+        b[1] = (byte) (v >>> 16);
+        b[2] = (byte) (v >>> 8);
+        b[3] = (byte) v;
+    }
+}
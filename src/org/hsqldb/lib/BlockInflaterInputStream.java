@@ -0,0 +1,195 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.lib;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the frames written by BlockDeflaterOutputStream from the wrapped
+ * stream and returns their uncompressed bytes.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class BlockInflaterInputStream extends InputStream {
+
+    private final InputStream in;
+    private final Inflater    inflater;
+    private final byte[]      buffer;
+    private final byte[]      frameBuffer;
+    private int               pos;
+    private int               limit;
+
+    public BlockInflaterInputStream(InputStream in) {
+
+        this.in     = in;
+        inflater    = new Inflater();
+        buffer      = new byte[BlockDeflaterOutputStream.blockSize];
+        frameBuffer = new byte[BlockDeflaterOutputStream.blockSize];
+    }
+
+    public int read() throws IOException {
+
+        if (pos == limit && !readBlock()) {
+            return -1;
+        }
+
+        return buffer[pos++] & 0xff;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (pos == limit && !readBlock()) {
+            return -1;
+        }
+
+        int length = limit - pos;
+
+        if (length > len) {
+            length = len;
+        }
+
+        System.arraycopy(buffer, pos, b, off, length);
+
+        pos += length;
+
+        return length;
+    }
+
+    /**
+     * Returns the uncompressed bytes left in the current block or, when it
+     * has been read, 1 if part of the next frame is buffered in the wrapped
+     * stream. Callers that stop reading when nothing is available must not
+     * miss a frame that arrived together with the previous one.
+     */
+    public int available() throws IOException {
+
+        if (pos < limit) {
+            return limit - pos;
+        }
+
+        return in.available() > 0 ? 1
+                                  : 0;
+    }
+
+    public void close() throws IOException {
+
+        try {
+            in.close();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns false at the end of the wrapped stream.
+     */
+    private boolean readBlock() throws IOException {
+
+        int first = in.read();
+
+        if (first < 0) {
+            return false;
+        }
+
+        int header = first << 24;
+
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            int b = in.read();
+
+            if (b < 0) {
+                throw new EOFException();
+            }
+
+            header |= b << shift;
+        }
+
+        boolean isCompressed = (header
+                                & BlockDeflaterOutputStream.compressedFlag)
+                               != 0;
+        int length = header & ~BlockDeflaterOutputStream.compressedFlag;
+
+        if (length == 0 || length > BlockDeflaterOutputStream.blockSize) {
+            throw new IOException("invalid block length " + length);
+        }
+
+        byte[] target = isCompressed ? frameBuffer
+                                     : buffer;
+
+        readFully(target, length);
+
+        pos   = 0;
+        limit = length;
+
+        if (isCompressed) {
+            try {
+                inflater.setInput(frameBuffer, 0, length);
+
+                limit = inflater.inflate(buffer);
+
+                if (!inflater.finished()) {
+                    throw new IOException("invalid compressed block");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e.toString());
+            } finally {
+                inflater.reset();
+            }
+        }
+
+        return true;
+    }
+
+    private void readFully(byte[] b, int length) throws IOException {
+
+        int count = 0;
+
+        while (count < length) {
+            int read = in.read(b, count, length - count);
+
+            if (read < 0) {
+                throw new EOFException();
+            }
+
+            count += read;
+        }
+    }
+}
@@ -54,9 +54,14 @@ public class HashMap extends BaseHashMap {
               BaseHashMap.objectKeyOrValue, false);
     }
 
+    public void setComparator(ObjectComparator comparator) {
+        super.setComparator(comparator);
+    }
+
     public Object get(Object key) {
 
-        int hash   = key.hashCode();
+        int hash   = comparator == null ? key.hashCode()
+                                        : comparator.hashCode(key);
         int lookup = getLookup(key, hash);
 
         if (lookup != -1) {
@@ -144,7 +144,7 @@ public class OrderedLongHashSet extends BaseHashMap {
         for (int i = 0; i < array.length; i++) {
             lookup = super.nextLookup(lookup);
 
-            long value = intKeyTable[lookup];
+            long value = longKeyTable[lookup];
 
             array[i] = value;
         }
@@ -206,8 +206,14 @@ public class BaseHashMap {
         for (; lookup >= 0; lookup = hashIndex.getNextLookup(lookup)) {
             tempKey = objectKeyTable[lookup];
 
-            if (key.equals(tempKey)) {
-                break;
+            if (comparator == null) {
+                if (key.equals(tempKey)) {
+                    break;
+                }
+            } else {
+                if (comparator.compare(key, tempKey) == 0) {
+                    break;
+                }
             }
         }
 
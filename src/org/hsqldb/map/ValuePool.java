@@ -39,24 +39,32 @@ import java.math.BigDecimal;
   * then twice in the database.
   *
   * getXXX methods are used for retrival of values. If a value is not in
-  * the pool, it is added to the pool and returned. When the pool gets
-  * full, half the contents that have been accessed less recently are purged.
+  * the pool, it is added to the pool and returned.<p>
+  *
+  * Each pool is a direct-mapped array indexed by the hash of the value. A new
+  * value replaces the value in its slot. There is no locking. A thread may
+  * occasionally miss a value just stored by another thread and store an
+  * equal object, which only reduces sharing. The pooled classes are immutable
+  * with final fields, so an object read from a slot is always complete.
+  * A lookup that finds its value only reads the array, but each miss writes
+  * a slot, so threads that miss often on different processors still write
+  * to shared cache lines.
   *
   * @author Fred Toussi (fredt@users dot sourceforge.net)
-  * @version 1.9.0
+  * @version 2.3.0
   * @since 1.7.2
   */
 public class ValuePool {
 
     //
-    static ValuePoolHashMap intPool;
-    static ValuePoolHashMap longPool;
-    static ValuePoolHashMap doublePool;
-    static ValuePoolHashMap bigdecimalPool;
-    static ValuePoolHashMap stringPool;
-    static final int        SPACE_STRING_SIZE       = 64;
-    static final int        DEFAULT_VALUE_POOL_SIZE = 4096;
-    static final int[]      defaultPoolLookupSize   = new int[] {
+    static Integer[]    intPool;
+    static Long[]       longPool;
+    static Double[]     doublePool;
+    static BigDecimal[] bigdecimalPool;
+    static String[]     stringPool;
+    static final int    SPACE_STRING_SIZE       = 64;
+    static final int    DEFAULT_VALUE_POOL_SIZE = 4096;
+    static final int[]  defaultPoolLookupSize   = new int[] {
         DEFAULT_VALUE_POOL_SIZE, DEFAULT_VALUE_POOL_SIZE,
         DEFAULT_VALUE_POOL_SIZE, DEFAULT_VALUE_POOL_SIZE,
         DEFAULT_VALUE_POOL_SIZE
@@ -65,9 +73,6 @@ public class ValuePool {
     static final int defaultSizeFactor      = 2;
     static final int defaultMaxStringLength = 16;
 
-    //
-    static ValuePoolHashMap[] poolList;
-
     //
     static int maxStringLength;
 
@@ -95,25 +100,10 @@ public class ValuePool {
     //
     private static void initPool() {
 
-        int[] sizeArray  = defaultPoolLookupSize;
-        int   sizeFactor = defaultSizeFactor;
-
         synchronized (ValuePool.class) {
             maxStringLength = defaultMaxStringLength;
-            poolList        = new ValuePoolHashMap[POOLS_COUNT];
 
-            for (int i = 0; i < POOLS_COUNT; i++) {
-                int size = sizeArray[i];
-
-                poolList[i] = new ValuePoolHashMap(size, size * sizeFactor,
-                                                   BaseHashMap.PURGE_HALF);
-            }
-
-            intPool        = poolList[0];
-            longPool       = poolList[1];
-            doublePool     = poolList[2];
-            bigdecimalPool = poolList[3];
-            stringPool     = poolList[4];
+            setPools(defaultPoolLookupSize, defaultSizeFactor);
 
             char[] c = new char[SPACE_STRING_SIZE];
 
@@ -125,6 +115,38 @@ public class ValuePool {
         }
     }
 
+    private static void setPools(int[] sizeArray, int sizeFactor) {
+
+        intPool        = new Integer[getPoolSize(sizeArray[0], sizeFactor)];
+        longPool       = new Long[getPoolSize(sizeArray[1], sizeFactor)];
+        doublePool     = new Double[getPoolSize(sizeArray[2], sizeFactor)];
+        bigdecimalPool = new BigDecimal[getPoolSize(sizeArray[3], sizeFactor)];
+        stringPool     = new String[getPoolSize(sizeArray[4], sizeFactor)];
+    }
+
+    private static int getPoolSize(int size, int sizeFactor) {
+
+        int capacity = 16;
+
+        while (capacity < size * sizeFactor && capacity < 1 << 24) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    /**
+     * Spreads the bits of the hash over the low order bits used as the
+     * array index.
+     */
+    private static int getIndex(int hash, int length) {
+
+        hash *= 0x9e3779b9;
+        hash ^= hash >>> 16;
+
+        return hash & (length - 1);
+    }
+
     public static int getMaxStringLength() {
         return maxStringLength;
     }
@@ -132,11 +154,7 @@ public class ValuePool {
     public static void resetPool(int[] sizeArray, int sizeFactor) {
 
         synchronized (ValuePool.class) {
-            for (int i = 0; i < POOLS_COUNT; i++) {
-                poolList[i].clear();
-                poolList[i].resetCapacity(sizeArray[i] * sizeFactor,
-                                          BaseHashMap.PURGE_HALF);
-            }
+            setPools(sizeArray, sizeFactor);
         }
     }
 
@@ -150,31 +168,54 @@ public class ValuePool {
     public static void clearPool() {
 
         synchronized (ValuePool.class) {
-            for (int i = 0; i < POOLS_COUNT; i++) {
-                poolList[i].clear();
-            }
+            setPools(new int[] {
+                intPool.length, longPool.length, doublePool.length,
+                bigdecimalPool.length, stringPool.length
+            }, 1);
         }
     }
 
     public static Integer getInt(int val) {
 
-        synchronized (intPool) {
-            return intPool.getOrAddInteger(val);
+        Integer[] pool  = intPool;
+        int       index = getIndex(val, pool.length);
+        Integer   value = pool[index];
+
+        if (value == null || value.intValue() != val) {
+            value       = Integer.valueOf(val);
+            pool[index] = value;
         }
+
+        return value;
     }
 
     public static Long getLong(long val) {
 
-        synchronized (longPool) {
-            return longPool.getOrAddLong(val);
+        Long[] pool  = longPool;
+        int    index = getIndex((int) (val ^ (val >>> 32)), pool.length);
+        Long   value = pool[index];
+
+        if (value == null || value.longValue() != val) {
+            value       = Long.valueOf(val);
+            pool[index] = value;
         }
+
+        return value;
     }
 
     public static Double getDouble(long val) {
 
-        synchronized (doublePool) {
-            return doublePool.getOrAddDouble(val);
+        Double[] pool  = doublePool;
+        int      index = getIndex((int) (val ^ (val >>> 32)), pool.length);
+        Double   value = pool[index];
+
+        if (value == null
+                || Double.doubleToLongBits(value.doubleValue()) != val) {
+            value       = Double.valueOf(Double.longBitsToDouble(val));
+            pool[index] = value;
         }
+
+        return value;
     }
 
     public static String getString(String val) {
@@ -183,16 +224,31 @@ public class ValuePool {
             return val;
         }
 
-        synchronized (stringPool) {
-            return stringPool.getOrAddString(val);
+        String[] pool  = stringPool;
+        int      index = getIndex(val.hashCode(), pool.length);
+        String   value = pool[index];
+
+        if (value == null || !value.equals(val)) {
+            value       = new String(val.toCharArray());
+            pool[index] = value;
         }
+
+        return value;
     }
 
     public static String getSubString(String val, int start, int limit) {
 
-        synchronized (stringPool) {
-            return stringPool.getOrAddString(val.substring(start, limit));
+        String[] pool  = stringPool;
+        String   sub   = val.substring(start, limit);
+        int      index = getIndex(sub.hashCode(), pool.length);
+        String   value = pool[index];
+
+        if (value == null || !value.equals(sub)) {
+            value       = new String(sub.toCharArray());
+            pool[index] = value;
         }
+
+        return value;
     }
 
     public static BigDecimal getBigDecimal(BigDecimal val) {
@@ -201,9 +257,16 @@ public class ValuePool {
             return val;
         }
 
-        synchronized (bigdecimalPool) {
-            return (BigDecimal) bigdecimalPool.getOrAddObject(val);
+        BigDecimal[] pool  = bigdecimalPool;
+        int          index = getIndex(val.hashCode(), pool.length);
+        BigDecimal   value = pool[index];
+
+        if (value == null || !value.equals(val)) {
+            value       = val;
+            pool[index] = value;
         }
+
+        return value;
     }
 
     public static Boolean getBoolean(boolean b) {
@@ -37,6 +37,7 @@ import org.hsqldb.HsqlException;
 import org.hsqldb.Row;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
+import org.hsqldb.result.Result;
 import org.hsqldb.result.ResultMetaData;
 import org.hsqldb.rowio.RowInputInterface;
 import org.hsqldb.rowio.RowOutputInterface;
@@ -46,6 +47,13 @@ import org.hsqldb.rowio.RowOutputInterface;
  * transferring a slice of the result to the client or server using a subset of
  * a server-side row set.
  *
+ * When the client reads through a result that is held on the server, the
+ * next block is requested once half of the current block has been read. The
+ * request is pipelined, so the server sends the block while the rows of the
+ * current block are being used. The size of the blocks requested grows from
+ * the fetch size as long as the rows are read in sequence, limited by the
+ * observed byte size of the rows.
+ *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
  * @version 2.2.7
  * @since 1.9.0
@@ -54,9 +62,18 @@ public class RowSetNavigatorClient extends RowSetNavigator {
 
     public static final Object[][] emptyTable = new Object[0][];
 
+    /** limit on the bytes of a block requested when blocks grow */
+    static final int maxBlockBytes = 1 << 20;
+
     //
     int currentOffset;
     int baseBlockSize;
+    int blockSize;
+    int rowWidth;
+
+    // pipelined request for the block that follows the current one
+    long prefetchRequestId;
+    int  prefetchOffset;
 
     //
     Object[][] table;
@@ -107,6 +124,8 @@ public class RowSetNavigatorClient extends RowSetNavigator {
 
     /**
      * Returns the current row object. Type of object is implementation defined.
+     * If the position is outside the current block, after a jump in a
+     * scrollable result, the block that contains it is fetched.
      */
     public Object[] getCurrent() {
 
@@ -116,6 +135,19 @@ public class RowSetNavigatorClient extends RowSetNavigator {
 
         if (currentPos == currentOffset + table.length) {
             getBlock(currentOffset + table.length);
+        } else if (currentPos < currentOffset
+                   || currentPos > currentOffset + table.length) {
+            blockSize = baseBlockSize;
+
+            int offset = currentPos < currentOffset
+                         ? currentPos - blockSize + 1
+                         : currentPos;
+
+            getBlock(offset < 0 ? 0
+                                : offset);
+        } else if (currentPos == currentOffset + (table.length >> 1)
+                   && prefetchRequestId == 0) {
+            prefetchBlock(currentOffset + table.length);
         }
 
         return table[currentPos - currentOffset];
@@ -148,6 +180,7 @@ public class RowSetNavigatorClient extends RowSetNavigator {
     }
 
     public void release() {
+        cancelPrefetch();
         setData(emptyTable);
         reset();
     }
@@ -213,6 +246,7 @@ public class RowSetNavigatorClient extends RowSetNavigator {
         size          = in.readInt();
         currentOffset = in.readInt();
         baseBlockSize = in.readInt();
+        blockSize     = baseBlockSize;
 
         if (table.length < baseBlockSize) {
             table = new Object[baseBlockSize][];
@@ -221,6 +255,10 @@ public class RowSetNavigatorClient extends RowSetNavigator {
         for (int i = 0; i < baseBlockSize; i++) {
             table[i] = in.readData(meta.columnTypes);
         }
+
+        if (baseBlockSize > 0) {
+            rowWidth = in.getSize() / baseBlockSize;
+        }
     }
 
     public void write(RowOutputInterface out,
@@ -246,19 +284,81 @@ public class RowSetNavigatorClient extends RowSetNavigator {
     }
 
     /**
-     * baseBlockSize remains unchanged.
+     * baseBlockSize remains unchanged. The prefetched block is used if it
+     * starts at offset. If the block cannot be fetched, the exception is
+     * thrown and the current block is kept, so the call can be repeated.
      */
     void getBlock(int offset) {
 
+        RowSetNavigatorClient source;
+
+        if (prefetchRequestId != 0 && prefetchOffset == offset) {
+            Result result = session.getAsyncResult(prefetchRequestId);
+
+            prefetchRequestId = 0;
+
+            if (result.isError()) {
+                throw Error.error(result);
+            }
+
+            source = (RowSetNavigatorClient) result.getNavigator();
+        } else {
+            cancelPrefetch();
+
+            source = session.getRows(id, offset, blockSize);
+        }
+
+        table         = source.table;
+        currentOffset = source.currentOffset;
+
+        if (source.rowWidth > 0) {
+            rowWidth = source.rowWidth;
+        }
+    }
+
+    /**
+     * Sends the request for the block at offset without waiting for the
+     * response. The block size doubles each time, up to maxBlockBytes.
+     */
+    void prefetchBlock(int offset) {
+
+        if (offset >= size || id == 0 || session == null) {
+            return;
+        }
+
+        int limit = rowWidth == 0 ? baseBlockSize
+                                  : maxBlockBytes / rowWidth;
+
+        if (blockSize < limit) {
+            blockSize = blockSize * 2 > limit ? limit
+                                              : blockSize * 2;
+        }
+
         try {
-            RowSetNavigatorClient source = session.getRows(id, offset,
-                baseBlockSize);
+            Result request = Result.newRequestDataResult(id, offset,
+                blockSize);
 
-            table         = source.table;
-            currentOffset = source.currentOffset;
+            prefetchRequestId = session.executeAsync(request);
+            prefetchOffset    = offset;
         } catch (HsqlException e) {}
     }
 
+    /**
+     * Discards the response to any prefetch request.
+     */
+    public void cancelPrefetch() {
+
+        if (prefetchRequestId == 0) {
+            return;
+        }
+
+        try {
+            session.getAsyncResult(prefetchRequestId);
+        } catch (HsqlException e) {}
+
+        prefetchRequestId = 0;
+    }
+
     private void ensureCapacity() {
 
         if (size == table.length) {
@@ -32,6 +32,7 @@
 package org.hsqldb.navigator;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.Comparator;
 import java.util.TreeMap;
 
@@ -45,10 +46,13 @@ import org.hsqldb.error.ErrorCode;
 import org.hsqldb.index.Index;
 import org.hsqldb.lib.ArraySort;
 import org.hsqldb.lib.ArrayUtil;
+import org.hsqldb.lib.HashMap;
 import org.hsqldb.lib.LongKeyHashMap;
+import org.hsqldb.lib.ObjectComparator;
 import org.hsqldb.result.ResultMetaData;
 import org.hsqldb.rowio.RowInputInterface;
 import org.hsqldb.rowio.RowOutputInterface;
+import org.hsqldb.types.Type;
 
 /**
  * Implementation of RowSetNavigator for result sets.
@@ -82,6 +86,7 @@ implements Comparator {
 
     //
     TreeMap        rowMap;
+    HashMap        groupMap;
     LongKeyHashMap idMap;
 
     RowSetNavigatorData(Session session) {
@@ -98,7 +103,15 @@ implements Comparator {
 
         if (select.isGrouped) {
             mainIndex = select.groupIndex;
-            rowMap    = new TreeMap(this);
+
+            if (GroupComparator.isHashable(mainIndex)) {
+                groupMap = new HashMap();
+
+                groupMap.setComparator(new GroupComparator(session,
+                        mainIndex));
+            } else {
+                rowMap = new TreeMap(this);
+            }
         }
 
         if (select.idIndex != null) {
@@ -166,6 +179,10 @@ implements Comparator {
             rowMap.put(data, data);
         }
 
+        if (groupMap != null) {
+            groupMap.put(data, data);
+        }
+
         if (idMap != null) {
             Long id = (Long) data[visibleColumnCount];
 
@@ -600,6 +617,10 @@ implements Comparator {
             return simpleAggregateData;
         }
 
+        if (groupMap != null) {
+            return (Object[]) groupMap.get(data);
+        }
+
         return (Object[]) rowMap.get(data);
     }
 
@@ -698,4 +719,132 @@ implements Comparator {
     public int compare(Object a, Object b) {
         return mainIndex.compareRow(session, (Object[]) a, (Object[]) b);
     }
+
+    /**
+     * Hash lookup of groups. The hash code of a value is the same for all
+     * values that are equal in comparison, for example decimals with
+     * different scales or strings with trailing spaces.
+     */
+    static class GroupComparator implements ObjectComparator {
+
+        final Session session;
+        final Index   index;
+        final int[]   columns;
+        final Type[]  types;
+
+        GroupComparator(Session session, Index index) {
+
+            this.session = session;
+            this.index   = index;
+            columns      = index.getColumns();
+            types        = index.getColumnTypes();
+        }
+
+        static boolean isHashable(Index index) {
+
+            Type[] types = index.getColumnTypes();
+
+            for (int i = 0; i < types.length; i++) {
+                Type type = types[i];
+
+                if (type.isNumberType() || type.isBooleanType()
+                        || type.isDateTimeType()) {
+                    continue;
+                }
+
+                if (type.isCharacterType() && !type.isLobType()
+                        && type.getCollation().isCharCompare()) {
+                    continue;
+                }
+
+                return false;
+            }
+
+            return true;
+        }
+
+        public int compare(Object a, Object b) {
+            return index.compareRow(session, (Object[]) a, (Object[]) b);
+        }
+
+        public int hashCode(Object a) {
+
+            Object[] data = (Object[]) a;
+            int      hash = 0;
+
+            for (int i = 0; i < columns.length; i++) {
+                hash = 31 * hash + hashCode(types[i], data[columns[i]]);
+            }
+
+            // spread the high bits, as the table size is a power of two
+            hash ^= hash >>> 16;
+            hash *= 0x85ebca6b;
+            hash ^= hash >>> 13;
+            hash *= 0xc2b2ae35;
+            hash ^= hash >>> 16;
+
+            return hash;
+        }
+
+        public long longKey(Object a) {
+            return 0;
+        }
+
+        private static int hashCode(Type type, Object value) {
+
+            if (value == null) {
+                return 0;
+            }
+
+            if (type.isIntegralType()) {
+                long v = ((Number) value).longValue();
+
+                return (int) (v ^ (v >>> 32));
+            }
+
+            if (type.isDecimalType()) {
+                BigDecimal v = (BigDecimal) value;
+
+                return v.signum() == 0 ? 0
+                                       : v.stripTrailingZeros().hashCode();
+            }
+
+            if (type.isNumberType()) {
+                double v = ((Number) value).doubleValue();
+
+                if (v == 0) {
+                    return 0;
+                }
+
+                long bits = Double.doubleToLongBits(v);
+
+                return (int) (bits ^ (bits >>> 32));
+            }
+
+            if (type.isCharacterType()) {
+                String  s      = (String) value;
+                boolean simple = type.getCollation().isUnicodeSimple();
+                int     end    = s.length();
+                int     hash   = 0;
+
+                while (end > 0 && s.charAt(end - 1) == ' ') {
+                    end--;
+                }
+
+                for (int i = 0; i < end; i++) {
+                    char c = s.charAt(i);
+
+                    if (!simple) {
+                        c = Character.toLowerCase(Character.toUpperCase(c));
+                    }
+
+                    hash = 31 * hash + c;
+                }
+
+                return hash;
+            }
+
+            return value.hashCode();
+        }
+    }
 }
@@ -27,10 +27,10 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
-
-
 package org.hsqldb.persist;
 
+import java.util.NoSuchElementException;
+
 import org.hsqldb.lib.ArraySort;
 import org.hsqldb.lib.Iterator;
 import org.hsqldb.lib.ObjectComparator;
@@ -40,355 +40,717 @@ import org.hsqldb.map.BaseHashMap;
 /**
  * New implementation of row caching for CACHED tables.<p>
  *
- * Manages memory for the cache map and its contents based on least recently
- * used clearup.<p>
+ * Manages memory for the cache map and its contents based on a CLOCK
+ * approximation of least recently used clearup.<p>
  * Also provides services for selecting rows to be saved and passing them
  * to DataFileCache.<p>
  *
+ * The map is divided into segments by file position. Each segment has its
+ * own lock, capacity and CLOCK hand, so that lookups of rows in different
+ * segments do not contend. Additions, removals and cleanup are performed
+ * while the DataFileCache write lock is held and lock only the segment
+ * they change.<p>
+ *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
  * @version 2.3.0
  * @since 1.8.0
  */
-public class Cache extends BaseHashMap {
+public class Cache {
 
-    final DataFileCache                        dataFileCache;
-    private int                                capacity;         // number of Rows
-    private long                               bytesCapacity;    // number of bytes
-    private final CachedObjectComparator       rowComparator;
-    private final BaseHashMap.BaseHashIterator objectIterator;
-    private boolean                            updateAccess;
-    private long                               maxPositionOnCleanup;
+    final DataFileCache                  dataFileCache;
+    private int                          capacity;         // number of Rows
+    private long                         bytesCapacity;    // number of bytes
+    private final CachedObjectComparator rowComparator;
+    private final Segment[]              segments;
+    private final int                    segmentMask;
+    private long                         maxPositionOnCleanup;
+    private int                          writerSegment;
 
 //
     private CachedObject[] rowTable;
-    long                   cacheBytesLength;
 
     // for testing
     StopWatch saveAllTimer = new StopWatch(false);
     StopWatch sortTimer    = new StopWatch(false);
     int       saveRowCount = 0;
 
+    //
+    static final int minSegmentRows = 1024;
+    static final int maxSegments    = 32;
+
     Cache(DataFileCache dfc) {
 
-        super(dfc.capacity(), BaseHashMap.objectKeyOrValue,
-              BaseHashMap.noKeyOrValue, true);
-
-        maxCapacity      = dfc.capacity();
-        dataFileCache    = dfc;
-        capacity         = dfc.capacity();
-        bytesCapacity    = dfc.bytesCapacity();
-        rowComparator    = new CachedObjectComparator();
-        rowTable         = new CachedObject[capacity];
-        cacheBytesLength = 0;
-        objectIterator   = new BaseHashIterator(true);
-        updateAccess     = true;
-        comparator       = rowComparator;
+        dataFileCache = dfc;
+        capacity      = dfc.capacity();
+        bytesCapacity = dfc.bytesCapacity();
+        rowComparator = new CachedObjectComparator();
+        rowTable      = new CachedObject[capacity];
+
+        int count = 1;
+
+        while (count < maxSegments && capacity / (count * 2) >= minSegmentRows) {
+            count *= 2;
+        }
+
+        segments    = new Segment[count];
+        segmentMask = count - 1;
+
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(getSegmentCapacity(capacity),
+                                      getSegmentCapacity(bytesCapacity));
+        }
     }
 
     /**
-     *  Structural initialisations take place here. This allows the Cache to
-     *  be resized while the database is in operation.
+     * The limits of the segments add up to no more than the limits of the
+     * cache.
      */
-    void resize(int capacity, long bytesCapacity) {}
+    private int getSegmentCapacity(int value) {
+        return Math.max(value / segments.length, 1);
+    }
 
-    long getTotalCachedBlockSize() {
-        return cacheBytesLength;
+    private long getSegmentCapacity(long value) {
+        return Math.max(value / segments.length, 1);
+    }
+
+    private Segment getSegment(long pos) {
+
+        int hash = (int) (pos ^ (pos >>> 32));
+
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+
+        return segments[hash & segmentMask];
     }
 
     /**
-     * Returns a row if in memory cache.
+     *  Structural initialisations take place here. This allows the Cache to
+     *  be resized while the database is in operation.<p>
+     *
+     *  An increase takes effect immediately. After a decrease, rows are
+     *  removed in batches until the cache is within the new limits, then
+     *  the map is reduced in size. Called while the DataFileCache write
+     *  lock is held, as changed rows may be saved.
      */
-    public CachedObject get(long pos) {
+    void resize(int capacity, long bytesCapacity) {
+
+        this.capacity      = capacity;
+        this.bytesCapacity = bytesCapacity;
+        rowTable           = new CachedObject[capacity];
 
-        if (accessCount > ACCESS_MAX && updateAccess) {
-            updateAccessCounts();
-            resetAccessCount();
-            updateObjectAccessCounts();
+        for (int i = 0; i < segments.length; i++) {
+            segments[i].resize(getSegmentCapacity(capacity),
+                               getSegmentCapacity(bytesCapacity));
+            segments[i].reduce();
         }
+    }
 
-        int lookup = getObjectLookup(pos);
+    long getTotalCachedBlockSize() {
 
-        if (lookup == -1) {
-            return null;
+        long total = 0;
+
+        for (int i = 0; i < segments.length; i++) {
+            total += segments[i].cacheBytesLength;
+        }
+
+        return total;
+    }
+
+    public int size() {
+
+        int total = 0;
+
+        for (int i = 0; i < segments.length; i++) {
+            total += segments[i].size();
         }
 
-        accessTable[lookup] = ++accessCount;
+        return total;
+    }
 
-        CachedObject object = (CachedObject) objectKeyTable[lookup];
+    /**
+     * Returns the value that marks a row as accessed. CLOCK cleanup only
+     * checks if a row has been accessed since the hand last passed it, so
+     * no shared counter is updated.
+     */
+    int getAccessMark() {
+        return 1;
+    }
 
-        return object;
+    /**
+     * Returns a row if in memory cache.
+     */
+    public CachedObject get(long pos) {
+        return getSegment(pos).get(pos, false);
+    }
+
+    /**
+     * Returns a row if in memory cache. If keep is true, the row is marked
+     * to be kept in memory before any cleanup of the segment can remove it.
+     */
+    CachedObject get(long pos, boolean keep) {
+        return getSegment(pos).get(pos, keep);
     }
 
     /**
      * Adds a row to the cache.
      */
     void put(CachedObject row) {
+        getSegment(row.getPos()).put(row);
+    }
 
-        int storageSize = row.getStorageSize();
+    /**
+     * Removes an object from memory cache. Does not release the file storage.
+     */
+    CachedObject release(long pos) {
+        return getSegment(pos).release(pos);
+    }
 
-        if (size() >= capacity
-                || storageSize + cacheBytesLength > bytesCapacity) {
-            cleanUp(false);
+    /**
+     * Replace a row in the cache.
+     */
+    void replace(long key, CachedObject row) {
+        getSegment(key).replace(key, row);
+    }
 
-            if (size() >= capacity) {
-                clearUnchanged();
-            }
+    void clearUnchanged() {
 
-            if (size() >= capacity) {
-                cleanUp(true);
-            }
+        for (int i = 0; i < segments.length; i++) {
+            segments[i].clearUnchanged();
         }
+    }
+
+    private synchronized void saveRows(int count) {
 
-        if (accessCount > ACCESS_MAX && updateAccess) {
-            updateAccessCounts();
-            resetAccessCount();
-            updateObjectAccessCounts();
+        if (count == 0) {
+            return;
         }
 
-        super.addOrRemoveObject(row, row.getPos(), false);
-        row.setInMemory(true);
+        long startTime = saveAllTimer.elapsedTime();
+
+        rowComparator.setType(CachedObjectComparator.COMPARE_POSITION);
+        sortTimer.zero();
+        sortTimer.start();
+        ArraySort.sort(rowTable, 0, count, rowComparator);
+        sortTimer.stop();
+        saveAllTimer.start();
+        dataFileCache.saveRows(rowTable, 0, count);
+
+        saveRowCount += count;
 
-        cacheBytesLength += storageSize;
+        saveAllTimer.stop();
+        logSaveRowsEvent(count, startTime);
     }
 
     /**
-     * Removes an object from memory cache. Does not release the file storage.
+     * Writes out all modified cached Rows.
      */
-    CachedObject release(long pos) {
+    void saveAll() {
 
-        CachedObject r = (CachedObject) super.addOrRemoveObject(null, pos,
-            true);
+        int savecount = 0;
 
-        if (r == null) {
-            return null;
+        for (int i = 0; i < segments.length; i++) {
+            savecount = segments[i].collectChanged(savecount);
+        }
+
+        saveRows(savecount);
+    }
+
+    /**
+     * Saves up to count changed rows that are not in use, continuing from
+     * where the last call stopped. Used by the background writer while the
+     * DataFileCache write lock is held. At most 16 slots are checked for
+     * each row to save. Returns the number of rows saved.
+     */
+    int saveChanged(int count) {
+
+        if (count > rowTable.length) {
+            count = rowTable.length;
         }
 
-        cacheBytesLength -= r.getStorageSize();
+        int savecount = 0;
+        int steps     = count * 16;
+
+        for (int i = 0; i < segments.length; i++) {
+            if (savecount == count || steps <= 0) {
+                break;
+            }
+
+            Segment segment = segments[writerSegment];
+            int     slots   = Math.min(steps, segment.size());
+
+            savecount = segment.collectChanged(savecount, count, slots);
+            steps     -= slots;
+
+            if (savecount < count) {
+                writerSegment = (writerSegment + 1) & segmentMask;
+            }
+        }
+
+        saveRows(savecount);
+
+        return savecount;
+    }
 
-        r.setInMemory(false);
+    void logSaveRowsEvent(int saveCount, long startTime) {
+
+        StringBuffer sb = new StringBuffer();
 
-        return r;
+        sb.append("cache save rows [count,time] totals ");
+        sb.append(saveRowCount);
+        sb.append(',').append(saveAllTimer.elapsedTime()).append(' ');
+        sb.append("operation ").append(saveCount).append(',');
+        sb.append(saveAllTimer.elapsedTime() - startTime).append(' ');
+
+//
+        sb.append("txts ");
+        sb.append(dataFileCache.database.txManager.getGlobalChangeTimestamp());
+
+//
+        dataFileCache.logDetailEvent(sb.toString());
     }
 
     /**
-     * Replace a row in the cache.
+     * clears out the memory cache
      */
-    void replace(long key, CachedObject row) {
+    public void clear() {
 
-        int lookup = super.getLookup(key);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i].clear();
+        }
+    }
 
-        objectKeyTable[lookup] = row;
+    /**
+     * Returns an iterator over all the rows. Must be used while the
+     * DataFileCache write lock is held.
+     */
+    public Iterator getIterator() {
+        return new CacheIterator();
     }
 
-    private void updateAccessCounts() {
+    /**
+     * A part of the cache map with its own lock.
+     */
+    final class Segment extends BaseHashMap {
+
+        private int                                capacity;
+        private long                               bytesCapacity;
+        private final BaseHashMap.BaseHashIterator objectIterator;
+        private int                                clockHand;
+        private int                                writerHand;
+        long                                       cacheBytesLength;
+
+        Segment(int capacity, long bytesCapacity) {
+
+            super(capacity, BaseHashMap.objectKeyOrValue,
+                  BaseHashMap.noKeyOrValue, true);
+
+            maxCapacity        = capacity;
+            this.capacity      = capacity;
+            this.bytesCapacity = bytesCapacity;
+            objectIterator     = new BaseHashIterator(true);
+            comparator         = rowComparator;
+            clockHand          = -1;
+            writerHand         = -1;
+        }
+
+        synchronized void resize(int capacity, long bytesCapacity) {
+
+            this.capacity      = capacity;
+            this.bytesCapacity = bytesCapacity;
+            maxCapacity        = capacity;
+
+            if (capacity > super.capacity()) {
+                rehash(capacity);
+
+                clockHand  = -1;
+                writerHand = -1;
+            }
+        }
 
-        CachedObject r;
-        int          count;
+        /**
+         * Removes batches of rows until the segment is within its limits.
+         * Stops if a turn of the hand removes no rows, which happens when
+         * the remaining rows are kept in memory.
+         */
+        synchronized void reduce() {
 
-        for (int i = 0; i < objectKeyTable.length; i++) {
-            r = (CachedObject) objectKeyTable[i];
+            while (size() > capacity || cacheBytesLength > bytesCapacity) {
+                int size = size();
 
-            if (r != null) {
-                count = r.getAccessCount();
+                cleanUp(false);
 
-                if (count > accessTable[i]) {
-                    accessTable[i] = count;
+                if (size() == size) {
+                    break;
                 }
             }
         }
-    }
 
-    private void updateObjectAccessCounts() {
+        synchronized CachedObject get(long pos, boolean keep) {
 
-        CachedObject r;
-        int          count;
+            if (accessCount > ACCESS_MAX) {
+                resetAccessCount();
+            }
 
-        for (int i = 0; i < objectKeyTable.length; i++) {
-            r = (CachedObject) objectKeyTable[i];
+            int lookup = getObjectLookup(pos);
 
-            if (r != null) {
-                count = accessTable[i];
+            if (lookup == -1) {
+                return null;
+            }
 
-                r.updateAccessCount(count);
+            accessTable[lookup] = ++accessCount;
+
+            CachedObject object = (CachedObject) objectKeyTable[lookup];
+
+            if (keep) {
+                object.keepInMemory(true);
             }
+
+            return object;
         }
-    }
 
-    /**
-     * Reduces the number of rows held in this Cache object. <p>
-     *
-     * Cleanup is done by checking the accessCount of the Rows and removing
-     * the rows with the lowest access count.
-     *
-     * Index operations require that up to 5 recently accessed rows remain
-     * in the cache. This is ensured by prior calling keepInMemory().
-     *
-     */
-    private void cleanUp(boolean all) {
+        synchronized void put(CachedObject row) {
+
+            int storageSize = row.getStorageSize();
+
+            if (size() >= capacity
+                    || storageSize + cacheBytesLength > bytesCapacity) {
+                cleanUp(false);
+
+                if (size() >= capacity && size() >= super.capacity()) {
+                    cleanUp(true);
+                }
+            }
+
+            if (accessCount > ACCESS_MAX) {
+                resetAccessCount();
+            }
+
+            super.addOrRemoveObject(row, row.getPos(), false);
+            row.setInMemory(true);
 
-        if (updateAccess) {
-            updateAccessCounts();
+            cacheBytesLength += storageSize;
         }
 
-        int removeCount  = size() / 2;
-        int accessTarget = getAccessCountCeiling(removeCount, removeCount / 8);
-        int savecount    = 0;
+        synchronized CachedObject release(long pos) {
+
+            CachedObject r = (CachedObject) super.addOrRemoveObject(null,
+                pos, true);
+
+            if (r == null) {
+                return null;
+            }
+
+            cacheBytesLength -= r.getStorageSize();
 
-        if (all) {
-            removeCount  = size();
-            accessTarget = accessCount + 1;
+            r.setInMemory(false);
+
+            return r;
         }
 
-        objectIterator.reset();
+        synchronized void replace(long key, CachedObject row) {
+
+            int lookup = super.getLookup(key);
+
+            objectKeyTable[lookup] = row;
+        }
 
-        for (; objectIterator.hasNext(); ) {
-            CachedObject row = (CachedObject) objectIterator.next();
-            int          currentAccessCount = objectIterator.getAccessCount();
-            boolean      oldRow = currentAccessCount < accessTarget;
-            boolean newRow = row.isNew()
-                             && row.getStorageSize()
-                                >= DataFileCache.initIOBufferSize;
+        /**
+         * Reduces the number of rows held in this segment. <p>
+         *
+         * Cleanup uses a CLOCK policy. A hand moves over the slots of the
+         * map and resumes from its last position on each call. A row that
+         * has been accessed since the hand last passed it is given a second
+         * chance and its access marks are cleared, otherwise it is removed
+         * from the cache. Each call removes a small batch of rows, so the
+         * time spent does not depend on the size of the cache.<p>
+         *
+         * Index operations require that up to 5 recently accessed rows
+         * remain in the cache. This is ensured by prior calling
+         * keepInMemory().
+         *
+         */
+        private void cleanUp(boolean all) {
+
+            int  batchCount  = (capacity >> 5) + 1;
+            long batchBytes  = bytesCapacity >> 5;
+            int  removeCount = size() - (capacity - batchCount);
+            long bytesTarget = bytesCapacity - batchBytes;
+            int  savecount   = 0;
+
+            // after a reduction in capacity, the excess is removed gradually
+            if (removeCount > batchCount) {
+                removeCount = batchCount;
+            }
 
-            if (!oldRow && !newRow) {
-                continue;
+            if (bytesTarget < cacheBytesLength - batchBytes) {
+                bytesTarget = cacheBytesLength - batchBytes;
             }
 
-            objectIterator.setAccessCount(accessTarget);
+            if (all) {
+                removeCount = size();
+            }
 
-            synchronized (row) {
-                if (row.isKeepInMemory()) {
-                    continue;
+            // two turns of the hand clear all the access marks
+            for (int steps = size() * 2; steps > 0; steps--) {
+                if (removeCount <= 0 && cacheBytesLength <= bytesTarget) {
+                    break;
                 }
 
-                if (row.hasChanged()) {
-                    rowTable[savecount++] = row;
+                int lookup = nextLookup(clockHand);
+
+                if (lookup == -1) {
+                    lookup = nextLookup(-1);
+
+                    if (lookup == -1) {
+                        break;
+                    }
                 }
 
-                if (oldRow) {
-                    row.setInMemory(false);
-                    objectIterator.remove();
+                clockHand = lookup;
+
+                CachedObject row = (CachedObject) objectKeyTable[lookup];
+
+                synchronized (row) {
+                    if (row.isKeepInMemory()) {
+                        continue;
+                    }
+
+                    if (!all
+                            && (accessTable[lookup] > accessMin
+                                || row.getAccessCount() > 0)) {
+                        accessTable[lookup] = accessMin;
+
+                        row.updateAccessCount(0);
 
-                    cacheBytesLength -= row.getStorageSize();
+                        if (row.isNew() && row.hasChanged()
+                                && row.getStorageSize()
+                                   >= DataFileCache.initIOBufferSize) {
+                            rowTable[savecount++] = row;
+                        }
+                    } else {
+                        if (row.hasChanged()) {
+                            rowTable[savecount++] = row;
+                        }
 
-                    removeCount--;
+                        row.setInMemory(false);
+                        super.addOrRemoveObject(null, row.getPos(), true);
+
+                        cacheBytesLength -= row.getStorageSize();
+
+                        removeCount--;
+                    }
+                }
+
+                if (savecount == rowTable.length) {
+                    saveRows(savecount);
+
+                    savecount = 0;
                 }
             }
 
-            if (savecount == rowTable.length) {
-                saveRows(savecount);
+            saveRows(savecount);
+
+            if (size() < capacity && super.capacity() > capacity) {
+                rehash(capacity);
 
-                savecount = 0;
+                clockHand  = -1;
+                writerHand = -1;
             }
+
+            maxPositionOnCleanup = dataFileCache.fileFreePosition
+                                   / dataFileCache.dataFileScale;
         }
 
-        super.setAccessCountFloor(accessTarget);
-        saveRows(savecount);
+        synchronized void clearUnchanged() {
 
-        this.maxPositionOnCleanup = dataFileCache.fileFreePosition
-                                    / dataFileCache.dataFileScale;
-    }
+            objectIterator.reset();
 
-    void clearUnchanged() {
+            for (; objectIterator.hasNext(); ) {
+                CachedObject row = (CachedObject) objectIterator.next();
+
+                synchronized (row) {
+                    if (!row.isKeepInMemory() && !row.hasChanged()) {
+                        row.setInMemory(false);
+                        objectIterator.remove();
+
+                        cacheBytesLength -= row.getStorageSize();
+                    }
+                }
+            }
+        }
 
-        objectIterator.reset();
+        /**
+         * Adds the changed rows to rowTable, saving the rows when it is
+         * full. Returns the count of rows added but not saved.
+         */
+        synchronized int collectChanged(int savecount) {
 
-        for (; objectIterator.hasNext(); ) {
-            CachedObject row = (CachedObject) objectIterator.next();
+            objectIterator.reset();
 
-            synchronized (row) {
-                if (!row.isKeepInMemory() && !row.hasChanged()) {
-                    row.setInMemory(false);
-                    objectIterator.remove();
+            for (; objectIterator.hasNext(); ) {
+                if (savecount == rowTable.length) {
+                    saveRows(savecount);
 
-                    cacheBytesLength -= row.getStorageSize();
+                    savecount = 0;
+                }
+
+                CachedObject r = (CachedObject) objectIterator.next();
+
+                if (r.hasChanged()) {
+                    rowTable[savecount] = r;
+
+                    savecount++;
                 }
             }
+
+            return savecount;
         }
-    }
 
-    private synchronized void saveRows(int count) {
+        /**
+         * Adds up to limit changed rows that are not kept in memory to
+         * rowTable, checking the given number of slots from the writer hand.
+         * Returns the new count of rows in rowTable.
+         */
+        synchronized int collectChanged(int savecount, int limit,
+                                        int slots) {
 
-        if (count == 0) {
-            return;
+            for (; slots > 0 && savecount < limit; slots--) {
+                int lookup = nextLookup(writerHand);
+
+                if (lookup == -1) {
+                    writerHand = -1;
+
+                    break;
+                }
+
+                writerHand = lookup;
+
+                CachedObject row = (CachedObject) objectKeyTable[lookup];
+
+                synchronized (row) {
+                    if (row.hasChanged() && !row.isKeepInMemory()) {
+                        rowTable[savecount++] = row;
+                    }
+                }
+            }
+
+            return savecount;
         }
 
-        long startTime = saveAllTimer.elapsedTime();
+        public synchronized void clear() {
 
-        rowComparator.setType(CachedObjectComparator.COMPARE_POSITION);
-        sortTimer.zero();
-        sortTimer.start();
-        ArraySort.sort(rowTable, 0, count, rowComparator);
-        sortTimer.stop();
-        saveAllTimer.start();
-        dataFileCache.saveRows(rowTable, 0, count);
+            super.clear();
 
-        saveRowCount += count;
+            cacheBytesLength = 0;
+            clockHand        = -1;
+            writerHand       = -1;
+        }
 
-        saveAllTimer.stop();
-        logSaveRowsEvent(count, startTime);
+        /**
+         * Returns the next row of the iterator, or null.
+         */
+        synchronized CachedObject next(Iterator it) {
+
+            if (it.hasNext()) {
+                return (CachedObject) it.next();
+            }
+
+            return null;
+        }
+
+        synchronized void remove(Iterator it, CachedObject row) {
+
+            it.remove();
+
+            cacheBytesLength -= row.getStorageSize();
+        }
+
+        Iterator newIterator() {
+            return new BaseHashIterator(true);
+        }
     }
 
     /**
-     * Writes out all modified cached Rows.
+     * Iterator over the rows in all the segments. A call to remove() must
+     * follow the call to next() for the row.
      */
-    void saveAll() {
+    private final class CacheIterator implements Iterator {
 
-        int savecount = 0;
+        int          segmentIndex = -1;
+        Iterator     current;
+        CachedObject nextRow;
+        CachedObject lastRow;
+        boolean      hasNextRow;
 
-        objectIterator.reset();
+        private void advance() {
 
-        for (; objectIterator.hasNext(); ) {
-            if (savecount == rowTable.length) {
-                saveRows(savecount);
+            nextRow = null;
 
-                savecount = 0;
-            }
+            while (true) {
+                if (current != null) {
+                    nextRow = segments[segmentIndex].next(current);
+
+                    if (nextRow != null) {
+                        return;
+                    }
+                }
 
-            CachedObject r = (CachedObject) objectIterator.next();
+                if (segmentIndex == segments.length - 1) {
+                    return;
+                }
 
-            if (r.hasChanged()) {
-                rowTable[savecount] = r;
+                segmentIndex++;
 
-                savecount++;
+                current = segments[segmentIndex].newIterator();
             }
         }
 
-        saveRows(savecount);
-    }
+        public boolean hasNext() {
 
-    void logSaveRowsEvent(int saveCount, long startTime) {
+            if (!hasNextRow) {
+                advance();
 
-        StringBuffer sb = new StringBuffer();
+                hasNextRow = true;
+            }
 
-        sb.append("cache save rows [count,time] totals ");
-        sb.append(saveRowCount);
-        sb.append(',').append(saveAllTimer.elapsedTime()).append(' ');
-        sb.append("operation ").append(saveCount).append(',');
-        sb.append(saveAllTimer.elapsedTime() - startTime).append(' ');
+            return nextRow != null;
+        }
 
-//
-        sb.append("txts ");
-        sb.append(dataFileCache.database.txManager.getGlobalChangeTimestamp());
+        public Object next() {
 
-//
-        dataFileCache.logDetailEvent(sb.toString());
-    }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
 
-    /**
-     * clears out the memory cache
-     */
-    public void clear() {
+            hasNextRow = false;
+            lastRow    = nextRow;
 
-        super.clear();
+            return lastRow;
+        }
 
-        cacheBytesLength = 0;
-    }
+        public int nextInt() {
+            throw new NoSuchElementException();
+        }
 
-    public Iterator getIterator() {
+        public long nextLong() {
+            throw new NoSuchElementException();
+        }
+
+        public void remove() {
+
+            if (lastRow == null || hasNextRow) {
+                throw new NoSuchElementException();
+            }
+
+            segments[segmentIndex].remove(current, lastRow);
 
-        objectIterator.reset();
+            lastRow = null;
+        }
 
-        return objectIterator;
+        public void setValue(Object value) {
+            throw new NoSuchElementException();
+        }
     }
 
     static final class CachedObjectComparator implements ObjectComparator {
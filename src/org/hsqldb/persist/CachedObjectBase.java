@@ -84,11 +84,11 @@ public abstract class CachedObjectBase implements CachedObject {
         return hasChanged;
     }
 
-    public boolean isKeepInMemory() {
+    public synchronized boolean isKeepInMemory() {
         return keepCount > 0;
     }
 
-    public boolean keepInMemory(boolean keep) {
+    public synchronized boolean keepInMemory(boolean keep) {
 
         if (!isInMemory) {
             return false;
@@ -108,11 +108,11 @@ public abstract class CachedObjectBase implements CachedObject {
         return true;
     }
 
-    public boolean isInMemory() {
+    public synchronized boolean isInMemory() {
         return isInMemory;
     }
 
-    public void setInMemory(boolean in) {
+    public synchronized void setInMemory(boolean in) {
         isInMemory = in;
     }
 
@@ -36,12 +36,14 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.hsqldb.Database;
+import org.hsqldb.DatabaseManager;
 import org.hsqldb.HsqlException;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.FileAccess;
 import org.hsqldb.lib.FileArchiver;
 import org.hsqldb.lib.FileUtil;
+import org.hsqldb.lib.HsqlTimer;
 import org.hsqldb.lib.Iterator;
 import org.hsqldb.map.BitMap;
 import org.hsqldb.rowio.RowInputBinary180;
@@ -131,6 +133,9 @@ public class DataFileCache {
     //
     private RAShadowFile shadowFile;
 
+    //
+    private Object writerTask;
+
     //
     ReadWriteLock lock      = new ReentrantReadWriteLock();
     Lock          readLock  = lock.readLock();
@@ -386,6 +391,10 @@ public class DataFileCache {
                 spaceManager = new DataSpaceManagerSimple(this);
             }
 
+            if (!readonly) {
+                startWriter();
+            }
+
             logInfoEvent("dataFileCache open end");
         } catch (Throwable t) {
             logSevereEvent("DataFileCache.open", t);
@@ -398,6 +407,63 @@ public class DataFileCache {
         }
     }
 
+    /**
+     * Starts the background writer when hsqldb.cache_writer_millis is set.
+     * The writer saves a limited number of changed rows at each interval,
+     * so that rows removed from the cache by sessions are usually unchanged
+     * and do not need to be written by the session thread.
+     */
+    void startWriter() {
+
+        int interval = database.logger.propCacheWriterMillis;
+
+        if (interval <= 0 || writerTask != null) {
+            return;
+        }
+
+        writerTask = DatabaseManager.getTimer().schedulePeriodicallyAfter(
+            interval, interval, new Runnable() {
+
+            public void run() {
+                writeChangedRows();
+            }
+        }, false);
+    }
+
+    void stopWriter() {
+
+        if (writerTask != null) {
+            HsqlTimer.cancel(writerTask);
+
+            writerTask = null;
+        }
+    }
+
+    /**
+     * Called by the background writer. Does nothing if the lock is in use,
+     * or while a checkpoint or backup is in progress.
+     */
+    void writeChangedRows() {
+
+        if (!writeLock.tryLock()) {
+            return;
+        }
+
+        try {
+            if (dataFile == null || cacheReadonly
+                    || database.logger.backupState.get()
+                       != Logger.stateNormal) {
+                return;
+            }
+
+            cache.saveChanged(database.logger.propCacheWriterRows);
+        } catch (Throwable t) {
+            logSevereEvent("DataFileCache.writeChangedRows", t);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     boolean setTableSpaceManager(boolean tableSpace) {
 
         if (tableSpace && spaceManagerPosition == 0) {
@@ -683,6 +749,7 @@ public class DataFileCache {
      */
     public void close() {
 
+        stopWriter();
         writeLock.lock();
 
         try {
@@ -919,16 +986,10 @@ public class DataFileCache {
 
     public int getStorageSize(long i) {
 
-        readLock.lock();
-
-        try {
-            CachedObject value = cache.get(i);
+        CachedObject value = cache.get(i);
 
-            if (value != null) {
-                return value.getStorageSize();
-            }
-        } finally {
-            readLock.unlock();
+        if (value != null) {
+            return value.getStorageSize();
         }
 
         return readSize(i);
@@ -947,39 +1008,30 @@ public class DataFileCache {
         }
     }
 
+    /**
+     * Rows found in the cache are returned without the read lock. Cache
+     * segments are locked individually and a row is marked to be kept
+     * before any cleanup of its segment can remove it.
+     */
     public CachedObject get(CachedObject object, PersistentStore store,
                             boolean keep) {
 
-        readLock.lock();
-
-        long pos;
-
-        try {
-            if (object.isInMemory()) {
-                if (keep) {
-                    object.keepInMemory(true);
-                }
-
+        if (object.isInMemory()) {
+            if (!keep || object.keepInMemory(true)) {
                 return object;
             }
+        }
 
-            pos = object.getPos();
-
-            if (pos < 0) {
-                return null;
-            }
+        long pos = object.getPos();
 
-            object = cache.get(pos);
+        if (pos < 0) {
+            return null;
+        }
 
-            if (object != null) {
-                if (keep) {
-                    object.keepInMemory(true);
-                }
+        object = cache.get(pos, keep);
 
-                return object;
-            }
-        } finally {
-            readLock.unlock();
+        if (object != null) {
+            return object;
         }
 
         return getFromFile(pos, store, keep);
@@ -994,20 +1046,10 @@ public class DataFileCache {
             return null;
         }
 
-        readLock.lock();
-
-        try {
-            object = cache.get(pos);
-
-            if (object != null) {
-                if (keep) {
-                    object.keepInMemory(true);
-                }
+        object = cache.get(pos, keep);
 
-                return object;
-            }
-        } finally {
-            readLock.unlock();
+        if (object != null) {
+            return object;
         }
 
         return getFromFile(pos, size, store, keep);
@@ -1021,20 +1063,10 @@ public class DataFileCache {
             return null;
         }
 
-        readLock.lock();
-
-        try {
-            object = cache.get(pos);
+        object = cache.get(pos, keep);
 
-            if (object != null) {
-                if (keep) {
-                    object.keepInMemory(true);
-                }
-
-                return object;
-            }
-        } finally {
-            readLock.unlock();
+        if (object != null) {
+            return object;
         }
 
         return getFromFile(pos, store, keep);
@@ -1379,6 +1411,28 @@ public class DataFileCache {
         }
     }
 
+    protected void copyShadow(long pos, int size) {
+
+        if (shadowFile != null) {
+            long seekpos = pos * dataFileScale;
+
+            try {
+                shadowFile.copy(seekpos, size);
+            } catch (Throwable t) {
+                logSevereEvent("DataFileCache.copyShadow", t, pos);
+
+                throw Error.error(ErrorCode.DATA_FILE_ERROR, t);
+            }
+        }
+    }
+
+    protected void synchShadow() {
+
+        if (shadowFile != null) {
+            shadowFile.synch();
+        }
+    }
+
     /**
      *  Saves the *.data file as compressed *.backup.
      *
@@ -1546,6 +1600,23 @@ public class DataFileCache {
         return maxCacheRows;
     }
 
+    /**
+     * Changes the limits of the row cache while the database is open.
+     */
+    public void setCapacity(int rows, long bytes) {
+
+        writeLock.lock();
+
+        try {
+            maxCacheRows  = rows;
+            maxCacheBytes = bytes;
+
+            cache.resize(rows, bytes);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     public long bytesCapacity() {
         return maxCacheBytes;
     }
@@ -1574,7 +1645,7 @@ public class DataFileCache {
     }
 
     public int getAccessCount() {
-        return cache.incrementAccessCount();
+        return cache.getAccessMark();
     }
 
     public String getFileName() {
@@ -164,6 +164,8 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         "hsqldb.lockfile_poll_retries";
     public static final String system_max_char_or_varchar_display_size =
         "hsqldb.max_char_or_varchar_display_size";
+    public static final String system_trigger_threads =
+        "hsqldb.trigger_threads";
 
     //
     public static final String hsqldb_inc_backup = "hsqldb.inc_backup";
@@ -186,6 +188,7 @@ public class HsqlDatabaseProperties extends HsqlProperties {
     public static final String url_check_props     = "check_props";
     public static final String url_get_column_name = "get_column_name";
     public static final String url_close_result    = "close_result";
+    public static final String url_compress_network = "compress_network";
 
     //
     public static final String url_storage_class_name = "storage_class_name";
@@ -218,6 +221,10 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         "hsqldb.cache_free_count";
     public static final String hsqldb_cache_rows = "hsqldb.cache_rows";
     public static final String hsqldb_cache_size = "hsqldb.cache_size";
+    public static final String hsqldb_cache_writer_millis =
+        "hsqldb.cache_writer_millis";
+    public static final String hsqldb_cache_writer_rows =
+        "hsqldb.cache_writer_rows";
     public static final String hsqldb_default_table_type =
         "hsqldb.default_table_type";
     public static final String hsqldb_defrag_limit   = "hsqldb.defrag_limit";
@@ -225,6 +232,7 @@ public class HsqlDatabaseProperties extends HsqlProperties {
     public static final String hsqldb_lock_file      = "hsqldb.lock_file";
     public static final String hsqldb_log_data       = "hsqldb.log_data";
     public static final String hsqldb_log_size       = "hsqldb.log_size";
+    public static final String hsqldb_log_binary     = "hsqldb.log_binary";
     public static final String hsqldb_nio_data_file  = "hsqldb.nio_data_file";
     public static final String hsqldb_nio_max_size   = "hsqldb.nio_max_size";
     public static final String hsqldb_script_format  = "hsqldb.script_format";
@@ -236,7 +244,14 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         "hsqldb.write_delay_millis";
     public static final String hsqldb_full_log_replay =
         "hsqldb.full_log_replay";
+    public static final String hsqldb_parallel_log_replay =
+        "hsqldb.parallel_log_replay";
+    public static final String hsqldb_group_commit = "hsqldb.group_commit";
+    public static final String hsqldb_online_checkpoint =
+        "hsqldb.online_checkpoint";
     public static final String hsqldb_large_data  = "hsqldb.large_data";
+    public static final String hsqldb_compile_expressions =
+        "hsqldb.compile_expressions";
     public static final String hsqldb_files_space = "hsqldb.files_space";
     public static final String hsqldb_files_check = "hsqldb.files_check";
 
@@ -376,6 +391,9 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_full_log_replay,
                    HsqlProperties.getMeta(hsqldb_full_log_replay,
                                           SQL_PROPERTY, false));
+        dbMeta.put(hsqldb_parallel_log_replay,
+                   HsqlProperties.getMeta(hsqldb_parallel_log_replay,
+                                          SQL_PROPERTY, false));
         dbMeta.put(sql_ref_integrity,
                    HsqlProperties.getMeta(sql_ref_integrity, SQL_PROPERTY,
                                           true));
@@ -456,6 +474,18 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_large_data,
                    HsqlProperties.getMeta(hsqldb_large_data, SQL_PROPERTY,
                                           false));
+        dbMeta.put(hsqldb_compile_expressions,
+                   HsqlProperties.getMeta(hsqldb_compile_expressions,
+                                          SQL_PROPERTY, true));
+        dbMeta.put(hsqldb_log_binary,
+                   HsqlProperties.getMeta(hsqldb_log_binary, SQL_PROPERTY,
+                                          false));
+        dbMeta.put(hsqldb_group_commit,
+                   HsqlProperties.getMeta(hsqldb_group_commit, SQL_PROPERTY,
+                                          false));
+        dbMeta.put(hsqldb_online_checkpoint,
+                   HsqlProperties.getMeta(hsqldb_online_checkpoint,
+                                          SQL_PROPERTY, false));
         dbMeta.put(hsqldb_files_space,
                    HsqlProperties.getMeta(hsqldb_files_space, SQL_PROPERTY,
                                           false));
@@ -515,6 +545,13 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_cache_free_count,
                    HsqlProperties.getMeta(hsqldb_cache_free_count,
                                           SQL_PROPERTY, 512, 0, 4096));
+        dbMeta.put(hsqldb_cache_writer_millis,
+                   HsqlProperties.getMeta(hsqldb_cache_writer_millis,
+                                          SQL_PROPERTY, 0, 0, 60000));
+        dbMeta.put(hsqldb_cache_writer_rows,
+                   HsqlProperties.getMeta(hsqldb_cache_writer_rows,
+                                          SQL_PROPERTY, 1024, 1,
+                                          64 * 1024));
         dbMeta.put(hsqldb_result_max_memory_rows,
                    HsqlProperties.getMeta(hsqldb_result_max_memory_rows,
                                           SQL_PROPERTY, 0, 0,
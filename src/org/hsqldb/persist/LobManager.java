@@ -38,6 +38,7 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -59,6 +60,7 @@ import org.hsqldb.lib.ArrayUtil;
 import org.hsqldb.lib.HashMappedList;
 import org.hsqldb.lib.HsqlByteArrayInputStream;
 import org.hsqldb.lib.LineGroupReader;
+import org.hsqldb.lib.OrderedLongHashSet;
 import org.hsqldb.map.ValuePool;
 import org.hsqldb.navigator.RowSetNavigator;
 import org.hsqldb.result.Result;
@@ -128,6 +130,22 @@ public class LobManager {
     //
     ReadWriteLock lock      = new ReentrantReadWriteLock();
     Lock          writeLock = lock.writeLock();
+    Lock          readLock  = lock.readLock();
+
+    /**
+     * Block maps of LOBs, used for reading blocks while holding only the
+     * read lock. Changes to SYSTEM_LOBS and to the maps are made with the
+     * write lock.
+     */
+    static final int        blockMapLimit = 1024;
+    final ConcurrentHashMap blockMaps     = new ConcurrentHashMap();
+
+    /**
+     * New LOBs whose data is being copied without the write lock. A LOB is
+     * removed when the store is closed or the LOB is deleted, which stops
+     * the copy. Changed with the write lock, checked with the read lock.
+     */
+    final OrderedLongHashSet copyingLobs = new OrderedLongHashSet();
 
     // LOBS columns
     private interface LOBS {
@@ -358,6 +376,8 @@ public class LobManager {
 
     public void open() {
 
+        blockMaps.clear();
+
         lobBlockSize = database.logger.getLobBlockSize();
         cryptLobs    = database.logger.cryptLobs;
         compressLobs = database.logger.propCompressLobs;
@@ -390,11 +410,20 @@ public class LobManager {
 
     public void close() {
 
-        if (lobStore != null) {
-            lobStore.close();
-        }
+        writeLock.lock();
 
-        lobStore = null;
+        try {
+            if (lobStore != null) {
+                lobStore.close();
+            }
+
+            lobStore = null;
+
+            blockMaps.clear();
+            copyingLobs.clear();
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public LobStore getLobStore() {
@@ -564,6 +593,9 @@ public class LobManager {
                 sysLobSession.executeCompiledStatement(deleteLobCall, params,
                     0);
 
+            blockMaps.remove(params[0]);
+            copyingLobs.remove(lobID);
+
             usageChanged = true;
 
             return result;
@@ -596,6 +628,15 @@ public class LobManager {
                 }
             }
 
+            // LOBs of closed sessions are deleted even if being copied
+            for (int i = copyingLobs.size() - 1; i >= 0; i--) {
+                long lobID = copyingLobs.get(i);
+
+                if (lobID < firstLobID) {
+                    copyingLobs.remove(lobID);
+                }
+            }
+
             Object params[] = new Object[1];
 
             params[0] = new Long(firstLobID);
@@ -604,6 +645,8 @@ public class LobManager {
                 sysLobSession.executeCompiledStatement(deleteUnusedLobs,
                     params, 0);
 
+            blockMaps.clear();
+
             if (result.isError()) {
                 return result;
             }
@@ -1211,19 +1254,25 @@ public class LobManager {
 
     public Result getChars(long lobID, long offset, int length) {
 
-        Result result;
+        Result result = null;
 
-        writeLock.lock();
+        if (!compressLobs && !cryptLobs) {
+            result = getBytesShared(lobID, offset * 2, length * 2);
+        }
 
-        try {
-            if (compressLobs || cryptLobs) {
-                result = getBytesCompressed(lobID, offset * 2, length * 2,
-                                            true);
-            } else {
-                result = getBytesNormal(lobID, offset * 2, length * 2);
+        if (result == null) {
+            writeLock.lock();
+
+            try {
+                if (compressLobs || cryptLobs) {
+                    result = getBytesCompressed(lobID, offset * 2,
+                                                length * 2, true);
+                } else {
+                    result = getBytesNormal(lobID, offset * 2, length * 2);
+                }
+            } finally {
+                writeLock.unlock();
             }
-        } finally {
-            writeLock.unlock();
         }
 
         if (result.isError()) {
@@ -1238,6 +1287,14 @@ public class LobManager {
 
     public Result getBytes(long lobID, long offset, int length) {
 
+        if (!compressLobs && !cryptLobs) {
+            Result result = getBytesShared(lobID, offset, length);
+
+            if (result != null) {
+                return result;
+            }
+        }
+
         writeLock.lock();
 
         try {
@@ -1251,6 +1308,27 @@ public class LobManager {
         }
     }
 
+    /**
+     * Reads the bytes with the read lock when the block map of the LOB is
+     * cached. Returns null if it is not cached. All changes to the blocks of
+     * existing LOBs are made with the write lock.
+     */
+    private Result getBytesShared(long lobID, long offset, int length) {
+
+        readLock.lock();
+
+        try {
+            if (lobStore == null
+                    || !blockMaps.containsKey(ValuePool.getLong(lobID))) {
+                return null;
+            }
+
+            return getBytesNormal(lobID, offset, length);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     private Result getBytesNormal(long lobID, long offset, int length) {
 
         int blockOffset     = (int) (offset / lobBlockSize);
@@ -1290,25 +1368,22 @@ public class LobManager {
                            - blockLimit);
         }
 
-        byte[] bytes;
-
-        try {
-            bytes = getLobStore().getBlockBytes(
-                blockAddresses[i][LOBS.BLOCK_ADDR]
-                - blockAddresses[i][LOBS.BLOCK_OFFSET]
-                + blockOffset, blockCount);
-        } catch (HsqlException e) {
-            return Result.newErrorResult(e);
-        }
-
+        long position = (long) (blockAddresses[i][LOBS.BLOCK_ADDR]
+                                - blockAddresses[i][LOBS.BLOCK_OFFSET]
+                                + blockOffset) * lobBlockSize
+                                + byteBlockOffset;
         int subLength = lobBlockSize * blockCount - byteBlockOffset;
 
         if (subLength > length) {
             subLength = length;
         }
 
-        System.arraycopy(bytes, byteBlockOffset, dataBytes, dataBytesPosition,
-                         subLength);
+        try {
+            getLobStore().getBlockBytes(dataBytes, position,
+                                        dataBytesPosition, subLength);
+        } catch (HsqlException e) {
+            return Result.newErrorResult(e);
+        }
 
         dataBytesPosition += subLength;
 
@@ -1324,21 +1399,20 @@ public class LobManager {
                                - blockLimit);
             }
 
-            try {
-                bytes = getLobStore().getBlockBytes(
-                    blockAddresses[i][LOBS.BLOCK_ADDR], blockCount);
-            } catch (HsqlException e) {
-                return Result.newErrorResult(e);
-            }
-
+            position  = (long) blockAddresses[i][LOBS.BLOCK_ADDR]
+                        * lobBlockSize;
             subLength = lobBlockSize * blockCount;
 
             if (subLength > length - dataBytesPosition) {
                 subLength = length - dataBytesPosition;
             }
 
-            System.arraycopy(bytes, 0, dataBytes, dataBytesPosition,
-                             subLength);
+            try {
+                getLobStore().getBlockBytes(dataBytes, position,
+                                            dataBytesPosition, subLength);
+            } catch (HsqlException e) {
+                return Result.newErrorResult(e);
+            }
 
             dataBytesPosition += subLength;
         }
@@ -1460,18 +1534,32 @@ public class LobManager {
         }
 
         if (compressLobs || cryptLobs) {
-            return setBytesISCompressed(lobID, inputStream, length, isClob);
+            writeLock.lock();
+
+            try {
+                return setBytesISCompressed(lobID, inputStream, length,
+                                            isClob);
+            } finally {
+                writeLock.unlock();
+            }
         } else {
             return setBytesISNormal(lobID, inputStream, length);
         }
     }
 
+    /**
+     * The blocks are allocated with the write lock. The stream is then read
+     * without any lock, so that other LOBs can be read and written at the
+     * same time, and each block is written with the read lock. The new LOB
+     * is not visible to other sessions until the statement that uses it is
+     * executed. If the store is closed or the LOB is deleted while the
+     * stream is read, the copy stops with an error before the next write.
+     */
     private Result setBytesISNormal(long lobID, InputStream inputStream,
                                     long length) {
 
-        long writeLength     = 0;
-        int  blockLimit      = (int) (length / lobBlockSize);
-        int  byteLimitOffset = (int) (length % lobBlockSize);
+        int blockLimit      = (int) (length / lobBlockSize);
+        int byteLimitOffset = (int) (length % lobBlockSize);
 
         if (byteLimitOffset == 0) {
             byteLimitOffset = lobBlockSize;
@@ -1479,9 +1567,41 @@ public class LobManager {
             blockLimit++;
         }
 
-        createBlockAddresses(lobID, 0, blockLimit);
+        int[][] blockAddresses;
+
+        writeLock.lock();
+
+        try {
+            getLobStore();
+            createBlockAddresses(lobID, 0, blockLimit);
+
+            blockAddresses = getBlockAddresses(lobID, 0, blockLimit);
+
+            copyingLobs.add(lobID);
+        } finally {
+            writeLock.unlock();
+        }
+
+        try {
+            return setBytesISNormal(lobID, inputStream, blockAddresses,
+                                    byteLimitOffset);
+        } finally {
+            writeLock.lock();
 
-        int[][] blockAddresses = getBlockAddresses(lobID, 0, blockLimit);
+            try {
+                copyingLobs.remove(lobID);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private Result setBytesISNormal(long lobID, InputStream inputStream,
+                                    int[][] blockAddresses,
+                                    int byteLimitOffset) {
+
+        long   writeLength = 0;
+        byte[] byteBuffer  = new byte[lobBlockSize];
 
         for (int i = 0; i < blockAddresses.length; i++) {
             for (int j = 0; j < blockAddresses[i][LOBS.BLOCK_COUNT]; j++) {
@@ -1518,11 +1638,21 @@ public class LobManager {
                     return Result.newErrorResult(e);
                 }
 
+                readLock.lock();
+
                 try {
-                    getLobStore().setBlockBytes(
-                        byteBuffer, blockAddresses[i][LOBS.BLOCK_ADDR] + j, 1);
+                    if (!copyingLobs.contains(lobID)) {
+                        return Result.newErrorResult(
+                            Error.error(ErrorCode.X_0F502));
+                    }
+
+                    lobStore.setBlockBytes(byteBuffer,
+                                           blockAddresses[i][LOBS.BLOCK_ADDR]
+                                           + j, 1);
                 } catch (HsqlException e) {
                     return Result.newErrorResult(e);
+                } finally {
+                    readLock.unlock();
                 }
             }
         }
@@ -1590,15 +1720,7 @@ public class LobManager {
             throw Error.error(ErrorCode.DATA_IS_READONLY);
         }
 
-        writeLock.lock();
-
-        try {
-            Result result = setBytesIS(lobID, inputStream, length, false);
-
-            return result;
-        } finally {
-            writeLock.unlock();
-        }
+        return setBytesIS(lobID, inputStream, length, false);
     }
 
     /**
@@ -1660,25 +1782,19 @@ public class LobManager {
             throw Error.error(ErrorCode.DATA_IS_READONLY);
         }
 
-        writeLock.lock();
-
-        try {
-            Result result = setBytesIS(lobID, inputStream, length * 2, false);
+        Result result = setBytesIS(lobID, inputStream, length * 2, false);
 
-            if (result.isError()) {
-                return result;
-            }
-
-            long newLength = ((ResultLob) result).getBlockLength();
+        if (result.isError()) {
+            return result;
+        }
 
-            if (newLength < length) {
-                Result trunc = truncate(lobID, newLength);
-            }
+        long newLength = ((ResultLob) result).getBlockLength();
 
-            return result;
-        } finally {
-            writeLock.unlock();
+        if (newLength < length) {
+            Result trunc = truncate(lobID, newLength);
         }
+
+        return result;
     }
 
     public Result truncate(long lobID, long offset) {
@@ -1719,6 +1835,7 @@ public class LobManager {
                 sysLobSession.executeCompiledStatement(deleteLobPartCall,
                     params, 0);
 
+            blockMaps.remove(params[DELETE_BLOCKS.LOB_ID]);
             setLength(lobID, offset);
 
             return ResultLob.newLobTruncateResponse(lobID, offset);
@@ -1761,14 +1878,58 @@ public class LobManager {
         return result;
     }
 
+    /**
+     * Returns the blocks of the LOB that overlap the range, in block offset
+     * order. With only the read lock, the block map must already be cached.
+     */
     private int[][] getBlockAddresses(long lobID, int offset, int limit) {
 
+        int[][] blockMap = getBlockMap(lobID);
+        int     first    = 0;
+        int     last     = blockMap.length;
+
+        while (first < last
+                && blockMap[first][LOBS.BLOCK_OFFSET]
+                   + blockMap[first][LOBS.BLOCK_COUNT] <= offset) {
+            first++;
+        }
+
+        while (last > first
+                && blockMap[last - 1][LOBS.BLOCK_OFFSET] >= limit) {
+            last--;
+        }
+
+        if (first == 0 && last == blockMap.length) {
+            return blockMap;
+        }
+
+        int[][] blocks = new int[last - first][];
+
+        System.arraycopy(blockMap, first, blocks, 0, last - first);
+
+        return blocks;
+    }
+
+    /**
+     * Returns all the blocks of the LOB. The map is read from SYSTEM_LOBS when
+     * it is not cached. Called with the write lock in that case.
+     */
+    private int[][] getBlockMap(long lobID) {
+
+        Long    key    = ValuePool.getLong(lobID);
+        int[][] blocks = (int[][]) blockMaps.get(key);
+
+        if (blocks != null) {
+            return blocks;
+        }
+
         ResultMetaData meta     = getSpanningBlocks.getParametersMetaData();
         Object         params[] = new Object[meta.getColumnCount()];
 
-        params[GET_LOB_PART.LOB_ID]       = ValuePool.getLong(lobID);
-        params[GET_LOB_PART.BLOCK_OFFSET] = ValuePool.getInt(offset);
-        params[GET_LOB_PART.BLOCK_LIMIT]  = ValuePool.getInt(limit);
+        params[GET_LOB_PART.LOB_ID]       = key;
+        params[GET_LOB_PART.BLOCK_OFFSET] = ValuePool.INTEGER_0;
+        params[GET_LOB_PART.BLOCK_LIMIT] =
+            ValuePool.getInt(Integer.MAX_VALUE);
 
         sysLobSession.sessionContext.pushDynamicArguments(params);
 
@@ -1778,7 +1939,8 @@ public class LobManager {
 
         RowSetNavigator navigator = result.getNavigator();
         int             size      = navigator.getSize();
-        int[][]         blocks    = new int[size][3];
+
+        blocks = new int[size][3];
 
         for (int i = 0; i < size; i++) {
             navigator.absolute(i);
@@ -1795,6 +1957,14 @@ public class LobManager {
 
         navigator.release();
 
+        if (size > 0) {
+            if (blockMaps.size() >= blockMapLimit) {
+                blockMaps.clear();
+            }
+
+            blockMaps.put(key, blocks);
+        }
+
         return blocks;
     }
 
@@ -1812,6 +1982,8 @@ public class LobManager {
         Result result =
             sysLobSession.executeCompiledStatement(deleteLobPartCall, params,
                 0);
+
+        blockMaps.remove(params[DELETE_BLOCKS.LOB_ID]);
     }
 
     private void divideBlockAddresses(long lobID, int offset) {
@@ -1825,6 +1997,8 @@ public class LobManager {
         Result result =
             sysLobSession.executeCompiledStatement(divideLobPartCall, params,
                 0);
+
+        blockMaps.remove(params[DIVIDE_BLOCK.LOB_ID]);
     }
 
     private Result createBlockAddresses(long lobID, int offset, int count) {
@@ -1840,6 +2014,8 @@ public class LobManager {
             sysLobSession.executeCompiledStatement(createLobPartCall, params,
                 0);
 
+        blockMaps.remove(params[ALLOC_BLOCKS.LOB_ID]);
+
         return result;
     }
 
@@ -1857,6 +2033,8 @@ public class LobManager {
             sysLobSession.executeCompiledStatement(createSingleLobPartCall,
                 params, 0);
 
+        blockMaps.remove(params[ALLOC_BLOCKS.LOB_ID]);
+
         return result;
     }
 
@@ -32,6 +32,9 @@
 package org.hsqldb.persist;
 
 /**
+ * Implementations are thread safe. LobManager reads and writes the blocks of
+ * different LOBs concurrently.
+ *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
  * @version 2.3.0
  * @since 1.9.0
@@ -40,6 +43,13 @@ public interface LobStore {
 
     byte[] getBlockBytes(int blockAddress, int blockCount);
 
+    /**
+     * Reads length bytes starting at byte position in the store directly
+     * into dataBytes at offset.
+     */
+    void getBlockBytes(byte[] dataBytes, long position, int offset,
+                       int length);
+
     void setBlockBytes(byte[] dataBytes, int blockAddress, int blockCount);
 
     void setBlockBytes(byte[] dataBytes, long position, int offset,
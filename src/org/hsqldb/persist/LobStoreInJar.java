@@ -67,7 +67,8 @@ public class LobStoreInJar implements LobStore {
         }
     }
 
-    public byte[] getBlockBytes(int blockAddress, int blockCount) {
+    public synchronized byte[] getBlockBytes(int blockAddress,
+            int blockCount) {
 
         try {
             long   address   = (long) blockAddress * lobBlockSize;
@@ -85,6 +86,19 @@ public class LobStoreInJar implements LobStore {
         }
     }
 
+    public synchronized void getBlockBytes(byte[] dataBytes, long position,
+            int offset, int length) {
+
+        try {
+            fileSeek(position);
+            dataInput.readFully(dataBytes, offset, length);
+
+            realPosition = position + length;
+        } catch (Throwable t) {
+            throw Error.error(ErrorCode.DATA_FILE_ERROR, t);
+        }
+    }
+
     public void setBlockBytes(byte[] dataBytes, int blockAddress,
                               int blockCount) {}
 
@@ -101,7 +115,7 @@ public class LobStoreInJar implements LobStore {
 
     public void setLength(long length) {}
 
-    public void close() {
+    public synchronized void close() {
 
         try {
             if (dataInput != null) {
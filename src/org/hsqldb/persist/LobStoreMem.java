@@ -52,7 +52,8 @@ public class LobStoreMem implements LobStore {
         byteStoreList     = new HsqlArrayList();
     }
 
-    public byte[] getBlockBytes(int blockAddress, int blockCount) {
+    public synchronized byte[] getBlockBytes(int blockAddress,
+            int blockCount) {
 
         byte[] dataBytes       = new byte[blockCount * lobBlockSize];
         int    dataBlockOffset = 0;
@@ -79,8 +80,30 @@ public class LobStoreMem implements LobStore {
         return dataBytes;
     }
 
-    public void setBlockBytes(byte[] dataBytes, int blockAddress,
-                              int blockCount) {
+    public synchronized void getBlockBytes(byte[] dataBytes, long position,
+            int offset, int length) {
+
+        while (length > 0) {
+            int    largeBlockIndex = (int) (position / largeBlockSize);
+            byte[] largeBlock = (byte[]) byteStoreList.get(largeBlockIndex);
+            int    offsetInLargeBlock = (int) (position % largeBlockSize);
+            int    currentLength      = length;
+
+            if ((offsetInLargeBlock + currentLength) > largeBlockSize) {
+                currentLength = largeBlockSize - offsetInLargeBlock;
+            }
+
+            System.arraycopy(largeBlock, offsetInLargeBlock, dataBytes,
+                             offset, currentLength);
+
+            position += currentLength;
+            offset   += currentLength;
+            length   -= currentLength;
+        }
+    }
+
+    public synchronized void setBlockBytes(byte[] dataBytes,
+            int blockAddress, int blockCount) {
 
         int dataBlockOffset = 0;
 
@@ -109,8 +132,8 @@ public class LobStoreMem implements LobStore {
         }
     }
 
-    public void setBlockBytes(byte[] dataBytes, long position, int offset,
-                              int length) {
+    public synchronized void setBlockBytes(byte[] dataBytes,
+            long position, int offset, int length) {
 
         while (length > 0) {
             int largeBlockIndex = (int) (position / largeBlockSize);
@@ -140,18 +163,18 @@ public class LobStoreMem implements LobStore {
         return lobBlockSize;
     }
 
-    public long getLength() {
+    public synchronized long getLength() {
         return (long) byteStoreList.size() * largeBlockSize;
     }
 
-    public void setLength(long length) {
+    public synchronized void setLength(long length) {
 
         int largeBlockIndex = (int) (length / largeBlockSize);
 
         byteStoreList.setSize(largeBlockIndex + 1);
     }
 
-    public void close() {
+    public synchronized void close() {
         byteStoreList.clear();
     }
 
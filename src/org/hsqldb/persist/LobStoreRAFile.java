@@ -82,7 +82,8 @@ public class LobStoreRAFile implements LobStore {
         }
     }
 
-    public byte[] getBlockBytes(int blockAddress, int blockCount) {
+    public synchronized byte[] getBlockBytes(int blockAddress,
+            int blockCount) {
 
         if (file == null) {
             throw Error.error(ErrorCode.FILE_IO_ERROR);
@@ -102,8 +103,28 @@ public class LobStoreRAFile implements LobStore {
         }
     }
 
-    public void setBlockBytes(byte[] dataBytes, int blockAddress,
-                              int blockCount) {
+    /**
+     * Reads straight into the caller's array. The read is a seek and
+     * readFully under the monitor, not a FileChannel read, as an interrupt
+     * during a channel read would close the file for all sessions.
+     */
+    public synchronized void getBlockBytes(byte[] dataBytes, long position,
+                                           int offset, int length) {
+
+        if (file == null) {
+            throw Error.error(ErrorCode.FILE_IO_ERROR);
+        }
+
+        try {
+            file.seek(position);
+            file.read(dataBytes, offset, length);
+        } catch (Throwable t) {
+            throw Error.error(ErrorCode.DATA_FILE_ERROR, t);
+        }
+    }
+
+    public synchronized void setBlockBytes(byte[] dataBytes,
+            int blockAddress, int blockCount) {
 
         if (file == null) {
             openFile();
@@ -120,8 +141,8 @@ public class LobStoreRAFile implements LobStore {
         }
     }
 
-    public void setBlockBytes(byte[] dataBytes, long position, int offset,
-                              int length) {
+    public synchronized void setBlockBytes(byte[] dataBytes,
+            long position, int offset, int length) {
 
         if (length == 0) {
             return;
@@ -143,7 +164,7 @@ public class LobStoreRAFile implements LobStore {
         return lobBlockSize;
     }
 
-    public long getLength() {
+    public synchronized long getLength() {
 
         if (file == null) {
             openFile();
@@ -156,7 +177,7 @@ public class LobStoreRAFile implements LobStore {
         }
     }
 
-    public void setLength(long length) {
+    public synchronized void setLength(long length) {
 
         try {
             if (file != null) {
@@ -168,7 +189,7 @@ public class LobStoreRAFile implements LobStore {
         }
     }
 
-    public void close() {
+    public synchronized void close() {
 
         try {
             if (file != null) {
@@ -180,7 +201,7 @@ public class LobStoreRAFile implements LobStore {
         }
     }
 
-    public void synch() {
+    public synchronized void synch() {
 
         if (file != null) {
             file.synch();
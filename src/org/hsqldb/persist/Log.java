@@ -31,8 +31,11 @@
 
 package org.hsqldb.persist;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.hsqldb.Database;
 import org.hsqldb.HsqlException;
@@ -41,15 +44,19 @@ import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.NumberSequence;
 import org.hsqldb.Row;
 import org.hsqldb.Session;
+import org.hsqldb.SessionInterface;
 import org.hsqldb.SqlInvariants;
 import org.hsqldb.Table;
+import org.hsqldb.TransactionManager;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.FileAccess;
+import org.hsqldb.result.Result;
 import org.hsqldb.scriptio.ScriptReaderBase;
 import org.hsqldb.scriptio.ScriptReaderDecode;
 import org.hsqldb.scriptio.ScriptReaderText;
 import org.hsqldb.scriptio.ScriptWriterBase;
+import org.hsqldb.scriptio.ScriptWriterBinaryLog;
 import org.hsqldb.scriptio.ScriptWriterEncode;
 import org.hsqldb.scriptio.ScriptWriterText;
 
@@ -92,6 +99,12 @@ public class Log {
     private DataFileCache          cache;
     private boolean                isModified;
 
+    //
+    private volatile Thread checkpointThread;
+    private Session         checkpointSession;
+    private Result          checkpointScript;
+    private long            checkpointLogOffset;
+
     Log(Database db) {
 
         database   = db;
@@ -127,6 +140,18 @@ public class Log {
 
         int state = properties.getDBModified();
 
+        setupLogFile();
+
+        // online checkpoint interrupted after the new script was complete
+        if (state == HsqlDatabaseProperties.FILES_MODIFIED_NEW
+                && fa.isStreamElement(logFileName + Logger.newFileExtension)) {
+            renameNewScript();
+            deleteLog();
+            properties.setDBModified(HsqlDatabaseProperties.FILES_MODIFIED);
+
+            state = HsqlDatabaseProperties.FILES_MODIFIED;
+        }
+
         switch (state) {
 
             case HsqlDatabaseProperties.FILES_NEW :
@@ -134,6 +159,7 @@ public class Log {
 
             case HsqlDatabaseProperties.FILES_MODIFIED :
                 database.logger.logInfoEvent("open start - state modified");
+                restoreNewLog();
                 deleteNewAndOldFiles();
                 deleteOldTempFiles();
 
@@ -284,6 +310,27 @@ public class Log {
         fa.removeElement(scriptFileName + Logger.newFileExtension);
     }
 
+    /**
+     * A .log.new file is left by an interrupted online checkpoint. If the
+     * .script.new file still exists, the checkpoint did not complete and the
+     * .log file is used. Otherwise the .log.new file replaces the .log file.
+     */
+    void restoreNewLog() {
+
+        String newLogFileName = logFileName + Logger.newFileExtension;
+
+        if (!fa.isStreamElement(newLogFileName)) {
+            return;
+        }
+
+        if (fa.isStreamElement(scriptFileName + Logger.newFileExtension)) {
+            fa.removeElement(newLogFileName);
+        } else {
+            deleteLog();
+            fa.renameElement(newLogFileName, logFileName);
+        }
+    }
+
     void deleteBackup() {
         fa.removeElement(fileName + Logger.backupFileExtension);
     }
@@ -479,6 +526,216 @@ public class Log {
         return true;
     }
 
+    /**
+     * Online checkpoint is used only for databases without CACHED tables in
+     * MVCC mode, as the .data file can be saved only while sessions are
+     * locked out.
+     */
+    boolean canCheckpointOnline() {
+
+        return !filesReadOnly && cache == null && dbLogWriter != null
+               && !dbLogWriter.isSyncFailed()
+               && database.logger.getCrypto() == null
+               && !database.logger.isStoredFileAccess()
+               && database.txManager.getTransactionControl()
+                  == TransactionManager.MVCC;
+    }
+
+    /**
+     * Starts an online checkpoint. Called while all sessions are locked
+     * out. Captures the DDL, opens a read snapshot of the table rows and
+     * marks the current end of the log. The new .script is then written by a
+     * background thread while sessions continue to run. When it is complete,
+     * the log records written since the snapshot are moved to a new log.<p>
+     *
+     * DDL statements wait for the snapshot session while the checkpoint is
+     * in progress.
+     */
+    void checkpointOnline() {
+
+        database.logger.logInfoEvent("checkpoint online start");
+        database.lobManager.deleteUnusedLobs();
+        synchLog();
+        database.lobManager.synch();
+        deleteNewScript();
+        fa.removeElement(logFileName + Logger.newFileExtension);
+
+        Session session = database.sessionManager.newSysSession();
+
+        session.setIsolation(SessionInterface.TX_REPEATABLE_READ);
+        database.txManager.beginTransaction(session);
+
+        dbLogWriter.forceSync();
+
+        checkpointSession   = session;
+        checkpointScript    = database.getScript(false);
+        checkpointLogOffset = new File(logFileName).length();
+
+        dbLogWriter.resetSessionState();
+        database.sessionManager.resetLoggedSchemas();
+
+        checkpointThread = new Thread(new Runnable() {
+
+            public void run() {
+                checkpointOnlineWrite();
+            }
+        }, "HSQLDB Checkpoint " + database.getUniqueName());
+
+        checkpointThread.setDaemon(true);
+        checkpointThread.start();
+    }
+
+    void waitForCheckpoint() {
+
+        Thread thread = checkpointThread;
+
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkpointOnlineWrite() {
+
+        boolean result  = false;
+        Session session = checkpointSession;
+
+        try {
+            boolean compressed = database.logger.propScriptFormat == 3;
+            ScriptWriterBase scw = new ScriptWriterText(database,
+                scriptFileName + Logger.newFileExtension, false, compressed);
+
+            scw.writeSnapshot(checkpointScript, session);
+            scw.close();
+
+            synchronized (database.logger) {
+                switchToNewLog();
+            }
+
+            result = true;
+        } catch (Throwable t) {
+            deleteNewScript();
+            fa.removeElement(logFileName + Logger.newFileExtension);
+            database.logger.logSevereEvent("checkpoint online failed", t);
+        } finally {
+            checkpointScript  = null;
+            checkpointSession = null;
+
+            session.rollback(false);
+            database.sessionManager.removeSession(session);
+            database.logger.checkpointOnlineEnd(result);
+
+            checkpointThread = null;
+        }
+    }
+
+    /**
+     * Called with the Logger monitor held, so no log records are written
+     * while the files are switched. The sequence of file operations and
+     * property states allows open() to recover at any point.
+     */
+    private void switchToNewLog() throws IOException {
+
+        String newLogFileName = logFileName + Logger.newFileExtension;
+
+        dbLogWriter.forceSync();
+
+        // the records after a failed sync may not all be in the file
+        if (dbLogWriter.isSyncFailed()) {
+            throw new IOException("log sync failed");
+        }
+
+        long end        = new File(logFileName).length();
+        int  headerSize = dbLogWriter.getHeaderSize();
+
+        // header and log records written since the snapshot
+        OutputStream out = fa.openOutputStreamElement(newLogFileName);
+
+        try {
+            copyLogBytes(0, headerSize, out, null);
+            copyLogBytes(checkpointLogOffset, end, out, null);
+            out.flush();
+            fa.getFileSync(out).sync();
+        } finally {
+            out.close();
+        }
+
+        properties.setDBModified(HsqlDatabaseProperties.FILES_MODIFIED_NEW);
+        closeLog();
+        deleteLog();
+        renameNewScript();
+        properties.setDBModified(HsqlDatabaseProperties.FILES_MODIFIED);
+        openLog();
+
+        String currentLogFileName = logFileName;
+
+        logFileName = newLogFileName;
+
+        try {
+            copyLogBytes(headerSize,
+                         headerSize + end - checkpointLogOffset, null,
+                         dbLogWriter);
+        } finally {
+            logFileName = currentLogFileName;
+        }
+
+        dbLogWriter.forceSync();
+        fa.removeElement(newLogFileName);
+
+        isModified = true;
+
+        database.logger.logInfoEvent("checkpoint online log switch - size: "
+                                     + (end - checkpointLogOffset));
+    }
+
+    private void copyLogBytes(long start, long end, OutputStream out,
+                              ScriptWriterBase writer) throws IOException {
+
+        if (end <= start) {
+            return;
+        }
+
+        InputStream in = fa.openInputStreamElement(logFileName);
+
+        try {
+            byte[] buffer = new byte[1 << 16];
+
+            for (long skip = start; skip > 0; ) {
+                long skipped = in.skip(skip);
+
+                if (skipped <= 0) {
+                    throw new EOFException();
+                }
+
+                skip -= skipped;
+            }
+
+            for (long remaining = end - start; remaining > 0; ) {
+                int count = in.read(buffer, 0,
+                                    (int) Math.min(buffer.length, remaining));
+
+                if (count < 0) {
+                    throw new EOFException();
+                }
+
+                if (out == null) {
+                    writer.writeRaw(buffer, 0, count);
+                } else {
+                    out.write(buffer, 0, count);
+                }
+
+                remaining -= count;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
     /**
      *  Writes out all the rows to a new file without fragmentation.
      */
@@ -582,6 +839,15 @@ public class Log {
         }
     }
 
+    void setGroupCommit(boolean mode) {
+
+        if (dbLogWriter != null && dbLogWriter.isGroupCommit() != mode) {
+            dbLogWriter.stop();
+            dbLogWriter.setGroupCommit(mode);
+            dbLogWriter.start();
+        }
+    }
+
     public void setIncrementBackup(boolean val) {
 
         if (cache != null) {
@@ -699,14 +965,20 @@ public class Log {
 
         try {
             if (crypto == null) {
-                dbLogWriter = new ScriptWriterText(database, logFileName,
-                                                   false, false, false);
+                if (database.logger.propLogBinary) {
+                    dbLogWriter = new ScriptWriterBinaryLog(database,
+                            logFileName);
+                } else {
+                    dbLogWriter = new ScriptWriterText(database, logFileName,
+                                                       false, false, false);
+                }
             } else {
                 dbLogWriter = new ScriptWriterEncode(database, logFileName,
                                                      crypto);
             }
 
             dbLogWriter.setWriteDelay(writeDelay);
+            dbLogWriter.setGroupCommit(database.logger.propGroupCommit);
             dbLogWriter.start();
 
             isModified = false;
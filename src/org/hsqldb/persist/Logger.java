@@ -120,11 +120,16 @@ public class Logger {
     int     propMaxFreeBlocks = 512;
     int     propCacheMaxRows;
     int     propCacheMaxSize;
+    int     propCacheWriterMillis;
+    int     propCacheWriterRows;
     int     propCacheDefragLimit;
     int     propDataFileScale;
     String  propTextSourceDefault = "";
     boolean propTextAllowFullPath;
     int     propWriteDelay;
+    boolean propGroupCommit;
+    boolean propOnlineCheckpoint;
+    boolean propLogBinary;
     int     propLogSize;
     boolean propLogData = true;
     int     propEventLogLevel;
@@ -136,6 +141,7 @@ public class Logger {
     boolean propCompressLobs;
     int     propScriptFormat = 0;
     boolean propLargeData;
+    boolean propCompileExpressions = true;
     boolean propFileSpaces;
     int     propCheckPersistence;
 
@@ -482,6 +488,31 @@ public class Logger {
         propCheckPersistence = database.databaseProperties.getIntegerProperty(
             HsqlDatabaseProperties.hsqldb_files_check);
 
+        if (!database.urlProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_compile_expressions, true)) {
+            propCompileExpressions = false;
+        }
+
+        propCacheWriterMillis = database.urlProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_cache_writer_millis, 0);
+        propCacheWriterRows = database.urlProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_cache_writer_rows, 1024);
+
+        if (database.urlProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_group_commit, false)) {
+            propGroupCommit = true;
+        }
+
+        if (database.urlProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_online_checkpoint, false)) {
+            propOnlineCheckpoint = true;
+        }
+
+        if (database.urlProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_log_binary, false)) {
+            propLogBinary = true;
+        }
+
         if (!database.urlProperties.isPropertyTrue(
                 HsqlDatabaseProperties.sql_pad_space, true)) {
             database.collation.setPadding(false);
@@ -692,6 +723,7 @@ public class Logger {
             return true;
         }
 
+        log.waitForCheckpoint();
         log.synchLog();
         database.lobManager.synch();
 
@@ -993,12 +1025,32 @@ public class Logger {
     }
 
     /**
-     * Used at transaction commit
+     * Used at transaction commit, while the transaction manager lock is
+     * held. The record is written but the log is not synced. Returns the
+     * commit to wait for with waitForCommitSync(), or null if there is no
+     * need to wait.
      */
-    public synchronized void writeCommitStatement(Session session) {
+    public synchronized ScriptWriterBase.CommitSync writeCommitStatement(
+            Session session) {
 
-        if (loggingEnabled) {
-            log.writeCommitStatement(session);
+        if (!loggingEnabled) {
+            return null;
+        }
+
+        log.writeCommitStatement(session);
+
+        return log.dbLogWriter.getCommitSync();
+    }
+
+    /**
+     * Waits until the commit is synced by the writer that recorded it. Called
+     * by the transaction manager before the committed changes are made
+     * visible to other sessions.
+     */
+    public void waitForCommitSync(ScriptWriterBase.CommitSync commitSync) {
+
+        if (commitSync != null) {
+            commitSync.waitForSync();
         }
     }
 
@@ -1023,16 +1075,62 @@ public class Logger {
      * @throws  HsqlException if there is a problem checkpointing the
      *      database
      */
-    public synchronized void checkpoint(boolean mode) {
+    public void checkpoint(boolean mode) {
+        waitForCheckpoint();
+        checkpointStart(mode);
+    }
+
+    private synchronized void checkpointStart(boolean mode) {
 
         if (!backupState.compareAndSet(stateNormal, stateCheckpoint)) {
             throw Error.error(ErrorCode.ACCESS_IS_DENIED);
         }
 
+        boolean online = false;
+
         try {
-            checkpointInternal(mode);
+            if (propOnlineCheckpoint && !mode && logsStatements
+                    && log.canCheckpointOnline()) {
+                logInfoEvent("Checkpoint start");
+                log.checkpointOnline();
+
+                online             = true;
+                checkpointRequired = false;
+                checkpointDue      = true;
+            } else {
+                checkpointInternal(mode);
+            }
         } finally {
-            backupState.set(stateNormal);
+            if (!online) {
+                backupState.set(stateNormal);
+            }
+        }
+    }
+
+    /**
+     * Called by the online checkpoint thread when it has finished.
+     */
+    void checkpointOnlineEnd(boolean result) {
+
+        synchronized (this) {
+            checkpointRequired = !result;
+            checkpointDue      = false;
+        }
+
+        backupState.set(stateNormal);
+        logInfoEvent("Checkpoint end - txts: "
+                     + database.txManager.getGlobalChangeTimestamp());
+    }
+
+    /**
+     * Waits for an online checkpoint in progress to complete.
+     */
+    public void waitForCheckpoint() {
+
+        Log currentLog = log;
+
+        if (currentLog != null) {
+            currentLog.waitForCheckpoint();
         }
     }
 
@@ -1116,6 +1214,23 @@ public class Logger {
         }
     }
 
+    /**
+     * Sets group commit mode on or off. Group commit is used only when the
+     * write delay is 0.
+     */
+    public synchronized void setGroupCommit(boolean mode) {
+
+        propGroupCommit = mode;
+
+        if (log != null) {
+            log.setGroupCommit(mode);
+        }
+    }
+
+    public boolean isGroupCommit() {
+        return propGroupCommit;
+    }
+
     public Crypto getCrypto() {
         return crypto;
     }
@@ -1150,7 +1265,10 @@ public class Logger {
     }
 
     public void setCacheMaxRows(int value) {
+
         propCacheMaxRows = value;
+
+        resizeCache();
     }
 
     public int getCacheRowsDefault() {
@@ -1158,7 +1276,20 @@ public class Logger {
     }
 
     public void setCacheSize(int value) {
+
         propCacheMaxSize = value * 1024;
+
+        resizeCache();
+    }
+
+    /**
+     * Applies the current cache settings to the open data file cache.
+     */
+    private void resizeCache() {
+
+        if (hasCache()) {
+            getCache().setCapacity(propCacheMaxRows, propCacheMaxSize);
+        }
     }
 
     public int getCacheSize() {
@@ -1220,6 +1351,15 @@ public class Logger {
         }
     }
 
+    /**
+     * Numeric conditions and select list expressions are evaluated by a tree
+     * of nodes that use primitive values unless
+     * hsqldb.compile_expressions=false. No bytecode is generated.
+     */
+    public boolean isCompileExpressions() {
+        return propCompileExpressions;
+    }
+
     public boolean isDataFileSpaces() {
         return propFileSpaces;
     }
@@ -1573,10 +1713,34 @@ public class Logger {
             return String.valueOf(propIncrementBackup);
         }
 
+        if (HsqlDatabaseProperties.hsqldb_group_commit.equals(name)) {
+            return String.valueOf(propGroupCommit);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_online_checkpoint.equals(name)) {
+            return String.valueOf(propOnlineCheckpoint);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_cache_writer_millis.equals(name)) {
+            return String.valueOf(propCacheWriterMillis);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_cache_writer_rows.equals(name)) {
+            return String.valueOf(propCacheWriterRows);
+        }
+
         if (HsqlDatabaseProperties.hsqldb_large_data.equals(name)) {
             return String.valueOf(propLargeData);
         }
 
+        if (HsqlDatabaseProperties.hsqldb_compile_expressions.equals(name)) {
+            return String.valueOf(propCompileExpressions);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_log_binary.equals(name)) {
+            return String.valueOf(propLogBinary);
+        }
+
         if (HsqlDatabaseProperties.hsqldb_large_data.equals(name)) {
             return String.valueOf(propLargeData);
         }
@@ -2050,6 +2214,13 @@ public class Logger {
 
         list.add(sb.toString());
         sb.setLength(0);
+
+        if (propGroupCommit) {
+            sb.append("SET FILES GROUP ").append(Tokens.T_COMMIT).append(' ');
+            sb.append(Tokens.T_TRUE);
+            list.add(sb.toString());
+            sb.setLength(0);
+        }
         sb.append("SET FILES ").append(Tokens.T_BACKUP);
         sb.append(' ').append(Tokens.T_INCREMENT).append(' ');
         sb.append(propIncrementBackup ? Tokens.T_TRUE
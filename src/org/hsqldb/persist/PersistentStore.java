@@ -154,7 +154,7 @@ public interface PersistentStore {
 
     Index[] getAccessorKeys();
 
-    void moveDataToSpace();
+    void moveDataToSpace(TableSpaceManager newSpace);
 
     void moveData(Session session, PersistentStore other, int colindex,
                   int adjust);
@@ -64,9 +64,9 @@ final class RAFile implements RandomAccessInterface {
     static final int DATA_FILE_TEXT   = 5;
 
     //
-    static final int  bufferScale = 12;
-    static final int  bufferSize  = 1 << bufferScale;
-    static final long bufferMask  = 0xffffffffffffffffl << bufferScale;
+    static final int  bufferScale     = 12;
+    static final int  bufferSize      = 1 << bufferScale;
+    static final int  textBufferScale = 16;
 
     //
     final Database                  database;
@@ -75,6 +75,7 @@ final class RAFile implements RandomAccessInterface {
     private final boolean           readOnly;
     final String                    fileName;
     final byte[]                    buffer;
+    final long                      bufferPositionMask;
     final HsqlByteArrayInputStream  ba;
     final byte[]                    valueBuffer;
     final HsqlByteArrayOutputStream vbao;
@@ -143,7 +144,8 @@ final class RAFile implements RandomAccessInterface {
         if (type == DATA_FILE_JAR) {
             return new RAFileInJar(name);
         } else if (type == DATA_FILE_TEXT) {
-            RAFile ra = new RAFile(database, name, readonly, false, true);
+            RAFile ra = new RAFile(database, name, readonly, false, true,
+                                   textBufferScale);
 
             return ra;
         } else if (type == DATA_FILE_RAF) {
@@ -169,6 +171,17 @@ final class RAFile implements RandomAccessInterface {
     RAFile(Database database, String name, boolean readonly,
             boolean extendLengthToBlock,
             boolean commitOnChange) throws FileNotFoundException, IOException {
+        this(database, name, readonly, extendLengthToBlock, commitOnChange,
+             bufferScale);
+    }
+
+    /**
+     * Text table files are mostly read sequentially, row by row, and use a
+     * larger read buffer.
+     */
+    RAFile(Database database, String name, boolean readonly,
+            boolean extendLengthToBlock, boolean commitOnChange,
+            int readBufferScale) throws FileNotFoundException, IOException {
 
         this.database     = database;
         this.fileName     = name;
@@ -179,14 +192,15 @@ final class RAFile implements RandomAccessInterface {
                                      : commitOnChange ? "rws"
                                                       : "rw";
 
-        this.file      = new RandomAccessFile(name, accessMode);
-        buffer         = new byte[bufferSize];
-        ba             = new HsqlByteArrayInputStream(buffer);
-        valueBuffer    = new byte[8];
-        vbao           = new HsqlByteArrayOutputStream(valueBuffer);
-        vbai           = new HsqlByteArrayInputStream(valueBuffer);
-        fileDescriptor = file.getFD();
-        fileLength     = length();
+        this.file          = new RandomAccessFile(name, accessMode);
+        buffer             = new byte[1 << readBufferScale];
+        bufferPositionMask = 0xffffffffffffffffl << readBufferScale;
+        ba                 = new HsqlByteArrayInputStream(buffer);
+        valueBuffer        = new byte[8];
+        vbao               = new HsqlByteArrayOutputStream(valueBuffer);
+        vbai               = new HsqlByteArrayInputStream(valueBuffer);
+        fileDescriptor     = file.getFD();
+        fileLength         = length();
 
         readIntoBuffer();
     }
@@ -210,7 +224,7 @@ final class RAFile implements RandomAccessInterface {
 
     private void readIntoBuffer() throws IOException {
 
-        long filePos    = seekPosition & bufferMask;
+        long filePos    = seekPosition & bufferPositionMask;
         long readLength = fileLength - filePos;
 
         if (readLength > buffer.length) {
@@ -31,6 +31,7 @@
 
 package org.hsqldb.persist;
 
+import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.hsqldb.ColumnSchema;
@@ -49,7 +50,9 @@ import org.hsqldb.error.ErrorCode;
 import org.hsqldb.index.Index;
 import org.hsqldb.index.IndexAVL;
 import org.hsqldb.index.NodeAVL;
+import org.hsqldb.lib.ArraySort;
 import org.hsqldb.lib.ArrayUtil;
+import org.hsqldb.lib.OrderedIntHashSet;
 import org.hsqldb.navigator.RowIterator;
 import org.hsqldb.rowio.RowInputInterface;
 import org.hsqldb.types.Type;
@@ -266,7 +269,30 @@ public abstract class RowStoreAVL implements PersistentStore {
             setAccessor(indexList[i], null);
         }
 
-        RowIterator it = rowIterator();
+        RowIterator it      = rowIterator();
+        Index[]     indexes = new Index[indexList.length - 1];
+
+        System.arraycopy(indexList, 1, indexes, 0, indexes.length);
+
+        int[] keyColumns = getKeyColumns(indexes);
+
+        if (isBulkIndexing(elementCount(), indexes, keyColumns)) {
+            Object[] rows  = new Object[(int) elementCount()];
+            int      count = 0;
+
+            while (it.hasNext()) {
+                Row row = it.getNextRow();
+
+                ((RowAVL) row).clearNonPrimaryNodes();
+
+                rows = addBuildRow(rows, count++, row, row.getData(),
+                                   keyColumns);
+            }
+
+            buildIndexes(session, indexes, rows, count, keyColumns);
+
+            return;
+        }
 
         while (it.hasNext()) {
             Row row = it.getNextRow();
@@ -455,7 +481,7 @@ public abstract class RowStoreAVL implements PersistentStore {
         return false;
     }
 
-    public void moveDataToSpace() {}
+    public void moveDataToSpace(TableSpaceManager newSpace) {}
 
     /**
      * Moves the data from an old store to new after changes to table
@@ -482,7 +508,16 @@ public abstract class RowStoreAVL implements PersistentStore {
 
         try {
             Table       table = (Table) this.table;
-            RowIterator it    = other.rowIterator();
+            RowIterator it         = other.rowIterator();
+            int[]       keyColumns = getKeyColumns(indexList);
+            boolean bulk = isBulkIndexing(other.elementCount(), indexList,
+                                          keyColumns);
+            Object[]    rows       = null;
+            int         count      = 0;
+
+            if (bulk) {
+                rows = new Object[(int) other.elementCount()];
+            }
 
             while (it.hasNext()) {
                 Row      row      = it.getNextRow();
@@ -510,7 +545,17 @@ public abstract class RowStoreAVL implements PersistentStore {
                 // get object without RowAction
                 Row newrow = (Row) getNewCachedObject(session, data, false);
 
-                indexRow(session, newrow);
+                if (bulk) {
+                    rows = addBuildRow(rows, count++, newrow, data,
+                                       keyColumns);
+                } else {
+                    indexRow(session, newrow);
+                }
+            }
+
+            if (bulk) {
+                buildIndexes(session, indexList, rows, count, keyColumns);
+                elementCount.set(count);
             }
 
             if (table.isTemp()) {
@@ -553,7 +598,25 @@ public abstract class RowStoreAVL implements PersistentStore {
 
         setAccessor(index, null);
 
-        RowIterator it = table.rowIterator(this);
+        RowIterator it         = table.rowIterator(this);
+        Index[]     indexes    = new Index[]{ index };
+        int[]       keyColumns = index.getColumns();
+
+        if (isBulkIndexing(elementCount(), indexes, keyColumns)) {
+            Object[] rows  = new Object[(int) elementCount()];
+            int      count = 0;
+
+            while (it.hasNext()) {
+                Row row = it.getNextRow();
+
+                rows = addBuildRow(rows, count++, row, row.getData(),
+                                   keyColumns);
+            }
+
+            buildIndexes(session, indexes, rows, count, keyColumns);
+
+            return;
+        }
 
         while (it.hasNext()) {
             RowAVL row = (RowAVL) it.getNextRow();
@@ -563,6 +626,119 @@ public abstract class RowStoreAVL implements PersistentStore {
         }
     }
 
+    /**
+     * Bulk building of indexes is used for all tables except TEXT tables,
+     * whose rows are reloaded from the source file and can be read only by
+     * the thread that holds the cache. It is used only if the estimated
+     * size of the arrays sorted for the indexes, together with the detached
+     * rows used for disk rows, is less than half of the free memory.
+     * Otherwise each row is inserted into the indexes in turn.
+     */
+    boolean isBulkIndexing(long rowCount, Index[] indexes,
+                           int[] keyColumns) {
+
+        if (table.getTableType() == TableBase.TEXT_TABLE) {
+            return false;
+        }
+
+        // an array slot and the sort and merge buffers for each index
+        long rowSize = indexes.length * 24L;
+
+        if (!isMemory()) {
+            rowSize += 64 + keyColumns.length * 8L;
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        long freeMemory = runtime.maxMemory() - runtime.totalMemory()
+                          + runtime.freeMemory();
+
+        return rowCount * rowSize < freeMemory / 2;
+    }
+
+    /**
+     * Returns the distinct columns of the indexes, which are the columns
+     * whose values are kept in the detached rows used for disk rows.
+     */
+    static int[] getKeyColumns(Index[] indexes) {
+
+        OrderedIntHashSet set = new OrderedIntHashSet();
+
+        for (int i = 0; i < indexes.length; i++) {
+            int[] cols = indexes[i].getColumns();
+
+            for (int j = 0; j < cols.length; j++) {
+                set.add(cols[j]);
+            }
+        }
+
+        return set.toArray();
+    }
+
+    /**
+     * Adds a row to the array of rows used for building indexes, enlarging
+     * the array if necessary. Memory rows are added as they are. Disk rows
+     * can be removed from the cache during the build, so a detached row at
+     * the same position holding the values of keyColumns is added instead.
+     */
+    Object[] addBuildRow(Object[] rows, int count, Row row, Object[] data,
+                         int[] keyColumns) {
+
+        if (count == rows.length) {
+            rows = (Object[]) ArrayUtil.resizeArray(rows, count * 2 + 16);
+        }
+
+        if (!row.isMemory()) {
+            Object[] keyData = new Object[keyColumns.length];
+
+            for (int i = 0; i < keyColumns.length; i++) {
+                keyData[i] = data[keyColumns[i]];
+            }
+
+            Row keyRow = new Row(table, keyData);
+
+            keyRow.setPos(row.getPos());
+
+            row = keyRow;
+        }
+
+        rows[count] = row;
+
+        return rows;
+    }
+
+    /**
+     * Builds the indexes from an array of rows that are not yet linked in
+     * them. The indexes each sort a copy of the array on a separate
+     * thread, then link the sorted rows into a balanced tree.
+     */
+    void buildIndexes(Session session, Index[] indexes, Object[] rows,
+                      int count, int[] keyColumns) {
+
+        if (indexes.length == 0) {
+            return;
+        }
+
+        Object[][]   arrays      = new Object[indexes.length][];
+        Comparator[] comparators = new Comparator[indexes.length];
+
+        for (int i = 0; i < indexes.length; i++) {
+            arrays[i] = i == 0 ? rows
+                               : (Object[]) ArrayUtil.duplicateArray(rows);
+            comparators[i] = ((IndexAVL) indexes[i]).getRowComparator(session,
+                    keyColumns);
+        }
+
+        ArraySort.sortParallel(arrays, count, comparators,
+                               Runtime.getRuntime().availableProcessors());
+
+        for (int i = 0; i < indexes.length; i++) {
+            ((IndexAVL) indexes[i]).buildFromSortedRows(session, this,
+                    arrays[i], count, keyColumns);
+
+            arrays[i] = null;
+        }
+    }
+
     public void setReadOnly(boolean readOnly) {}
 
     public void writeLock() {}
@@ -598,19 +774,38 @@ public abstract class RowStoreAVL implements PersistentStore {
         HsqlException error    = null;
 
         try {
+            Index[]  indexes    = new Index[]{ newIndex };
+            int[]    keyColumns = newIndex.getColumns();
+            boolean  bulk = isBulkIndexing(elementCount(), indexes,
+                                           keyColumns);
+            Object[] rows       = null;
+
+            if (bulk) {
+                rows = new Object[(int) elementCount()];
+            }
+
             while (it.hasNext()) {
                 Row row = it.getNextRow();
 
                 ((RowAVL) row).insertNode(position);
 
                 // count before inserting
-                rowCount++;
+                if (bulk) {
+                    rows = addBuildRow(rows, rowCount++, row, row.getData(),
+                                       keyColumns);
+                } else {
+                    rowCount++;
 
-                newIndex.insert(session, this, row);
+                    newIndex.insert(session, this, row);
+                }
             }
 
             it.release();
 
+            if (bulk) {
+                buildIndexes(session, indexes, rows, rowCount, keyColumns);
+            }
+
             return true;
         } catch (java.lang.OutOfMemoryError e) {
             error = Error.error(ErrorCode.OUT_OF_MEMORY);
@@ -221,24 +221,14 @@ public class RowStoreAVLDisk extends RowStoreAVL implements PersistentStore {
     public void commitRow(Session session, Row row, int changeAction,
                           int txModel) {
 
-        Object[] data = row.getData();
-
         switch (changeAction) {
 
             case RowAction.ACTION_DELETE :
-                database.logger.writeDeleteStatement(session, (Table) table,
-                                                     data);
-
                 if (txModel == TransactionManager.LOCKS) {
                     remove(row);
                 }
                 break;
 
-            case RowAction.ACTION_INSERT :
-                database.logger.writeInsertStatement(session, row,
-                                                     (Table) table);
-                break;
-
             case RowAction.ACTION_INSERT_DELETE :
 
                 // INSERT + DELETE
@@ -363,54 +353,83 @@ public class RowStoreAVLDisk extends RowStoreAVL implements PersistentStore {
 
     public void setReadOnly(boolean readOnly) {}
 
-    public void moveDataToSpace() {
-
-        Table table    = (Table) this.table;
-        long  rowCount = elementCount();
+    /**
+     * Moves all the rows of the table to the given space and releases the
+     * space used by the rows at their old positions. The rows are written
+     * directly to the file with the index pointers translated to the new
+     * positions. Used for online compaction of one table at a time while the
+     * rest of the database remains in use.
+     */
+    public void moveDataToSpace(TableSpaceManager newSpace) {
 
-        if (rowCount == 0) {
-            return;
-        }
+        Table             table    = (Table) this.table;
+        TableSpaceManager oldSpace = tableSpace;
+        long              rowCount = elementCount();
 
         if (rowCount > Integer.MAX_VALUE) {
-
-            // error too big
-            return;
+            throw Error.error(ErrorCode.DATA_FILE_IS_FULL);
         }
 
         DoubleIntIndex pointerLookup = new DoubleIntIndex((int) rowCount,
             true);
+        DoubleIntIndex spaceList = new DoubleIntIndex((int) rowCount,
+            true);
 
         pointerLookup.setKeysSearchTarget();
         cache.writeLock.lock();
 
         try {
-            moveDataToSpace(this, cache, tableSpace, pointerLookup);
+            RowIterator it = rowIterator();
+
+            while (it.hasNext()) {
+                Row       row    = it.getNextRow();
+                RowAction action = row.rowAction;
+
+                if (action != null
+                        && action.getType() != RowAction.ACTION_NONE) {
+                    throw Error.error(ErrorCode.X_25001);
+                }
+
+                spaceList.addUnsorted(row.getPos(), row.getStorageSize());
+            }
+
+            if (spaceList.size() > 0) {
+                cache.setFileModified();
+                moveDataToSpace(this, cache, newSpace, pointerLookup);
+            }
 
             CachedObject[] newAccessorList =
                 new CachedObject[accessorList.length];
 
             for (int i = 0; i < accessorList.length; i++) {
-                long pos = pointerLookup.lookup(accessorList[i].getPos());
+                if (accessorList[i] == null) {
+                    continue;
+                }
+
+                long pos = pointerLookup.lookup(accessorList[i].getPos(), -1);
 
                 if (pos == -1) {
                     throw Error.error(ErrorCode.DATA_FILE_ERROR);
                 }
 
-                newAccessorList[i] = cache.get(pos, this, false);
-            }
+                CachedObject row = cache.get(pos, this, false);
 
-            RowIterator it = rowIterator();
+                newAccessorList[i] = ((RowAVL) row).getNode(i);
+            }
 
-            // todo - check this - must remove from old space, not new one
-            while (it.hasNext()) {
-                Row row = it.getNextRow();
+            for (int i = 0; i < spaceList.size(); i++) {
+                long pos = spaceList.getKey(i);
 
-                cache.remove(row);
-                tableSpace.release(row.getPos(), row.getStorageSize());
+                cache.release(pos);
+                oldSpace.release(pos, spaceList.getValue(i));
             }
 
             accessorList = newAccessorList;
+            tableSpace   = newSpace;
+
+            if (!oldSpace.isDefaultSpace()) {
+                cache.spaceManager.freeTableSpace(oldSpace.getSpaceID());
+            }
         } finally {
             cache.writeLock.unlock();
         }
@@ -432,8 +451,11 @@ public class RowStoreAVLDisk extends RowStoreAVL implements PersistentStore {
                 false);
 
             pointerLookup.addUnsorted(row.getPos(), newPos);
+            cache.copyShadow(newPos, row.getStorageSize());
         }
 
+        cache.synchShadow();
+
         it = store.rowIterator();
 
         while (it.hasNext()) {
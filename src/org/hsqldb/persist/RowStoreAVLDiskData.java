@@ -111,13 +111,26 @@ public class RowStoreAVLDiskData extends RowStoreAVL {
 
     public CachedObject get(RowInputInterface in) {
 
+        RowAVLDiskData row = readRow(in);
+
+        ((TextCache) cache).addInit(row);
+
+        return row;
+    }
+
+    /**
+     * Returns a row read from the source of the row input, without adding
+     * it to the cache. Can be called from several threads, each with its own
+     * row input.
+     */
+    public RowAVLDiskData readRow(RowInputInterface in) {
+
         try {
             RowAVLDiskData row = new RowAVLDiskData(this, table, in);
 
             row.setPos(in.getPos());
             row.setStorageSize(in.getSize());
             row.setChanged(false);
-            ((TextCache) cache).addInit(row);
 
             return row;
         } catch (IOException e) {
@@ -132,25 +132,8 @@ public class RowStoreAVLMemory extends RowStoreAVL implements PersistentStore {
     public void commitRow(Session session, Row row, int changeAction,
                           int txModel) {
 
-        Object[] data = row.getData();
-
         switch (changeAction) {
 
-            case RowAction.ACTION_DELETE :
-                database.logger.writeDeleteStatement(session, (Table) table,
-                                                     data);
-                break;
-
-            case RowAction.ACTION_INSERT :
-                database.logger.writeInsertStatement(session, row,
-                                                     (Table) table);
-                break;
-
-            case RowAction.ACTION_INSERT_DELETE :
-
-                // INSERT + DELETE
-                break;
-
             case RowAction.ACTION_DELETE_FINAL :
                 delete(session, row);
                 break;
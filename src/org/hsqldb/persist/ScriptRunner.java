@@ -47,11 +47,17 @@ import org.hsqldb.StatementTypes;
 import org.hsqldb.Table;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.HsqlArrayList;
+import org.hsqldb.lib.HsqlDeque;
 import org.hsqldb.lib.IntKeyHashMap;
+import org.hsqldb.lib.IntValueHashMap;
+import org.hsqldb.lib.Iterator;
 import org.hsqldb.lib.StopWatch;
 import org.hsqldb.map.ValuePool;
 import org.hsqldb.result.Result;
+import org.hsqldb.rowio.RowInputTextLog;
 import org.hsqldb.scriptio.ScriptReaderBase;
+import org.hsqldb.scriptio.ScriptReaderBinaryLog;
 import org.hsqldb.scriptio.ScriptReaderDecode;
 import org.hsqldb.scriptio.ScriptReaderText;
 import org.hsqldb.types.Type;
@@ -60,7 +66,21 @@ import org.hsqldb.types.Type;
  * Restores the state of a Database instance from an SQL log file. <p>
  *
  * If there is an error, processing stops at that line and the message is
- * logged to the application log. If memory runs out, an exception is thrown.
+ * logged to the application log. If memory runs out, an exception is thrown.<p>
+ *
+ * With the hsqldb.parallel_log_replay property, the row data of INSERT and
+ * DELETE statements is buffered for each logged session until its COMMIT.
+ * The committed changes are then passed to a set of worker threads, each of
+ * which decodes and applies the changes to a subset of the tables. The
+ * changes to each table are applied in commit order by the same worker.
+ * Other statements, such as DDL, are executed after all the workers have
+ * finished and the pending changes of all the sessions are applied.<p>
+ *
+ * If a worker fails to apply a change, all the workers stop before their
+ * next batch. Other workers may already have applied later commits, so the
+ * state is not a prefix of the log, and the replay fails even if
+ * hsqldb.full_log_replay is false. The database can then be opened with
+ * parallel replay turned off, which stops at the failed statement.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
  * @version 2.2.7
@@ -100,7 +120,11 @@ public class ScriptRunner {
 
         try {
             if (crypto == null) {
-                scr = new ScriptReaderText(database, logFilename, false);
+                if (ScriptReaderBinaryLog.isBinaryLog(database, logFilename)) {
+                    scr = new ScriptReaderBinaryLog(database, logFilename);
+                } else {
+                    scr = new ScriptReaderText(database, logFilename, false);
+                }
             } else {
                 scr = new ScriptReaderDecode(database, logFilename, crypto,
                                              true);
@@ -136,6 +160,9 @@ public class ScriptRunner {
         String databaseFile = database.getPath();
         boolean fullReplay = database.getURLProperties().isPropertyTrue(
             HsqlDatabaseProperties.hsqldb_full_log_replay);
+        boolean parallelReplay = database.getURLProperties().isPropertyTrue(
+            HsqlDatabaseProperties.hsqldb_parallel_log_replay);
+        ParallelReplay replay = null;
 
         dummy.setCompileTimestamp(Long.MAX_VALUE);
         database.setReferentialIntegrity(false);
@@ -143,6 +170,13 @@ public class ScriptRunner {
         try {
             StopWatch sw = new StopWatch();
 
+            if (parallelReplay && !database.getProperties().isVersion18()) {
+                int threads = Runtime.getRuntime().availableProcessors() - 1;
+
+                replay = new ParallelReplay(database, scr, dummy,
+                                            Math.max(threads, 1));
+            }
+
             while (scr.readLoggedStatement(current)) {
                 int sessionId = scr.getSessionNumber();
 
@@ -162,6 +196,10 @@ public class ScriptRunner {
                 if (current.isClosed()) {
                     sessionMap.remove(currentId);
 
+                    if (replay != null) {
+                        replay.removeSession(currentId);
+                    }
+
                     continue;
                 }
 
@@ -174,6 +212,10 @@ public class ScriptRunner {
                     case ScriptReaderBase.ANY_STATEMENT :
                         statement = scr.getLoggedStatement();
 
+                        if (replay != null) {
+                            replay.applyAll(sessionMap);
+                        }
+
                         Statement cs;
 
                         try {
@@ -217,36 +259,22 @@ public class ScriptRunner {
 
                     case ScriptReaderBase.COMMIT_STATEMENT :
                         current.commit(false);
-                        break;
-
-                    case ScriptReaderBase.INSERT_STATEMENT : {
-                        current.sessionContext.currentStatement = dummy;
-
-                        current.beginAction(dummy);
-
-                        Object[] data = scr.getData();
-
-                        scr.getCurrentTable().insertNoCheckFromLog(current,
-                                data);
-                        current.endAction(Result.updateOneResult);
 
+                        if (replay != null) {
+                            replay.commit(currentId);
+                        }
                         break;
-                    }
-                    case ScriptReaderBase.DELETE_STATEMENT : {
-                        current.sessionContext.currentStatement = dummy;
-
-                        current.beginAction(dummy);
 
-                        Table           table = scr.getCurrentTable();
-                        PersistentStore store = table.getRowStore(current);
-                        Object[]        data  = scr.getData();
-                        Row row = table.getDeleteRowFromLog(current, data);
+                    case ScriptReaderBase.INSERT_STATEMENT :
+                    case ScriptReaderBase.DELETE_STATEMENT : {
+                        if (replay != null) {
+                            replay.add(currentId, scr);
 
-                        if (row != null) {
-                            current.addDeleteAction(table, store, row, null);
+                            break;
                         }
 
-                        current.endAction(Result.updateOneResult);
+                        replayRow(current, dummy, statementType,
+                                  scr.getCurrentTable(), scr.getData());
 
                         break;
                     }
@@ -266,22 +294,31 @@ public class ScriptRunner {
 
                 if (current.isClosed()) {
                     sessionMap.remove(currentId);
+
+                    if (replay != null) {
+                        replay.removeSession(currentId);
+                    }
                 }
             }
+
+            if (replay != null) {
+                replay.waitForWorkers();
+            }
         } catch (HsqlException e) {
 
             // stop processing on bad log line
+            boolean workerError = hasWorkerError(replay);
             String error = "statement error processing log " + databaseFile
-                           + "line: " + scr.getLineNumber();
+                           + "line: " + getErrorLine(scr, replay);
 
             database.logger.logSevereEvent(error, e);
 
-            if (fullReplay) {
+            if (fullReplay || workerError) {
                 throw Error.error(e, ErrorCode.ERROR_IN_SCRIPT_FILE, error);
             }
         } catch (OutOfMemoryError e) {
             String error = "out of memory processing log" + databaseFile
-                           + " line: " + scr.getLineNumber();
+                           + " line: " + getErrorLine(scr, replay);
 
             // catch out-of-memory errors and terminate
             database.logger.logSevereEvent(error, e);
@@ -290,15 +327,20 @@ public class ScriptRunner {
         } catch (Throwable e) {
 
             // stop processing on bad script line
+            boolean workerError = hasWorkerError(replay);
             String error = "statement error processing log " + databaseFile
-                           + "line: " + scr.getLineNumber();
+                           + "line: " + getErrorLine(scr, replay);
 
             database.logger.logSevereEvent(error, e);
 
-            if (fullReplay) {
+            if (fullReplay || workerError) {
                 throw Error.error(e, ErrorCode.ERROR_IN_SCRIPT_FILE, error);
             }
         } finally {
+            if (replay != null) {
+                replay.close();
+            }
+
             if (scr != null) {
                 scr.close();
             }
@@ -307,4 +349,420 @@ public class ScriptRunner {
             database.setReferentialIntegrity(true);
         }
     }
+
+    /**
+     * Lets the workers apply the commits queued before the error, then
+     * returns true if any worker failed. The workers are closed by the
+     * caller.
+     */
+    private static boolean hasWorkerError(ParallelReplay replay) {
+
+        if (replay == null) {
+            return false;
+        }
+
+        try {
+            replay.waitForWorkers();
+        } catch (HsqlException e) {}
+
+        return replay.error != null;
+    }
+
+    /**
+     * Returns the line of the record that failed when it was replayed out
+     * of order, otherwise the line last read.
+     */
+    private static int getErrorLine(ScriptReaderBase scr,
+                                    ParallelReplay replay) {
+
+        if (replay != null && replay.errorLine > 0) {
+            return replay.errorLine;
+        }
+
+        return scr.getLineNumber();
+    }
+
+    static void replayRow(Session session, Statement dummy, int type,
+                          Table table, Object[] data) {
+
+        session.sessionContext.currentStatement = dummy;
+
+        session.beginAction(dummy);
+
+        if (type == ScriptReaderBase.INSERT_STATEMENT) {
+            table.insertNoCheckFromLog(session, data);
+        } else {
+            PersistentStore store = table.getRowStore(session);
+            Row             row   = table.getDeleteRowFromLog(session, data);
+
+            if (row != null) {
+                session.addDeleteAction(table, store, row, null);
+            }
+        }
+
+        session.endAction(Result.updateOneResult);
+    }
+
+    /**
+     * A logged INSERT or DELETE. The data is null when it is read later
+     * from the statement.
+     */
+    static class LogRow {
+
+        final int      type;
+        final Table    table;
+        final Object[] data;
+        final String   statement;
+        final int      lineNumber;
+
+        LogRow(int type, Table table, Object[] data, String statement,
+               int lineNumber) {
+
+            this.type       = type;
+            this.table      = table;
+            this.data       = data;
+            this.statement  = statement;
+            this.lineNumber = lineNumber;
+        }
+
+        Object[] getData(RowInputTextLog rowIn) {
+
+            if (data == null) {
+                return ScriptReaderText.readDeferredData(rowIn, statement,
+                        table);
+            }
+
+            return data;
+        }
+    }
+
+    /**
+     * Buffers the changes of each logged session and applies the committed
+     * changes with ReplayWorker threads.
+     */
+    static class ParallelReplay {
+
+        final Database         database;
+        final ScriptReaderText textReader;
+        final Statement        dummy;
+        final ReplayWorker[]   workers;
+        final RowInputTextLog  rowIn;
+        final IntKeyHashMap    pendingRows  = new IntKeyHashMap();
+        final IntValueHashMap  tableWorkers = new IntValueHashMap();
+        volatile Throwable     error;
+        volatile int           errorLine;
+
+        ParallelReplay(Database database, ScriptReaderBase scr,
+                       Statement dummy, int threads) {
+
+            this.database = database;
+            this.dummy    = dummy;
+            textReader    = scr instanceof ScriptReaderText
+                            ? (ScriptReaderText) scr
+                            : null;
+
+            if (textReader == null) {
+                rowIn = null;
+            } else {
+                textReader.setDeferData(true);
+
+                rowIn = textReader.newRowInput();
+            }
+
+            workers = new ReplayWorker[threads];
+
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new ReplayWorker(this);
+
+                Thread thread = new Thread(workers[i],
+                                           "HSQLDB Log Replay Worker");
+
+                thread.setDaemon(true);
+                thread.start();
+
+                workers[i].thread = thread;
+            }
+        }
+
+        RowInputTextLog newRowInput() {
+            return textReader == null ? null
+                                      : textReader.newRowInput();
+        }
+
+        void add(int sessionId, ScriptReaderBase scr) {
+
+            HsqlArrayList list = (HsqlArrayList) pendingRows.get(sessionId);
+
+            if (list == null) {
+                list = new HsqlArrayList();
+
+                pendingRows.put(sessionId, list);
+            }
+
+            Object[] data      = scr.getData();
+            String   statement = data == null ? scr.getLoggedStatement()
+                                              : null;
+
+            list.add(new LogRow(scr.getStatementType(), scr.getCurrentTable(),
+                                data, statement, scr.getLineNumber()));
+        }
+
+        void removeSession(int sessionId) {
+            pendingRows.remove(sessionId);
+        }
+
+        /**
+         * Passes the changes of a committed session to the workers. The
+         * changes of each table go to the same worker.
+         */
+        void commit(int sessionId) {
+
+            HsqlArrayList list =
+                (HsqlArrayList) pendingRows.remove(sessionId);
+
+            if (list == null) {
+                return;
+            }
+
+            HsqlArrayList[] batches = new HsqlArrayList[workers.length];
+
+            for (int i = 0; i < list.size(); i++) {
+                LogRow logRow = (LogRow) list.get(i);
+                int index = tableWorkers.get(logRow.table, -1);
+
+                if (index == -1) {
+                    index = tableWorkers.size() % workers.length;
+
+                    tableWorkers.put(logRow.table, index);
+                }
+
+                if (batches[index] == null) {
+                    batches[index] = new HsqlArrayList();
+                }
+
+                batches[index].add(logRow);
+            }
+
+            for (int i = 0; i < workers.length; i++) {
+                if (batches[i] != null) {
+                    workers[i].add(batches[i]);
+                }
+            }
+        }
+
+        /**
+         * Waits for the workers, then applies the pending changes of each
+         * session to the session, as in a sequential replay. Called before
+         * executing a statement that may depend on the changes.
+         */
+        void applyAll(IntKeyHashMap sessionMap) {
+
+            waitForWorkers();
+
+            Iterator it = pendingRows.keySet().iterator();
+
+            while (it.hasNext()) {
+                int           sessionId = it.nextInt();
+                Session       session   = (Session) sessionMap.get(sessionId);
+                HsqlArrayList list = (HsqlArrayList) pendingRows.get(sessionId);
+
+                for (int i = 0; i < list.size(); i++) {
+                    LogRow logRow = (LogRow) list.get(i);
+
+                    // kept if the row fails
+                    errorLine = logRow.lineNumber;
+
+                    replayRow(session, dummy, logRow.type, logRow.table,
+                              logRow.getData(rowIn));
+                }
+            }
+
+            pendingRows.clear();
+            tableWorkers.clear();
+
+            errorLine = 0;
+        }
+
+        void waitForWorkers() {
+
+            for (int i = 0; i < workers.length; i++) {
+                workers[i].waitForIdle();
+            }
+        }
+
+        /**
+         * Records the first error of any worker and the line of the record
+         * that failed, then wakes the threads waiting on the workers, so
+         * that none of them waits for a stopped worker.
+         */
+        void setError(Throwable t, int lineNumber) {
+
+            synchronized (this) {
+                if (error == null) {
+                    error     = t;
+                    errorLine = lineNumber;
+                }
+            }
+
+            for (int i = 0; i < workers.length; i++) {
+                synchronized (workers[i]) {
+                    workers[i].notifyAll();
+                }
+            }
+        }
+
+        void checkError() {
+
+            Throwable t = error;
+
+            if (t == null) {
+                return;
+            }
+
+            if (t instanceof HsqlException) {
+                throw (HsqlException) t;
+            }
+
+            throw Error.error(ErrorCode.GENERAL_ERROR, t);
+        }
+
+        void close() {
+
+            for (int i = 0; i < workers.length; i++) {
+                workers[i].close();
+            }
+
+            for (int i = 0; i < workers.length; i++) {
+                try {
+                    workers[i].thread.join();
+                } catch (InterruptedException e) {}
+            }
+        }
+    }
+
+    /**
+     * Applies batches of committed changes in its own session.
+     */
+    static class ReplayWorker implements Runnable {
+
+        static final int maxQueuedRows = 1 << 16;
+
+        //
+        final ParallelReplay  replay;
+        final Session         session;
+        final RowInputTextLog rowIn;
+        final HsqlDeque       queue = new HsqlDeque();
+        Thread                thread;
+        int                   queuedRows;
+        boolean               isBusy;
+        boolean               isClosed;
+
+        ReplayWorker(ParallelReplay replay) {
+
+            this.replay = replay;
+            session =
+                replay.database.getSessionManager().newSessionForLog(
+                    replay.database);
+            rowIn = replay.newRowInput();
+        }
+
+        synchronized void add(HsqlArrayList batch) {
+
+            while (queuedRows > maxQueuedRows && replay.error == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {}
+            }
+
+            replay.checkError();
+            queue.add(batch);
+
+            queuedRows += batch.size();
+
+            notifyAll();
+        }
+
+        synchronized void waitForIdle() {
+
+            while ((isBusy || !queue.isEmpty()) && replay.error == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {}
+            }
+
+            replay.checkError();
+        }
+
+        /**
+         * The worker stops after applying the batches already queued.
+         */
+        synchronized void close() {
+
+            isClosed = true;
+
+            notifyAll();
+        }
+
+        public void run() {
+
+            while (true) {
+                HsqlArrayList batch;
+
+                synchronized (this) {
+                    while (queue.isEmpty() && !isClosed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {}
+                    }
+
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+
+                    // no batch is started after any worker has failed
+                    if (replay.error != null) {
+                        queue.clear();
+
+                        queuedRows = 0;
+
+                        notifyAll();
+
+                        continue;
+                    }
+
+                    batch  = (HsqlArrayList) queue.removeFirst();
+                    isBusy = true;
+                }
+
+                Throwable t          = null;
+                int       lineNumber = 0;
+
+                try {
+                    for (int i = 0; i < batch.size(); i++) {
+                        LogRow logRow = (LogRow) batch.get(i);
+
+                        lineNumber = logRow.lineNumber;
+
+                        replayRow(session, replay.dummy, logRow.type,
+                                  logRow.table, logRow.getData(rowIn));
+                    }
+
+                    session.commit(false);
+                } catch (Throwable e) {
+                    t = e;
+                }
+
+                if (t != null) {
+                    replay.setError(t, lineNumber);
+                }
+
+                synchronized (this) {
+                    isBusy     = false;
+                    queuedRows -= batch.size();
+
+                    notifyAll();
+                }
+            }
+        }
+    }
 }
@@ -184,7 +184,7 @@ public abstract class SimpleStore implements PersistentStore {
         return null;
     }
 
-    public void moveDataToSpace() {}
+    public void moveDataToSpace(TableSpaceManager newSpace) {}
 
     public void moveData(Session session, PersistentStore other, int colindex,
                          int adjust) {}
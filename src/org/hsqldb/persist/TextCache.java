@@ -42,6 +42,7 @@ import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.FileUtil;
 import org.hsqldb.lib.HsqlByteArrayOutputStream;
 import org.hsqldb.lib.LongKeyHashMap;
+import org.hsqldb.rowio.RowInputInterface;
 import org.hsqldb.rowio.RowInputText;
 import org.hsqldb.rowio.RowInputTextQuoted;
 import org.hsqldb.rowio.RowOutputText;
@@ -80,6 +81,7 @@ public class TextCache extends DataFileCache {
     protected Table           table;
     private LongKeyHashMap    uncommittedCache;
     HsqlByteArrayOutputStream buffer = new HsqlByteArrayOutputStream(128);
+    private TextFileReader    reader;
 
     //
 
@@ -123,19 +125,15 @@ public class TextCache extends DataFileCache {
 
     protected void initBuffers() {
 
+        rowIn = getNewRowInput();
+
         if (textFileSettings.isQuoted || textFileSettings.isAllQuoted) {
-            rowIn = new RowInputTextQuoted(textFileSettings.fs,
-                                           textFileSettings.vs,
-                                           textFileSettings.lvs,
-                                           textFileSettings.isAllQuoted);
             rowOut = new RowOutputTextQuoted(textFileSettings.fs,
                                              textFileSettings.vs,
                                              textFileSettings.lvs,
                                              textFileSettings.isAllQuoted,
                                              textFileSettings.stringEncoding);
         } else {
-            rowIn = new RowInputText(textFileSettings.fs, textFileSettings.vs,
-                                     textFileSettings.lvs, false);
             rowOut = new RowOutputText(textFileSettings.fs,
                                        textFileSettings.vs,
                                        textFileSettings.lvs, false,
@@ -143,6 +141,23 @@ public class TextCache extends DataFileCache {
         }
     }
 
+    /**
+     * Returns a new row input for the settings of this file. Used by each
+     * thread that reads rows in parallel.
+     */
+    public RowInputInterface getNewRowInput() {
+
+        if (textFileSettings.isQuoted || textFileSettings.isAllQuoted) {
+            return new RowInputTextQuoted(textFileSettings.fs,
+                                          textFileSettings.vs,
+                                          textFileSettings.lvs,
+                                          textFileSettings.isAllQuoted);
+        }
+
+        return new RowInputText(textFileSettings.fs, textFileSettings.vs,
+                                textFileSettings.lvs, false);
+    }
+
     /**
      *  Opens a data source file.
      */
@@ -301,6 +316,8 @@ public class TextCache extends DataFileCache {
             dataFile.write(out.getBuffer(), 0, out.size());
         } catch (Throwable t) {
             throw Error.runtimeError(ErrorCode.U_S0500, t.getMessage());
+        } finally {
+            clearReadBuffer();
         }
     }
 
@@ -392,6 +409,7 @@ public class TextCache extends DataFileCache {
         try {
             setFileModified();
             saveRowNoLock(row);
+            clearReadBuffer();
             uncommittedCache.remove(row.getPos());
             cache.put(row);
         } catch (Throwable e) {
@@ -448,6 +466,19 @@ public class TextCache extends DataFileCache {
             fileFreePosition = buf.length;
         } catch (Throwable t) {
             throw Error.error(ErrorCode.TEXT_FILE_IO, t);
+        } finally {
+            clearReadBuffer();
+        }
+    }
+
+    /**
+     * The reader keeps part of the file in its own buffer, which is not
+     * valid after the file is written.
+     */
+    private void clearReadBuffer() {
+
+        if (reader != null) {
+            reader.clearReadBuffer();
         }
     }
 
@@ -468,7 +499,10 @@ public class TextCache extends DataFileCache {
     }
 
     public TextFileReader getTextFileReader() {
-        return new TextFileReader(dataFile, textFileSettings, rowIn,
-                                  cacheReadonly);
+
+        reader = new TextFileReader(dataFile, textFileSettings, rowIn,
+                                    cacheReadonly);
+
+        return reader;
     }
 }
@@ -32,7 +32,7 @@
 package org.hsqldb.persist;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
@@ -50,12 +50,27 @@ import org.hsqldb.rowio.RowInputText;
 */
 public class TextFileReader {
 
+    static final int readBufferSize = 1 << 16;
+
+    //
     private RandomAccessInterface     dataFile;
     private RowInputInterface         rowIn;
     private TextFileSettings          textFileSettings;
     private String                    header;
+    private String                    rowString;
     private boolean                   isReadOnly;
     private HsqlByteArrayOutputStream buffer;
+    private Charset                   charset;
+
+    // line ends read so far and the line where the last row read starts
+    private int lineCount;
+    private int lineNumber;
+
+    // the file is read in large chunks into readBuffer
+    private byte[] readBuffer;
+    private long   readBufferPosition;
+    private int    readBufferLength;
+    private long   readPosition;
 
     TextFileReader(RandomAccessInterface dataFile,
                    TextFileSettings textFileSettings, RowInputInterface rowIn,
@@ -66,6 +81,11 @@ public class TextFileReader {
         this.rowIn            = rowIn;
         this.isReadOnly       = isReadOnly;
         this.buffer           = new HsqlByteArrayOutputStream(128);
+        this.readBuffer       = new byte[readBufferSize];
+
+        try {
+            charset = Charset.forName(textFileSettings.stringEncoding);
+        } catch (Exception e) {}
     }
 
     public RowInputInterface readObject(long pos) {
@@ -83,11 +103,13 @@ public class TextFileReader {
             return null;
         }
 
+        lineNumber = lineCount + 1;
+
         try {
-            dataFile.seek(pos);
+            readPosition = pos;
 
             while (!complete) {
-                int c = dataFile.read();
+                int c = read();
 
                 wasNormal = false;
 
@@ -103,8 +125,7 @@ public class TextFileReader {
                     }
 
                     if (!isReadOnly) {
-                        dataFile.write(TextFileSettings.BYTES_LINE_SEP, 0,
-                                       TextFileSettings.BYTES_LINE_SEP.length);
+                        writeLineSeparator();
                         buffer.write(TextFileSettings.BYTES_LINE_SEP);
                     }
 
@@ -125,10 +146,18 @@ public class TextFileReader {
 
                     case TextFileSettings.CR_CHAR :
                         wasCR = !hasQuote;
+
+                        lineCount++;
                         break;
 
                     case TextFileSettings.LF_CHAR :
                         complete = !hasQuote;
+
+                        if (buffer.size() == 0
+                                || buffer.getBuffer()[buffer.size() - 1]
+                                   != TextFileSettings.CR_CHAR) {
+                            lineCount++;
+                        }
                         break;
 
                     default :
@@ -145,14 +174,7 @@ public class TextFileReader {
                     buffer.setPosition(buffer.size() - 1);
                 }
 
-                String rowString;
-
-                try {
-                    rowString =
-                        buffer.toString(textFileSettings.stringEncoding);
-                } catch (UnsupportedEncodingException e) {
-                    rowString = buffer.toString();
-                }
+                rowString = getBufferString();
 
                 ((RowInputText) rowIn).setSource(rowString, pos,
                                                  buffer.size());
@@ -174,11 +196,7 @@ public class TextFileReader {
 
         buffer.reset();
 
-        try {
-            dataFile.seek(0);
-        } catch (IOException e) {
-            throw Error.error(ErrorCode.TEXT_FILE_IO, e);
-        }
+        readPosition = 0;
 
         while (!complete) {
             wasNormal = false;
@@ -186,7 +204,7 @@ public class TextFileReader {
             int c;
 
             try {
-                c = dataFile.read();
+                c = read();
 
                 if (c == -1) {
                     if (buffer.size() == 0) {
@@ -196,8 +214,7 @@ public class TextFileReader {
                     complete = true;
 
                     if (!isReadOnly) {
-                        dataFile.write(TextFileSettings.BYTES_LINE_SEP, 0,
-                                       TextFileSettings.BYTES_LINE_SEP.length);
+                        writeLineSeparator();
                         buffer.write(TextFileSettings.BYTES_LINE_SEP);
                     }
 
@@ -234,11 +251,10 @@ public class TextFileReader {
             buffer.setPosition(buffer.size() - 1);
         }
 
-        try {
-            header = buffer.toString(textFileSettings.stringEncoding);
-        } catch (UnsupportedEncodingException e) {
-            header = buffer.toString();
-        }
+        header = getBufferString();
+
+        // the line end of the header is counted when the first row is found
+        lineCount = 0;
 
         return buffer.size();
     }
@@ -247,7 +263,7 @@ public class TextFileReader {
 
     /**
      * Searches from file pointer, pos, and finds the beginning of the first
-     * line that contains any non-space character. Increments the row counter
+     * line that contains any non-space character. Increments the line count
      * when a blank line is skipped.
      *
      * If none found return -1
@@ -259,10 +275,10 @@ public class TextFileReader {
             long     currentPos = pos;
             boolean wasCR      = false;
 
-            dataFile.seek(pos);
+            readPosition = pos;
 
             while (true) {
-                int c = dataFile.read();
+                int c = read();
 
                 currentPos++;
 
@@ -275,7 +291,7 @@ public class TextFileReader {
                     case TextFileSettings.LF_CHAR :
                         wasCR = false;
 
-                        ((RowInputText) rowIn).skippedLine();
+                        lineCount++;
 
                         firstPos = currentPos;
                         break;
@@ -284,7 +300,7 @@ public class TextFileReader {
                         if (wasCR) {
                             wasCR = false;
 
-                            ((RowInputText) rowIn).skippedLine();
+                            lineCount++;
                         }
                         break;
 
@@ -295,7 +311,7 @@ public class TextFileReader {
                         if (wasCR) {
                             wasCR = false;
 
-                            ((RowInputText) rowIn).skippedLine();
+                            lineCount++;
                         }
 
                         return firstPos;
@@ -306,11 +322,77 @@ public class TextFileReader {
         }
     }
 
+    /**
+     * Returns the next byte of the file from the read buffer, filling the
+     * buffer from the file when necessary, or -1 at the end of the file.
+     */
+    private int read() throws IOException {
+
+        long offset = readPosition - readBufferPosition;
+
+        if (offset < 0 || offset >= readBufferLength) {
+            long length = dataFile.length();
+
+            if (readPosition >= length) {
+                return -1;
+            }
+
+            readBufferLength = (int) Math.min(readBuffer.length,
+                                              length - readPosition);
+            readBufferPosition = readPosition;
+            offset             = 0;
+
+            dataFile.seek(readPosition);
+            dataFile.read(readBuffer, 0, readBufferLength);
+        }
+
+        readPosition++;
+
+        return readBuffer[(int) offset] & 0xff;
+    }
+
+    private void writeLineSeparator() throws IOException {
+
+        dataFile.seek(readPosition);
+        dataFile.write(TextFileSettings.BYTES_LINE_SEP, 0,
+                       TextFileSettings.BYTES_LINE_SEP.length);
+        clearReadBuffer();
+    }
+
+    /**
+     * Called after the file is written, so that the next read is from the
+     * file.
+     */
+    void clearReadBuffer() {
+        readBufferLength = 0;
+    }
+
+    private String getBufferString() {
+
+        if (charset == null) {
+            return buffer.toString();
+        }
+
+        return new String(buffer.getBuffer(), 0, buffer.size(), charset);
+    }
+
     public String getHeaderLine() {
         return header;
     }
 
+    /**
+     * Returns the line read by the last call to readObject().
+     */
+    public String getRowString() {
+        return rowString;
+    }
+
+    /**
+     * Returns the line of the file where the row read by the last call to
+     * readObject() starts, counting the header line, blank lines and line
+     * ends within quoted values. Valid when the file is read in sequence.
+     */
     public int getLineNumber() {
-        return ((RowInputText) rowIn).getLineNumber();
+        return lineNumber;
     }
 }
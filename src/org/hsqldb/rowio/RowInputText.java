@@ -162,21 +162,22 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
                 start = next;
             }
 
-            s    = text.substring(start, next);
-            next += sepLen;
+            int end  = next;
+            int last = end - 1;
 
-            int trimLength = s.trim().length();
+            next += sepLen;
 
-            if (trimLength == 0) {
-                s = null;
-            } else if (trimLength < s.length()) {
-                trimLength = s.length() - 1;
+            // blank fields are null, trailing control characters are removed
+            while (last >= start && text.charAt(last) <= ' ') {
+                last--;
+            }
 
-                while (s.charAt(trimLength) < ' ') {
-                    trimLength--;
+            if (last >= start) {
+                while (text.charAt(end - 1) < ' ') {
+                    end--;
                 }
 
-                s = s.substring(0, trimLength + 1);
+                s = text.substring(start, end);
             }
         } catch (Exception e) {
             Object[] messages = new Object[] {
@@ -0,0 +1,298 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hsqldb.scriptio;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+import org.hsqldb.Database;
+import org.hsqldb.Session;
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.FileAccess;
+import org.hsqldb.rowio.RowInputBinary;
+import org.hsqldb.types.Type;
+
+/**
+ * Reads back a log file written by ScriptWriterBinaryLog. Each record is
+ * checked against its length and CRC32 before it is used. A truncated or
+ * corrupt record is treated as the end of the log, which is the normal
+ * outcome when the database process stops during a log write.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class ScriptReaderBinaryLog extends ScriptReaderBase {
+
+    /**
+     * Record size limit when the length of the file is not known. Without
+     * the limit a corrupt length could cause a huge allocation.
+     */
+    static final int MAX_RECORD_SIZE = 1 << 28;
+
+    //
+    DataInputStream dataInput;
+    RowInputBinary  rowIn;
+    CRC32           crc = new CRC32();
+    long            fileLength;
+    long            filePosition;
+
+    public ScriptReaderBinaryLog(Database db,
+                                 String fileName) throws IOException {
+
+        super(db);
+
+        InputStream inputStream =
+            database.logger.getFileAccess().openInputStreamElement(fileName);
+
+        dataInput = new DataInputStream(new BufferedInputStream(inputStream,
+                1 << 16));
+        rowIn = new RowInputBinary(new byte[256]);
+
+        int magic   = dataInput.readInt();
+        int version = dataInput.readInt();
+
+        if (magic != ScriptWriterBinaryLog.LOG_MAGIC
+                || version != ScriptWriterBinaryLog.LOG_VERSION) {
+            dataInput.close();
+
+            throw Error.error(ErrorCode.FILE_IO_ERROR, fileName);
+        }
+
+        if (database.logger.isStoredFileAccess()) {
+            fileLength = -1;
+        } else {
+            fileLength = new File(fileName).length();
+        }
+
+        filePosition = ScriptWriterBinaryLog.LOG_HEADER_SIZE;
+    }
+
+    /**
+     * Returns true if the file starts with the binary log header
+     */
+    public static boolean isBinaryLog(Database db, String fileName) {
+
+        FileAccess fa = db.logger.getFileAccess();
+
+        if (!fa.isStreamElement(fileName)) {
+            return false;
+        }
+
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(fa.openInputStreamElement(fileName));
+
+            return in.readInt() == ScriptWriterBinaryLog.LOG_MAGIC;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException e) {}
+        }
+    }
+
+    protected void readDDL(Session session) {
+        throw Error.runtimeError(ErrorCode.U_S0500, "ScriptReaderBinaryLog");
+    }
+
+    protected void readExistingData(Session session) {
+        throw Error.runtimeError(ErrorCode.U_S0500, "ScriptReaderBinaryLog");
+    }
+
+    public boolean readLoggedStatement(Session session) {
+
+        if (!readRecord()) {
+            return false;
+        }
+
+        lineCount++;
+
+        try {
+            processRecord(session);
+        } catch (IOException e) {
+            throw Error.error(e, ErrorCode.FILE_IO_ERROR, null);
+        }
+
+        return true;
+    }
+
+    private boolean readRecord() {
+
+        int length;
+        int checksum;
+
+        try {
+            length   = dataInput.readInt();
+            checksum = dataInput.readInt();
+
+            if (length <= 0) {
+                return false;
+            }
+
+            filePosition += ScriptWriterBinaryLog.RECORD_HEADER_SIZE;
+
+            long limit = fileLength < 0 ? MAX_RECORD_SIZE
+                                        : fileLength - filePosition;
+
+            if (length > limit) {
+
+                // a corrupt or partly written length
+                database.logger.logWarningEvent(
+                    "bad log record length - end of log at record: "
+                    + lineCount, null);
+
+                return false;
+            }
+
+            rowIn.resetBlock(0, length);
+            dataInput.readFully(rowIn.getBuffer(), 0, length);
+
+            filePosition += length;
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            throw Error.error(e, ErrorCode.FILE_IO_ERROR, null);
+        }
+
+        crc.reset();
+        crc.update(rowIn.getBuffer(), 0, length);
+
+        if ((int) crc.getValue() != checksum) {
+            database.logger.logWarningEvent(
+                "log record checksum mismatch - end of log at record: "
+                + lineCount, null);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Sets the statement type and the contents of a record. A record with a
+     * valid checksum but an unknown type is an error.
+     */
+    private void processRecord(Session session) throws IOException {
+
+        int type = rowIn.readByte();
+
+        rowData      = null;
+        currentTable = null;
+        currentStore = null;
+
+        switch (type) {
+
+            case ScriptWriterBinaryLog.RECORD_SESSION_ID :
+                sessionNumber = (int) rowIn.readLong();
+                statementType = SESSION_ID;
+
+                return;
+
+            case ScriptWriterBinaryLog.RECORD_SCHEMA :
+                currentSchema = rowIn.readString();
+                statementType = SET_SCHEMA_STATEMENT;
+
+                return;
+
+            case ScriptWriterBinaryLog.RECORD_STATEMENT :
+                statement     = rowIn.readString();
+                statementType = ANY_STATEMENT;
+
+                return;
+
+            case ScriptWriterBinaryLog.RECORD_SEQUENCE : {
+                String schema = rowIn.readString();
+                String name   = rowIn.readString();
+                long   value  = rowIn.readLong();
+
+                // replayed as the statement logged by ScriptWriterText
+                statement = new StringBuffer(64).append(
+                    "ALTER SEQUENCE ").append(schema).append('.').append(
+                    name).append(" RESTART WITH ").append(value).toString();
+                statementType = ANY_STATEMENT;
+
+                return;
+            }
+            case ScriptWriterBinaryLog.RECORD_COMMIT :
+                statementType = COMMIT_STATEMENT;
+
+                return;
+
+            case ScriptWriterBinaryLog.RECORD_INSERT :
+            case ScriptWriterBinaryLog.RECORD_DELETE : {
+                String schema = rowIn.readString();
+                String name   = rowIn.readString();
+
+                currentTable = database.schemaManager.getUserTable(session,
+                        name, schema);
+                currentStore =
+                    database.persistentStoreCollection.getStore(currentTable);
+
+                Type[] colTypes;
+
+                if (type == ScriptWriterBinaryLog.RECORD_INSERT) {
+                    statementType = INSERT_STATEMENT;
+                    colTypes      = currentTable.getColumnTypes();
+                } else {
+                    statementType = DELETE_STATEMENT;
+                    colTypes      = currentTable.hasPrimaryKey()
+                                    ? currentTable.getPrimaryKeyTypes()
+                                    : currentTable.getColumnTypes();
+                }
+
+                rowData = rowIn.readData(colTypes);
+
+                return;
+            }
+            default :
+                throw Error.error(ErrorCode.ERROR_IN_SCRIPT_FILE,
+                                  "unknown log record type: " + type
+                                  + " at record: " + lineCount);
+        }
+    }
+
+    public void close() {
+
+        try {
+            dataInput.close();
+        } catch (Exception e) {}
+    }
+}
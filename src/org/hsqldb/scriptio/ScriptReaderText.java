@@ -42,6 +42,7 @@ import org.hsqldb.HsqlException;
 import org.hsqldb.Session;
 import org.hsqldb.Statement;
 import org.hsqldb.StatementTypes;
+import org.hsqldb.Table;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.LineReader;
@@ -66,6 +67,8 @@ public class ScriptReaderText extends ScriptReaderBase {
     LineReader      dataStreamIn;
     RowInputTextLog rowIn;
     boolean         isInsert;
+    boolean         version18;
+    boolean         deferData;
 
     public ScriptReaderText(Database db) {
         super(db);
@@ -87,7 +90,8 @@ public class ScriptReaderText extends ScriptReaderBase {
 
         dataStreamIn = new LineReader(inputStream,
                                       ScriptWriterText.ISO_8859_1);
-        rowIn = new RowInputTextLog(db.databaseProperties.isVersion18());
+        version18 = db.databaseProperties.isVersion18();
+        rowIn     = new RowInputTextLog(version18);
     }
 
     public ScriptReaderText(Database db, InputStream inputStream) {
@@ -97,7 +101,8 @@ public class ScriptReaderText extends ScriptReaderBase {
 //        inputStream = new BufferedInputStream(inputStream);
         dataStreamIn = new LineReader(inputStream,
                                       ScriptWriterText.ISO_8859_1);
-        rowIn = new RowInputTextLog(db.databaseProperties.isVersion18());
+        version18 = db.databaseProperties.isVersion18();
+        rowIn     = new RowInputTextLog(version18);
     }
 
     protected void readDDL(Session session) {
@@ -283,18 +288,60 @@ public class ScriptReaderText extends ScriptReaderBase {
         currentStore =
             database.persistentStoreCollection.getStore(currentTable);
 
+        if (deferData) {
+            rowData = null;
+
+            return;
+        }
+
+        rowData = readData(rowIn, statementType, currentTable);
+    }
+
+    /**
+     * With deferred data, readLoggedStatement() does not read the row data of
+     * INSERT and DELETE statements and getData() returns null. The data is
+     * read later from the logged statement with readDeferredData(), which
+     * can be called from other threads.
+     */
+    public void setDeferData(boolean deferData) {
+        this.deferData = deferData;
+    }
+
+    /**
+     * Returns a new row input for use with readDeferredData(). Each thread
+     * that reads deferred data must use its own row input.
+     */
+    public RowInputTextLog newRowInput() {
+        return new RowInputTextLog(version18);
+    }
+
+    /**
+     * Reads the row data of a logged INSERT or DELETE statement for the
+     * given table.
+     */
+    public static Object[] readDeferredData(RowInputTextLog in,
+            String statement, Table table) {
+
+        in.setSource(statement);
+
+        return readData(in, in.getStatementType(), table);
+    }
+
+    private static Object[] readData(RowInputTextLog in, int statementType,
+                                     Table table) {
+
         Type[] colTypes;
 
         if (statementType == INSERT_STATEMENT) {
-            colTypes = currentTable.getColumnTypes();
-        } else if (currentTable.hasPrimaryKey()) {
-            colTypes = currentTable.getPrimaryKeyTypes();
+            colTypes = table.getColumnTypes();
+        } else if (table.hasPrimaryKey()) {
+            colTypes = table.getPrimaryKeyTypes();
         } else {
-            colTypes = currentTable.getColumnTypes();
+            colTypes = table.getColumnTypes();
         }
 
         try {
-            rowData = rowIn.readData(colTypes);
+            return in.readData(colTypes);
         } catch (IOException e) {
             throw Error.error(e, ErrorCode.FILE_IO_ERROR, null);
         }
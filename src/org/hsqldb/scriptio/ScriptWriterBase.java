@@ -97,7 +97,7 @@ public abstract class ScriptWriterBase implements Runnable {
     FileAccess.FileSync outDescriptor;
     int                 tableRowCount;
     HsqlName            schemaToLog;
-    boolean             isClosed;
+    volatile boolean    isClosed;
 
     //
     boolean isCompressed;
@@ -114,6 +114,15 @@ public abstract class ScriptWriterBase implements Runnable {
     long             lineCount;
     volatile boolean needsSync;
     private int      syncCount;
+
+    //
+    boolean                isGroupCommit;
+    private volatile long  commitCount;
+    private volatile long  syncedCommitCount;
+    private boolean        isCommitSyncing;
+    private IOException    syncException;
+    private Thread         groupCommitThread;
+    private final Object groupCommitLock = new Object();
     static final int INSERT             = 0;
     static final int INSERT_WITH_SCHEMA = 1;
 
@@ -198,30 +207,323 @@ public abstract class ScriptWriterBase implements Runnable {
 
     public void forceSync() {
 
-        if (isClosed) {
+        try {
+            syncStream();
+        } catch (IOException e) {
+            database.logger.logWarningEvent("ScriptWriter synch error: ", e);
+            setSyncException(e);
+        }
+    }
+
+    /**
+     * Flushes and syncs the stream. When the stream is closed concurrently,
+     * returns normally as close() syncs the stream before it is closed.
+     */
+    private void syncStream() throws IOException {
+
+        OutputStream stream = fileStreamOut;
+
+        if (isClosed || stream == null) {
             return;
         }
 
         needsSync = false;
 
-        synchronized (fileStreamOut) {
-            try {
-                fileStreamOut.flush();
-                outDescriptor.sync();
+        FileAccess.FileSync descriptor;
+
+        try {
+
+            // the sync is performed outside the lock so that other sessions
+            // can write to the stream while the file is synced
+            synchronized (stream) {
+                if (isClosed) {
+                    return;
+                }
+
+                stream.flush();
+
+                descriptor = outDescriptor;
 
                 syncCount++;
+            }
+
+            descriptor.sync();
 /*
-                System.out.println(
-                    this.outFile + " FD.sync done at "
-                    + new java.sql.Timestamp(System.currentTimeMillis()));
+            System.out.println(
+                this.outFile + " FD.sync done at "
+                + new java.sql.Timestamp(System.currentTimeMillis()));
 */
+        } catch (IOException e) {
+            if (isClosed) {
+                return;
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * After a failed sync, it is not known which of the records written
+     * before the sync are on disk, and a later sync that succeeds does not
+     * guarantee they are. All the commits that have not been synced so far,
+     * and the ones that follow, are reported as failed until a new log file
+     * is started.
+     */
+    private void setSyncException(IOException e) {
+
+        synchronized (groupCommitLock) {
+            if (syncException == null) {
+                syncException = e;
+            }
+
+            groupCommitLock.notifyAll();
+        }
+    }
+
+    /**
+     * Group commit mode. When the write delay is 0, commit records are
+     * written to the stream by the committing sessions but a single
+     * background thread performs the sync for all the commits written since
+     * its last sync. Each committer waits in waitForCommitSync() until its
+     * own commit record has been synced.
+     */
+    public void setGroupCommit(boolean mode) {
+        isGroupCommit = mode;
+    }
+
+    public boolean isGroupCommit() {
+        return isGroupCommit;
+    }
+
+    /**
+     * Returns true after a sync has failed. The log can then be replaced
+     * only by a checkpoint that writes the state from memory.
+     */
+    public boolean isSyncFailed() {
+
+        synchronized (groupCommitLock) {
+            return syncException != null;
+        }
+    }
+
+    /**
+     * Called after a commit record has been written to the stream. When the
+     * write delay is 0 the commit is counted, to be synced by the group
+     * commit thread or by the first session that waits for it.
+     */
+    void registerCommit() {
+
+        needsSync = true;
+
+        if (writeDelay != 0) {
+            return;
+        }
+
+        synchronized (groupCommitLock) {
+            commitCount++;
+
+            groupCommitLock.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the last commit record written, to be waited for with
+     * CommitSync.waitForSync(), or null if commit records are not synced
+     * individually.
+     */
+    public CommitSync getCommitSync() {
+        return writeDelay == 0 ? new CommitSync(this, commitCount)
+                               : null;
+    }
+
+    /**
+     * A commit record together with the writer that wrote it. The log can
+     * be switched to a new writer between the write and the wait, in which
+     * case the wait ends when the old writer is closed.
+     */
+    public static final class CommitSync {
+
+        final ScriptWriterBase writer;
+        final long             commitNumber;
+
+        CommitSync(ScriptWriterBase writer, long commitNumber) {
+            this.writer       = writer;
+            this.commitNumber = commitNumber;
+        }
+
+        public void waitForSync() {
+            writer.waitForCommitSync(commitNumber);
+        }
+    }
+
+    /**
+     * Waits until the given commit record has been synced. Without a group
+     * commit thread, the first waiting session performs the sync for all the
+     * others. Must not be called while holding the Logger monitor. Throws if
+     * the sync fails.
+     */
+    void waitForCommitSync(long commitNumber) {
+
+        if (syncedCommitCount >= commitNumber) {
+            return;
+        }
+
+        boolean     interrupted = false;
+        long        target      = 0;
+        IOException exception   = null;
+
+        synchronized (groupCommitLock) {
+            while (syncedCommitCount < commitNumber) {
+                if (syncException != null) {
+                    exception = syncException;
+
+                    break;
+                }
+
+                if (groupCommitThread == null && !isCommitSyncing) {
+                    isCommitSyncing = true;
+                    target          = commitCount;
+
+                    break;
+                }
+
+                try {
+                    groupCommitLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (target != 0) {
+            boolean synced = false;
+
+            try {
+                syncStream();
+
+                synced = true;
+            } catch (IOException e) {
+                database.logger.logWarningEvent("ScriptWriter synch error: ",
+                                                e);
+
+                exception = e;
+            } finally {
+                synchronized (groupCommitLock) {
+                    if (!synced && syncException == null) {
+                        syncException = exception == null
+                                        ? new IOException("sync failed")
+                                        : exception;
+                    }
+
+                    // a sync that returns after a failed close is not valid
+                    if (syncException == null) {
+                        if (syncedCommitCount < target) {
+                            syncedCommitCount = target;
+                        }
+                    } else {
+                        exception = syncException;
+                    }
+
+                    isCommitSyncing = false;
+
+                    groupCommitLock.notifyAll();
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (exception != null) {
+            throw Error.error(exception, ErrorCode.FILE_IO_ERROR,
+                              ErrorCode.M_Message_Pair, new Object[] {
+                exception.toString(), outFile
+            });
+        }
+    }
+
+    private void runGroupCommit() {
+
+        Thread current = Thread.currentThread();
+
+        while (true) {
+            long target;
+
+            synchronized (groupCommitLock) {
+                while (groupCommitThread == current
+                        && (syncedCommitCount == commitCount
+                            || syncException != null)) {
+                    try {
+                        groupCommitLock.wait();
+                    } catch (InterruptedException e) {}
+                }
+
+                if (groupCommitThread != current) {
+                    return;
+                }
+
+                target = commitCount;
+            }
+
+            try {
+                syncStream();
             } catch (IOException e) {
                 database.logger.logWarningEvent("ScriptWriter synch error: ",
                                                 e);
+                setSyncException(e);
+
+                continue;
+            }
+
+            synchronized (groupCommitLock) {
+                if (syncException == null && syncedCommitCount < target) {
+                    syncedCommitCount = target;
+                }
+
+                groupCommitLock.notifyAll();
+            }
+        }
+    }
+
+    private void startGroupCommit() {
+
+        synchronized (groupCommitLock) {
+            if (groupCommitThread != null) {
+                return;
+            }
+
+            groupCommitThread = new Thread(new Runnable() {
+
+                public void run() {
+                    runGroupCommit();
+                }
+            }, "HSQLDB Group Commit " + database.getUniqueName());
+
+            groupCommitThread.setDaemon(true);
+            groupCommitThread.start();
+        }
+    }
+
+    private void stopGroupCommit() {
+
+        synchronized (groupCommitLock) {
+            if (groupCommitThread == null) {
+                return;
             }
+
+            // sessions still waiting perform the sync themselves
+            groupCommitThread = null;
+
+            groupCommitLock.notifyAll();
         }
     }
 
+    /**
+     * Closes the stream and releases the sessions waiting for commits written
+     * to this writer. The commits are reported as synced only if the stream
+     * was synced before it was closed, otherwise as failed.
+     */
     public void close() {
 
         stop();
@@ -230,24 +532,48 @@ public abstract class ScriptWriterBase implements Runnable {
             return;
         }
 
+        boolean synced = false;
+
         try {
             synchronized (fileStreamOut) {
                 finishStream();
-                forceSync();
+                syncStream();
+
+                synced   = true;
+                isClosed = true;
+
                 fileStreamOut.close();
 
                 fileStreamOut = null;
                 outDescriptor = null;
-                isClosed      = true;
             }
         } catch (IOException e) {
+            if (!synced) {
+                setSyncException(e);
+            }
+
             throw Error.error(ErrorCode.FILE_IO_ERROR);
+        } finally {
+            releaseCommitWaiters(synced);
         }
 
         byteCount = 0;
         lineCount = 0;
     }
 
+    private void releaseCommitWaiters(boolean synced) {
+
+        synchronized (groupCommitLock) {
+            if (synced && syncException == null) {
+                syncedCommitCount = commitCount;
+            } else if (syncException == null) {
+                syncException = new IOException("log closed before sync");
+            }
+
+            groupCommitLock.notifyAll();
+        }
+    }
+
     public long size() {
         return byteCount;
     }
@@ -286,6 +612,57 @@ public abstract class ScriptWriterBase implements Runnable {
 
     protected void finishStream() throws IOException {}
 
+    /**
+     * Writes a script from a DDL result captured earlier together with the
+     * table rows that are visible to the given session. Used for online
+     * checkpoints, where the session holds a read snapshot.
+     */
+    public void writeSnapshot(Result ddlPart, Session session) {
+
+        currentSession = session;
+        schemaToLog = currentSession.loggedSchema =
+            currentSession.currentSchema;
+
+        try {
+            writeSingleColumnResult(ddlPart);
+            writeExistingData();
+        } catch (IOException e) {
+            throw Error.error(ErrorCode.FILE_IO_ERROR);
+        }
+    }
+
+    /**
+     * Resets the logged session and schema, so that the records written
+     * after this call can be replayed without the earlier records.
+     */
+    public void resetSessionState() {
+
+        currentSession = database.sessionManager.getSysSession();
+        schemaToLog = currentSession.loggedSchema =
+            currentSession.currentSchema;
+    }
+
+    /**
+     * Size of any header written at the start of a new file
+     */
+    public int getHeaderSize() {
+        return 0;
+    }
+
+    /**
+     * Appends bytes copied from an earlier log file of the same format
+     */
+    public void writeRaw(byte[] b, int offset, int length) throws IOException {
+
+        synchronized (fileStreamOut) {
+            fileStreamOut.write(b, offset, length);
+
+            byteCount += length;
+        }
+
+        needsSync = true;
+    }
+
     public void writeDDL() throws IOException {
 
         Result ddlPart = database.getScript(includeIndexRoots);
@@ -427,6 +804,8 @@ public abstract class ScriptWriterBase implements Runnable {
         if (writeDelay > 0) {
             timerTask = DatabaseManager.getTimer().schedulePeriodicallyAfter(0,
                     writeDelay, this, false);
+        } else if (isGroupCommit) {
+            startGroupCommit();
         }
     }
 
@@ -437,6 +816,8 @@ public abstract class ScriptWriterBase implements Runnable {
 
             timerTask = null;
         }
+
+        stopGroupCommit();
     }
 
     public int getWriteDelay() {
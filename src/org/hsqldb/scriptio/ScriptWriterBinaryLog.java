@@ -0,0 +1,258 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hsqldb.scriptio;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import org.hsqldb.Database;
+import org.hsqldb.HsqlNameManager.HsqlName;
+import org.hsqldb.NumberSequence;
+import org.hsqldb.Row;
+import org.hsqldb.Session;
+import org.hsqldb.Table;
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.rowio.RowOutputBinary;
+
+/**
+ * Writes the redo log in a compact binary format. Used instead of
+ * ScriptWriterText for the .log file when the hsqldb.log_binary property is
+ * true. The .script file is always written in the text format.<p>
+ *
+ * The file begins with a magic number and a format version. Each record that
+ * follows is framed as:<p>
+ *
+ * int length of payload<br>
+ * int CRC32 of payload<br>
+ * payload: a record type byte followed by the record data<p>
+ *
+ * Rows are written with the same RowOutputBinary serialisation used by the
+ * .data file, so they are read back without any SQL parsing. A record with
+ * a bad length or checksum marks the end of the usable log.<p>
+ *
+ * ScriptReaderBinaryLog reads the log back.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class ScriptWriterBinaryLog extends ScriptWriterBase {
+
+    static final int LOG_MAGIC   = 0x48534C47;    // HSLG
+    static final int LOG_VERSION = 1;
+
+    //
+    static final int RECORD_SESSION_ID = 1;
+    static final int RECORD_SCHEMA     = 2;
+    static final int RECORD_STATEMENT  = 3;
+    static final int RECORD_INSERT     = 4;
+    static final int RECORD_DELETE     = 5;
+    static final int RECORD_SEQUENCE   = 6;
+    static final int RECORD_COMMIT     = 7;
+
+    //
+    static final int LOG_HEADER_SIZE    = 8;
+    static final int RECORD_HEADER_SIZE = 8;
+
+    //
+    RowOutputBinary rowOut;
+    CRC32           crc;
+
+    public ScriptWriterBinaryLog(Database db, String file) {
+
+        super(db, file, false, false, false);
+
+        try {
+            rowOut.reset();
+            rowOut.writeInt(LOG_MAGIC);
+            rowOut.writeInt(LOG_VERSION);
+
+            synchronized (fileStreamOut) {
+                fileStreamOut.write(rowOut.getBuffer(), 0, rowOut.size());
+
+                byteCount += rowOut.size();
+            }
+        } catch (IOException e) {
+            throw Error.error(e, ErrorCode.FILE_IO_ERROR,
+                              ErrorCode.M_Message_Pair, new Object[] {
+                e.toString(), outFile
+            });
+        }
+    }
+
+    public int getHeaderSize() {
+        return LOG_HEADER_SIZE;
+    }
+
+    protected void initBuffers() {
+
+        rowOut = new RowOutputBinary(256, 1);
+        crc    = new CRC32();
+    }
+
+    protected void writeDataTerm() throws IOException {}
+
+    protected void writeSessionIdAndSchema(Session session)
+    throws IOException {
+
+        writeSessionId(session);
+
+        if (session != null && schemaToLog != session.loggedSchema) {
+            startRecord(RECORD_SCHEMA);
+            rowOut.writeString(schemaToLog.name);
+            writeRecord();
+
+            session.loggedSchema = schemaToLog;
+        }
+    }
+
+    private void writeSessionId(Session session) throws IOException {
+
+        if (session == null || session == currentSession) {
+            return;
+        }
+
+        startRecord(RECORD_SESSION_ID);
+        rowOut.writeLong(session.getId());
+        writeRecord();
+
+        currentSession = session;
+    }
+
+    public void writeLogStatement(Session session,
+                                  String s) throws IOException {
+
+        if (session != null) {
+            schemaToLog = session.currentSchema;
+
+            writeSessionIdAndSchema(session);
+        }
+
+        startRecord(RECORD_STATEMENT);
+        rowOut.writeString(s);
+        writeRecord();
+
+        needsSync = true;
+    }
+
+    public void writeRow(Session session, Row row,
+                         Table table) throws IOException {
+
+        writeSessionId(session);
+        startRecord(RECORD_INSERT);
+        writeTableName(table);
+        rowOut.writeData(row, table.getColumnTypes());
+        writeRecord();
+    }
+
+    public void writeOtherStatement(Session session,
+                                    String s) throws IOException {
+
+        writeLogStatement(session, s);
+
+        if (writeDelay == 0) {
+            sync();
+        }
+    }
+
+    public void writeInsertStatement(Session session, Row row,
+                                     Table table) throws IOException {
+        writeRow(session, row, table);
+    }
+
+    public void writeDeleteStatement(Session session, Table table,
+                                     Object[] data) throws IOException {
+
+        writeSessionId(session);
+        startRecord(RECORD_DELETE);
+        writeTableName(table);
+        rowOut.writeData(table.getColumnCount(), table.getColumnTypes(), data,
+                         null, table.getPrimaryKey());
+        writeRecord();
+    }
+
+    public void writeSequenceStatement(Session session,
+                                       NumberSequence seq) throws IOException {
+
+        writeSessionId(session);
+        startRecord(RECORD_SEQUENCE);
+        rowOut.writeString(seq.getSchemaName().statementName);
+        rowOut.writeString(seq.getName().statementName);
+        rowOut.writeLong(seq.peek());
+        writeRecord();
+
+        needsSync = true;
+    }
+
+    public void writeCommitStatement(Session session) throws IOException {
+
+        writeSessionId(session);
+        startRecord(RECORD_COMMIT);
+        writeRecord();
+        registerCommit();
+    }
+
+    private void writeTableName(Table table) {
+
+        HsqlName name = table.getName();
+
+        rowOut.writeString(name.schema.name);
+        rowOut.writeString(name.name);
+    }
+
+    private void startRecord(int type) {
+
+        rowOut.reset();
+
+        // placeholders for length and checksum
+        rowOut.writeInt(0);
+        rowOut.writeInt(0);
+        rowOut.writeByte(type);
+    }
+
+    private void writeRecord() throws IOException {
+
+        int length = rowOut.size() - RECORD_HEADER_SIZE;
+
+        crc.reset();
+        crc.update(rowOut.getBuffer(), RECORD_HEADER_SIZE, length);
+        rowOut.writeIntData(length, 0);
+        rowOut.writeIntData((int) crc.getValue(), 4);
+
+        synchronized (fileStreamOut) {
+            fileStreamOut.write(rowOut.getBuffer(), 0, rowOut.size());
+
+            byteCount += rowOut.size();
+
+            lineCount++;
+        }
+    }
+}
@@ -293,12 +293,7 @@ public class ScriptWriterText extends ScriptWriterBase {
         rowOut.write(BYTES_COMMIT);
         rowOut.write(BYTES_LINE_SEP);
         writeRowOutToFile();
-
-        needsSync = true;
-
-        if (writeDelay == 0) {
-            sync();
-        }
+        registerCommit();
     }
 
     protected void finishStream() throws IOException {
@@ -34,8 +34,10 @@ package org.hsqldb.server;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
 
 /**
  * Base class for producing the Socket objects used by HSQLDB.
@@ -108,6 +110,45 @@ public class HsqlSocketFactory {
         return new ServerSocket(port, 128, InetAddress.getByName(address));
     }
 
+    /**
+     * Returns a server socket bound to the specified port. The socket
+     * belongs to a ServerSocketChannel, and the sockets it accepts have
+     * channels that can be used with a Selector.
+     *
+     * @return the ServerSocket
+     * @param port the port to which to bind the ServerSocket
+     * @throws Exception if a network error occurs
+     */
+    public ServerSocket createChannelServerSocket(int port) throws Exception {
+
+        ServerSocketChannel channel = ServerSocketChannel.open();
+
+        channel.socket().bind(new InetSocketAddress(port));
+
+        return channel.socket();
+    }
+
+    /**
+     * Returns a server socket bound to the specified port and address. The
+     * socket belongs to a ServerSocketChannel, and the sockets it accepts
+     * have channels that can be used with a Selector.
+     *
+     * @return the ServerSocket
+     * @param port the port to which to bind the ServerSocket
+     * @param address the address to which to bind the ServerSocket
+     * @throws Exception if a network error occurs
+     */
+    public ServerSocket createChannelServerSocket(int port,
+            String address) throws Exception {
+
+        ServerSocketChannel channel = ServerSocketChannel.open();
+
+        channel.socket().bind(
+            new InetSocketAddress(InetAddress.getByName(address), port), 128);
+
+        return channel.socket();
+    }
+
     /**
      * If socket argument is not null, returns it. If it is null,
      * reates a socket and connects it to the specified remote host at the
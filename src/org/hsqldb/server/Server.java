@@ -276,6 +276,9 @@ public class Server implements HsqlSocketRequestHandler {
     protected HsqlSocketFactory socketFactory;
     protected ServerSocket      socket;
 
+    // null unless server.dispatch is true
+    ServerConnectionDispatcher dispatcher;
+
 //
     private Thread             serverThread;
     private Throwable          serverError;
@@ -767,6 +770,16 @@ public class Server implements HsqlSocketRequestHandler {
         if (serverProtocol == ServerConstants.SC_PROTOCOL_HSQL) {
             r   = new ServerConnection(s, this);
             ctn = ((ServerConnection) r).getConnectionThreadName();
+
+            // wait for the first request without taking a thread
+            if (dispatcher != null && s.getChannel() != null) {
+                ((ServerConnection) r).dispatcher = dispatcher;
+
+                dispatcher.park((ServerConnection) r);
+                printWithThread("handleConnection() exited");
+
+                return;
+            }
         } else {
             r   = new WebServerConnection(s, (WebServer) this);
             ctn = ((WebServerConnection) r).getConnectionThreadName();
@@ -835,6 +848,23 @@ public class Server implements HsqlSocketRequestHandler {
         return serverProperties.isPropertyTrue(ServerProperties.sc_key_tls);
     }
 
+    /**
+     * Retrieves whether idle HSQL and ODBC connections are served by a
+     * selector and a pool of threads, instead of a thread per
+     * connection. This is not used with TLS.
+     *
+     * @return true if connections are dispatched to a thread pool
+     *
+     * @jmx.managed-attribute
+     *  access="read-only"
+     *  description="Use a thread pool for connections?"
+     */
+    public boolean isDispatch() {
+        return serverProtocol == ServerConstants.SC_PROTOCOL_HSQL && !isTls()
+               && serverProperties.isPropertyTrue(
+                   ServerProperties.sc_key_dispatch);
+    }
+
     /**
      * Retrieves whether JDBC trace messages are to go to System.out or the
      * DriverManger PrintStream/PrintWriter, if any.
@@ -2044,10 +2074,14 @@ public class Server implements HsqlSocketRequestHandler {
         if (StringUtil.isEmpty(address)
                 || ServerConstants.SC_DEFAULT_ADDRESS.equalsIgnoreCase(
                     address.trim())) {
-            socket = socketFactory.createServerSocket(port);
+            socket = isDispatch() ? socketFactory.createChannelServerSocket(port)
+                                  : socketFactory.createServerSocket(port);
         } else {
             try {
-                socket = socketFactory.createServerSocket(port, address);
+                socket = isDispatch()
+                         ? socketFactory.createChannelServerSocket(port,
+                             address)
+                         : socketFactory.createServerSocket(port, address);
             } catch (UnknownHostException e) {
                 candidateAddrs =
                     ServerConfiguration.listLocalInetAddressNames();
@@ -2204,6 +2238,23 @@ public class Server implements HsqlSocketRequestHandler {
 
         serverConnectionThreadGroup = tg;
 
+        if (isDispatch()) {
+            try {
+                dispatcher = new ServerConnectionDispatcher(this,
+                        serverProperties.getIntegerProperty(
+                            ServerProperties.sc_key_dispatch_threads, 16));
+
+                dispatcher.start();
+            } catch (Exception e) {
+                setServerError(e);
+                printError("run()/openServerSocket(): ");
+                printStackTrace(e);
+                shutdown(true);
+
+                return;
+            }
+        }
+
         // Mount the databases this server is supposed to host.
         // This may take some time if the databases are not all
         // already open.
@@ -2342,6 +2393,12 @@ public class Server implements HsqlSocketRequestHandler {
             }
         }
 
+        if (dispatcher != null) {
+            dispatcher.stop();
+
+            dispatcher = null;
+        }
+
         // Be nice and let applications exit if there are no
         // running connection threads - wait at most 100 ms per active thread
         if (serverConnectionThreadGroup != null) {
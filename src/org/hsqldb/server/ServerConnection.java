@@ -77,6 +77,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hsqldb.ClientConnection;
@@ -84,9 +85,12 @@ import org.hsqldb.ColumnBase;
 import org.hsqldb.DatabaseManager;
 import org.hsqldb.HsqlException;
 import org.hsqldb.Session;
+import org.hsqldb.SessionInterface;
 import org.hsqldb.StatementTypes;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.BlockDeflaterOutputStream;
+import org.hsqldb.lib.BlockInflaterInputStream;
 import org.hsqldb.lib.DataOutputStream;
 import org.hsqldb.navigator.RowSetNavigator;
 import org.hsqldb.persist.HsqlDatabaseProperties;
@@ -136,12 +140,16 @@ class ServerConnection implements Runnable {
     private Server           server;
     private DataInputStream  dataInput;
     private DataOutputStream dataOutput;
+    private boolean          isCompressed;
     private int              mThread;
     static final int         BUFFER_SIZE = 0x1000;
     final byte[]             mainBuffer  = new byte[BUFFER_SIZE];
     RowOutputInterface       rowOut;
     RowInputBinary           rowIn;
-    Thread                   runnerThread;
+    volatile Thread          runnerThread;
+
+    // set when idle connections are served by the dispatcher
+    ServerConnectionDispatcher dispatcher;
 
     //
     private static AtomicInteger mCurrentThread = new AtomicInteger(0);
@@ -364,7 +372,8 @@ class ServerConnection implements Runnable {
         resultIn.readLobResults(session, dataInput, rowIn);
         server.printRequest(mThread, resultIn);
 
-        Result resultOut = null;
+        Result  resultOut        = null;
+        boolean startCompression = false;
 
         switch (resultIn.getType()) {
 
@@ -373,6 +382,19 @@ class ServerConnection implements Runnable {
 
                 break;
             }
+            case ResultConstants.SETSESSIONATTR : {
+                Object[] data = resultIn.getSessionAttributes();
+                int id = ((Integer) data[SessionInterface.INFO_ID]).intValue();
+
+                if (id == SessionInterface.INFO_NETWORK_COMPRESSION) {
+                    startCompression = !isCompressed;
+                    resultOut        = Result.updateOneResult;
+                } else {
+                    resultOut = session.execute(resultIn);
+                }
+
+                break;
+            }
             case ResultConstants.DISCONNECT : {
                 resultOut = Result.updateZeroResult;
                 terminate = true;
@@ -403,6 +425,15 @@ class ServerConnection implements Runnable {
         rowOut.reset(mainBuffer);
         rowIn.resetRow(mainBuffer.length);
 
+        // the acknowledgement is the last uncompressed message
+        if (startCompression) {
+            dataOutput = new DataOutputStream(
+                new BlockDeflaterOutputStream(dataOutput));
+            dataInput = new DataInputStream(
+                new BlockInflaterInputStream(dataInput));
+            isCompressed = true;
+        }
+
         if (terminate) {
             throw cleanExit;
         }
@@ -1516,47 +1547,108 @@ class ServerConnection implements Runnable {
 
     /**
      * Initializes this connection and runs the request handling
-     * loop until closed.
+     * loop until closed.<p>
+     *
+     * When a dispatcher is used, this method is called each time a request
+     * arrives and returns after the input has been processed.
      */
     public void run() {
 
-        int msgType;
+        if (dispatcher == null) {
+            init();
 
-        init();
+            if (session != null) {
+                receive(false, false);
+            }
 
-        if (session != null) {
-            try {
-                while (keepAlive) {
-                    msgType = dataInput.readByte();
+            close();
 
-                    if (msgType < ResultConstants.MODE_UPPER_LIMIT) {
-                        receiveResult(msgType);
-                    } else {
-                        receiveOdbcPacket((char) msgType);
-                    }
-                }
-            } catch (CleanExit ce) {
-                keepAlive = false;
-            } catch (IOException e) {
+            return;
+        }
+
+        // the selector reports input or the end of the stream
+        boolean hasInput = true;
 
-                // fredt - is thrown when connection drops
-                server.printWithThread(mThread + ":disconnected " + user);
-            } catch (HsqlException e) {
+        if (session == null) {
+            init();
+
+            if (session == null) {
+                close();
+
+                return;
+            }
+
+            hasInput = false;
+        } else {
+            runnerThread = Thread.currentThread();
+        }
 
-                // fredt - is thrown in unforeseen circumstances
-                if (keepAlive) {
-                    server.printStackTrace(e);
+        if (receive(true, hasInput)) {
+            runnerThread = null;
+
+            dispatcher.park(this);
+        } else {
+            close();
+        }
+    }
+
+    /**
+     * Processes requests until the connection is closed or, if park is true,
+     * until no more input is available. If hasInput is true, the first read
+     * waits for a request or the end of the stream.
+     *
+     * @return true if the connection is open and waits for input
+     */
+    private boolean receive(boolean park, boolean hasInput) {
+
+        int msgType;
+
+        try {
+            while (keepAlive) {
+                if (park && !hasInput && dataInput.available() == 0) {
+                    return true;
                 }
-            } catch (Throwable e) {
 
-                // fredt - is thrown in unforeseen circumstances
-                if (keepAlive) {
-                    server.printStackTrace(e);
+                hasInput = false;
+
+                msgType = dataInput.readByte();
+
+                if (msgType < ResultConstants.MODE_UPPER_LIMIT) {
+                    receiveResult(msgType);
+                } else {
+                    receiveOdbcPacket((char) msgType);
                 }
             }
+        } catch (CleanExit ce) {
+            keepAlive = false;
+        } catch (IOException e) {
+
+            // fredt - is thrown when connection drops
+            server.printWithThread(mThread + ":disconnected " + user);
+        } catch (HsqlException e) {
+
+            // fredt - is thrown in unforeseen circumstances
+            if (keepAlive) {
+                server.printStackTrace(e);
+            }
+        } catch (Throwable e) {
+
+            // fredt - is thrown in unforeseen circumstances
+            if (keepAlive) {
+                server.printStackTrace(e);
+            }
         }
 
-        close();
+        return false;
+    }
+
+    /**
+     * Returns the channel of the socket, or null if the socket has no channel
+     * or is closed.
+     */
+    synchronized SocketChannel getChannel() {
+        return socket == null ? null
+                              : socket.getChannel();
     }
 
     private Result setDatabase(Result resultIn) {
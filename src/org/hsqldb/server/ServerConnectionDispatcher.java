@@ -0,0 +1,313 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves HSQL and ODBC connections from a pool of threads.<p>
+ *
+ * An idle ServerConnection does not own a thread. Its socket channel is
+ * registered with a Selector that is watched by a single dispatcher thread.
+ * When a request arrives, the channel is deregistered, switched back to
+ * blocking mode and the connection is run on one of the worker threads until
+ * it has no further buffered input. It is then parked again.<p>
+ *
+ * A request keeps its worker thread while it waits for locks held by other
+ * sessions. Requests are therefore never queued: the pool keeps threadCount
+ * idle threads and starts a new thread when all are busy, so a session that
+ * holds locks can always run its next request. Threads above threadCount
+ * end after 60 seconds without work.<p>
+ *
+ * Requests are still read and answered with blocking I/O, so the existing
+ * protocol code is used unchanged.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+class ServerConnectionDispatcher implements Runnable {
+
+    private final Server             server;
+    private final Selector           selector;
+    private final ThreadPoolExecutor executor;
+    private final ArrayList          pending = new ArrayList();
+    private final ArrayList          ready   = new ArrayList();
+    private Thread                   dispatcherThread;
+    private volatile boolean         isRunning;
+
+    ServerConnectionDispatcher(final Server server,
+                               int threadCount) throws IOException {
+
+        this.server = server;
+        selector    = Selector.open();
+
+        ThreadFactory factory = new ThreadFactory() {
+
+            AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+
+                Thread t = new Thread(server.serverConnectionThreadGroup, r,
+                                      "HSQLDB Connection Worker @"
+                                      + Integer.toString(server.hashCode(),
+                                          16) + ":"
+                                              + count.getAndIncrement());
+
+                t.setDaemon(server.isDaemon);
+
+                return t;
+            }
+        };
+
+        executor = new ThreadPoolExecutor(threadCount, Integer.MAX_VALUE,
+                                          60L, TimeUnit.SECONDS,
+                                          new SynchronousQueue(), factory);
+    }
+
+    void start() {
+
+        isRunning        = true;
+        dispatcherThread = new Thread(server.serverConnectionThreadGroup,
+                                      this, "HSQLDB Connection Dispatcher @"
+                                      + Integer.toString(server.hashCode(),
+                                          16));
+
+        dispatcherThread.setDaemon(server.isDaemon);
+        dispatcherThread.start();
+    }
+
+    /**
+     * Stops the dispatcher and worker threads. The parked connections are
+     * closed by the dispatcher thread as it stops, including those that have
+     * not yet sent a request. Connections that are running must have been
+     * closed by the caller.
+     */
+    void stop() {
+
+        isRunning = false;
+
+        selector.wakeup();
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {}
+
+        if (dispatcherThread != null) {
+            try {
+                dispatcherThread.join(1000);
+            } catch (InterruptedException e) {}
+        }
+    }
+
+    /**
+     * Called when the connection has no more input to process. The channel
+     * is handed to the dispatcher thread, which registers it with the
+     * selector. After stop() the connection is closed instead.
+     */
+    void park(ServerConnection connection) {
+
+        boolean parked;
+
+        synchronized (pending) {
+            parked = isRunning;
+
+            if (parked) {
+                pending.add(connection);
+            }
+        }
+
+        if (parked) {
+            selector.wakeup();
+        } else {
+            connection.signalClose();
+        }
+    }
+
+    /**
+     * The selector loop. Failures of a single connection close that
+     * connection only; other failures are reported and the loop continues.
+     */
+    public void run() {
+
+        try {
+            while (isRunning) {
+                try {
+                    select();
+                } catch (Throwable t) {
+                    if (!isRunning || !selector.isOpen()) {
+                        break;
+                    }
+
+                    server.printStackTrace(t);
+                }
+
+                for (int i = 0; i < ready.size(); i++) {
+                    dispatch((ServerConnection) ready.get(i));
+                }
+
+                ready.clear();
+            }
+        } finally {
+            closeParked();
+
+            try {
+                selector.close();
+            } catch (IOException e) {}
+        }
+    }
+
+    /**
+     * Closes the connections that are registered with the selector or wait
+     * to be registered.
+     */
+    private void closeParked() {
+
+        Object[] list;
+
+        synchronized (pending) {
+            list = pending.toArray();
+
+            pending.clear();
+        }
+
+        for (int i = 0; i < list.length; i++) {
+            ((ServerConnection) list[i]).signalClose();
+        }
+
+        try {
+            Iterator it = selector.keys().iterator();
+
+            while (it.hasNext()) {
+                SelectionKey key = (SelectionKey) it.next();
+
+                ((ServerConnection) key.attachment()).signalClose();
+            }
+        } catch (Throwable t) {
+            server.printStackTrace(t);
+        }
+    }
+
+    private void select() throws IOException {
+
+        registerPending();
+        selector.select();
+
+        // keys selected during selectNow() are handled in the same
+        // cycle, as they are not reported by the next select()
+        while (!selector.selectedKeys().isEmpty()) {
+            Iterator it = selector.selectedKeys().iterator();
+
+            while (it.hasNext()) {
+                SelectionKey key = (SelectionKey) it.next();
+
+                it.remove();
+                key.cancel();
+                ready.add(key.attachment());
+            }
+
+            // deregisters the cancelled keys
+            selector.selectNow();
+        }
+    }
+
+    private void registerPending() {
+
+        Object[] list;
+
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            list = pending.toArray();
+
+            pending.clear();
+        }
+
+        for (int i = 0; i < list.length; i++) {
+            ServerConnection connection = (ServerConnection) list[i];
+            SocketChannel    channel    = connection.getChannel();
+
+            if (channel == null) {
+                continue;
+            }
+
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+
+                // closed by another thread - let a worker clean up
+                dispatch(connection);
+            } catch (Throwable t) {
+                server.printStackTrace(t);
+                connection.signalClose();
+            }
+        }
+    }
+
+    private void dispatch(ServerConnection connection) {
+
+        SocketChannel channel = connection.getChannel();
+
+        try {
+            try {
+                if (channel != null) {
+                    channel.configureBlocking(true);
+                }
+            } catch (IOException e) {
+
+                // closed by another thread - let a worker clean up
+            }
+
+            executor.execute(connection);
+        } catch (RejectedExecutionException e) {
+            connection.signalClose();
+        } catch (Throwable t) {
+            server.printStackTrace(t);
+            connection.signalClose();
+        }
+    }
+}
@@ -98,6 +98,8 @@ public class ServerProperties extends HsqlProperties {
     static final String sc_key_acl              = "server.acl";
     static final String sc_key_daemon           = "server.daemon";
     static final String sc_key_props            = "server.props";
+    static final String sc_key_dispatch         = "server.dispatch";
+    static final String sc_key_dispatch_threads = "server.dispatch_threads";
     static final String sc_key_system           = "system";
 
     // web server page defaults
@@ -324,6 +326,10 @@ public class ServerProperties extends HsqlProperties {
                  getMeta(sc_key_max_connections, 0, 100, 1, 10000));
         meta.put(sc_key_max_databases,
                  getMeta(sc_key_max_databases, 0, 10, 1, 1000));
+        meta.put(sc_key_dispatch,
+                 getMeta(sc_key_dispatch, SERVER_PROPERTY, false));
+        meta.put(sc_key_dispatch_threads,
+                 getMeta(sc_key_dispatch_threads, 0, 16, 1, 1000));
 
         //
         prefixes.add(sc_key_database);
@@ -87,6 +87,133 @@ public class TestBatchExecution extends TestBase {
         preparedTestOne(5);
     }
 
+    /**
+     * Rows of an insert batch before a failed row are kept and counted,
+     * the failed row and the rows after it are not inserted.
+     */
+    public void testBatchInsertFailure() throws Exception {
+
+        Connection c  = newConnection();
+        Statement  st = c.createStatement();
+
+        st.execute("drop table batchchild if exists");
+        st.execute("drop table batchparent if exists");
+        st.execute("create table batchparent(id int primary key)");
+        st.execute("insert into batchparent values 1, 2, 3");
+        st.execute(
+            "create table batchchild(id int primary key, code varchar(10)"
+            + " unique, pid int references batchparent(id),"
+            + " qty int check (qty >= 0))");
+
+        PreparedStatement ps =
+            c.prepareStatement("insert into batchchild values(?,?,?,?)");
+
+        // duplicate primary key at row 5
+        checkBatch(ps, new int[] {
+            0, 1, 2, 3, 4, 2, 6, 7
+        }, -1, -1, -1, 5);
+        checkRows(st, 5, 0, 4);
+
+        // duplicate unique code at row 3
+        checkBatch(ps, new int[] {
+            10, 11, 12, 13, 14
+        }, 13, -1, -1, 3);
+        checkRows(st, 8, 10, 12);
+
+        // foreign key violation at row 0
+        checkBatch(ps, new int[] {
+            20, 21
+        }, -1, 20, -1, 0);
+        checkRows(st, 8, 20, 19);
+
+        // check constraint violation at the last row
+        checkBatch(ps, new int[] {
+            30, 31, 32
+        }, -1, -1, 32, 2);
+        checkRows(st, 10, 30, 31);
+
+        // the rows before the failure are part of the open transaction
+        c.setAutoCommit(false);
+        checkBatch(ps, new int[] {
+            40, 41, 42, 43, 44, 45
+        }, -1, -1, 44, 4);
+        checkRows(st, 14, 40, 43);
+        c.rollback();
+        checkRows(st, 10, 40, 39);
+        checkBatch(ps, new int[] {
+            40, 41, 42
+        }, -1, -1, -1, 3);
+        c.commit();
+        c.setAutoCommit(true);
+        checkRows(st, 13, 40, 42);
+        c.close();
+    }
+
+    /**
+     * Inserts a batch of rows with the given ids. The row with the id
+     * badCode repeats the code of row 0, the row with badParent has a
+     * missing parent and the row with badQty a negative qty. Checks the
+     * number of update counts returned.
+     */
+    static void checkBatch(PreparedStatement ps, int[] ids, int badCode,
+                           int badParent, int badQty,
+                           int expected) throws SQLException {
+
+        for (int i = 0; i < ids.length; i++) {
+            ps.setInt(1, ids[i]);
+            ps.setString(2, "c" + (ids[i] == badCode ? ids[0]
+                                                     : ids[i]));
+            ps.setInt(3, ids[i] == badParent ? 99
+                                             : 1 + ids[i] % 3);
+            ps.setInt(4, ids[i] == badQty ? -1
+                                          : ids[i]);
+            ps.addBatch();
+        }
+
+        int[] counts;
+
+        try {
+            counts = ps.executeBatch();
+
+            assertEquals(ids.length, expected);
+        } catch (java.sql.BatchUpdateException e) {
+            counts = e.getUpdateCounts();
+
+            assertTrue(expected < ids.length);
+        }
+
+        assertEquals(expected, counts.length);
+
+        for (int i = 0; i < counts.length; i++) {
+            assertEquals(1, counts[i]);
+        }
+    }
+
+    /**
+     * Checks the total row count and that the rows with ids from first to
+     * last are present.
+     */
+    static void checkRows(Statement st, int total, int first,
+                          int last) throws SQLException {
+
+        ResultSet rs = st.executeQuery("select count(*) from batchchild");
+
+        rs.next();
+        assertEquals(total, rs.getInt(1));
+
+        rs = st.executeQuery("select count(*) from batchchild where id >= "
+                             + first + " and id < " + (first + 10));
+
+        rs.next();
+        assertEquals(last - first + 1, rs.getInt(1));
+
+        rs = st.executeQuery("select count(*) from batchchild where id >= "
+                             + first + " and id <= " + last);
+
+        rs.next();
+        assertEquals(last - first + 1, rs.getInt(1));
+    }
+
     static void print(String s) {
         System.out.print(s);
     }
@@ -0,0 +1,363 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+
+import org.hsqldb.BatchTrigger;
+import org.hsqldb.HsqlException;
+import org.hsqldb.Trigger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of queued triggers fired by the shared trigger executor: the rows
+ * arrive in the order they were queued, in batches for a BatchTrigger and
+ * one by one for other triggers.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestBatchTriggers extends TestCase {
+
+    String url      = "jdbc:hsqldb:mem:testbatchtriggers";
+    String user     = "sa";
+    String password = "";
+
+    //
+    Connection conn;
+    Statement  st;
+
+    public TestBatchTriggers(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        conn = DriverManager.getConnection(url, user, password);
+        st   = conn.createStatement();
+
+        st.execute("CREATE TABLE t (id INT PRIMARY KEY, v INT)");
+        Recorder.clear();
+    }
+
+    protected void tearDown() throws Exception {
+        st.execute("SHUTDOWN");
+    }
+
+    void createTrigger(String name, String event, boolean batch,
+                       int queue) throws SQLException {
+
+        String className = batch ? Recorder.class.getName()
+                                 : RowRecorder.class.getName();
+
+        st.execute("CREATE TRIGGER " + name + " AFTER " + event
+                   + " ON t FOR EACH ROW QUEUE " + queue + " CALL \""
+                   + className + "\"");
+    }
+
+    /**
+     * Waits until the given number of rows have been fired for the trigger
+     * and returns them.
+     */
+    static ArrayList waitForRows(String trigger,
+                                 int count) throws InterruptedException {
+
+        long limit = System.currentTimeMillis() + 20000;
+
+        while (System.currentTimeMillis() < limit) {
+            ArrayList rows = Recorder.getRows(trigger);
+
+            if (rows.size() >= count) {
+                assertEquals(count, rows.size());
+
+                return rows;
+            }
+
+            Thread.sleep(10);
+        }
+
+        fail("rows not fired: " + trigger);
+
+        return null;
+    }
+
+    /**
+     * Inserts, updates and deletes are fired in statement order, with the
+     * old and new rows of each update paired.
+     */
+    public void testBatchOrder() throws Exception {
+
+        createTrigger("ins", "INSERT", true, 100);
+        createTrigger("upd", "UPDATE", true, 100);
+        createTrigger("del", "DELETE", true, 100);
+
+        for (int i = 0; i < 5000; i++) {
+            st.execute("INSERT INTO t VALUES (" + i + ", " + i + ")");
+        }
+
+        st.execute("UPDATE t SET v = v + 10000 WHERE MOD(id, 2) = 0");
+        st.execute("DELETE FROM t WHERE id >= 4000");
+
+        ArrayList rows = waitForRows("INS", 5000);
+
+        for (int i = 0; i < rows.size(); i++) {
+            Object[][] pair = (Object[][]) rows.get(i);
+
+            assertNull(pair[0]);
+            assertEquals(new Integer(i), pair[1][0]);
+        }
+
+        rows = waitForRows("UPD", 2500);
+
+        int last = -1;
+
+        for (int i = 0; i < rows.size(); i++) {
+            Object[][] pair = (Object[][]) rows.get(i);
+            int        id   = ((Integer) pair[0][0]).intValue();
+
+            assertEquals(pair[0][0], pair[1][0]);
+            assertEquals(id, ((Integer) pair[0][1]).intValue());
+            assertEquals(id + 10000, ((Integer) pair[1][1]).intValue());
+            assertTrue(id % 2 == 0);
+            assertTrue(id > last);
+
+            last = id;
+        }
+
+        rows = waitForRows("DEL", 1000);
+
+        for (int i = 0; i < rows.size(); i++) {
+            Object[][] pair = (Object[][]) rows.get(i);
+
+            assertNull(pair[1]);
+        }
+
+        assertTrue(Recorder.getBatchCount("INS") > 0);
+        assertTrue(Recorder.getBatchCount("INS") <= 5000);
+    }
+
+    /**
+     * Rows inserted by several sessions are fired in the order of each
+     * session, by a batch trigger and by a row trigger on the same table.
+     */
+    public void testConcurrentSessions() throws Exception {
+
+        createTrigger("batchins", "INSERT", true, 50);
+        createTrigger("rowins", "INSERT", false, 50);
+
+        final int      threadCount = 4;
+        final int      rowCount    = 1000;
+        Thread[]       threads     = new Thread[threadCount];
+        final String[] errors      = new String[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            final int slot = i;
+
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = DriverManager.getConnection(url, user,
+                            password);
+                        Statement s = c.createStatement();
+
+                        for (int j = 0; j < rowCount; j++) {
+                            int id = j * threadCount + slot;
+
+                            s.execute("INSERT INTO t VALUES (" + id + ", "
+                                      + slot + ")");
+                        }
+
+                        c.close();
+                    } catch (SQLException e) {
+                        errors[slot] = e.toString();
+                    }
+                }
+            };
+
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].join();
+            assertNull(errors[i], errors[i]);
+        }
+
+        checkSessionOrder(waitForRows("BATCHINS", threadCount * rowCount),
+                          threadCount);
+        checkSessionOrder(waitForRows("ROWINS", threadCount * rowCount),
+                          threadCount);
+        assertEquals(threadCount * rowCount, Recorder.getBatchCount("ROWINS"));
+    }
+
+    static void checkSessionOrder(ArrayList rows, int threadCount) {
+
+        int[] last = new int[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            last[i] = -1;
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            Object[][] pair = (Object[][]) rows.get(i);
+            int        id   = ((Integer) pair[1][0]).intValue();
+            int        slot = ((Integer) pair[1][1]).intValue();
+
+            assertTrue(id > last[slot]);
+
+            last[slot] = id;
+        }
+    }
+
+    /**
+     * An exception thrown by a batch is logged and later rows are still
+     * fired.
+     */
+    public void testFailedBatch() throws Exception {
+
+        createTrigger("failins", "INSERT", true, 100);
+        Recorder.failNextBatch = true;
+
+        st.execute("INSERT INTO t VALUES (0, 0)");
+
+        long limit = System.currentTimeMillis() + 20000;
+
+        while (Recorder.failNextBatch
+                && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(Recorder.failNextBatch);
+
+        for (int i = 1; i <= 100; i++) {
+            st.execute("INSERT INTO t VALUES (" + i + ", " + i + ")");
+        }
+
+        ArrayList rows = waitForRows("FAILINS", 100);
+
+        assertEquals(new Integer(1), ((Object[][]) rows.get(0))[1][0]);
+    }
+
+    /**
+     * Records the rows fired for each trigger name, together with the
+     * number of calls.
+     */
+    public static class Recorder implements BatchTrigger {
+
+        static java.util.HashMap rows          = new java.util.HashMap();
+        static java.util.HashMap batches       = new java.util.HashMap();
+        static volatile boolean  failNextBatch = false;
+
+        static synchronized void clear() {
+            rows.clear();
+            batches.clear();
+        }
+
+        static synchronized ArrayList getRows(String trigger) {
+
+            ArrayList list = (ArrayList) rows.get(trigger);
+
+            return list == null ? new ArrayList()
+                                : new ArrayList(list);
+        }
+
+        static synchronized int getBatchCount(String trigger) {
+
+            Integer count = (Integer) batches.get(trigger);
+
+            return count == null ? 0
+                                 : count.intValue();
+        }
+
+        static synchronized void record(String trigger, Object[][] oldRows,
+                                        Object[][] newRows) {
+
+            ArrayList list = (ArrayList) rows.get(trigger);
+
+            if (list == null) {
+                list = new ArrayList();
+
+                rows.put(trigger, list);
+            }
+
+            for (int i = 0; i < oldRows.length; i++) {
+                list.add(new Object[][] {
+                    oldRows[i], newRows[i]
+                });
+            }
+
+            batches.put(trigger, new Integer(getBatchCount(trigger) + 1));
+        }
+
+        public void fire(int type, String trigName, String tabName,
+                         Object[] oldRow, Object[] newRow) {
+            fail("fire() called for a batch trigger");
+        }
+
+        public void fireBatch(int type, String trigName, String tabName,
+                              Object[][] oldRows,
+                              Object[][] newRows) throws HsqlException {
+
+            if (failNextBatch) {
+                failNextBatch = false;
+
+                throw new RuntimeException("injected trigger failure");
+            }
+
+            record(trigName, oldRows, newRows);
+        }
+    }
+
+    /**
+     * Records each row fired as a call of its own.
+     */
+    public static class RowRecorder implements Trigger {
+
+        public void fire(int type, String trigName, String tabName,
+                         Object[] oldRow, Object[] newRow) {
+            Recorder.record(trigName, new Object[][] {
+                oldRow
+            }, new Object[][] {
+                newRow
+            });
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.CRC32;
+
+import org.hsqldb.error.ErrorCode;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the binary redo log: replay of the logged changes and recovery
+ * from a log that ends with a truncated or corrupt record.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestBinaryLog extends TestCase {
+
+    String filepath = "/hsql/testbinarylog/test";
+    String url      = "jdbc:hsqldb:file:" + filepath
+                      + ";hsqldb.log_binary=true";
+    String user     = "sa";
+    String password = "";
+
+    // committed rows, followed by a transaction that ends the log
+    static final int rowCount = 100;
+    static final int lastRows = 5;
+
+    public TestBinaryLog(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        TestUtil.deleteDatabase(filepath);
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    }
+
+    protected void tearDown() {
+        TestUtil.deleteDatabase(filepath);
+    }
+
+    Connection newConnection() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * Fills the log and abandons the database without a checkpoint.
+     */
+    void writeLog() throws Exception {
+
+        Connection conn = newConnection();
+        Statement  st   = conn.createStatement();
+
+        st.execute("SET FILES WRITE DELAY FALSE");
+        st.execute("CREATE MEMORY TABLE m (id INT PRIMARY KEY, v VARCHAR(20))");
+        st.execute("CREATE CACHED TABLE c (id INT PRIMARY KEY, d DOUBLE)");
+        st.execute("CREATE SEQUENCE s");
+
+        for (int i = 0; i < rowCount; i++) {
+            st.execute("INSERT INTO m VALUES (" + i + ", 'v" + i + "')");
+            st.execute("INSERT INTO c VALUES (NEXT VALUE FOR s, " + i
+                       + ".5)");
+        }
+
+        st.execute("UPDATE m SET v = 'updated' WHERE id < 10");
+        st.execute("DELETE FROM c WHERE id >= 90");
+        conn.setAutoCommit(false);
+        st.execute("INSERT INTO m VALUES (-1, 'rolled back')");
+        conn.rollback();
+
+        for (int i = 0; i < lastRows; i++) {
+            st.execute("INSERT INTO m VALUES (" + (rowCount + i)
+                       + ", 'last')");
+        }
+
+        conn.commit();
+        st.execute("SHUTDOWN IMMEDIATELY");
+    }
+
+    int getCount(Statement st, String sql) throws SQLException {
+
+        ResultSet rs = st.executeQuery(sql);
+
+        rs.next();
+
+        return rs.getInt(1);
+    }
+
+    void checkLog(int lastRowCount) throws Exception {
+
+        Connection conn = newConnection();
+        Statement  st   = conn.createStatement();
+
+        assertEquals(rowCount + lastRowCount,
+                     getCount(st, "SELECT COUNT(*) FROM m"));
+        assertEquals(10,
+                     getCount(st,
+                              "SELECT COUNT(*) FROM m WHERE v = 'updated'"));
+        assertEquals(0, getCount(st, "SELECT COUNT(*) FROM m WHERE id < 0"));
+        assertEquals(90, getCount(st, "SELECT COUNT(*) FROM c"));
+        assertEquals(rowCount,
+                     getCount(st, "SELECT NEXT VALUE FOR s FROM m"
+                              + " WHERE id = 0"));
+
+        ResultSet rs = st.executeQuery("SELECT d FROM c WHERE id = 7");
+
+        rs.next();
+        assertEquals(7.5, rs.getDouble(1), 0);
+        st.execute("SHUTDOWN");
+    }
+
+    public void testReplay() throws Exception {
+
+        writeLog();
+
+        DataInputStream in = new DataInputStream(
+            new FileInputStream(filepath + ".log"));
+
+        // the HSLG magic number
+        assertEquals(0x48534C47, in.readInt());
+        in.close();
+        checkLog(lastRows);
+    }
+
+    /**
+     * Returns the file position of the last commit record. The records that
+     * follow it are written when the sessions are closed on shutdown.
+     */
+    long getLastCommitPosition() throws Exception {
+
+        RandomAccessFile file = new RandomAccessFile(filepath + ".log", "r");
+        long             commitPosition = -1;
+        long             position       = 8;
+
+        while (position < file.length()) {
+            file.seek(position);
+
+            int length = file.readInt();
+
+            file.readInt();
+
+            // RECORD_COMMIT
+            if (file.read() == 7) {
+                commitPosition = position;
+            }
+
+            position += 8 + length;
+        }
+
+        file.close();
+        assertTrue(commitPosition > 0);
+
+        return commitPosition;
+    }
+
+    /**
+     * The log ends inside the commit record of the last transaction.
+     */
+    public void testTruncatedRecord() throws Exception {
+
+        writeLog();
+
+        long             position = getLastCommitPosition();
+        RandomAccessFile file     = new RandomAccessFile(filepath + ".log",
+            "rw");
+
+        file.setLength(position + 6);
+        file.close();
+        checkLog(0);
+    }
+
+    /**
+     * The payload of the commit record of the last transaction does not
+     * match its checksum.
+     */
+    public void testCorruptRecord() throws Exception {
+
+        writeLog();
+
+        long             position = getLastCommitPosition() + 8;
+        RandomAccessFile file     = new RandomAccessFile(filepath + ".log",
+            "rw");
+
+        file.seek(position);
+
+        int b = file.read();
+
+        file.seek(position);
+        file.write(b ^ 0xff);
+        file.close();
+        checkLog(0);
+    }
+
+    /**
+     * A record header with a length that exceeds the rest of the file
+     * ends the log without an attempt to allocate the record.
+     */
+    public void testBadRecordLength() throws Exception {
+
+        writeLog();
+
+        RandomAccessFile file = new RandomAccessFile(filepath + ".log",
+            "rw");
+
+        file.seek(file.length());
+        file.writeInt(0x7ffffff0);
+        file.writeInt(0);
+        file.close();
+        checkLog(lastRows);
+    }
+
+    /**
+     * A record with a valid checksum but an unknown type, written before the
+     * commit record of the last transaction, stops the replay. It fails the
+     * replay when the full log must be replayed.
+     */
+    public void testUnknownRecordType() throws Exception {
+
+        writeLog();
+
+        long             position = getLastCommitPosition();
+        RandomAccessFile file     = new RandomAccessFile(filepath + ".log",
+            "rw");
+        byte[] tail = new byte[(int) (file.length() - position)];
+
+        file.seek(position);
+        file.readFully(tail);
+
+        byte[] payload = new byte[] {
+            99, 1, 2, 3
+        };
+        CRC32  crc     = new CRC32();
+
+        crc.update(payload);
+        file.seek(position);
+        file.writeInt(payload.length);
+        file.writeInt((int) crc.getValue());
+        file.write(payload);
+        file.write(tail);
+        file.close();
+
+        try {
+            DriverManager.getConnection(url + ";hsqldb.full_log_replay=true",
+                                        user, password);
+            fail("unknown record type replayed");
+        } catch (SQLException e) {
+            assertEquals(-ErrorCode.ERROR_IN_SCRIPT_FILE, e.getErrorCode());
+        }
+
+        checkLog(0);
+    }
+}
@@ -0,0 +1,373 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of numeric conditions evaluated with primitive values. The results,
+ * including nulls, widening to larger types on overflow and the errors for
+ * division by zero and out of range values, must be the same as those of
+ * the interpreted expressions.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestCompiledExpressions extends TestCase {
+
+    Connection conn;
+    Statement  st;
+
+    public TestCompiledExpressions(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        conn = DriverManager.getConnection(
+            "jdbc:hsqldb:mem:testcompiledexpressions", "sa", "");
+        st = conn.createStatement();
+
+        createTable(st);
+    }
+
+    static void createTable(Statement statement) throws SQLException {
+
+        statement.execute("CREATE TABLE n (id INT PRIMARY KEY, i INT,"
+                          + " b BIGINT, d DOUBLE)");
+        statement.execute(
+            "INSERT INTO n VALUES (1, 1, 1, 1.5e0), (2, NULL, 10, NULL),"
+            + " (3, 2147483647, 9223372036854775807, 1e308),"
+            + " (4, -2147483648, -9223372036854775808, -0.5e0),"
+            + " (5, 0, 0, 0e0)");
+    }
+
+    protected void tearDown() throws Exception {
+
+        st.execute("SHUTDOWN");
+        conn.close();
+    }
+
+    /**
+     * Returns the ids of the rows that match the condition, or the SQL
+     * state of the error.
+     */
+    String getMatches(String condition) {
+
+        StringBuffer sb = new StringBuffer();
+
+        try {
+            ResultSet rs = st.executeQuery("SELECT id FROM n WHERE "
+                                           + condition + " ORDER BY id");
+
+            while (rs.next()) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+
+                sb.append(rs.getInt(1));
+            }
+
+            rs.close();
+        } catch (SQLException e) {
+            sb.append('E').append(e.getSQLState());
+        }
+
+        return sb.toString();
+    }
+
+    void checkConditions(String[][] cases) {
+
+        for (int i = 0; i < cases.length; i++) {
+            String condition = cases[i][0];
+
+            // evaluated twice, as the condition is compiled on first use
+            assertEquals(condition, cases[i][1], getMatches(condition));
+            assertEquals(condition, cases[i][1], getMatches(condition));
+        }
+    }
+
+    /**
+     * INTEGER and BIGINT results that overflow are widened, as in
+     * NumberType.
+     */
+    public void testOverflow() {
+
+        checkConditions(new String[][] {
+            {
+                "i + 1 > 0", "1 3 5"
+            }, {
+                "i + i > 0", "1 3"
+            }, {
+                "i * 2 > 0", "1 3"
+            }, {
+                "i - 1 < 0", "5"
+            }, {
+                "b + 1 > 0", "1 2 3 5"
+            }, {
+                "b * 2 < 0", "4"
+            }, {
+                "b - 1 < 0", "5"
+            }, {
+                "i + b > 0", "1 3"
+            }, {
+                "i * i >= 0", "1 3 4 5"
+            }, {
+                "CAST(i AS BIGINT) * 2 > 0", "1 3"
+            },
+        });
+    }
+
+    /**
+     * Negation and ABS of the smallest value are out of range. Division by
+     * zero is an error for all numeric types.
+     */
+    public void testErrors() {
+
+        checkConditions(new String[][] {
+            {
+                "-i > 0", "E22003"
+            }, {
+                "ABS(i) > 0", "E22003"
+            }, {
+                "b / i > 0", "E22012"
+            }, {
+                "i / 0 > 0", "E22012"
+            }, {
+                "d / 0 > 0", "E22012"
+            }, {
+                "d / i > 0", "E22012"
+            },
+        });
+    }
+
+    /**
+     * A null operand gives a null result, which does not match, and
+     * logical operators follow three-valued logic.
+     */
+    public void testNulls() {
+
+        checkConditions(new String[][] {
+            {
+                "i IS NULL", "2"
+            }, {
+                "i + 1 IS NULL", "2"
+            }, {
+                "i + d > 1", "1 3"
+            }, {
+                "i > 0 AND d > 0", "1 3"
+            }, {
+                "i > 0 OR d > 0", "1 3"
+            }, {
+                "NOT (i > 0)", "4 5"
+            }, {
+                "i BETWEEN 0 AND 10", "1 5"
+            },
+        });
+    }
+
+    /**
+     * Comparisons and arithmetic between different numeric types.
+     */
+    public void testMixedTypes() {
+
+        checkConditions(new String[][] {
+            {
+                "i = b", "1 5"
+            }, {
+                "d = i", "5"
+            }, {
+                "i + 1 = 2", "1"
+            }, {
+                "i / 2 = 0", "1 5"
+            }, {
+                "MOD(i, 2) = 1", "1 3"
+            }, {
+                "i + 1.5 > 2", "1 3"
+            }, {
+                "d * 10 > 1e0", "1 3"
+            }, {
+                "d * d > 1e0", "1 3"
+            },
+        });
+    }
+
+    /**
+     * A compiled condition reads new parameter values on each execution.
+     */
+    public void testParameters() throws SQLException {
+
+        PreparedStatement ps = conn.prepareStatement(
+            "SELECT COUNT(*) FROM n WHERE i * ? > ?");
+        int[][] values = new int[][] {
+            {
+                2, 0, 2
+            }, {
+                -1, 0, 1
+            }, {
+                0, -1, 4
+            },
+        };
+
+        for (int i = 0; i < values.length; i++) {
+            ps.setInt(1, values[i][0]);
+            ps.setInt(2, values[i][1]);
+
+            ResultSet rs = ps.executeQuery();
+
+            rs.next();
+            assertEquals(values[i][2], rs.getInt(1));
+        }
+
+        ps.setNull(1, Types.INTEGER);
+
+        ResultSet rs = ps.executeQuery();
+
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+    }
+
+    /**
+     * Returns the values of the expression for each row, or the SQL state
+     * of the error for the row.
+     */
+    String getValues(Statement statement, String expression) {
+
+        StringBuffer sb = new StringBuffer();
+
+        for (int id = 1; id <= 5; id++) {
+            if (id > 1) {
+                sb.append(' ');
+            }
+
+            try {
+                ResultSet rs = statement.executeQuery("SELECT " + expression
+                                                      + " FROM n WHERE id = "
+                                                      + id);
+
+                rs.next();
+                sb.append(rs.getString(1));
+                rs.close();
+            } catch (SQLException e) {
+                sb.append('E').append(e.getSQLState());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    static final String[][] selectListCases = new String[][] {
+        {
+            "i + 1", "2 null 2147483648 -2147483647 1"
+        }, {
+            "i + i", "2 null 4294967294 -4294967296 0"
+        }, {
+            "b + 1", "2 11 9223372036854775808 -9223372036854775807 1"
+        }, {
+            "b * 2", "2 20 18446744073709551614 -18446744073709551616 0"
+        }, {
+            "-i", "-1 null -2147483647 E22003 0"
+        }, {
+            "b / i", "1 null 4294967298 4294967296 E22012"
+        }, {
+            "d / 0", "E22012 null E22012 E22012 E22012"
+        }, {
+            "d * 10", "15.0E0 null 1E0/0 -5.0E0 0.0E0"
+        }, {
+            "i + d", "2.5E0 null 1.0E308 -2.1474836485E9 0.0E0"
+        }, {
+            "i / 2", "0 null 1073741823 -1073741824 0"
+        }, {
+            "MOD(i, 3)", "1 null 1 -2 0"
+        }, {
+            "i - b",
+            "0 null -9223372034707292160 9223372034707292160 0"
+        }, {
+            "ABS(b)", "1 10 9223372036854775807 E22003 0"
+        },
+    };
+
+    /**
+     * Select list arithmetic is compiled with the same rules as conditions.
+     */
+    public void testSelectList() {
+
+        for (int i = 0; i < selectListCases.length; i++) {
+            String expression = selectListCases[i][0];
+
+            assertEquals(expression, selectListCases[i][1],
+                         getValues(st, expression));
+        }
+    }
+
+    /**
+     * With hsqldb.compile_expressions=false all expressions are
+     * interpreted, with the same results.
+     */
+    public void testCompilationOff() throws SQLException {
+
+        Connection c = DriverManager.getConnection(
+            "jdbc:hsqldb:mem:testinterpreted;hsqldb.compile_expressions=false",
+            "sa", "");
+        Statement s = c.createStatement();
+
+        createTable(s);
+
+        ResultSet rs = s.executeQuery(
+            "SELECT PROPERTY_VALUE FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES"
+            + " WHERE PROPERTY_NAME = 'hsqldb.compile_expressions'");
+
+        rs.next();
+        assertEquals("false", rs.getString(1));
+
+        for (int i = 0; i < selectListCases.length; i++) {
+            String expression = selectListCases[i][0];
+
+            assertEquals(expression, selectListCases[i][1],
+                         getValues(s, expression));
+        }
+
+        s.execute("SHUTDOWN");
+    }
+}
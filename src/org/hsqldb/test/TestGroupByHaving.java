@@ -289,6 +289,114 @@ public class TestGroupByHaving extends TestCase {
         compareResults(sql, expected, "42573");
     }
 
+    /**
+     * Tests grouping of strings that are equal when trailing spaces are
+     * ignored. NULL values form a single group.
+     */
+    public void testGroupByTrailingSpaces() throws SQLException {
+
+        stmt.execute("drop table group_str if exists");
+        stmt.execute("create table group_str(s varchar(10))");
+        stmt.execute("insert into group_str values ('a'), ('a '), ('a  '), "
+                     + "('b'), (null), (null)");
+
+        String sql = "select count(*), max(trim(s)) from group_str "
+                     + "group by s order by 1";
+        Object[][] expected = new Object[][] {
+            {
+                new Integer(1), "b"
+            }, {
+                new Integer(2), null
+            }, {
+                new Integer(3), "a"
+            },
+        };
+
+        compareResults(sql, expected, "00000");
+    }
+
+    /**
+     * Tests that numeric values are grouped as they compare: decimals with
+     * different scales are equal, while DOUBLE zero and negative zero are
+     * distinct.
+     */
+    public void testGroupByEqualNumbers() throws SQLException {
+
+        stmt.execute("drop table group_num if exists");
+        stmt.execute("create table group_num(d double, n decimal(10,3))");
+        stmt.execute("insert into group_num values (0e0, 1.5), (-0e0, 1.50), "
+                     + "(1e0, 1.500), (1e0, 2)");
+
+        String sql = "select count(*) from group_num group by d order by 1";
+        Object[][] expected = new Object[][] {
+            {
+                new Integer(1)
+            }, {
+                new Integer(1)
+            }, {
+                new Integer(2)
+            },
+        };
+
+        compareResults(sql, expected, "00000");
+
+        sql = "select count(*), sum(c) from (select n, 1 as c from group_num "
+              + "union all select cast(n as decimal(10,1)), 2 "
+              + "from group_num) group by n order by 1";
+        expected = new Object[][] {
+            {
+                new Integer(2), new Integer(3)
+            }, {
+                new Integer(6), new Integer(9)
+            },
+        };
+
+        compareResults(sql, expected, "00000");
+    }
+
+    /**
+     * Tests that a GROUP BY over many groups returns the same groups with
+     * and without an index on the grouped columns.
+     */
+    public void testGroupByManyGroups() throws SQLException {
+
+        stmt.execute("drop table group_many if exists");
+        stmt.execute("create table group_many(id int primary key, "
+                     + "k int, s varchar(10), v int)");
+
+        for (int i = 0; i < 5000; i++) {
+            stmt.execute("insert into group_many values (" + i + ", "
+                         + (i % 100) + ", 's" + (i % 7) + "', " + i + ")");
+        }
+
+        String sql = "select k, s, count(*), sum(v) from group_many "
+                     + "group by k, s order by k, s";
+        ResultSet rs     = stmt.executeQuery(sql);
+        Object[][] rows  = new Object[700][];
+        int        count = 0;
+
+        while (rs.next()) {
+            rows[count++] = new Object[] {
+                new Integer(rs.getInt(1)), rs.getString(2),
+                new Integer(rs.getInt(3)), new Integer(rs.getInt(4))
+            };
+        }
+
+        rs.close();
+        assertEquals(700, count);
+
+        int total = 0;
+
+        for (int i = 0; i < count; i++) {
+            total += ((Integer) rows[i][3]).intValue();
+        }
+
+        assertEquals(5000 * 4999 / 2, total);
+        stmt.execute("create index idx_group_many on group_many(k, s)");
+        compareResults(sql, rows, "00000");
+        stmt.execute("drop table group_many");
+    }
+
     //------------------------------------------------------------
     // Helper methods
     //------------------------------------------------------------
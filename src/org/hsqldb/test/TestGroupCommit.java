@@ -0,0 +1,584 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hsqldb.HsqlException;
+import org.hsqldb.Session;
+import org.hsqldb.jdbc.JDBCConnection;
+import org.hsqldb.lib.FileAccess;
+import org.hsqldb.lib.FileUtil;
+import org.hsqldb.scriptio.ScriptWriterBase;
+import org.hsqldb.scriptio.ScriptWriterText;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of commits with WRITE DELAY FALSE: recovery of the commits that
+ * were acknowledged in group commit mode and the reporting of failed log
+ * syncs to the committing sessions.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestGroupCommit extends TestCase {
+
+    String filepath = "/hsql/testgroupcommit/test";
+    String url      = "jdbc:hsqldb:file:" + filepath;
+    String user     = "sa";
+    String password = "";
+
+    public TestGroupCommit(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        TestUtil.deleteDatabase(filepath);
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    }
+
+    protected void tearDown() {
+        TestUtil.deleteDatabase(filepath);
+    }
+
+    Connection newConnection() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * Rows inserted by concurrent sessions in group commit mode are all in
+     * the log when the database is abandoned after the commits return.
+     */
+    public void testGroupCommitRecovery() throws Exception {
+
+        Connection conn = newConnection();
+        Statement  st   = conn.createStatement();
+
+        st.execute("SET FILES WRITE DELAY FALSE");
+        st.execute("SET FILES GROUP COMMIT TRUE");
+        st.execute("CREATE CACHED TABLE t (id INT PRIMARY KEY, v INT)");
+
+        final int      threadCount = 4;
+        final int      rowCount    = 100;
+        Thread[]       threads     = new Thread[threadCount];
+        final String[] errors      = new String[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            final int base = i * rowCount;
+            final int slot = i;
+
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = newConnection();
+                        Statement  s = c.createStatement();
+
+                        for (int j = 0; j < rowCount; j++) {
+                            s.execute("INSERT INTO t VALUES (" + (base + j)
+                                      + ", " + j + ")");
+                        }
+
+                        c.close();
+                    } catch (SQLException e) {
+                        errors[slot] = e.toString();
+                    }
+                }
+            };
+
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].join();
+            assertNull(errors[i], errors[i]);
+        }
+
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        conn = newConnection();
+        st   = conn.createStatement();
+
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM t");
+
+        rs.next();
+        assertEquals(threadCount * rowCount, rs.getInt(1));
+
+        rs = st.executeQuery(
+            "SELECT PROPERTY_VALUE FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES"
+            + " WHERE PROPERTY_NAME = 'hsqldb.group_commit'");
+
+        rs.next();
+        assertEquals("true", rs.getString(1));
+        st.execute("SHUTDOWN");
+    }
+
+    /**
+     * A failed sync is reported to every session waiting for a commit in
+     * the failed group and to the commits that follow it.
+     */
+    public void testSyncFailureReportedToWaiters() throws Exception {
+
+        Connection           conn    = DriverManager.getConnection(
+            "jdbc:hsqldb:mem:testgroupcommit", user, password);
+        Session              session =
+            (Session) ((JDBCConnection) conn).getSession();
+        FailingSync          sync    = new FailingSync();
+        final ScriptWriterBase writer =
+            new ScriptWriterText(session.getDatabase(),
+                                 new ByteArrayOutputStream(), sync, false);
+
+        writer.setWriteDelay(0);
+        writer.setGroupCommit(true);
+        writer.start();
+        writer.writeCommitStatement(session);
+        writer.getCommitSync().waitForSync();
+
+        sync.isFailing = true;
+
+        writer.writeCommitStatement(session);
+
+        final ScriptWriterBase.CommitSync first = writer.getCommitSync();
+
+        writer.writeCommitStatement(session);
+
+        final ScriptWriterBase.CommitSync second = writer.getCommitSync();
+        final boolean[]                   failed = new boolean[2];
+        Thread[]                          threads = new Thread[2];
+
+        for (int i = 0; i < threads.length; i++) {
+            final ScriptWriterBase.CommitSync commit = i == 0 ? first
+                                                              : second;
+            final int                         slot   = i;
+
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        commit.waitForSync();
+                    } catch (HsqlException e) {
+                        failed[slot] = true;
+                    }
+                }
+            };
+
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join(10000);
+            assertFalse(threads[i].isAlive());
+            assertTrue(failed[i]);
+        }
+
+        // the log is not trusted after the failure, even if syncs succeed
+        sync.isFailing = false;
+
+        writer.writeCommitStatement(session);
+
+        try {
+            writer.getCommitSync().waitForSync();
+            fail("commit after failed sync reported as synced");
+        } catch (HsqlException e) {}
+
+        writer.stop();
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    /**
+     * The rows of a transaction whose commit sync failed are not in the
+     * database when it is reopened, while the commits made before the
+     * failure and after the checkpoint that follows it are.
+     */
+    public void testSyncFailureRecovery() throws Exception {
+        checkSyncFailureRecovery("LOCKS");
+        checkSyncFailureRecovery("MVCC");
+    }
+
+    void checkSyncFailureRecovery(String mode) throws Exception {
+
+        TestUtil.deleteDatabase(filepath);
+
+        String failingUrl = url + ";fileaccess_class_name="
+                            + FailingFileAccess.class.getName()
+                            + ";storage_class_name="
+                            + "org.hsqldb.persist.RAFile";
+        Connection conn = DriverManager.getConnection(failingUrl, user,
+            password);
+        Statement st = conn.createStatement();
+
+        st.execute("SET DATABASE TRANSACTION CONTROL " + mode);
+        st.execute("SET FILES WRITE DELAY FALSE");
+        st.execute("CREATE MEMORY TABLE t (id INT PRIMARY KEY, v INT)");
+
+        for (int i = 0; i < 10; i++) {
+            st.execute("INSERT INTO t VALUES (" + i + ", " + i + ")");
+        }
+
+        conn.setAutoCommit(false);
+
+        for (int i = 100; i < 110; i++) {
+            st.execute("INSERT INTO t VALUES (" + i + ", " + i + ")");
+        }
+
+        FailingFileAccess.isFailing = true;
+
+        try {
+            conn.commit();
+            fail("commit reported as synced after failed sync");
+        } catch (SQLException e) {}
+
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM t");
+
+        rs.next();
+        assertEquals(10, rs.getInt(1));
+
+        // commits fail until the checkpoint has replaced the log
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while (true) {
+            try {
+                st.execute("INSERT INTO t VALUES (200, 200)");
+                conn.commit();
+
+                break;
+            } catch (SQLException e) {
+                conn.rollback();
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(50);
+            }
+        }
+
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        conn = newConnection();
+        st   = conn.createStatement();
+        rs   = st.executeQuery("SELECT COUNT(*) FROM t WHERE id >= 100"
+                               + " AND id < 110");
+
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+
+        rs = st.executeQuery("SELECT COUNT(*) FROM t WHERE id < 10");
+
+        rs.next();
+        assertEquals(10, rs.getInt(1));
+
+        rs = st.executeQuery("SELECT COUNT(*) FROM t WHERE id = 200");
+
+        rs.next();
+        assertEquals(1, rs.getInt(1));
+        st.execute("SHUTDOWN");
+    }
+
+    /**
+     * Commits that wait for their sync while CHECKPOINT switches to a new
+     * log are all recovered after the database is abandoned.
+     */
+    public void testCommitsDuringCheckpoint() throws Exception {
+
+        Connection conn = newConnection();
+        Statement  st   = conn.createStatement();
+
+        st.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+        st.execute("SET FILES WRITE DELAY FALSE");
+        st.execute("CREATE CACHED TABLE t (id INT PRIMARY KEY, v INT)");
+
+        final int      threadCount = 4;
+        final int      rowCount    = 200;
+        Thread[]       threads     = new Thread[threadCount + 1];
+        final String[] errors      = new String[threadCount + 1];
+
+        for (int i = 0; i < threadCount; i++) {
+            final int base = i * rowCount;
+            final int slot = i;
+
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = newConnection();
+                        Statement  s = c.createStatement();
+
+                        for (int j = 0; j < rowCount; j++) {
+                            s.execute("INSERT INTO t VALUES (" + (base + j)
+                                      + ", " + j + ")");
+                        }
+
+                        c.close();
+                    } catch (SQLException e) {
+                        errors[slot] = e.toString();
+                    }
+                }
+            };
+        }
+
+        threads[threadCount] = new Thread() {
+
+            public void run() {
+
+                try {
+                    Connection c = newConnection();
+
+                    for (int j = 0; j < 5; j++) {
+                        c.createStatement().execute("CHECKPOINT");
+                        Thread.sleep(20);
+                    }
+
+                    c.close();
+                } catch (Exception e) {
+                    errors[threadCount] = e.toString();
+                }
+            }
+        };
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertNull(errors[i], errors[i]);
+        }
+
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        conn = newConnection();
+        st   = conn.createStatement();
+
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM t");
+
+        rs.next();
+        assertEquals(threadCount * rowCount, rs.getInt(1));
+        st.execute("SHUTDOWN");
+    }
+
+    /**
+     * Commits written to a log that is closed while their sync is in
+     * progress are released when the close ends, as failed if the final
+     * sync fails and as synced otherwise.
+     */
+    public void testCloseReleasesWaiters() throws Exception {
+        checkCloseReleasesWaiters(true);
+        checkCloseReleasesWaiters(false);
+    }
+
+    void checkCloseReleasesWaiters(boolean isFailing) throws Exception {
+
+        Connection             conn    = DriverManager.getConnection(
+            "jdbc:hsqldb:mem:testgroupcommit", user, password);
+        Session                session =
+            (Session) ((JDBCConnection) conn).getSession();
+        GatedSync              sync    = new GatedSync();
+        final ScriptWriterBase writer  =
+            new ScriptWriterText(session.getDatabase(),
+                                 new ByteArrayOutputStream(), sync, false);
+
+        writer.setWriteDelay(0);
+        writer.setGroupCommit(true);
+        writer.start();
+        writer.writeCommitStatement(session);
+
+        final ScriptWriterBase.CommitSync commit = writer.getCommitSync();
+        final boolean[]                   failed = new boolean[2];
+        Thread                            waiter = new Thread() {
+
+            public void run() {
+
+                try {
+                    commit.waitForSync();
+                } catch (HsqlException e) {
+                    failed[0] = true;
+                }
+            }
+        };
+        Thread closer = new Thread() {
+
+            public void run() {
+
+                try {
+                    writer.close();
+                } catch (HsqlException e) {
+                    failed[1] = true;
+                }
+            }
+        };
+
+        waiter.start();
+        sync.waitForSyncs(1);
+        closer.start();
+        sync.waitForSyncs(2);
+        sync.open(isFailing);
+        waiter.join(10000);
+        closer.join(10000);
+        assertFalse(waiter.isAlive());
+        assertFalse(closer.isAlive());
+        assertEquals(isFailing, failed[0]);
+        assertEquals(isFailing, failed[1]);
+
+        // later waits on the closed writer return the same outcome
+        try {
+            commit.waitForSync();
+            assertFalse(isFailing);
+        } catch (HsqlException e) {
+            assertTrue(isFailing);
+        }
+
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    static class FailingSync implements FileAccess.FileSync {
+
+        volatile boolean isFailing;
+
+        public void sync() throws IOException {
+
+            if (isFailing) {
+                throw new IOException("injected sync failure");
+            }
+        }
+    }
+
+    /**
+     * Uses the default file access but fails the next sync of an output
+     * stream after isFailing is set.
+     */
+    public static class FailingFileAccess implements FileAccess {
+
+        static volatile boolean isFailing;
+        FileAccess              fa = FileUtil.getFileUtil();
+
+        public FailingFileAccess(Object param) {}
+
+        public InputStream openInputStreamElement(String streamName)
+        throws IOException {
+            return fa.openInputStreamElement(streamName);
+        }
+
+        public OutputStream openOutputStreamElement(String streamName)
+        throws IOException {
+            return fa.openOutputStreamElement(streamName);
+        }
+
+        public boolean isStreamElement(String elementName) {
+            return fa.isStreamElement(elementName);
+        }
+
+        public void createParentDirs(String filename) {
+            fa.createParentDirs(filename);
+        }
+
+        public void removeElement(String filename) {
+            fa.removeElement(filename);
+        }
+
+        public void renameElement(String oldName, String newName) {
+            fa.renameElement(oldName, newName);
+        }
+
+        public FileSync getFileSync(OutputStream os) throws IOException {
+
+            final FileSync sync = fa.getFileSync(os);
+
+            return new FileSync() {
+
+                public void sync() throws IOException {
+
+                    if (isFailing) {
+                        isFailing = false;
+
+                        throw new IOException("injected sync failure");
+                    }
+
+                    sync.sync();
+                }
+            };
+        }
+    }
+
+    /**
+     * Blocks each sync until open() is called.
+     */
+    static class GatedSync implements FileAccess.FileSync {
+
+        boolean isOpen;
+        boolean isFailing;
+        int     syncCount;
+
+        public synchronized void sync() throws IOException {
+
+            syncCount++;
+
+            notifyAll();
+
+            while (!isOpen) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {}
+            }
+
+            if (isFailing) {
+                throw new IOException("injected sync failure");
+            }
+        }
+
+        synchronized void waitForSyncs(int count) throws InterruptedException {
+
+            while (syncCount < count) {
+                wait();
+            }
+        }
+
+        synchronized void open(boolean failing) {
+
+            isFailing = failing;
+            isOpen    = true;
+
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hsqldb.lib.HsqlArrayList;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of equi-joins on columns without an index, which are executed with
+ * a hash table of the inner table. The results are compared with the same
+ * join written so that a nested loop is used, and with the same join after
+ * indexes are created on the join columns.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestHashJoin extends TestCase {
+
+    Connection conn;
+    Statement  st;
+
+    public TestHashJoin(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        conn = DriverManager.getConnection("jdbc:hsqldb:mem:testhashjoin",
+                                           "sa", "");
+        st = conn.createStatement();
+
+        st.execute("CREATE TABLE a (id INT PRIMARY KEY, x INT, s VARCHAR(10),"
+                   + " d DECIMAL(10,2), c VARCHAR(10))");
+        st.execute("CREATE TABLE b (id INT PRIMARY KEY, y INT, big BIGINT,"
+                   + " t VARCHAR(10), e DECIMAL(10,1), z INT)");
+
+        for (int i = 0; i < 300; i++) {
+            String x = i % 17 == 0 ? "NULL"
+                                   : String.valueOf(i % 50);
+
+            st.execute("INSERT INTO a VALUES (" + i + ", " + x + ", 's"
+                       + (i % 3) + "', " + (i % 40) / 2.0 + ", '"
+                       + (i % 2 == 0 ? "abc"
+                                     : "ABC") + "')");
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String y = i % 13 == 0 ? "NULL"
+                                   : String.valueOf(i % 60);
+
+            st.execute("INSERT INTO b VALUES (" + i + ", " + y + ", " + y
+                       + ", 's" + (i % 4) + "', " + (i % 30) / 2.0 + ", "
+                       + i + ")");
+        }
+    }
+
+    protected void tearDown() throws Exception {
+
+        st.execute("SHUTDOWN");
+        conn.close();
+    }
+
+    HsqlArrayList getRows(String sql) throws SQLException {
+
+        HsqlArrayList     list  = new HsqlArrayList();
+        ResultSet         rs    = st.executeQuery(sql);
+        ResultSetMetaData meta  = rs.getMetaData();
+        int               count = meta.getColumnCount();
+
+        while (rs.next()) {
+            StringBuffer sb = new StringBuffer();
+
+            for (int i = 1; i <= count; i++) {
+                sb.append(rs.getString(i)).append(',');
+            }
+
+            list.add(sb.toString());
+        }
+
+        rs.close();
+
+        return list;
+    }
+
+    /**
+     * Compares the hash join with a nested loop join, where each equality
+     * is written as NOT (left <> right), and with an index join after the
+     * given index is created.
+     */
+    void checkJoin(String select, String join, String nestedLoopJoin,
+                   String indexDDL) throws SQLException {
+
+        String        order    = " ORDER BY 1, 2";
+        HsqlArrayList hashed   = getRows(select + join + order);
+        HsqlArrayList expected = getRows(select + nestedLoopJoin + order);
+
+        assertTrue(expected.size() > 0);
+        assertEquals(expected.size(), hashed.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), hashed.get(i));
+        }
+
+        st.execute(indexDDL);
+
+        HsqlArrayList indexed = getRows(select + join + order);
+
+        assertEquals(expected.size(), indexed.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), indexed.get(i));
+        }
+    }
+
+    public void testInnerJoin() throws SQLException {
+
+        checkJoin("SELECT a.id, b.id FROM a ", "JOIN b ON a.x = b.y",
+                  "JOIN b ON NOT (a.x <> b.y)",
+                  "CREATE INDEX iby ON b (y)");
+    }
+
+    public void testLeftJoin() throws SQLException {
+
+        checkJoin("SELECT a.id, b.id FROM a ",
+                  "LEFT JOIN b ON a.x = b.y AND b.z > 50",
+                  "LEFT JOIN b ON NOT (a.x <> b.y) AND b.z > 50",
+                  "CREATE INDEX iby ON b (y)");
+    }
+
+    public void testMultiColumnJoin() throws SQLException {
+
+        checkJoin("SELECT a.id, b.id FROM a ",
+                  "JOIN b ON a.x = b.y AND a.s = b.t",
+                  "JOIN b ON NOT (a.x <> b.y) AND NOT (a.s <> b.t)",
+                  "CREATE INDEX ibyt ON b (y, t)");
+    }
+
+    /**
+     * INTEGER values are joined to equal BIGINT values.
+     */
+    public void testMixedIntegralTypes() throws SQLException {
+
+        checkJoin("SELECT a.id, b.id FROM a ", "JOIN b ON a.x = b.big",
+                  "JOIN b ON NOT (a.x <> b.big)",
+                  "CREATE INDEX ibbig ON b (big)");
+    }
+
+    /**
+     * DECIMAL values with different scales, such as 1.50 and 1.5, are
+     * equal.
+     */
+    public void testDecimalScales() throws SQLException {
+
+        checkJoin("SELECT a.id, b.id FROM a ", "JOIN b ON a.d = b.e",
+                  "JOIN b ON NOT (a.d <> b.e)",
+                  "CREATE INDEX ibe ON b (e)");
+    }
+
+    /**
+     * The join condition is on the outer table with the inner table in the
+     * WHERE clause.
+     */
+    public void testCommaJoin() throws SQLException {
+
+        checkJoin("SELECT b.id, a.id FROM b, a ", "WHERE b.y = a.x",
+                  "WHERE NOT (b.y <> a.x)", "CREATE INDEX iax ON a (x)");
+    }
+
+    /**
+     * Strings with a case insensitive collation are not hashed. The join
+     * uses the collation of the inner column, with or without an index.
+     */
+    public void testCollatedStrings() throws SQLException {
+
+        st.execute("CREATE TABLE ci (id INT PRIMARY KEY,"
+                   + " c VARCHAR(10) COLLATE SQL_TEXT_UCC)");
+
+        for (int i = 0; i < 50; i++) {
+            st.execute("INSERT INTO ci VALUES (" + i + ", '"
+                       + (i % 2 == 0 ? "abc"
+                                     : "Abc") + "')");
+        }
+
+        String sql =
+            "SELECT a.id, ci.id FROM a JOIN ci ON a.c = ci.c ORDER BY 1, 2";
+        HsqlArrayList scanned = getRows(sql);
+
+        assertEquals(300 * 50, scanned.size());
+        st.execute("CREATE INDEX icic ON ci (c)");
+
+        HsqlArrayList indexed = getRows(sql);
+
+        assertEquals(scanned.size(), indexed.size());
+
+        for (int i = 0; i < scanned.size(); i++) {
+            assertEquals(scanned.get(i), indexed.get(i));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of indexes that are built for all the rows of a table at once, by
+ * CREATE INDEX and ALTER TABLE, for MEMORY and CACHED tables.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestIndexBuild extends TestCase {
+
+    String filepath = "/hsql/testindexbuild/test";
+    String url      = "jdbc:hsqldb:file:" + filepath;
+    String user     = "sa";
+    String password = "";
+
+    //
+    static final int rowCount = 20000;
+
+    //
+    Connection conn;
+    Statement  st;
+
+    public TestIndexBuild(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        TestUtil.deleteDatabase(filepath);
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        conn = DriverManager.getConnection(url, user, password);
+        st   = conn.createStatement();
+    }
+
+    protected void tearDown() throws Exception {
+
+        st.execute("SHUTDOWN");
+        TestUtil.deleteDatabase(filepath);
+    }
+
+    /**
+     * Creates table t with random values in a and b. Column a has
+     * duplicates, b has NULLs and c is unique.
+     */
+    void createTable(String type) throws SQLException {
+
+        st.execute("CREATE " + type + " TABLE t (id INT, a INT, b INT,"
+                   + " c VARCHAR(20))");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO t VALUES (?, ?, ?, ?)");
+        Random random = new Random(20);
+
+        for (int i = 0; i < rowCount; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, random.nextInt(rowCount / 4));
+
+            if (i % 7 == 0) {
+                ps.setNull(3, java.sql.Types.INTEGER);
+            } else {
+                ps.setInt(3, random.nextInt(100));
+            }
+
+            ps.setString(4, "c" + (rowCount - i));
+            ps.executeUpdate();
+        }
+
+        ps.close();
+    }
+
+    void checkUniqueViolation(String sql) {
+
+        try {
+            st.execute(sql);
+            fail("duplicate values accepted: " + sql);
+        } catch (SQLException e) {
+            assertEquals("23505", e.getSQLState());
+        }
+    }
+
+    /**
+     * Rows read through the index on a and b come in the order of a sort.
+     */
+    void checkIndexOrder() throws SQLException {
+
+        ResultSet rs = st.executeQuery(
+            "SELECT a, b, id FROM t WHERE a >= 0 ORDER BY a, b NULLS FIRST");
+        int count = 0;
+        int lastA = -1;
+        int lastB = -1;
+
+        while (rs.next()) {
+            int a = rs.getInt(1);
+            int b = rs.getInt(2);
+
+            if (rs.wasNull()) {
+                b = -1;
+            }
+
+            assertTrue(a > lastA || (a == lastA && b >= lastB));
+
+            lastA = a;
+            lastB = b;
+
+            count++;
+        }
+
+        assertEquals(rowCount, count);
+
+        rs = st.executeQuery(
+            "SELECT COUNT(*) FROM t WHERE a = 100 AND b IS NULL");
+
+        rs.next();
+
+        int nullCount = rs.getInt(1);
+
+        rs = st.executeQuery(
+            "SELECT COUNT(*) FROM (SELECT * FROM t) x"
+            + " WHERE a = 100 AND b IS NULL");
+
+        rs.next();
+        assertEquals(rs.getInt(1), nullCount);
+    }
+
+    void checkBuild(String type) throws SQLException {
+
+        createTable(type);
+        st.execute("CREATE INDEX t_ab ON t (a, b)");
+        checkIndexOrder();
+
+        // duplicates in a, NULLs in b
+        checkUniqueViolation("CREATE UNIQUE INDEX t_a ON t (a)");
+        checkUniqueViolation("ALTER TABLE t ADD CONSTRAINT t_u UNIQUE (a)");
+        checkUniqueViolation("ALTER TABLE t ADD PRIMARY KEY (a)");
+
+        // NULLs are not equal to each other
+        st.execute("ALTER TABLE t ADD CONSTRAINT t_u UNIQUE (id, b)");
+        st.execute("ALTER TABLE t ADD PRIMARY KEY (id)");
+        st.execute("CREATE UNIQUE INDEX t_c ON t (c DESC)");
+
+        ResultSet rs = st.executeQuery("SELECT c FROM t ORDER BY c DESC");
+
+        assertTrue(rs.next());
+        assertEquals("c9999", rs.getString(1));
+
+        // the table is unchanged by the failed statements
+        st.execute("ALTER TABLE t ADD COLUMN d INT DEFAULT 1");
+        checkIndexOrder();
+        checkUniqueViolation("INSERT INTO t VALUES (0, 0, 0, 'x', 0)");
+        checkUniqueViolation("INSERT INTO t VALUES (-1, 0, 0, 'c1', 0)");
+
+        rs = st.executeQuery("SELECT COUNT(*), SUM(d) FROM t");
+
+        rs.next();
+        assertEquals(rowCount, rs.getInt(1));
+        assertEquals(rowCount, rs.getInt(2));
+    }
+
+    public void testMemoryTable() throws SQLException {
+        checkBuild("MEMORY");
+    }
+
+    public void testCachedTable() throws SQLException {
+
+        st.execute("SET FILES CACHE ROWS 1000");
+        checkBuild("CACHED");
+        st.execute("SHUTDOWN");
+
+        conn = DriverManager.getConnection(url, user, password);
+        st   = conn.createStatement();
+
+        checkIndexOrder();
+    }
+}
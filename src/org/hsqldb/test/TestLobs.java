@@ -943,6 +943,287 @@ public class TestLobs extends TestBase {
         }
     }
 
+    static byte[] getBlobData(int id, int length) {
+
+        byte[] data = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (id * 31 + i);
+        }
+
+        return data;
+    }
+
+    static String checkBlob(Connection conn, int id,
+                            int length) throws SQLException {
+
+        PreparedStatement ps = conn.prepareStatement(
+            "select b from blobconc where id = ?");
+
+        ps.setInt(1, id);
+
+        ResultSet rs = ps.executeQuery();
+
+        if (!rs.next()) {
+            return "missing lob " + id;
+        }
+
+        Blob   blob     = rs.getBlob(1);
+        byte[] expected = getBlobData(id, length);
+        byte[] data     = blob.getBytes(1, (int) blob.length());
+
+        if (!java.util.Arrays.equals(expected, data)) {
+            return "wrong lob " + id;
+        }
+
+        rs.close();
+        ps.close();
+
+        return null;
+    }
+
+    /**
+     * New LOBs are copied while other sessions read, delete and checkpoint.
+     */
+    public void testBlobConcurrent() {
+
+        System.out.println("Starting (sub-)test: " + getName());
+
+        final int length = 100000;
+
+        try {
+            statement.execute("drop table blobconc if exists");
+            statement.execute(
+                "create table blobconc (id int primary key, b blob(1M))");
+
+            PreparedStatement ps = connection.prepareStatement(
+                "insert into blobconc values(?, ?)");
+
+            for (int i = 0; i < 10; i++) {
+                ps.setInt(1, i);
+                ps.setBytes(2, getBlobData(i, length));
+                ps.executeUpdate();
+            }
+
+            ps.close();
+
+            final String[] errors  = new String[5];
+            Thread[]       threads = new Thread[5];
+
+            for (int t = 0; t < 2; t++) {
+                final int slot = t;
+
+                threads[t] = new Thread() {
+
+                    public void run() {
+
+                        try {
+                            Connection c = newConnection();
+                            PreparedStatement insert = c.prepareStatement(
+                                "insert into blobconc values(?, ?)");
+                            PreparedStatement delete = c.prepareStatement(
+                                "delete from blobconc where id = ?");
+
+                            for (int i = 0; i < 20; i++) {
+                                int id = 100 + slot * 100 + i;
+
+                                insert.setInt(1, id);
+                                insert.setBinaryStream(
+                                    2, new HsqlByteArrayInputStream(
+                                        getBlobData(id, length)), length);
+                                insert.executeUpdate();
+
+                                if (i >= 2) {
+                                    delete.setInt(1, id - 2);
+                                    delete.executeUpdate();
+                                }
+                            }
+
+                            c.close();
+                        } catch (SQLException e) {
+                            errors[slot] = e.toString();
+                        }
+                    }
+                };
+            }
+
+            for (int t = 2; t < 4; t++) {
+                final int slot = t;
+
+                threads[t] = new Thread() {
+
+                    public void run() {
+
+                        try {
+                            Connection c = newConnection();
+
+                            for (int i = 0; i < 50; i++) {
+                                String error = checkBlob(c, i % 10, length);
+
+                                if (error != null) {
+                                    errors[slot] = error;
+
+                                    break;
+                                }
+                            }
+
+                            c.close();
+                        } catch (SQLException e) {
+                            errors[slot] = e.toString();
+                        }
+                    }
+                };
+            }
+
+            threads[4] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = newConnection();
+
+                        for (int i = 0; i < 5; i++) {
+                            c.createStatement().execute("checkpoint");
+                        }
+
+                        c.close();
+                    } catch (SQLException e) {
+                        errors[4] = e.toString();
+                    }
+                }
+            };
+
+            for (int t = 0; t < threads.length; t++) {
+                threads[t].start();
+            }
+
+            for (int t = 0; t < threads.length; t++) {
+                threads[t].join();
+                assertNull(errors[t], errors[t]);
+            }
+
+            statement.execute("checkpoint");
+
+            ResultSet rs = statement.executeQuery(
+                "select id from blobconc order by id");
+            int       count = 0;
+
+            while (rs.next()) {
+                int id = rs.getInt(1);
+
+                assertTrue(id < 10 || (id % 100) >= 18);
+                assertNull(checkBlob(connection, id, length));
+
+                count++;
+            }
+
+            assertEquals(14, count);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("test failure");
+        }
+    }
+
+    /**
+     * Ranges that start or end inside, at or across LOB block boundaries,
+     * then reads from a thread that is interrupted while reading.
+     */
+    public void testBlobRanges() {
+
+        System.out.println("Starting (sub-)test: " + getName());
+
+        final int    length    = 200000;
+        final int    blockSize = 32 * 1024;
+        final byte[] data      = getBlobData(7, length);
+        int[][]      ranges    = {
+            {
+                1, 10
+            }, {
+                1, blockSize
+            }, {
+                blockSize, 2
+            }, {
+                blockSize - 9, 20
+            }, {
+                blockSize + 1, blockSize
+            }, {
+                blockSize * 2 - 100, blockSize * 3 + 200
+            }, {
+                length - 10, 10
+            }, {
+                1, length
+            }
+        };
+
+        try {
+            statement.execute("drop table blobconc if exists");
+            statement.execute(
+                "create table blobconc (id int primary key, b blob(1M))");
+
+            PreparedStatement ps = connection.prepareStatement(
+                "insert into blobconc values(?, ?)");
+
+            ps.setInt(1, 7);
+            ps.setBytes(2, data);
+            ps.executeUpdate();
+            ps.close();
+            statement.execute("checkpoint");
+
+            ResultSet rs = statement.executeQuery(
+                "select b from blobconc where id = 7");
+
+            rs.next();
+
+            Blob blob = rs.getBlob(1);
+
+            for (int i = 0; i < ranges.length; i++) {
+                int    position = ranges[i][0];
+                int    count    = ranges[i][1];
+                byte[] bytes    = blob.getBytes(position, count);
+                byte[] expected = new byte[count];
+
+                System.arraycopy(data, position - 1, expected, 0, count);
+                assertTrue("range " + position + " " + count,
+                           java.util.Arrays.equals(expected, bytes));
+            }
+
+            rs.close();
+
+            final String[] errors = new String[1];
+            Thread         reader = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = newConnection();
+
+                        for (int i = 0; i < 20; i++) {
+                            interrupt();
+
+                            try {
+                                checkBlob(c, 7, length);
+                            } catch (SQLException e) {}
+
+                            Thread.interrupted();
+                        }
+
+                        c.close();
+                    } catch (SQLException e) {
+                        errors[0] = e.toString();
+                    }
+                }
+            };
+
+            reader.start();
+            reader.join();
+            assertNull(errors[0], errors[0]);
+            assertNull(checkBlob(connection, 7, length));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("test failure");
+        }
+    }
+
 /*
     public static void main(String[] args) throws SQLException {
          Connection con = null;
@@ -0,0 +1,314 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hsqldb.error.ErrorCode;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the replay of the redo log with hsqldb.parallel_log_replay:
+ * the same log is replayed in parallel and in sequence and the resulting
+ * tables are compared.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestLogReplay extends TestCase {
+
+    String   filepath = "/hsql/testlogreplay/test";
+    String   copypath = "/hsql/testlogreplay/copy/test";
+    String   user     = "sa";
+    String   password = "";
+    String[] tables   = {
+        "T0", "T1", "T2", "T3"
+    };
+
+    //
+    static final String[] extensions = {
+        ".properties", ".script", ".log", ".data", ".backup", ".lobs"
+    };
+
+    public TestLogReplay(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        TestUtil.deleteDatabase(filepath);
+        TestUtil.deleteDatabase(copypath);
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    }
+
+    protected void tearDown() {
+        TestUtil.deleteDatabase(filepath);
+        TestUtil.deleteDatabase(copypath);
+    }
+
+    Connection newConnection(String path,
+                             String properties) throws SQLException {
+        return DriverManager.getConnection("jdbc:hsqldb:file:" + path
+                                           + properties, user, password);
+    }
+
+    /**
+     * Writes a log of MEMORY and CACHED tables, with and without a primary
+     * key, changed by three interleaved sessions. An ALTER TABLE is in the
+     * middle of the log and an uncommitted transaction at the end. The
+     * database is then abandoned and its files are copied.
+     */
+    void writeLog(String properties) throws Exception {
+
+        Connection[] conns = new Connection[3];
+
+        for (int i = 0; i < conns.length; i++) {
+            conns[i] = newConnection(filepath, properties);
+        }
+
+        Statement st = conns[0].createStatement();
+
+        st.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+        st.execute("CREATE MEMORY TABLE t0 (id INT PRIMARY KEY,"
+                   + " v VARCHAR(20), n INT)");
+        st.execute("CREATE CACHED TABLE t1 (id INT PRIMARY KEY,"
+                   + " v VARCHAR(20), n INT)");
+        st.execute("CREATE MEMORY TABLE t2 (id INT, v VARCHAR(20), n INT)");
+        st.execute("CREATE CACHED TABLE t3 (id INT, v VARCHAR(20), n INT)");
+
+        for (int i = 0; i < conns.length; i++) {
+            conns[i].setAutoCommit(false);
+        }
+
+        for (int round = 0; round < 600; round++) {
+            if (round == 300) {
+                for (int i = 0; i < conns.length; i++) {
+                    conns[i].commit();
+                }
+
+                st.execute("ALTER TABLE t1 ADD COLUMN extra INT DEFAULT 5");
+                st.execute("ALTER TABLE t3 ADD COLUMN extra INT DEFAULT 7");
+            }
+
+            int       slot  = round % conns.length;
+            Statement s     = conns[slot].createStatement();
+            String    table = tables[round % tables.length];
+            int       id    = round / tables.length;
+
+            s.execute("INSERT INTO " + table + " (id, v, n) VALUES (" + id
+                      + ", 'row " + round + "', " + round + ")");
+
+            if (round % 5 == 0) {
+                s.execute("UPDATE " + table + " SET n = n + 1000 WHERE id = "
+                          + (id / 2));
+            }
+
+            if (round % 7 == 0) {
+                s.execute("DELETE FROM " + table + " WHERE id = "
+                          + (id / 3));
+            }
+
+            if (round % 11 == 0) {
+                conns[slot].rollback();
+            } else if (round % 4 == 1) {
+                conns[slot].commit();
+            }
+        }
+
+        for (int i = 0; i < conns.length - 1; i++) {
+            conns[i].commit();
+        }
+
+        conns[2].createStatement().execute(
+            "INSERT INTO t0 VALUES (-1, 'uncommitted', 0)");
+        st.execute("SHUTDOWN IMMEDIATELY");
+        copyDatabase(filepath, copypath);
+    }
+
+    static void copyDatabase(String from, String to) throws IOException {
+
+        new File(to).getParentFile().mkdirs();
+
+        for (int i = 0; i < extensions.length; i++) {
+            File file = new File(from + extensions[i]);
+
+            if (!file.exists()) {
+                continue;
+            }
+
+            InputStream  in  = new FileInputStream(file);
+            OutputStream out = new FileOutputStream(to + extensions[i]);
+            byte[]       buffer = new byte[4096];
+
+            for (int count; (count = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, count);
+            }
+
+            in.close();
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the rows of all tables in a canonical order.
+     */
+    String getContents(Connection conn) throws SQLException {
+
+        StringBuffer sb = new StringBuffer();
+        Statement    st = conn.createStatement();
+
+        for (int i = 0; i < tables.length; i++) {
+            ResultSet rs = st.executeQuery("SELECT * FROM " + tables[i]
+                                           + " ORDER BY id, v, n");
+            ResultSetMetaData meta = rs.getMetaData();
+
+            sb.append(tables[i]).append('\n');
+
+            while (rs.next()) {
+                for (int j = 1; j <= meta.getColumnCount(); j++) {
+                    sb.append(rs.getString(j)).append(',');
+                }
+
+                sb.append('\n');
+            }
+        }
+
+        return sb.toString();
+    }
+
+    void checkReplay(String properties) throws Exception {
+
+        writeLog(properties);
+
+        Connection conn = newConnection(filepath, properties);
+        String     sequential = getContents(conn);
+
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = newConnection(copypath,
+                             properties + ";hsqldb.parallel_log_replay=true");
+
+        String parallel = getContents(conn);
+
+        conn.createStatement().execute("SHUTDOWN");
+        assertEquals(sequential, parallel);
+        assertTrue(sequential.indexOf("row 598,") > 0);
+        assertTrue(sequential.indexOf("uncommitted") < 0);
+    }
+
+    public void testTextLog() throws Exception {
+        checkReplay("");
+    }
+
+    public void testBinaryLog() throws Exception {
+        checkReplay(";hsqldb.log_binary=true");
+    }
+
+    /**
+     * A logged insert that fails when it is replayed. The sequential replay
+     * stops at the failed statement and opens the database. The parallel
+     * replay cannot undo the commits already applied by other workers, so
+     * it refuses to open the database.
+     */
+    public void testReplayError() throws Exception {
+
+        writeLog("");
+
+        String lines = "/*C9*/SET SCHEMA PUBLIC\n"
+                       + "INSERT INTO T0 VALUES(-5,'dup',0)\nCOMMIT\n"
+                       + "INSERT INTO T0 VALUES(-5,'dup',0)\nCOMMIT\n"
+                       + "INSERT INTO T0 VALUES(-6,'after',0)\nCOMMIT\n";
+
+        // the duplicate row is the fourth line appended
+        int errorLine = countLines(copypath) + 4;
+
+        appendLog(filepath, lines);
+        appendLog(copypath, lines);
+
+        Connection conn     = newConnection(filepath, "");
+        String     contents = getContents(conn);
+
+        conn.createStatement().execute("SHUTDOWN");
+        assertTrue(contents.indexOf("dup") > 0);
+        assertTrue(contents.indexOf("after") < 0);
+
+        try {
+            conn = newConnection(copypath,
+                                 ";hsqldb.parallel_log_replay=true");
+
+            conn.createStatement().execute("SHUTDOWN");
+            fail("replay error not reported");
+        } catch (SQLException e) {
+            assertEquals(-ErrorCode.ERROR_IN_SCRIPT_FILE, e.getErrorCode());
+            assertTrue(e.getMessage(),
+                       e.getMessage().endsWith("line: " + errorLine));
+        }
+    }
+
+    static int countLines(String path) throws IOException {
+
+        InputStream in    = new FileInputStream(path + ".log");
+        int         count = 0;
+        int         c;
+
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                count++;
+            }
+        }
+
+        in.close();
+
+        return count;
+    }
+
+    static void appendLog(String path, String lines) throws IOException {
+
+        OutputStream out = new FileOutputStream(path + ".log", true);
+
+        out.write(lines.getBytes("ISO-8859-1"));
+        out.close();
+    }
+}
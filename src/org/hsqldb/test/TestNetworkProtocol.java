@@ -0,0 +1,625 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.io.InputStream;
+import java.net.Socket;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.hsqldb.ClientConnection;
+import org.hsqldb.jdbc.JDBCPreparedStatement;
+import org.hsqldb.jdbc.JDBCStatement;
+import org.hsqldb.server.Server;
+import org.hsqldb.server.ServerConstants;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the HSQL protocol features used over a live server: pipelined
+ * async requests, prefetch of result blocks and block compression, with
+ * connections served by the dispatcher thread pool.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestNetworkProtocol extends TestCase {
+
+    String serverProps =
+        "database.0=mem:test;dbname.0=;silent=true;trace=false;dispatch=true;"
+        + "dispatch_threads=2";
+    String url      = "jdbc:hsqldb:hsql://localhost";
+    String user     = "sa";
+    String password = "";
+    Server server;
+
+    public TestNetworkProtocol(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        server = new Server();
+
+        server.putPropertiesFromString(serverProps);
+        server.setLogWriter(null);
+        server.setErrWriter(null);
+        server.start();
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    }
+
+    protected void tearDown() throws Exception {
+
+        // shut down by the test
+        if (server.getState() == ServerConstants.SERVER_STATE_SHUTDOWN) {
+            return;
+        }
+
+        Connection conn = newConnection(false);
+
+        conn.createStatement().execute("shutdown");
+        conn.close();
+
+        // the server stops after its last database is shut down
+        while (server.getState() != ServerConstants.SERVER_STATE_SHUTDOWN) {
+            Thread.sleep(100);
+        }
+    }
+
+    Connection newConnection(boolean compress) throws Exception {
+
+        String connectionURL = compress ? url + ";compress_network=true"
+                                        : url;
+
+        return DriverManager.getConnection(connectionURL, user, password);
+    }
+
+    /**
+     * Responses to several async requests arrive in one read and are held
+     * compressed in the buffered stream of the parked server connection.
+     */
+    public void testAsyncUpdatesCompressed() throws Exception {
+
+        Connection conn = newConnection(true);
+        Statement  st   = conn.createStatement();
+
+        st.execute("create table t (id int primary key, v varchar(100))");
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                int id = round * 10 + i;
+
+                ((JDBCStatement) st).executeUpdateAsync(
+                    "insert into t values (" + id + ", 'row " + id + "')");
+            }
+
+            int[] counts = ((JDBCStatement) st).getAsyncUpdateCounts();
+
+            assertEquals(10, counts.length);
+
+            for (int i = 0; i < counts.length; i++) {
+                assertEquals(1, counts[i]);
+            }
+        }
+
+        ResultSet rs = st.executeQuery("select count(*) from t");
+
+        rs.next();
+        assertEquals(200, rs.getInt(1));
+        conn.close();
+    }
+
+    /**
+     * More async requests than may be outstanding at once, one of them
+     * failing. The failure is reported only for its own entry and the
+     * statements sent after it are executed.
+     */
+    public void testAsyncUpdatesWithFailure() throws Exception {
+
+        Connection conn = newConnection(false);
+        Statement  st   = conn.createStatement();
+
+        st.execute("create table t (id int primary key, v varchar(100))");
+        st.execute("insert into t values (50, 'existing')");
+
+        for (int i = 0; i < 100; i++) {
+            ((JDBCStatement) st).executeUpdateAsync(
+                "insert into t values (" + i + ", 'row " + i + "')");
+        }
+
+        try {
+            ((JDBCStatement) st).getAsyncUpdateCounts();
+            fail("duplicate key not reported");
+        } catch (BatchUpdateException e) {
+            int[] counts = e.getUpdateCounts();
+
+            assertEquals(100, counts.length);
+
+            for (int i = 0; i < counts.length; i++) {
+                assertEquals(i == 50 ? Statement.EXECUTE_FAILED
+                                     : 1, counts[i]);
+            }
+        }
+
+        ((JDBCStatement) st).executeUpdateAsync("delete from t where id < 10");
+
+        int[] counts = ((JDBCStatement) st).getAsyncUpdateCounts();
+
+        assertEquals(1, counts.length);
+        assertEquals(10, counts[0]);
+
+        ResultSet rs = st.executeQuery("select count(*) from t");
+
+        rs.next();
+        assertEquals(90, rs.getInt(1));
+        conn.close();
+    }
+
+    /**
+     * Pipelined prepared statements followed by a commit or rollback in the
+     * same round trip, checked from another connection.
+     */
+    public void testAsyncPreparedCommit() throws Exception {
+
+        Connection conn  = newConnection(false);
+        Connection other = newConnection(true);
+        Statement  st    = conn.createStatement();
+
+        st.execute("create table t (id int primary key, v varchar(100))");
+        conn.setAutoCommit(false);
+
+        JDBCPreparedStatement ps = (JDBCPreparedStatement) conn
+            .prepareStatement("insert into t values (?, ?)");
+
+        for (int i = 0; i < 30; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "row " + i);
+            ps.executeUpdateAsync();
+        }
+
+        conn.commit();
+
+        for (int i = 30; i < 60; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "row " + i);
+            ps.executeUpdateAsync();
+        }
+
+        conn.rollback();
+
+        int[] counts = ps.getAsyncUpdateCounts();
+
+        assertEquals(60, counts.length);
+
+        ResultSet rs = other.createStatement().executeQuery(
+            "select count(*), max(id) from t");
+
+        rs.next();
+        assertEquals(30, rs.getInt(1));
+        assertEquals(29, rs.getInt(2));
+        conn.close();
+        other.close();
+    }
+
+    void createRows(Connection conn, int count) throws Exception {
+
+        Statement st = conn.createStatement();
+
+        st.execute(
+            "create table r (id int primary key, filler varchar(200))");
+
+        PreparedStatement ps =
+            conn.prepareStatement("insert into r values (?, ?)");
+
+        for (int i = 0; i < count; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "filler " + i + " filler filler filler filler");
+            ps.addBatch();
+
+            if (i % 1000 == 999 || i == count - 1) {
+                ps.executeBatch();
+            }
+        }
+
+        ps.close();
+    }
+
+    void checkSequentialRead(boolean compress) throws Exception {
+
+        Connection conn = newConnection(compress);
+
+        createRows(conn, 20000);
+
+        Statement st = conn.createStatement();
+
+        st.setFetchSize(50);
+
+        ResultSet rs    = st.executeQuery("select * from r order by id");
+        int       count = 0;
+
+        while (rs.next()) {
+            assertEquals(count, rs.getInt(1));
+            assertEquals("filler " + count
+                         + " filler filler filler filler", rs.getString(2));
+
+            count++;
+        }
+
+        assertEquals(20000, count);
+        conn.close();
+    }
+
+    /**
+     * Blocks of a held result are prefetched and grow while it is read in
+     * sequence.
+     */
+    public void testPrefetchSequential() throws Exception {
+        checkSequentialRead(false);
+    }
+
+    public void testPrefetchSequentialCompressed() throws Exception {
+        checkSequentialRead(true);
+    }
+
+    /**
+     * A large request is written on the connection while a prefetch is
+     * outstanding, then the scan continues.
+     */
+    public void testPrefetchWithLargeRequest() throws Exception {
+
+        Connection conn = newConnection(false);
+
+        createRows(conn, 20000);
+        conn.setAutoCommit(false);
+
+        Statement st = conn.createStatement();
+
+        st.execute("create table big (id int, v varchar(1000000))");
+        st.setFetchSize(100);
+
+        PreparedStatement ps =
+            conn.prepareStatement("insert into big values (?, ?)");
+        StringBuffer sb = new StringBuffer(500000);
+
+        for (int i = 0; i < 50000; i++) {
+            sb.append("0123456789");
+        }
+
+        String    value = sb.toString();
+        ResultSet rs    = st.executeQuery("select id from r order by id");
+        int       count = 0;
+
+        while (rs.next()) {
+            assertEquals(count, rs.getInt(1));
+
+            if (count % 5000 == 160) {
+                ps.setInt(1, count);
+                ps.setString(2, value);
+                assertEquals(1, ps.executeUpdate());
+            }
+
+            count++;
+        }
+
+        assertEquals(20000, count);
+        conn.commit();
+
+        rs = conn.createStatement().executeQuery(
+            "select count(*), min(char_length(v)) from big");
+
+        rs.next();
+        assertEquals(4, rs.getInt(1));
+        assertEquals(500000, rs.getInt(2));
+        conn.close();
+    }
+
+    /**
+     * Jumps in a scrollable result discard the prefetched block.
+     */
+    public void testPrefetchScrollable() throws Exception {
+
+        Connection conn = newConnection(true);
+
+        createRows(conn, 20000);
+
+        Statement st =
+            conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                 ResultSet.CONCUR_READ_ONLY);
+
+        st.setFetchSize(50);
+
+        ResultSet rs = st.executeQuery("select id from r order by id");
+
+        for (int i = 0; i < 40; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+        }
+
+        assertTrue(rs.absolute(15001));
+        assertEquals(15000, rs.getInt(1));
+        assertTrue(rs.next());
+        assertEquals(15001, rs.getInt(1));
+        assertTrue(rs.absolute(11));
+        assertEquals(10, rs.getInt(1));
+        assertTrue(rs.last());
+        assertEquals(19999, rs.getInt(1));
+        assertTrue(rs.previous());
+        assertEquals(19998, rs.getInt(1));
+        assertTrue(rs.first());
+
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, rs.getInt(1));
+            assertTrue(rs.next());
+        }
+
+        rs.close();
+        conn.close();
+    }
+
+    /**
+     * Values that are sent in small, compressible, incompressible and
+     * multi-block frames over a compressed connection.
+     */
+    public void testCompressedValues() throws Exception {
+
+        Connection conn = newConnection(true);
+        Statement  st   = conn.createStatement();
+
+        st.execute(
+            "create table v (id int primary key, b varbinary(300000))");
+
+        java.util.Random random = new java.util.Random(18);
+        byte[][]         values = new byte[][] {
+            new byte[10], new byte[1000], new byte[1000], new byte[200000],
+            new byte[200000]
+        };
+
+        random.nextBytes(values[2]);
+        random.nextBytes(values[4]);
+
+        PreparedStatement ps =
+            conn.prepareStatement("insert into v values (?, ?)");
+
+        for (int i = 0; i < values.length; i++) {
+            ps.setInt(1, i);
+            ps.setBytes(2, values[i]);
+            ps.executeUpdate();
+        }
+
+        ResultSet rs = st.executeQuery("select b from v order by id");
+
+        for (int i = 0; i < values.length; i++) {
+            assertTrue(rs.next());
+            assertTrue(java.util.Arrays.equals(values[i], rs.getBytes(1)));
+        }
+
+        conn.close();
+    }
+
+    int getSessionCount(Statement st) throws Exception {
+
+        ResultSet rs = st.executeQuery(
+            "select count(*) from information_schema.system_sessions");
+
+        rs.next();
+
+        return rs.getInt(1);
+    }
+
+    /**
+     * Many more connections than dispatcher threads, most of them idle
+     * between their requests.
+     */
+    public void testDispatchManyConnections() throws Exception {
+
+        Connection[] conns = new Connection[50];
+
+        for (int i = 0; i < conns.length; i++) {
+            conns[i] = newConnection(i % 2 == 0);
+        }
+
+        Statement st = conns[0].createStatement();
+
+        st.execute("create table t (id int primary key, v int)");
+        assertEquals(conns.length, getSessionCount(st));
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = conns.length - 1; i >= 0; i--) {
+                int id = round * conns.length + i;
+
+                conns[i].createStatement().execute("insert into t values ("
+                                                   + id + ", " + i + ")");
+            }
+        }
+
+        for (int i = 0; i < conns.length; i++) {
+            ResultSet rs = conns[i].createStatement().executeQuery(
+                "select count(*) from t where v = " + i);
+
+            rs.next();
+            assertEquals(3, rs.getInt(1));
+        }
+
+        for (int i = 0; i < conns.length; i++) {
+            conns[i].close();
+        }
+    }
+
+    /**
+     * A request that waits for a lock keeps its thread, while the requests
+     * of the other connections are run.
+     */
+    public void testDispatchBlockedSession() throws Exception {
+
+        Connection conn = newConnection(false);
+        Statement  st   = conn.createStatement();
+
+        st.execute("create table t (id int primary key, v int)");
+        st.execute("create table u (id int primary key, v int)");
+        st.execute("insert into t values (1, 0)");
+        conn.setAutoCommit(false);
+        st.execute("update t set v = 1 where id = 1");
+
+        final String[] errors = new String[1];
+        Thread         thread = new Thread() {
+
+            public void run() {
+
+                try {
+                    Connection c = newConnection(false);
+
+                    c.createStatement().execute(
+                        "update t set v = 2 where id = 1");
+                    c.close();
+                } catch (Exception e) {
+                    errors[0] = e.toString();
+                }
+            }
+        };
+
+        thread.start();
+        Thread.sleep(200);
+
+        Connection[] conns = new Connection[10];
+
+        for (int i = 0; i < conns.length; i++) {
+            conns[i] = newConnection(false);
+
+            conns[i].createStatement().execute("insert into u values (" + i
+                                               + ", " + i + ")");
+        }
+
+        for (int i = 0; i < conns.length; i++) {
+            ResultSet rs = conns[i].createStatement().executeQuery(
+                "select count(*) from u");
+
+            rs.next();
+            assertEquals(conns.length, rs.getInt(1));
+            conns[i].close();
+        }
+
+        assertTrue(thread.isAlive());
+        conn.commit();
+        thread.join();
+        assertNull(errors[0], errors[0]);
+
+        ResultSet rs = st.executeQuery("select v from t where id = 1");
+
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+        conn.close();
+    }
+
+    /**
+     * A client that drops its socket while the connection is parked. The
+     * server closes the connection and its session.
+     */
+    public void testDispatchClientDisconnect() throws Exception {
+
+        Connection          conn    = newConnection(false);
+        Statement           st      = conn.createStatement();
+        DroppedConnection[] dropped = new DroppedConnection[5];
+
+        for (int i = 0; i < dropped.length; i++) {
+            dropped[i] = new DroppedConnection(user, password);
+        }
+
+        assertEquals(dropped.length + 1, getSessionCount(st));
+
+        for (int i = 0; i < dropped.length; i++) {
+            dropped[i].drop();
+        }
+
+        long limit = System.currentTimeMillis() + 10000;
+
+        while (getSessionCount(st) > 1
+                && System.currentTimeMillis() < limit) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(1, getSessionCount(st));
+        conn.close();
+    }
+
+    /**
+     * A socket that is parked before its first request is closed when the
+     * server shuts down.
+     */
+    public void testDispatchShutdownClosesIdleSocket() throws Exception {
+
+        int    port   = ServerConstants.SC_DEFAULT_HSQL_SERVER_PORT;
+        Socket socket = new Socket("localhost", port);
+
+        socket.setSoTimeout(10000);
+
+        Connection conn = newConnection(false);
+
+        conn.createStatement().execute("shutdown");
+        conn.close();
+
+        while (server.getState() != ServerConstants.SERVER_STATE_SHUTDOWN) {
+            Thread.sleep(100);
+        }
+
+        InputStream in = socket.getInputStream();
+
+        try {
+            assertEquals(-1, in.read());
+        } catch (java.io.IOException e) {
+
+            // reset by the server
+        }
+
+        socket.close();
+    }
+
+    /**
+     * A client connection whose socket can be closed without a disconnect
+     * request.
+     */
+    static class DroppedConnection extends ClientConnection {
+
+        DroppedConnection(String user, String password) {
+            super("localhost", ServerConstants.SC_DEFAULT_HSQL_SERVER_PORT,
+                  "", "", false, false, user, password, 0);
+        }
+
+        void drop() {
+            closeConnection();
+        }
+    }
+}
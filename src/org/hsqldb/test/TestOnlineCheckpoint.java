@@ -0,0 +1,337 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the online checkpoint. The recovery tests recreate the files
+ * left on disk when the database process stops at each step of the switch
+ * to the new .script and .log files and check that open() recovers all the
+ * committed rows.<p>
+ *
+ * Rows A are in the old .script, rows B are logged before the snapshot of
+ * the checkpoint and are in the new .script, rows C are logged after the
+ * snapshot and are copied to the new .log.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestOnlineCheckpoint extends TestCase {
+
+    String filepath = "/hsql/testonlinecheckpoint/test";
+    String url      = "jdbc:hsqldb:file:" + filepath;
+    String user     = "sa";
+    String password = "";
+
+    //
+    byte[] oldScript;
+    byte[] newScript;
+    byte[] logB;
+    byte[] logC;
+    byte[] properties;
+
+    public TestOnlineCheckpoint(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        TestUtil.deleteDatabase(filepath);
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    }
+
+    protected void tearDown() {
+        TestUtil.deleteDatabase(filepath);
+    }
+
+    Connection newConnection() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    void insertRows(Statement st, String set, int count) throws SQLException {
+
+        for (int i = 0; i < count; i++) {
+            st.execute("INSERT INTO t VALUES ('" + set + "', " + i + ")");
+        }
+    }
+
+    /**
+     * Captures the contents of the files an online checkpoint works with.
+     */
+    void prepareFiles() throws Exception {
+
+        Connection conn = newConnection();
+        Statement  st   = conn.createStatement();
+
+        st.execute("SET FILES WRITE DELAY FALSE");
+        st.execute("CREATE MEMORY TABLE t (s CHAR(1), i INT, PRIMARY KEY (s, i))");
+        insertRows(st, "A", 10);
+        st.execute("CHECKPOINT");
+
+        oldScript = readFile(".script");
+
+        insertRows(st, "B", 20);
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        logB = readFile(".log");
+
+        // the open ends with a checkpoint that merges rows B in the script
+        conn = newConnection();
+        st   = conn.createStatement();
+        newScript = readFile(".script");
+
+        insertRows(st, "C", 30);
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        logC       = readFile(".log");
+        properties = readFile(".properties");
+
+        TestUtil.deleteDatabase(filepath);
+    }
+
+    byte[] readFile(String extension) throws IOException {
+
+        InputStream           in  = new FileInputStream(filepath + extension);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[]                buffer = new byte[4096];
+
+        for (int count; (count = in.read(buffer)) > 0; ) {
+            out.write(buffer, 0, count);
+        }
+
+        in.close();
+
+        return out.toByteArray();
+    }
+
+    void writeFile(String extension, byte[] first,
+                   byte[] second) throws IOException {
+
+        OutputStream out = new FileOutputStream(filepath + extension);
+
+        out.write(first);
+
+        if (second != null) {
+            out.write(second);
+        }
+
+        out.close();
+    }
+
+    void writeProperties(String modified) throws IOException {
+
+        Properties props = new Properties();
+
+        props.load(new ByteArrayInputStream(properties));
+        props.setProperty("modified", modified);
+
+        OutputStream out = new FileOutputStream(filepath + ".properties");
+
+        props.store(out, null);
+        out.close();
+    }
+
+    void checkRecovered() throws Exception {
+
+        Connection conn = newConnection();
+        Statement  st   = conn.createStatement();
+        ResultSet rs = st.executeQuery(
+            "SELECT s, COUNT(*) FROM t GROUP BY s ORDER BY s");
+
+        assertTrue(rs.next());
+        assertEquals("A", rs.getString(1));
+        assertEquals(10, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals("B", rs.getString(1));
+        assertEquals(20, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals("C", rs.getString(1));
+        assertEquals(30, rs.getInt(2));
+        assertFalse(rs.next());
+        st.execute("SHUTDOWN");
+
+        assertFalse(new File(filepath + ".script.new").exists());
+        assertFalse(new File(filepath + ".log.new").exists());
+    }
+
+    /**
+     * Stopped while the new .script is written. The partial .script.new
+     * and any .log.new are discarded.
+     */
+    public void testStopWritingScript() throws Exception {
+
+        prepareFiles();
+        writeFile(".script", oldScript, null);
+        writeFile(".log", logB, logC);
+
+        byte[] partial = new byte[newScript.length / 2];
+
+        System.arraycopy(newScript, 0, partial, 0, partial.length);
+        writeFile(".script.new", partial, null);
+        writeFile(".log.new", logC, null);
+        writeProperties("yes");
+        checkRecovered();
+    }
+
+    /**
+     * Stopped after the state is set to FILES_MODIFIED_NEW, before the old
+     * .log is deleted.
+     */
+    public void testStopAfterStateNew() throws Exception {
+
+        prepareFiles();
+        writeFile(".script", oldScript, null);
+        writeFile(".log", logB, logC);
+        writeFile(".script.new", newScript, null);
+        writeFile(".log.new", logC, null);
+        writeProperties("yes-new-files");
+        checkRecovered();
+    }
+
+    /**
+     * Stopped after the old .log is deleted, before the new .script is
+     * renamed.
+     */
+    public void testStopAfterLogDeleted() throws Exception {
+
+        prepareFiles();
+        writeFile(".script", oldScript, null);
+        writeFile(".script.new", newScript, null);
+        writeFile(".log.new", logC, null);
+        writeProperties("yes-new-files");
+        checkRecovered();
+    }
+
+    /**
+     * Stopped after the new .script is renamed, before the state is reset
+     * to FILES_MODIFIED.
+     */
+    public void testStopAfterScriptRenamed() throws Exception {
+
+        prepareFiles();
+        writeFile(".script", newScript, null);
+        writeFile(".log.new", logC, null);
+        writeProperties("yes-new-files");
+        checkRecovered();
+    }
+
+    /**
+     * Stopped after the state is reset to FILES_MODIFIED, before the new
+     * .log is opened.
+     */
+    public void testStopAfterStateModified() throws Exception {
+
+        prepareFiles();
+        writeFile(".script", newScript, null);
+        writeFile(".log.new", logC, null);
+        writeProperties("yes");
+        checkRecovered();
+    }
+
+    /**
+     * Stopped after the records are copied to the new .log, before the
+     * .log.new file is deleted.
+     */
+    public void testStopBeforeNewLogDeleted() throws Exception {
+
+        prepareFiles();
+        writeFile(".script", newScript, null);
+        writeFile(".log", logC, null);
+        writeFile(".log.new", logC, null);
+        writeProperties("yes");
+        checkRecovered();
+    }
+
+    /**
+     * Rows inserted by other sessions while the checkpoint runs are kept
+     * when the database stops without a shutdown checkpoint.
+     */
+    public void testCheckpointWithConcurrentInserts() throws Exception {
+
+        url += ";hsqldb.tx=mvcc;hsqldb.online_checkpoint=true";
+
+        Connection conn = newConnection();
+        Statement  st   = conn.createStatement();
+
+        st.execute("SET FILES WRITE DELAY FALSE");
+        st.execute("CREATE MEMORY TABLE t (s CHAR(1), i INT, PRIMARY KEY (s, i))");
+        insertRows(st, "A", 10);
+
+        final String[] error    = new String[1];
+        Thread         inserter = new Thread() {
+
+            public void run() {
+
+                try {
+                    Connection c = newConnection();
+                    Statement  s = c.createStatement();
+
+                    insertRows(s, "B", 20);
+                    insertRows(s, "C", 30);
+                    c.close();
+                } catch (SQLException e) {
+                    error[0] = e.toString();
+                }
+            }
+        };
+
+        inserter.start();
+
+        for (int i = 0; i < 5; i++) {
+            st.execute("CHECKPOINT");
+        }
+
+        inserter.join();
+        assertNull(error[0], error[0]);
+        st.execute("CHECKPOINT");
+        st.execute("SHUTDOWN IMMEDIATELY");
+        checkRecovered();
+    }
+}
@@ -0,0 +1,367 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import org.hsqldb.Session;
+import org.hsqldb.jdbc.JDBCConnection;
+import org.hsqldb.persist.DataFileCache;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the row cache of CACHED tables with a cache that is much smaller
+ * than the table.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestRowCache extends TestCase {
+
+    String filepath = "/hsql/testrowcache/test";
+    String url      = "jdbc:hsqldb:file:" + filepath;
+    String user     = "sa";
+    String password = "";
+
+    //
+    static final int rowCount = 20000;
+
+    public TestRowCache(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        TestUtil.deleteDatabase(filepath);
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    }
+
+    protected void tearDown() {
+        TestUtil.deleteDatabase(filepath);
+    }
+
+    Connection newConnection(String properties) throws SQLException {
+        return DriverManager.getConnection(url + properties, user, password);
+    }
+
+    static DataFileCache getCache(Connection conn) {
+
+        Session session = (Session) ((JDBCConnection) conn).getSession();
+
+        return session.getDatabase().logger.getCache();
+    }
+
+    static void createTable(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+
+        st.execute("SET FILES WRITE DELAY FALSE");
+        st.execute("CREATE CACHED TABLE t (id INT PRIMARY KEY, v BIGINT,"
+                   + " filler VARCHAR(100))");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO t VALUES (?, ?, ?)");
+
+        for (int i = 0; i < rowCount; i++) {
+            ps.setInt(1, i);
+            ps.setLong(2, i);
+            ps.setString(3, "filler " + i);
+            ps.executeUpdate();
+        }
+
+        ps.close();
+    }
+
+    static long getSum(Statement st) throws SQLException {
+
+        ResultSet rs = st.executeQuery("SELECT SUM(v) FROM t");
+
+        rs.next();
+
+        return rs.getLong(1);
+    }
+
+    static long getExpectedSum(long increment) {
+        return (long) rowCount * (rowCount - 1) / 2 + rowCount * increment;
+    }
+
+    /**
+     * Rows that are read often stay in a small cache while the table is
+     * scanned and changed rows are saved before they are evicted.
+     */
+    public void testEviction() throws Exception {
+
+        Connection    conn  = newConnection(";hsqldb.cache_rows=1000");
+        Statement     st    = conn.createStatement();
+        DataFileCache cache = getCache(conn);
+
+        createTable(conn);
+        assertEquals(1000, cache.capacity());
+        assertTrue(cache.getCachedObjectCount() <= cache.capacity());
+
+        PreparedStatement ps =
+            conn.prepareStatement("SELECT v FROM t WHERE id = ?");
+
+        for (int round = 0; round < 3; round++) {
+            st.execute("UPDATE t SET v = v + 1");
+
+            for (int i = 0; i < 100; i++) {
+                ps.setInt(1, i);
+
+                ResultSet rs = ps.executeQuery();
+
+                rs.next();
+                assertEquals(i + round + 1, rs.getLong(1));
+            }
+
+            assertEquals(getExpectedSum(round + 1), getSum(st));
+            assertTrue(cache.getCachedObjectCount() <= cache.capacity());
+        }
+
+        st.execute("SHUTDOWN");
+
+        conn = newConnection("");
+        st   = conn.createStatement();
+
+        assertEquals(getExpectedSum(3), getSum(st));
+        st.execute("SHUTDOWN");
+    }
+
+    /**
+     * SET FILES CACHE ROWS and SET FILES CACHE SIZE change the limits of the
+     * open cache. After a decrease the cache is reduced at once and stays
+     * within the limits while rows are read.
+     */
+    public void testResize() throws Exception {
+
+        Connection    conn  = newConnection(";hsqldb.cache_rows=50000");
+        Statement     st    = conn.createStatement();
+        DataFileCache cache = getCache(conn);
+
+        createTable(conn);
+        getSum(st);
+        assertEquals(rowCount, cache.getCachedObjectCount());
+        st.execute("SET FILES CACHE ROWS 1000");
+        assertEquals(1000, cache.capacity());
+        assertTrue(cache.getCachedObjectCount() <= 1000);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(getExpectedSum(0), getSum(st));
+        }
+
+        assertTrue(cache.getCachedObjectCount() <= 1000);
+        st.execute("SET FILES CACHE ROWS 50000");
+        assertEquals(50000, cache.capacity());
+        getSum(st);
+        assertEquals(rowCount, cache.getCachedObjectCount());
+
+        // the size limit is in kilobytes
+        st.execute("SET FILES CACHE SIZE 100");
+        assertEquals(100 * 1024, cache.bytesCapacity());
+        assertTrue(cache.getTotalCachedBlockSize() <= 100 * 1024);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(getExpectedSum(0), getSum(st));
+        }
+
+        assertTrue(cache.getTotalCachedBlockSize() <= 100 * 1024);
+        assertTrue(cache.getCachedObjectCount() < rowCount);
+        st.execute("SHUTDOWN");
+    }
+
+    /**
+     * Sessions read rows through a cache split into segments while another
+     * session changes and adds rows, so rows are evicted and loaded in all
+     * the segments.
+     */
+    public void testConcurrentAccess() throws Exception {
+
+        Connection conn =
+            newConnection(";hsqldb.cache_rows=4096;hsqldb.tx=mvcc");
+        Statement st = conn.createStatement();
+
+        createTable(conn);
+
+        final int      readerCount = 4;
+        Thread[]       threads     = new Thread[readerCount + 1];
+        final String[] errors      = new String[readerCount + 1];
+
+        for (int i = 0; i < readerCount; i++) {
+            final int slot = i;
+
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection        c      = newConnection("");
+                        PreparedStatement ps     = c.prepareStatement(
+                            "SELECT v FROM t WHERE id = ?");
+                        Random            random = new Random(slot);
+
+                        for (int j = 0; j < 20000; j++) {
+                            int id = random.nextInt(rowCount);
+
+                            ps.setInt(1, id);
+
+                            ResultSet rs = ps.executeQuery();
+
+                            if (!rs.next()) {
+                                errors[slot] = "missing row " + id;
+
+                                break;
+                            }
+
+                            if (rs.getLong(1) != id) {
+                                errors[slot] = "wrong row " + id;
+
+                                break;
+                            }
+                        }
+
+                        c.close();
+                    } catch (SQLException e) {
+                        errors[slot] = e.toString();
+                    }
+                }
+            };
+        }
+
+        threads[readerCount] = new Thread() {
+
+            public void run() {
+
+                try {
+                    Connection c = newConnection("");
+                    Statement  s = c.createStatement();
+
+                    for (int j = 0; j < 10; j++) {
+                        s.execute("UPDATE t SET filler = 'changed " + j
+                                  + "' WHERE MOD(id, 10) = " + j);
+                        s.execute("INSERT INTO t VALUES (" + (rowCount + j)
+                                  + ", " + (rowCount + j) + ", 'new')");
+                    }
+
+                    c.close();
+                } catch (SQLException e) {
+                    errors[readerCount] = e.toString();
+                }
+            }
+        };
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertNull(errors[i], errors[i]);
+        }
+
+        ResultSet rs = st.executeQuery(
+            "SELECT COUNT(*) FROM t WHERE filler LIKE 'changed%'");
+
+        rs.next();
+        assertEquals(rowCount, rs.getInt(1));
+        assertTrue(getCache(conn).getCachedObjectCount() <= 4096);
+        st.execute("SHUTDOWN");
+    }
+
+    /**
+     * Counts the rows saved in the .data file, found by their filler value.
+     */
+    int getSavedRowCount() throws IOException {
+
+        RandomAccessFile file  = new RandomAccessFile(filepath + ".data",
+            "r");
+        byte[]           data  = new byte[(int) file.length()];
+        byte[]           mark  = "filler ".getBytes("ISO-8859-1");
+        int              count = 0;
+
+        file.readFully(data);
+        file.close();
+
+        search:
+        for (int i = 0; i <= data.length - mark.length; i++) {
+            for (int j = 0; j < mark.length; j++) {
+                if (data[i + j] != mark[j]) {
+                    continue search;
+                }
+            }
+
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * The background writer saves the new rows held in the cache without a
+     * checkpoint. The log is replayed over the saved rows after the process
+     * stops.
+     */
+    public void testBackgroundWriter() throws Exception {
+
+        Connection conn = newConnection(
+            ";hsqldb.cache_writer_millis=50;hsqldb.cache_writer_rows=500");
+        Statement st = conn.createStatement();
+
+        createTable(conn);
+
+        for (int i = 0; i < 200 && getSavedRowCount() < rowCount; i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(rowCount, getSavedRowCount());
+        assertEquals(rowCount, getCache(conn).getCachedObjectCount());
+        st.execute("UPDATE t SET v = v + 1");
+        Thread.sleep(500);
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        conn = newConnection("");
+        st   = conn.createStatement();
+
+        assertEquals(getExpectedSum(1), getSum(st));
+        st.execute("SHUTDOWN");
+    }
+}
@@ -0,0 +1,260 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hsqldb.persist.DataFileCache;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of SET TABLE ... NEW SPACE, which moves the rows of a CACHED table
+ * to a new table space while the database is open.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestTableSpace extends TestCase {
+
+    String filepath = "/hsql/testtablespace/test";
+    String url      = "jdbc:hsqldb:file:" + filepath;
+    String user     = "sa";
+    String password = "";
+
+    //
+    static final int rowCount = 20000;
+
+    public TestTableSpace(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        TestUtil.deleteDatabase(filepath);
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    }
+
+    protected void tearDown() {
+        TestUtil.deleteDatabase(filepath);
+    }
+
+    Connection newConnection() throws SQLException {
+        return DriverManager.getConnection(url + ";hsqldb.files_space=true",
+                                           user, password);
+    }
+
+    /**
+     * Creates a table with two indexes, then deletes every other row and
+     * updates some of the others, so that the rows are spread out.
+     */
+    static void createTable(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+
+        st.execute("SET FILES WRITE DELAY FALSE");
+        st.execute("CREATE CACHED TABLE t (id INT PRIMARY KEY, v INT,"
+                   + " filler VARCHAR(100))");
+        st.execute("CREATE INDEX t_v ON t (v)");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO t VALUES (?, ?, ?)");
+
+        for (int i = 0; i < rowCount; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, rowCount - i);
+            ps.setString(3, "filler " + i);
+            ps.executeUpdate();
+        }
+
+        ps.close();
+        st.execute("DELETE FROM t WHERE MOD(id, 2) = 1");
+        st.execute("UPDATE t SET filler = 'changed ' || id"
+                   + " WHERE MOD(id, 10) = 0");
+    }
+
+    static void checkTable(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+        ResultSet rs =
+            st.executeQuery("SELECT id, v, filler FROM t ORDER BY id");
+        int       id = 0;
+
+        while (rs.next()) {
+            assertEquals(id, rs.getInt(1));
+            assertEquals(rowCount - id, rs.getInt(2));
+            assertEquals(id % 10 == 0 ? "changed " + id
+                                      : "filler " + id, rs.getString(3));
+
+            id += 2;
+        }
+
+        assertEquals(rowCount, id);
+
+        rs = st.executeQuery("SELECT id FROM t WHERE v > 0 ORDER BY v");
+        id = rowCount - 2;
+
+        while (rs.next()) {
+            assertEquals(id, rs.getInt(1));
+
+            id -= 2;
+        }
+
+        assertEquals(-2, id);
+
+        PreparedStatement ps =
+            conn.prepareStatement("SELECT filler FROM t WHERE id = ?");
+
+        for (int i = 0; i < rowCount; i += 999) {
+            ps.setInt(1, i);
+
+            rs = ps.executeQuery();
+
+            assertEquals(i % 2 == 0, rs.next());
+        }
+
+        ps.close();
+    }
+
+    /**
+     * The table is moved more than once, changed between the moves and
+     * checked through both indexes, then after the database is reopened.
+     * Once the table has its own space, the space freed by each move is
+     * reused by the next one, so the file does not grow.
+     */
+    public void testNewSpace() throws Exception {
+
+        Connection    conn  = newConnection();
+        Statement     st    = conn.createStatement();
+        DataFileCache cache = TestRowCache.getCache(conn);
+        long          limit = 0;
+
+        createTable(conn);
+
+        for (int i = 0; i < 4; i++) {
+            st.execute("SET TABLE t NEW SPACE");
+            checkTable(conn);
+
+            if (i == 1) {
+                limit = cache.getFileFreePos();
+            } else if (i > 1) {
+                assertEquals(limit, cache.getFileFreePos());
+            }
+
+            st.execute("INSERT INTO t VALUES (" + (rowCount + i)
+                       + ", 0, 'x')");
+            st.execute("DELETE FROM t WHERE id >= " + rowCount);
+        }
+
+        st.execute("SHUTDOWN");
+
+        conn = newConnection();
+
+        checkTable(conn);
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    /**
+     * The move and later changes are recovered from the log after the
+     * database is closed without a checkpoint.
+     */
+    public void testNewSpaceRecovery() throws Exception {
+
+        Connection conn = newConnection();
+        Statement  st   = conn.createStatement();
+
+        createTable(conn);
+        st.execute("CHECKPOINT");
+        st.execute("SET TABLE t NEW SPACE");
+        st.execute("UPDATE t SET filler = 'changed ' || id"
+                   + " WHERE MOD(id, 10) = 0");
+        st.execute("INSERT INTO t VALUES (" + rowCount + ", 0, 'x')");
+        st.execute("SET TABLE t NEW SPACE");
+        st.execute("DELETE FROM t WHERE id = " + rowCount);
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        conn = newConnection();
+
+        checkTable(conn);
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    /**
+     * A move waits for the uncommitted change of another session to end
+     * and then includes the committed row.
+     */
+    public void testNewSpaceWaitsForTransaction() throws Exception {
+
+        final Connection conn  = newConnection();
+        Connection       other = newConnection();
+
+        createTable(conn);
+        other.setAutoCommit(false);
+        other.createStatement().execute("INSERT INTO t VALUES (" + rowCount
+                                        + ", 0, 'x')");
+
+        final SQLException[] errors = new SQLException[1];
+        Thread               thread = new Thread() {
+
+            public void run() {
+
+                try {
+                    conn.createStatement().execute("SET TABLE t NEW SPACE");
+                } catch (SQLException e) {
+                    errors[0] = e;
+                }
+            }
+        };
+
+        thread.start();
+        Thread.sleep(500);
+        assertTrue(thread.isAlive());
+        other.commit();
+        thread.join();
+        assertNull(errors[0]);
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT filler FROM t WHERE id = " + rowCount);
+
+        assertTrue(rs.next());
+        assertEquals("x", rs.getString(1));
+        conn.createStatement().execute("DELETE FROM t WHERE id = " + rowCount);
+        checkTable(conn);
+        conn.createStatement().execute("SHUTDOWN");
+    }
+}
@@ -0,0 +1,226 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of reading the source file of a TEXT table: the rows read from a
+ * file with quoted fields that contain separators and line ends, and the
+ * line number reported for a line that cannot be read.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.0
+ * @since 2.3.0
+ */
+public class TestTextTableSource extends TestCase {
+
+    String filepath = "/hsql/testtextsource/test";
+    String url      = "jdbc:hsqldb:file:" + filepath;
+    String user     = "sa";
+    String password = "";
+    String source   = "/hsql/testtextsource/t.csv";
+
+    // more than one chunk of lines read together
+    static final int rowCount = 40000;
+
+    //
+    Connection conn;
+    Statement  st;
+
+    public TestTextTableSource(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        TestUtil.deleteDatabase(filepath);
+        new File(source).delete();
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        conn = DriverManager.getConnection(url, user, password);
+        st   = conn.createStatement();
+
+        st.execute("CREATE TEXT TABLE t (id INT PRIMARY KEY, v VARCHAR(100),"
+                   + " n DECIMAL(10,2))");
+    }
+
+    protected void tearDown() throws Exception {
+
+        st.execute("SHUTDOWN");
+        TestUtil.deleteDatabase(filepath);
+        new File(source).delete();
+    }
+
+    /**
+     * Writes the source file. Every tenth value is quoted and contains a
+     * comma and a line end, so the file has more lines than rows. The line
+     * for the row with the id badId is replaced with badLine.
+     */
+    void writeSource(boolean header, int badId,
+                     String badLine) throws IOException {
+
+        StringBuffer sb = new StringBuffer();
+
+        if (header) {
+            sb.append("id,v,n\n");
+        }
+
+        for (int i = 0; i < rowCount; i++) {
+            if (i == badId) {
+                sb.append(badLine).append('\n');
+
+                continue;
+            }
+
+            sb.append(i).append(',');
+
+            if (i % 10 == 0) {
+                sb.append("\"value, ").append(i).append("\nnext\"");
+            } else {
+                sb.append("value ").append(i);
+            }
+
+            sb.append(',').append(i % 1000).append(".25\n");
+        }
+
+        OutputStream out = new FileOutputStream(source);
+
+        out.write(sb.toString().getBytes("ISO-8859-1"));
+        out.close();
+    }
+
+    /**
+     * Returns the line number of the row with the given id, counting a
+     * header line and the extra lines in quoted values.
+     */
+    static int getLineNumber(boolean header, int id) {
+        return (header ? 2
+                       : 1) + id + (id + 9) / 10;
+    }
+
+    void checkRows() throws SQLException {
+
+        ResultSet rs = st.executeQuery(
+            "SELECT COUNT(*), SUM(id), SUM(n) FROM t");
+
+        rs.next();
+        assertEquals(rowCount, rs.getInt(1));
+        assertEquals((long) rowCount * (rowCount - 1) / 2, rs.getLong(2));
+
+        rs = st.executeQuery("SELECT v FROM t WHERE id IN (12340, 12341)"
+                             + " ORDER BY id");
+
+        rs.next();
+        assertEquals("value, 12340\nnext", rs.getString(1));
+        rs.next();
+        assertEquals("value 12341", rs.getString(1));
+
+        rs = st.executeQuery("SELECT id FROM t WHERE n = 999.25"
+                             + " ORDER BY id DESC LIMIT 1");
+
+        rs.next();
+        assertEquals(rowCount - 1, rs.getInt(1));
+    }
+
+    void checkError(boolean header, int badId, String badLine,
+                    int lineNumber) throws Exception {
+
+        writeSource(header, badId, badLine);
+
+        try {
+            st.execute("SET TABLE t SOURCE 't.csv"
+                       + (header ? ";ignore_first=true"
+                                 : "") + "'");
+            fail("bad line read: " + badLine);
+        } catch (SQLException e) {
+            String message = e.getMessage();
+            String expected = "line number: " + lineNumber + " ";
+
+            assertTrue(message, message.indexOf(expected) > 0);
+        }
+
+        // the table is left without a source and can be connected again
+        writeSource(header, -1, null);
+        st.execute("SET TABLE t SOURCE 't.csv"
+                   + (header ? ";ignore_first=true"
+                             : "") + "'");
+        checkRows();
+    }
+
+    public void testRead() throws Exception {
+
+        writeSource(false, -1, null);
+        st.execute("SET TABLE t SOURCE 't.csv'");
+        checkRows();
+        st.execute("SHUTDOWN");
+
+        conn = DriverManager.getConnection(url, user, password);
+        st   = conn.createStatement();
+
+        checkRows();
+    }
+
+    public void testBadValue() throws Exception {
+        checkError(false, 30001, "30001,value,abc",
+                   getLineNumber(false, 30001));
+    }
+
+    public void testBadValueAfterHeader() throws Exception {
+        checkError(true, 16384, "16384,value,1.5.5",
+                   getLineNumber(true, 16384));
+    }
+
+    public void testBadFirstLine() throws Exception {
+        checkError(false, 0, "zero,value,1", 1);
+    }
+
+    public void testBadLastLine() throws Exception {
+        checkError(false, rowCount - 1, "x", getLineNumber(false,
+                rowCount - 1));
+    }
+
+    public void testDuplicateKey() throws Exception {
+        checkError(false, 20001, "20000,duplicate,1",
+                   getLineNumber(false, 20001));
+    }
+}
@@ -0,0 +1,145 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import org.hsqldb.lib.StopWatch;
+import org.hsqldb.map.ValuePool;
+import org.hsqldb.map.ValuePoolHashMap;
+
+/**
+ * Measures the throughput of ValuePool with several threads, compared to a
+ * single pool protected by a monitor, which is how ValuePool was implemented
+ * before version 2.3.0. The threads look up more distinct values than the
+ * pool holds, so many lookups are misses that write to the pool. The results
+ * show contention only when the threads run on several processors.<p>
+ *
+ * Usage: java org.hsqldb.test.TestValuePoolSpeed [maxThreads]
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ */
+public class TestValuePoolSpeed {
+
+    static final int count = 4000000;
+
+    static class LockedPool extends ValuePoolHashMap {
+
+        LockedPool() {
+            super(4096, 8192, PURGE_HALF);
+        }
+
+        synchronized Integer getInt(int val) {
+            return getOrAddInteger(val);
+        }
+
+        synchronized Long getLong(long val) {
+            return getOrAddLong(val);
+        }
+    }
+
+    static final LockedPool lockedIntPool  = new LockedPool();
+    static final LockedPool lockedLongPool = new LockedPool();
+
+    /**
+     * Runs count lookups in each thread and returns the elapsed time.
+     */
+    static long run(int threadCount, final boolean locked) {
+
+        Thread[]  threads = new Thread[threadCount];
+        StopWatch sw      = new StopWatch();
+
+        for (int i = 0; i < threadCount; i++) {
+            final int seed = i;
+
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    long sum = 0;
+
+                    for (int j = 0; j < count; j++) {
+
+                        // mostly repeated values, as in column data
+                        int val = (j * 31 + seed) & 0x3fff;
+
+                        if (locked) {
+                            sum += lockedIntPool.getInt(val).intValue();
+                            sum += lockedLongPool.getLong(val).longValue();
+                        } else {
+                            sum += ValuePool.getInt(val).intValue();
+                            sum += ValuePool.getLong(val).longValue();
+                        }
+                    }
+
+                    if (sum == 0) {
+                        System.out.println(sum);
+                    }
+                }
+            };
+        }
+
+        sw.zero();
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threadCount; i++) {
+            try {
+                threads[i].join();
+            } catch (InterruptedException e) {}
+        }
+
+        return sw.elapsedTime();
+    }
+
+    public static void main(String[] args) {
+
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                                         : Runtime.getRuntime()
+                                             .availableProcessors();
+
+        // warm up
+        run(1, true);
+        run(1, false);
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long lockedTime = run(threads, true);
+            long poolTime   = run(threads, false);
+            long ops        = 2L * count * threads;
+
+            System.out.println("threads " + threads + " locked pool "
+                               + (ops / Math.max(lockedTime, 1))
+                               + " ops/ms, ValuePool "
+                               + (ops / Math.max(poolTime, 1)) + " ops/ms");
+        }
+    }
+}
@@ -458,6 +458,13 @@ public class Collation implements SchemaObject {
         return s.toLowerCase(locale);
     }
 
+    /**
+     * collation compares the Java characters, with or without case
+     */
+    public boolean isCharCompare() {
+        return collator == null;
+    }
+
     /**
      * the SQL_TEXT collation
      */